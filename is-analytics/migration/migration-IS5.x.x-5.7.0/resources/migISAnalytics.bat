@@ -75,7 +75,7 @@ set /p dbDriver="Enter your database driver location [Absolute path] : "
 IF NOT DEFINED dbDriver SET dbDriver=\
 echo %dbDriver%
 
-java -jar migIS.one-jar.jar %dbType% %host% %port% %dbName% %user% %password% %dbDriver%
+java %JAVA_OPTS% -jar migIS.one-jar.jar %dbType% %host% %port% %dbName% %user% %password% %dbDriver% %1
 
 pause
 
@@ -81,7 +81,7 @@ do
 	    dbDriver=${dbDriver:-/}
 		echo $dbDriver
 
-	    java -jar migIS.one-jar.jar $dbType $host $port $dbName $user $password $dbDriver
+	    java $JAVA_OPTS -jar migIS.one-jar.jar $dbType $host $port $dbName $user $password $dbDriver $1
 
 	    flag=0
 
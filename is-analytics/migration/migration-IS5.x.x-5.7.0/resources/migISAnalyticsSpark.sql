@@ -25,7 +25,7 @@
         primaryKeys "AGG_TIMESTAMP, AGG_EVENT_TIMESTAMP, username, serviceProvider, identityProvider, region, userStoreDomain, isFirstLogin, identityProviderType");
         
         INSERT INTO TABLE AuthStatAgg_HOURS
-        SELECT (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-','2000','01','01'),concat_ws(':','00','00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as AGG_TIMESTAMP, (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-',year,month,day),concat_ws(':',hour,'00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as AGG_EVENT_TIMESTAMP, username, serviceProvider, identityProvider, CASE WHEN region = "" THEN "NOT_AVAILABLE" ELSE region END AS region, userStoreDomain, (cast(sum(authFirstSuccessCount) as BOOLEAN) and cast(sum(authSuccessCount) as BOOLEAN)) as isFirstLogin, CASE WHEN first(identityProviderType) is null THEN "SSO" ELSE first(identityProviderType) END AS identityProviderType, (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-',year,month,day),concat_ws(':',hour,'00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as AGG_LAST_EVENT_TIMESTAMP, meta_tenantId, first(localUsername), CASE WHEN first(rolesCommaSeparated) = "NOT_AVAILABLE" THEN concat(concat(',',last(rolesCommaSeparated)),',') ELSE concat(concat(',',first(rolesCommaSeparated)),',') END AS rolesCommaSeparated, remoteIp, (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-',year,month,day),concat_ws(':',hour,'00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as timestamp, sum(authSuccessCount) as AGG_SUM_successValue, sum(authFailureCount) as AGG_SUM_failureValue, sum(authStepSuccessCount) as AGG_SUM_stepSuccessValue, sum(authFirstSuccessCount) as AGG_SUM_firstLoginValue
+        SELECT cast(946684800000 as LONG) as AGG_TIMESTAMP, (cast(365 * (year - 1970) + floor((year - 1) / 4) - floor((year - 1) / 100) + floor((year - 1) / 400) - 477 + CASE month WHEN 1 THEN 0 WHEN 2 THEN 31 WHEN 3 THEN 59 WHEN 4 THEN 90 WHEN 5 THEN 120 WHEN 6 THEN 151 WHEN 7 THEN 181 WHEN 8 THEN 212 WHEN 9 THEN 243 WHEN 10 THEN 273 WHEN 11 THEN 304 WHEN 12 THEN 334 END + CASE WHEN month > 2 THEN CASE WHEN year % 4 = 0 AND (year % 100 <> 0 OR year % 400 = 0) THEN 1 ELSE 0 END ELSE 0 END + day - 1 as LONG) * 24 + hour) * 3600000 as AGG_EVENT_TIMESTAMP, username, serviceProvider, identityProvider, CASE WHEN region = "" THEN "NOT_AVAILABLE" ELSE region END AS region, userStoreDomain, (cast(sum(authFirstSuccessCount) as BOOLEAN) and cast(sum(authSuccessCount) as BOOLEAN)) as isFirstLogin, CASE WHEN first(identityProviderType) is null THEN "SSO" ELSE first(identityProviderType) END AS identityProviderType, (cast(365 * (year - 1970) + floor((year - 1) / 4) - floor((year - 1) / 100) + floor((year - 1) / 400) - 477 + CASE month WHEN 1 THEN 0 WHEN 2 THEN 31 WHEN 3 THEN 59 WHEN 4 THEN 90 WHEN 5 THEN 120 WHEN 6 THEN 151 WHEN 7 THEN 181 WHEN 8 THEN 212 WHEN 9 THEN 243 WHEN 10 THEN 273 WHEN 11 THEN 304 WHEN 12 THEN 334 END + CASE WHEN month > 2 THEN CASE WHEN year % 4 = 0 AND (year % 100 <> 0 OR year % 400 = 0) THEN 1 ELSE 0 END ELSE 0 END + day - 1 as LONG) * 24 + hour) * 3600000 as AGG_LAST_EVENT_TIMESTAMP, meta_tenantId, first(localUsername), CASE WHEN first(rolesCommaSeparated) = "NOT_AVAILABLE" THEN concat(concat(',',last(rolesCommaSeparated)),',') ELSE concat(concat(',',first(rolesCommaSeparated)),',') END AS rolesCommaSeparated, remoteIp, (cast(365 * (year - 1970) + floor((year - 1) / 4) - floor((year - 1) / 100) + floor((year - 1) / 400) - 477 + CASE month WHEN 1 THEN 0 WHEN 2 THEN 31 WHEN 3 THEN 59 WHEN 4 THEN 90 WHEN 5 THEN 120 WHEN 6 THEN 151 WHEN 7 THEN 181 WHEN 8 THEN 212 WHEN 9 THEN 243 WHEN 10 THEN 273 WHEN 11 THEN 304 WHEN 12 THEN 334 END + CASE WHEN month > 2 THEN CASE WHEN year % 4 = 0 AND (year % 100 <> 0 OR year % 400 = 0) THEN 1 ELSE 0 END ELSE 0 END + day - 1 as LONG) * 24 + hour) * 3600000 as timestamp, sum(authSuccessCount) as AGG_SUM_successValue, sum(authFailureCount) as AGG_SUM_failureValue, sum(authStepSuccessCount) as AGG_SUM_stepSuccessValue, sum(authFirstSuccessCount) as AGG_SUM_firstLoginValue
         FROM isAuthenticationAnalyticsPerHourMig
         GROUP BY meta_tenantId, year, month, day, hour, username, serviceProvider, identityProvider, region, remoteIp, userStoreDomain, identityProviderType;                             
           
@@ -45,7 +45,7 @@
         primaryKeys "AGG_TIMESTAMP, AGG_EVENT_TIMESTAMP, username, serviceProvider, identityProvider, region, userStoreDomain, isFirstLogin, identityProviderType");
         
         INSERT INTO TABLE AuthStatAgg_DAYS
-        SELECT (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-','2001','01','01'),concat_ws(':','00','00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as AGG_TIMESTAMP, (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-',year,month,day),concat_ws(':','00','00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as AGG_EVENT_TIMESTAMP, username, serviceProvider, identityProvider, CASE WHEN region = "" THEN "NOT_AVAILABLE" ELSE region END AS region, userStoreDomain, (cast(sum(authFirstSuccessCount) as BOOLEAN) and cast(sum(authSuccessCount) as BOOLEAN)) as isFirstLogin, CASE WHEN first(identityProviderType) is null THEN "SSO" ELSE first(identityProviderType) END AS identityProviderType, (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-',year,month,day),concat_ws(':','00','00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as AGG_LAST_EVENT_TIMESTAMP, meta_tenantId, first(localUsername), CASE WHEN first(rolesCommaSeparated) = "NOT_AVAILABLE" THEN concat(concat(',',last(rolesCommaSeparated)),',') ELSE concat(concat(',',first(rolesCommaSeparated)),',') END AS rolesCommaSeparated, '' as remoteIp, (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-',year,month,day),concat_ws(':','00','00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as timestamp, sum(authSuccessCount) as AGG_SUM_successValue, sum(authFailureCount) as AGG_SUM_failureValue, sum(authStepSuccessCount) as AGG_SUM_stepSuccessValue, sum(authFirstSuccessCount) as AGG_SUM_firstLoginValue
+        SELECT cast(978307200000 as LONG) as AGG_TIMESTAMP, (cast(365 * (year - 1970) + floor((year - 1) / 4) - floor((year - 1) / 100) + floor((year - 1) / 400) - 477 + CASE month WHEN 1 THEN 0 WHEN 2 THEN 31 WHEN 3 THEN 59 WHEN 4 THEN 90 WHEN 5 THEN 120 WHEN 6 THEN 151 WHEN 7 THEN 181 WHEN 8 THEN 212 WHEN 9 THEN 243 WHEN 10 THEN 273 WHEN 11 THEN 304 WHEN 12 THEN 334 END + CASE WHEN month > 2 THEN CASE WHEN year % 4 = 0 AND (year % 100 <> 0 OR year % 400 = 0) THEN 1 ELSE 0 END ELSE 0 END + day - 1 as LONG) * 24) * 3600000 as AGG_EVENT_TIMESTAMP, username, serviceProvider, identityProvider, CASE WHEN region = "" THEN "NOT_AVAILABLE" ELSE region END AS region, userStoreDomain, (cast(sum(authFirstSuccessCount) as BOOLEAN) and cast(sum(authSuccessCount) as BOOLEAN)) as isFirstLogin, CASE WHEN first(identityProviderType) is null THEN "SSO" ELSE first(identityProviderType) END AS identityProviderType, (cast(365 * (year - 1970) + floor((year - 1) / 4) - floor((year - 1) / 100) + floor((year - 1) / 400) - 477 + CASE month WHEN 1 THEN 0 WHEN 2 THEN 31 WHEN 3 THEN 59 WHEN 4 THEN 90 WHEN 5 THEN 120 WHEN 6 THEN 151 WHEN 7 THEN 181 WHEN 8 THEN 212 WHEN 9 THEN 243 WHEN 10 THEN 273 WHEN 11 THEN 304 WHEN 12 THEN 334 END + CASE WHEN month > 2 THEN CASE WHEN year % 4 = 0 AND (year % 100 <> 0 OR year % 400 = 0) THEN 1 ELSE 0 END ELSE 0 END + day - 1 as LONG) * 24) * 3600000 as AGG_LAST_EVENT_TIMESTAMP, meta_tenantId, first(localUsername), CASE WHEN first(rolesCommaSeparated) = "NOT_AVAILABLE" THEN concat(concat(',',last(rolesCommaSeparated)),',') ELSE concat(concat(',',first(rolesCommaSeparated)),',') END AS rolesCommaSeparated, '' as remoteIp, (cast(365 * (year - 1970) + floor((year - 1) / 4) - floor((year - 1) / 100) + floor((year - 1) / 400) - 477 + CASE month WHEN 1 THEN 0 WHEN 2 THEN 31 WHEN 3 THEN 59 WHEN 4 THEN 90 WHEN 5 THEN 120 WHEN 6 THEN 151 WHEN 7 THEN 181 WHEN 8 THEN 212 WHEN 9 THEN 243 WHEN 10 THEN 273 WHEN 11 THEN 304 WHEN 12 THEN 334 END + CASE WHEN month > 2 THEN CASE WHEN year % 4 = 0 AND (year % 100 <> 0 OR year % 400 = 0) THEN 1 ELSE 0 END ELSE 0 END + day - 1 as LONG) * 24) * 3600000 as timestamp, sum(authSuccessCount) as AGG_SUM_successValue, sum(authFailureCount) as AGG_SUM_failureValue, sum(authStepSuccessCount) as AGG_SUM_stepSuccessValue, sum(authFirstSuccessCount) as AGG_SUM_firstLoginValue
         FROM isAuthenticationAnalyticsPerDayMig
         GROUP BY meta_tenantId, year, month, day, username, serviceProvider, identityProvider, region, userStoreDomain, identityProviderType;   
         
@@ -65,7 +65,7 @@
         primaryKeys "AGG_TIMESTAMP, AGG_EVENT_TIMESTAMP, username, serviceProvider, identityProvider, region, userStoreDomain, isFirstLogin, identityProviderType");
         
         INSERT INTO TABLE AuthStatAgg_MONTHS
-        SELECT (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-','2002','01','01'),concat_ws(':','00','00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as AGG_TIMESTAMP, (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-',year,month,'01'),concat_ws(':','00','00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as AGG_EVENT_TIMESTAMP, username, serviceProvider, identityProvider, CASE WHEN region = "" THEN "NOT_AVAILABLE" ELSE region END AS region, userStoreDomain, (cast(sum(authFirstSuccessCount) as BOOLEAN) and cast(sum(authSuccessCount) as BOOLEAN)) as isFirstLogin, CASE WHEN first(identityProviderType) is null THEN "SSO" ELSE first(identityProviderType) END AS identityProviderType, (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-',year,month,'01'),concat_ws(':','00','00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as AGG_LAST_EVENT_TIMESTAMP, meta_tenantId, first(localUsername), CASE WHEN first(rolesCommaSeparated) = "NOT_AVAILABLE" THEN concat(concat(',',last(rolesCommaSeparated)),',') ELSE concat(concat(',',first(rolesCommaSeparated)),',') END AS rolesCommaSeparated, '' as remoteIp, (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-',year,month,'01'),concat_ws(':','00','00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as timestamp, sum(authSuccessCount) as AGG_SUM_successValue, sum(authFailureCount) as AGG_SUM_failureValue, sum(authStepSuccessCount) as AGG_SUM_stepSuccessValue, sum(authFirstSuccessCount) as AGG_SUM_firstLoginValue
+        SELECT cast(1009843200000 as LONG) as AGG_TIMESTAMP, (cast(365 * (year - 1970) + floor((year - 1) / 4) - floor((year - 1) / 100) + floor((year - 1) / 400) - 477 + CASE month WHEN 1 THEN 0 WHEN 2 THEN 31 WHEN 3 THEN 59 WHEN 4 THEN 90 WHEN 5 THEN 120 WHEN 6 THEN 151 WHEN 7 THEN 181 WHEN 8 THEN 212 WHEN 9 THEN 243 WHEN 10 THEN 273 WHEN 11 THEN 304 WHEN 12 THEN 334 END + CASE WHEN month > 2 THEN CASE WHEN year % 4 = 0 AND (year % 100 <> 0 OR year % 400 = 0) THEN 1 ELSE 0 END ELSE 0 END as LONG) * 24) * 3600000 as AGG_EVENT_TIMESTAMP, username, serviceProvider, identityProvider, CASE WHEN region = "" THEN "NOT_AVAILABLE" ELSE region END AS region, userStoreDomain, (cast(sum(authFirstSuccessCount) as BOOLEAN) and cast(sum(authSuccessCount) as BOOLEAN)) as isFirstLogin, CASE WHEN first(identityProviderType) is null THEN "SSO" ELSE first(identityProviderType) END AS identityProviderType, (cast(365 * (year - 1970) + floor((year - 1) / 4) - floor((year - 1) / 100) + floor((year - 1) / 400) - 477 + CASE month WHEN 1 THEN 0 WHEN 2 THEN 31 WHEN 3 THEN 59 WHEN 4 THEN 90 WHEN 5 THEN 120 WHEN 6 THEN 151 WHEN 7 THEN 181 WHEN 8 THEN 212 WHEN 9 THEN 243 WHEN 10 THEN 273 WHEN 11 THEN 304 WHEN 12 THEN 334 END + CASE WHEN month > 2 THEN CASE WHEN year % 4 = 0 AND (year % 100 <> 0 OR year % 400 = 0) THEN 1 ELSE 0 END ELSE 0 END as LONG) * 24) * 3600000 as AGG_LAST_EVENT_TIMESTAMP, meta_tenantId, first(localUsername), CASE WHEN first(rolesCommaSeparated) = "NOT_AVAILABLE" THEN concat(concat(',',last(rolesCommaSeparated)),',') ELSE concat(concat(',',first(rolesCommaSeparated)),',') END AS rolesCommaSeparated, '' as remoteIp, (cast(365 * (year - 1970) + floor((year - 1) / 4) - floor((year - 1) / 100) + floor((year - 1) / 400) - 477 + CASE month WHEN 1 THEN 0 WHEN 2 THEN 31 WHEN 3 THEN 59 WHEN 4 THEN 90 WHEN 5 THEN 120 WHEN 6 THEN 151 WHEN 7 THEN 181 WHEN 8 THEN 212 WHEN 9 THEN 243 WHEN 10 THEN 273 WHEN 11 THEN 304 WHEN 12 THEN 334 END + CASE WHEN month > 2 THEN CASE WHEN year % 4 = 0 AND (year % 100 <> 0 OR year % 400 = 0) THEN 1 ELSE 0 END ELSE 0 END as LONG) * 24) * 3600000 as timestamp, sum(authSuccessCount) as AGG_SUM_successValue, sum(authFailureCount) as AGG_SUM_failureValue, sum(authStepSuccessCount) as AGG_SUM_stepSuccessValue, sum(authFirstSuccessCount) as AGG_SUM_firstLoginValue
         FROM isAuthenticationAnalyticsPerMonthMig
         GROUP BY meta_tenantId, year, month, username, serviceProvider, identityProvider, region, userStoreDomain, identityProviderType;                   
                             
@@ -85,7 +85,7 @@
         primaryKeys "AGG_TIMESTAMP, AGG_EVENT_TIMESTAMP, username, serviceProvider, identityProvider, region, userStoreDomain, isFirstLogin, identityProviderType");
         
         INSERT INTO TABLE AuthStatAgg_YEARS
-        SELECT (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-','2003','01','01'),concat_ws(':','00','00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as AGG_TIMESTAMP, (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-',year,'01','01'),concat_ws(':','00','00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as AGG_EVENT_TIMESTAMP, username, serviceProvider, identityProvider, CASE WHEN region = "" THEN "NOT_AVAILABLE" ELSE region END AS region, userStoreDomain, (cast(sum(authFirstSuccessCount) as BOOLEAN) and cast(sum(authSuccessCount) as BOOLEAN)) as isFirstLogin, CASE WHEN first(identityProviderType) is null THEN "SSO" ELSE first(identityProviderType) END AS identityProviderType, (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-',year,'01','01'),concat_ws(':','00','00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as AGG_LAST_EVENT_TIMESTAMP, meta_tenantId, first(localUsername), CASE WHEN first(rolesCommaSeparated) = "NOT_AVAILABLE" THEN concat(concat(',',last(rolesCommaSeparated)),',') ELSE concat(concat(',',first(rolesCommaSeparated)),',') END AS rolesCommaSeparated, '' as remoteIp, (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-',year,'01','01'),concat_ws(':','00','00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as timestamp, sum(authSuccessCount) as AGG_SUM_successValue, sum(authFailureCount) as AGG_SUM_failureValue, sum(authStepSuccessCount) as AGG_SUM_stepSuccessValue, sum(authFirstSuccessCount) as AGG_SUM_firstLoginValue
+        SELECT cast(1041379200000 as LONG) as AGG_TIMESTAMP, (cast(365 * (year - 1970) + floor((year - 1) / 4) - floor((year - 1) / 100) + floor((year - 1) / 400) - 477 as LONG) * 24) * 3600000 as AGG_EVENT_TIMESTAMP, username, serviceProvider, identityProvider, CASE WHEN region = "" THEN "NOT_AVAILABLE" ELSE region END AS region, userStoreDomain, (cast(sum(authFirstSuccessCount) as BOOLEAN) and cast(sum(authSuccessCount) as BOOLEAN)) as isFirstLogin, CASE WHEN first(identityProviderType) is null THEN "SSO" ELSE first(identityProviderType) END AS identityProviderType, (cast(365 * (year - 1970) + floor((year - 1) / 4) - floor((year - 1) / 100) + floor((year - 1) / 400) - 477 as LONG) * 24) * 3600000 as AGG_LAST_EVENT_TIMESTAMP, meta_tenantId, first(localUsername), CASE WHEN first(rolesCommaSeparated) = "NOT_AVAILABLE" THEN concat(concat(',',last(rolesCommaSeparated)),',') ELSE concat(concat(',',first(rolesCommaSeparated)),',') END AS rolesCommaSeparated, '' as remoteIp, (cast(365 * (year - 1970) + floor((year - 1) / 4) - floor((year - 1) / 100) + floor((year - 1) / 400) - 477 as LONG) * 24) * 3600000 as timestamp, sum(authSuccessCount) as AGG_SUM_successValue, sum(authFailureCount) as AGG_SUM_failureValue, sum(authStepSuccessCount) as AGG_SUM_stepSuccessValue, sum(authFirstSuccessCount) as AGG_SUM_firstLoginValue
         FROM isAuthenticationAnalyticsPerYearMig
         GROUP BY meta_tenantId, year, username, serviceProvider, identityProvider, region, userStoreDomain, identityProviderType;                    
                             
@@ -101,7 +101,7 @@
         primaryKeys "AGG_TIMESTAMP, AGG_EVENT_TIMESTAMP, username, serviceProvider, identityProvider, region, token, userStoreDomain, isFirstLogin, identityProviderType");
         
         INSERT INTO TABLE RoleAggregation_HOURS
-        SELECT (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-','2000','01','01'),concat_ws(':','00','00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as AGG_TIMESTAMP, (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-',year,month,day),concat_ws(':',hour,'00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as AGG_EVENT_TIMESTAMP, username, serviceProvider, identityProvider, CASE WHEN region = "" THEN "NOT_AVAILABLE" ELSE region END AS region, role as token, userStoreDomain, ((cast(sum(authStepSuccessCount) as BOOLEAN) and cast(sum(authSuccessCount) as BOOLEAN)) or (cast(sum(authSuccessCount) as BOOLEAN) and cast(instr(CASE WHEN first(identityProviderType) is null THEN "SSO" ELSE first(identityProviderType) END,',') as BOOLEAN))) as isFirstLogin, CASE WHEN first(identityProviderType) is null THEN "SSO" ELSE first(identityProviderType) END AS identityProviderType, (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-',year,month,day),concat_ws(':',hour,'00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as AGG_LAST_EVENT_TIMESTAMP, meta_tenantId, remoteIp, (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-',year,month,day),concat_ws(':',hour,'00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as timestamp, sum(authSuccessCount) as AGG_SUM_successValue, sum(authFailureCount) as AGG_SUM_failureValue, sum(authStepSuccessCount) as AGG_SUM_stepSuccessValue, 0 as AGG_SUM_firstLoginValue
+        SELECT cast(946684800000 as LONG) as AGG_TIMESTAMP, (cast(365 * (year - 1970) + floor((year - 1) / 4) - floor((year - 1) / 100) + floor((year - 1) / 400) - 477 + CASE month WHEN 1 THEN 0 WHEN 2 THEN 31 WHEN 3 THEN 59 WHEN 4 THEN 90 WHEN 5 THEN 120 WHEN 6 THEN 151 WHEN 7 THEN 181 WHEN 8 THEN 212 WHEN 9 THEN 243 WHEN 10 THEN 273 WHEN 11 THEN 304 WHEN 12 THEN 334 END + CASE WHEN month > 2 THEN CASE WHEN year % 4 = 0 AND (year % 100 <> 0 OR year % 400 = 0) THEN 1 ELSE 0 END ELSE 0 END + day - 1 as LONG) * 24 + hour) * 3600000 as AGG_EVENT_TIMESTAMP, username, serviceProvider, identityProvider, CASE WHEN region = "" THEN "NOT_AVAILABLE" ELSE region END AS region, role as token, userStoreDomain, ((cast(sum(authStepSuccessCount) as BOOLEAN) and cast(sum(authSuccessCount) as BOOLEAN)) or (cast(sum(authSuccessCount) as BOOLEAN) and cast(instr(CASE WHEN first(identityProviderType) is null THEN "SSO" ELSE first(identityProviderType) END,',') as BOOLEAN))) as isFirstLogin, CASE WHEN first(identityProviderType) is null THEN "SSO" ELSE first(identityProviderType) END AS identityProviderType, (cast(365 * (year - 1970) + floor((year - 1) / 4) - floor((year - 1) / 100) + floor((year - 1) / 400) - 477 + CASE month WHEN 1 THEN 0 WHEN 2 THEN 31 WHEN 3 THEN 59 WHEN 4 THEN 90 WHEN 5 THEN 120 WHEN 6 THEN 151 WHEN 7 THEN 181 WHEN 8 THEN 212 WHEN 9 THEN 243 WHEN 10 THEN 273 WHEN 11 THEN 304 WHEN 12 THEN 334 END + CASE WHEN month > 2 THEN CASE WHEN year % 4 = 0 AND (year % 100 <> 0 OR year % 400 = 0) THEN 1 ELSE 0 END ELSE 0 END + day - 1 as LONG) * 24 + hour) * 3600000 as AGG_LAST_EVENT_TIMESTAMP, meta_tenantId, remoteIp, (cast(365 * (year - 1970) + floor((year - 1) / 4) - floor((year - 1) / 100) + floor((year - 1) / 400) - 477 + CASE month WHEN 1 THEN 0 WHEN 2 THEN 31 WHEN 3 THEN 59 WHEN 4 THEN 90 WHEN 5 THEN 120 WHEN 6 THEN 151 WHEN 7 THEN 181 WHEN 8 THEN 212 WHEN 9 THEN 243 WHEN 10 THEN 273 WHEN 11 THEN 304 WHEN 12 THEN 334 END + CASE WHEN month > 2 THEN CASE WHEN year % 4 = 0 AND (year % 100 <> 0 OR year % 400 = 0) THEN 1 ELSE 0 END ELSE 0 END + day - 1 as LONG) * 24 + hour) * 3600000 as timestamp, sum(authSuccessCount) as AGG_SUM_successValue, sum(authFailureCount) as AGG_SUM_failureValue, sum(authStepSuccessCount) as AGG_SUM_stepSuccessValue, 0 as AGG_SUM_firstLoginValue
         FROM isRoleAuthenticationAnalyticsPerHourMig
         GROUP BY meta_tenantId, year, month, day, hour, username, role, serviceProvider, identityProvider, remoteIp, region, userStoreDomain, identityProviderType;                    
                             
@@ -121,7 +121,7 @@
         primaryKeys "AGG_TIMESTAMP, AGG_EVENT_TIMESTAMP, username, serviceProvider, identityProvider, region, token, userStoreDomain, isFirstLogin, identityProviderType");
         
         INSERT INTO TABLE RoleAggregation_DAYS
-        SELECT (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-','2001','01','01'),concat_ws(':','00','00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as AGG_TIMESTAMP, (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-',year,month,day),concat_ws(':','00','00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as AGG_EVENT_TIMESTAMP, username, serviceProvider, identityProvider, CASE WHEN region = "" THEN "NOT_AVAILABLE" ELSE region END AS region, role as token, userStoreDomain, ((cast(sum(authStepSuccessCount) as BOOLEAN) and cast(sum(authSuccessCount) as BOOLEAN)) or (cast(sum(authSuccessCount) as BOOLEAN) and cast(instr(CASE WHEN first(identityProviderType) is null THEN "SSO" ELSE first(identityProviderType) END,',') as BOOLEAN))) as isFirstLogin, CASE WHEN first(identityProviderType) is null THEN "SSO" ELSE first(identityProviderType) END AS identityProviderType, (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-',year,month,day),concat_ws(':','00','00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as AGG_LAST_EVENT_TIMESTAMP, meta_tenantId, '' as remoteIp, (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-',year,month,day),concat_ws(':','00','00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as timestamp, sum(authSuccessCount) as AGG_SUM_successValue, sum(authFailureCount) as AGG_SUM_failureValue, sum(authStepSuccessCount) as AGG_SUM_stepSuccessValue, 0 as AGG_SUM_firstLoginValue
+        SELECT cast(978307200000 as LONG) as AGG_TIMESTAMP, (cast(365 * (year - 1970) + floor((year - 1) / 4) - floor((year - 1) / 100) + floor((year - 1) / 400) - 477 + CASE month WHEN 1 THEN 0 WHEN 2 THEN 31 WHEN 3 THEN 59 WHEN 4 THEN 90 WHEN 5 THEN 120 WHEN 6 THEN 151 WHEN 7 THEN 181 WHEN 8 THEN 212 WHEN 9 THEN 243 WHEN 10 THEN 273 WHEN 11 THEN 304 WHEN 12 THEN 334 END + CASE WHEN month > 2 THEN CASE WHEN year % 4 = 0 AND (year % 100 <> 0 OR year % 400 = 0) THEN 1 ELSE 0 END ELSE 0 END + day - 1 as LONG) * 24) * 3600000 as AGG_EVENT_TIMESTAMP, username, serviceProvider, identityProvider, CASE WHEN region = "" THEN "NOT_AVAILABLE" ELSE region END AS region, role as token, userStoreDomain, ((cast(sum(authStepSuccessCount) as BOOLEAN) and cast(sum(authSuccessCount) as BOOLEAN)) or (cast(sum(authSuccessCount) as BOOLEAN) and cast(instr(CASE WHEN first(identityProviderType) is null THEN "SSO" ELSE first(identityProviderType) END,',') as BOOLEAN))) as isFirstLogin, CASE WHEN first(identityProviderType) is null THEN "SSO" ELSE first(identityProviderType) END AS identityProviderType, (cast(365 * (year - 1970) + floor((year - 1) / 4) - floor((year - 1) / 100) + floor((year - 1) / 400) - 477 + CASE month WHEN 1 THEN 0 WHEN 2 THEN 31 WHEN 3 THEN 59 WHEN 4 THEN 90 WHEN 5 THEN 120 WHEN 6 THEN 151 WHEN 7 THEN 181 WHEN 8 THEN 212 WHEN 9 THEN 243 WHEN 10 THEN 273 WHEN 11 THEN 304 WHEN 12 THEN 334 END + CASE WHEN month > 2 THEN CASE WHEN year % 4 = 0 AND (year % 100 <> 0 OR year % 400 = 0) THEN 1 ELSE 0 END ELSE 0 END + day - 1 as LONG) * 24) * 3600000 as AGG_LAST_EVENT_TIMESTAMP, meta_tenantId, '' as remoteIp, (cast(365 * (year - 1970) + floor((year - 1) / 4) - floor((year - 1) / 100) + floor((year - 1) / 400) - 477 + CASE month WHEN 1 THEN 0 WHEN 2 THEN 31 WHEN 3 THEN 59 WHEN 4 THEN 90 WHEN 5 THEN 120 WHEN 6 THEN 151 WHEN 7 THEN 181 WHEN 8 THEN 212 WHEN 9 THEN 243 WHEN 10 THEN 273 WHEN 11 THEN 304 WHEN 12 THEN 334 END + CASE WHEN month > 2 THEN CASE WHEN year % 4 = 0 AND (year % 100 <> 0 OR year % 400 = 0) THEN 1 ELSE 0 END ELSE 0 END + day - 1 as LONG) * 24) * 3600000 as timestamp, sum(authSuccessCount) as AGG_SUM_successValue, sum(authFailureCount) as AGG_SUM_failureValue, sum(authStepSuccessCount) as AGG_SUM_stepSuccessValue, 0 as AGG_SUM_firstLoginValue
         FROM isRoleAuthenticationAnalyticsPerDayMig
         GROUP BY meta_tenantId, year, month, day, username, role, serviceProvider, identityProvider, region, userStoreDomain, identityProviderType;                    
                             
@@ -141,7 +141,7 @@
         primaryKeys "AGG_TIMESTAMP, AGG_EVENT_TIMESTAMP, username, serviceProvider, identityProvider, region, token, userStoreDomain, isFirstLogin, identityProviderType");
         
         INSERT INTO TABLE RoleAggregation_MONTHS
-        SELECT (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-','2002','01','01'),concat_ws(':','00','00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as AGG_TIMESTAMP, (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-',year,month,'01'),concat_ws(':','00','00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as AGG_EVENT_TIMESTAMP, username, serviceProvider, identityProvider, CASE WHEN region = "" THEN "NOT_AVAILABLE" ELSE region END AS region, role as token, userStoreDomain, ((cast(sum(authStepSuccessCount) as BOOLEAN) and cast(sum(authSuccessCount) as BOOLEAN)) or (cast(sum(authSuccessCount) as BOOLEAN) and cast(instr(CASE WHEN first(identityProviderType) is null THEN "SSO" ELSE first(identityProviderType) END,',') as BOOLEAN))) as isFirstLogin, CASE WHEN first(identityProviderType) is null THEN "SSO" ELSE first(identityProviderType) END AS identityProviderType, (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-',year,month,'01'),concat_ws(':','00','00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as AGG_LAST_EVENT_TIMESTAMP, meta_tenantId, '' as remoteIp, (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-',year,month,'01'),concat_ws(':','00','00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as timestamp, sum(authSuccessCount) as AGG_SUM_successValue, sum(authFailureCount) as AGG_SUM_failureValue, sum(authStepSuccessCount) as AGG_SUM_stepSuccessValue, 0 as AGG_SUM_firstLoginValue
+        SELECT cast(1009843200000 as LONG) as AGG_TIMESTAMP, (cast(365 * (year - 1970) + floor((year - 1) / 4) - floor((year - 1) / 100) + floor((year - 1) / 400) - 477 + CASE month WHEN 1 THEN 0 WHEN 2 THEN 31 WHEN 3 THEN 59 WHEN 4 THEN 90 WHEN 5 THEN 120 WHEN 6 THEN 151 WHEN 7 THEN 181 WHEN 8 THEN 212 WHEN 9 THEN 243 WHEN 10 THEN 273 WHEN 11 THEN 304 WHEN 12 THEN 334 END + CASE WHEN month > 2 THEN CASE WHEN year % 4 = 0 AND (year % 100 <> 0 OR year % 400 = 0) THEN 1 ELSE 0 END ELSE 0 END as LONG) * 24) * 3600000 as AGG_EVENT_TIMESTAMP, username, serviceProvider, identityProvider, CASE WHEN region = "" THEN "NOT_AVAILABLE" ELSE region END AS region, role as token, userStoreDomain, ((cast(sum(authStepSuccessCount) as BOOLEAN) and cast(sum(authSuccessCount) as BOOLEAN)) or (cast(sum(authSuccessCount) as BOOLEAN) and cast(instr(CASE WHEN first(identityProviderType) is null THEN "SSO" ELSE first(identityProviderType) END,',') as BOOLEAN))) as isFirstLogin, CASE WHEN first(identityProviderType) is null THEN "SSO" ELSE first(identityProviderType) END AS identityProviderType, (cast(365 * (year - 1970) + floor((year - 1) / 4) - floor((year - 1) / 100) + floor((year - 1) / 400) - 477 + CASE month WHEN 1 THEN 0 WHEN 2 THEN 31 WHEN 3 THEN 59 WHEN 4 THEN 90 WHEN 5 THEN 120 WHEN 6 THEN 151 WHEN 7 THEN 181 WHEN 8 THEN 212 WHEN 9 THEN 243 WHEN 10 THEN 273 WHEN 11 THEN 304 WHEN 12 THEN 334 END + CASE WHEN month > 2 THEN CASE WHEN year % 4 = 0 AND (year % 100 <> 0 OR year % 400 = 0) THEN 1 ELSE 0 END ELSE 0 END as LONG) * 24) * 3600000 as AGG_LAST_EVENT_TIMESTAMP, meta_tenantId, '' as remoteIp, (cast(365 * (year - 1970) + floor((year - 1) / 4) - floor((year - 1) / 100) + floor((year - 1) / 400) - 477 + CASE month WHEN 1 THEN 0 WHEN 2 THEN 31 WHEN 3 THEN 59 WHEN 4 THEN 90 WHEN 5 THEN 120 WHEN 6 THEN 151 WHEN 7 THEN 181 WHEN 8 THEN 212 WHEN 9 THEN 243 WHEN 10 THEN 273 WHEN 11 THEN 304 WHEN 12 THEN 334 END + CASE WHEN month > 2 THEN CASE WHEN year % 4 = 0 AND (year % 100 <> 0 OR year % 400 = 0) THEN 1 ELSE 0 END ELSE 0 END as LONG) * 24) * 3600000 as timestamp, sum(authSuccessCount) as AGG_SUM_successValue, sum(authFailureCount) as AGG_SUM_failureValue, sum(authStepSuccessCount) as AGG_SUM_stepSuccessValue, 0 as AGG_SUM_firstLoginValue
         FROM isRoleAuthenticationAnalyticsPerMonthMig
         GROUP BY meta_tenantId, year, month, username, role, serviceProvider, identityProvider, region, userStoreDomain, identityProviderType;                    
                             
@@ -161,7 +161,7 @@
         primaryKeys "AGG_TIMESTAMP, AGG_EVENT_TIMESTAMP, username, serviceProvider, identityProvider, region, token, userStoreDomain, isFirstLogin, identityProviderType");
         
         INSERT INTO TABLE RoleAggregation_YEARS
-        SELECT (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-','2003','01','01'),concat_ws(':','00','00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as AGG_TIMESTAMP, (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-',year,'01','01'),concat_ws(':','00','00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as AGG_EVENT_TIMESTAMP, username, serviceProvider, identityProvider, CASE WHEN region = "" THEN "NOT_AVAILABLE" ELSE region END AS region, role as token, userStoreDomain, ((cast(sum(authStepSuccessCount) as BOOLEAN) and cast(sum(authSuccessCount) as BOOLEAN)) or (cast(sum(authSuccessCount) as BOOLEAN) and cast(instr(CASE WHEN first(identityProviderType) is null THEN "SSO" ELSE first(identityProviderType) END,',') as BOOLEAN))) as isFirstLogin, CASE WHEN first(identityProviderType) is null THEN "SSO" ELSE first(identityProviderType) END AS identityProviderType, (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-',year,'01','01'),concat_ws(':','00','00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as AGG_LAST_EVENT_TIMESTAMP, meta_tenantId, '' as remoteIp, (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-',year,'01','01'),concat_ws(':','00','00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as timestamp, sum(authSuccessCount) as AGG_SUM_successValue, sum(authFailureCount) as AGG_SUM_failureValue, sum(authStepSuccessCount) as AGG_SUM_stepSuccessValue, 0 as AGG_SUM_firstLoginValue
+        SELECT cast(1041379200000 as LONG) as AGG_TIMESTAMP, (cast(365 * (year - 1970) + floor((year - 1) / 4) - floor((year - 1) / 100) + floor((year - 1) / 400) - 477 as LONG) * 24) * 3600000 as AGG_EVENT_TIMESTAMP, username, serviceProvider, identityProvider, CASE WHEN region = "" THEN "NOT_AVAILABLE" ELSE region END AS region, role as token, userStoreDomain, ((cast(sum(authStepSuccessCount) as BOOLEAN) and cast(sum(authSuccessCount) as BOOLEAN)) or (cast(sum(authSuccessCount) as BOOLEAN) and cast(instr(CASE WHEN first(identityProviderType) is null THEN "SSO" ELSE first(identityProviderType) END,',') as BOOLEAN))) as isFirstLogin, CASE WHEN first(identityProviderType) is null THEN "SSO" ELSE first(identityProviderType) END AS identityProviderType, (cast(365 * (year - 1970) + floor((year - 1) / 4) - floor((year - 1) / 100) + floor((year - 1) / 400) - 477 as LONG) * 24) * 3600000 as AGG_LAST_EVENT_TIMESTAMP, meta_tenantId, '' as remoteIp, (cast(365 * (year - 1970) + floor((year - 1) / 4) - floor((year - 1) / 100) + floor((year - 1) / 400) - 477 as LONG) * 24) * 3600000 as timestamp, sum(authSuccessCount) as AGG_SUM_successValue, sum(authFailureCount) as AGG_SUM_failureValue, sum(authStepSuccessCount) as AGG_SUM_stepSuccessValue, 0 as AGG_SUM_firstLoginValue
         FROM isRoleAuthenticationAnalyticsPerYearMig
         GROUP BY meta_tenantId, year, username, role, serviceProvider, identityProvider, region, userStoreDomain, identityProviderType; 
         
@@ -175,7 +175,7 @@
         primaryKeys "AGG_TIMESTAMP, AGG_EVENT_TIMESTAMP, meta_tenantId");
         
         INSERT INTO TABLE SessionAggregation_HOURS
-        SELECT (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-','2000','01','01'),concat_ws(':','00','00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as AGG_TIMESTAMP, (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-',year,month,day),concat_ws(':',hour,'00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as AGG_EVENT_TIMESTAMP, meta_tenantId, (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-',year,month,day),concat_ws(':',hour,'00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as AGG_LAST_EVENT_TIMESTAMP, sum(activeSessionCount) as activeSessionCount, sum(newSessionCount) as AGG_SUM_newSessionCount, sum(terminatedSessionCount) as AGG_SUM_terminatedSessionCount
+        SELECT cast(946684800000 as LONG) as AGG_TIMESTAMP, (cast(365 * (year - 1970) + floor((year - 1) / 4) - floor((year - 1) / 100) + floor((year - 1) / 400) - 477 + CASE month WHEN 1 THEN 0 WHEN 2 THEN 31 WHEN 3 THEN 59 WHEN 4 THEN 90 WHEN 5 THEN 120 WHEN 6 THEN 151 WHEN 7 THEN 181 WHEN 8 THEN 212 WHEN 9 THEN 243 WHEN 10 THEN 273 WHEN 11 THEN 304 WHEN 12 THEN 334 END + CASE WHEN month > 2 THEN CASE WHEN year % 4 = 0 AND (year % 100 <> 0 OR year % 400 = 0) THEN 1 ELSE 0 END ELSE 0 END + day - 1 as LONG) * 24 + hour) * 3600000 as AGG_EVENT_TIMESTAMP, meta_tenantId, (cast(365 * (year - 1970) + floor((year - 1) / 4) - floor((year - 1) / 100) + floor((year - 1) / 400) - 477 + CASE month WHEN 1 THEN 0 WHEN 2 THEN 31 WHEN 3 THEN 59 WHEN 4 THEN 90 WHEN 5 THEN 120 WHEN 6 THEN 151 WHEN 7 THEN 181 WHEN 8 THEN 212 WHEN 9 THEN 243 WHEN 10 THEN 273 WHEN 11 THEN 304 WHEN 12 THEN 334 END + CASE WHEN month > 2 THEN CASE WHEN year % 4 = 0 AND (year % 100 <> 0 OR year % 400 = 0) THEN 1 ELSE 0 END ELSE 0 END + day - 1 as LONG) * 24 + hour) * 3600000 as AGG_LAST_EVENT_TIMESTAMP, sum(activeSessionCount) as activeSessionCount, sum(newSessionCount) as AGG_SUM_newSessionCount, sum(terminatedSessionCount) as AGG_SUM_terminatedSessionCount
         FROM isSessionAnalyticsPerHourMig
         GROUP BY meta_tenantId, year, month, day, hour;                    
                             
@@ -189,7 +189,7 @@
         primaryKeys "AGG_TIMESTAMP, AGG_EVENT_TIMESTAMP, meta_tenantId");
         
         INSERT INTO TABLE SessionAggregation_DAYS
-        SELECT (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-','2001','01','01'),concat_ws(':','00','00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as AGG_TIMESTAMP, (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-',year,month,day),concat_ws(':','00','00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as AGG_EVENT_TIMESTAMP, meta_tenantId, (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-',year,month,day),concat_ws(':','00','00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as AGG_LAST_EVENT_TIMESTAMP, sum(activeSessionCount) as activeSessionCount, sum(newSessionCount) as AGG_SUM_newSessionCount, sum(terminatedSessionCount) as AGG_SUM_terminatedSessionCount
+        SELECT cast(978307200000 as LONG) as AGG_TIMESTAMP, (cast(365 * (year - 1970) + floor((year - 1) / 4) - floor((year - 1) / 100) + floor((year - 1) / 400) - 477 + CASE month WHEN 1 THEN 0 WHEN 2 THEN 31 WHEN 3 THEN 59 WHEN 4 THEN 90 WHEN 5 THEN 120 WHEN 6 THEN 151 WHEN 7 THEN 181 WHEN 8 THEN 212 WHEN 9 THEN 243 WHEN 10 THEN 273 WHEN 11 THEN 304 WHEN 12 THEN 334 END + CASE WHEN month > 2 THEN CASE WHEN year % 4 = 0 AND (year % 100 <> 0 OR year % 400 = 0) THEN 1 ELSE 0 END ELSE 0 END + day - 1 as LONG) * 24) * 3600000 as AGG_EVENT_TIMESTAMP, meta_tenantId, (cast(365 * (year - 1970) + floor((year - 1) / 4) - floor((year - 1) / 100) + floor((year - 1) / 400) - 477 + CASE month WHEN 1 THEN 0 WHEN 2 THEN 31 WHEN 3 THEN 59 WHEN 4 THEN 90 WHEN 5 THEN 120 WHEN 6 THEN 151 WHEN 7 THEN 181 WHEN 8 THEN 212 WHEN 9 THEN 243 WHEN 10 THEN 273 WHEN 11 THEN 304 WHEN 12 THEN 334 END + CASE WHEN month > 2 THEN CASE WHEN year % 4 = 0 AND (year % 100 <> 0 OR year % 400 = 0) THEN 1 ELSE 0 END ELSE 0 END + day - 1 as LONG) * 24) * 3600000 as AGG_LAST_EVENT_TIMESTAMP, sum(activeSessionCount) as activeSessionCount, sum(newSessionCount) as AGG_SUM_newSessionCount, sum(terminatedSessionCount) as AGG_SUM_terminatedSessionCount
         FROM isSessionAnalyticsPerDayMig
         GROUP BY meta_tenantId, year, month, day;                    
                             
@@ -203,7 +203,7 @@
         primaryKeys "AGG_TIMESTAMP, AGG_EVENT_TIMESTAMP, meta_tenantId");
         
         INSERT INTO TABLE SessionAggregation_MONTHS
-        SELECT (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-','2002','01','01'),concat_ws(':','00','00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as AGG_TIMESTAMP, (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-',year,month,'01'),concat_ws(':','00','00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as AGG_EVENT_TIMESTAMP, meta_tenantId, (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-',year,month,'01'),concat_ws(':','00','00','00'),'+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) as AGG_LAST_EVENT_TIMESTAMP, sum(activeSessionCount) as activeSessionCount, sum(newSessionCount) as AGG_SUM_newSessionCount, sum(terminatedSessionCount) as AGG_SUM_terminatedSessionCount
+        SELECT cast(1009843200000 as LONG) as AGG_TIMESTAMP, (cast(365 * (year - 1970) + floor((year - 1) / 4) - floor((year - 1) / 100) + floor((year - 1) / 400) - 477 + CASE month WHEN 1 THEN 0 WHEN 2 THEN 31 WHEN 3 THEN 59 WHEN 4 THEN 90 WHEN 5 THEN 120 WHEN 6 THEN 151 WHEN 7 THEN 181 WHEN 8 THEN 212 WHEN 9 THEN 243 WHEN 10 THEN 273 WHEN 11 THEN 304 WHEN 12 THEN 334 END + CASE WHEN month > 2 THEN CASE WHEN year % 4 = 0 AND (year % 100 <> 0 OR year % 400 = 0) THEN 1 ELSE 0 END ELSE 0 END as LONG) * 24) * 3600000 as AGG_EVENT_TIMESTAMP, meta_tenantId, (cast(365 * (year - 1970) + floor((year - 1) / 4) - floor((year - 1) / 100) + floor((year - 1) / 400) - 477 + CASE month WHEN 1 THEN 0 WHEN 2 THEN 31 WHEN 3 THEN 59 WHEN 4 THEN 90 WHEN 5 THEN 120 WHEN 6 THEN 151 WHEN 7 THEN 181 WHEN 8 THEN 212 WHEN 9 THEN 243 WHEN 10 THEN 273 WHEN 11 THEN 304 WHEN 12 THEN 334 END + CASE WHEN month > 2 THEN CASE WHEN year % 4 = 0 AND (year % 100 <> 0 OR year % 400 = 0) THEN 1 ELSE 0 END ELSE 0 END as LONG) * 24) * 3600000 as AGG_LAST_EVENT_TIMESTAMP, sum(activeSessionCount) as activeSessionCount, sum(newSessionCount) as AGG_SUM_newSessionCount, sum(terminatedSessionCount) as AGG_SUM_terminatedSessionCount
         FROM isSessionAnalyticsPerMonthMig
         GROUP BY meta_tenantId, year, month;                    
         
@@ -0,0 +1,278 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import java.io.File;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Table migration which groups the source rows and emits one target row per group. The leading source
+ * columns form the GROUP BY key, each remaining source column is fed to one aggregate function.
+ */
+class AggregationMigration extends TableMigration {
+
+    /**
+     * Aggregate functions of the migISAnalyticsSpark script.
+     */
+    enum Function {
+        /**
+         * sum() of the non null values, null if every value is null.
+         */
+        SUM,
+        /**
+         * count() of the non null values.
+         */
+        COUNT,
+        /**
+         * first() value of the group in scan order, including null.
+         */
+        FIRST,
+        /**
+         * last() value of the group in scan order, including null.
+         */
+        LAST
+    }
+
+    /**
+     * Builds the target row of a group.
+     */
+    interface GroupMapper {
+
+        /**
+         * Map a group.
+         *
+         * @param key    values of the GROUP BY columns.
+         * @param values results of the aggregate functions.
+         * @return a new array with the values of the target columns.
+         */
+        Object[] map(Object[] key, Object[] values);
+    }
+
+    /**
+     * Marker of an aggregate which has not seen a row yet.
+     */
+    static final Object UNSET = new Object();
+
+    /**
+     * Variable which stores the number of leading source columns which form the GROUP BY key.
+     */
+    private final int keyLength;
+    /**
+     * Variable which stores the aggregate function of each remaining source column.
+     */
+    private final Function[] functions;
+    /**
+     * Variable which stores the mapper which builds the target row of a group.
+     */
+    private final GroupMapper mapper;
+    /**
+     * Variable which stores the aggregate state of each group.
+     */
+    private final SpillingGroups<List<Object>> groups;
+
+    /**
+     * Constructor which initiate the variables of the migration and the aggregation.
+     *
+     * @param sourceTable      name of the DAS analytics source table.
+     * @param targetTable      name of the IS_ANALYTICS target table.
+     * @param sourceColumns    GROUP BY columns followed by the aggregated columns.
+     * @param targetColumns    target columns of each produced row, primary key columns first.
+     * @param primaryKeyLength number of leading target columns which form the primary key.
+     * @param keyLength        number of leading source columns which form the GROUP BY key.
+     * @param functions        aggregate function of each remaining source column.
+     * @param mapper           mapper which builds the target row of a group.
+     */
+    AggregationMigration(String sourceTable, String targetTable, String[] sourceColumns, String[] targetColumns,
+                         int primaryKeyLength, int keyLength, Function[] functions, GroupMapper mapper) {
+
+        super(sourceTable, targetTable, sourceColumns, targetColumns, primaryKeyLength);
+        this.keyLength = keyLength;
+        this.functions = functions;
+        this.mapper = mapper;
+        this.groups = new SpillingGroups<>(targetTable, functions, new SpillingGroups.KeyCodec<List<Object>>() {
+            @Override
+            public Object[] encode(List<Object> key) {
+
+                return key.toArray();
+            }
+
+            @Override
+            public List<Object> decode(Object[] values) {
+
+                return Arrays.asList(values);
+            }
+        });
+    }
+
+    @Override
+    void process(Object[] row, RowSink sink) throws SQLException {
+
+        List<Object> key = Arrays.asList(Arrays.copyOf(row, keyLength));
+        Object[] state = groups.get(key);
+        if (state == null) {
+            state = newState(functions.length);
+            groups.add(key, state);
+        }
+        accumulate(state, row, keyLength, functions);
+    }
+
+    @Override
+    void finish(RowSink sink) throws SQLException {
+
+        groups.drain((key, state) -> sink.accept(mapper.map(key.toArray(), result(state, functions))));
+    }
+
+    @Override
+    void setMemoryBudget(long bytes, File spillDirectory) {
+
+        groups.setBudget(bytes, spillDirectory);
+    }
+
+    /**
+     * Getter of keyLength
+     *
+     * @return the keyLength
+     */
+    int getKeyLength() {
+
+        return keyLength;
+    }
+
+    /**
+     * Getter of functions
+     *
+     * @return the functions
+     */
+    Function[] getFunctions() {
+
+        return functions;
+    }
+
+    /**
+     * Getter of mapper
+     *
+     * @return the mapper
+     */
+    GroupMapper getMapper() {
+
+        return mapper;
+    }
+
+    /**
+     * Aggregate state of a group which has not seen a row yet.
+     *
+     * @param size number of aggregate functions.
+     * @return the new aggregate state.
+     */
+    static Object[] newState(int size) {
+
+        Object[] state = new Object[size];
+        Arrays.fill(state, UNSET);
+        return state;
+    }
+
+    /**
+     * Feed the aggregated columns of a source row to the aggregate state of its group.
+     *
+     * @param state     aggregate state of the group.
+     * @param row       values of the source columns.
+     * @param offset    index of the first aggregated column in the row.
+     * @param functions aggregate function of each aggregated column.
+     */
+    static void accumulate(Object[] state, Object[] row, int offset, Function[] functions) {
+
+        for (int i = 0; i < functions.length; i++) {
+            Object value = row[offset + i];
+            switch (functions[i]) {
+                case SUM:
+                    if (value != null) {
+                        state[i] = state[i] == UNSET ? Transformations.asLong(value)
+                                : (Long) state[i] + Transformations.asLong(value);
+                    }
+                    break;
+                case COUNT:
+                    long count = state[i] == UNSET ? 0 : (Long) state[i];
+                    state[i] = value == null ? count : count + 1;
+                    break;
+                case FIRST:
+                    if (state[i] == UNSET) {
+                        state[i] = value;
+                    }
+                    break;
+                case LAST:
+                    state[i] = value;
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Combine two partial aggregate states of a group, as if the rows of the later state were fed to the
+     * earlier state after its own rows.
+     *
+     * @param earlier   aggregate state of the rows read first, updated with the result.
+     * @param later     aggregate state of the rows read after them.
+     * @param functions aggregate function of each aggregated column.
+     * @return the combined state.
+     */
+    static Object[] merge(Object[] earlier, Object[] later, Function[] functions) {
+
+        for (int i = 0; i < functions.length; i++) {
+            if (later[i] == UNSET) {
+                continue;
+            }
+            if (earlier[i] == UNSET) {
+                earlier[i] = later[i];
+                continue;
+            }
+            switch (functions[i]) {
+                case SUM:
+                case COUNT:
+                    earlier[i] = (Long) earlier[i] + (Long) later[i];
+                    break;
+                case LAST:
+                    earlier[i] = later[i];
+                    break;
+                default:
+                    break;
+            }
+        }
+        return earlier;
+    }
+
+    /**
+     * Final results of an aggregate state.
+     *
+     * @param state     aggregate state of the group.
+     * @param functions aggregate function of each aggregated column.
+     * @return results of the aggregate functions.
+     */
+    static Object[] result(Object[] state, Function[] functions) {
+
+        Object[] values = new Object[state.length];
+        for (int i = 0; i < state.length; i++) {
+            if (state[i] != UNSET) {
+                values[i] = state[i];
+            } else if (functions[i] == Function.COUNT) {
+                values[i] = 0L;
+            }
+        }
+        return values;
+    }
+}
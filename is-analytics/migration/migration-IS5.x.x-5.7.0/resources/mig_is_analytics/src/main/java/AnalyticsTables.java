@@ -0,0 +1,412 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The table migrations of the migISAnalyticsSpark script, in the order of the script.
+ */
+final class AnalyticsTables {
+
+    /**
+     * Target columns of the AuthStatAgg tables, primary key columns first.
+     */
+    private static final String[] AUTH_STAT_AGG_COLUMNS = {"AGG_TIMESTAMP", "AGG_EVENT_TIMESTAMP", "username",
+            "serviceProvider", "identityProvider", "region", "userStoreDomain", "isFirstLogin", "identityProviderType",
+            "AGG_LAST_EVENT_TIMESTAMP", "meta_tenantId", "localUsername", "rolesCommaSeparated", "remoteIp",
+            "timestamp", "AGG_SUM_successValue", "AGG_SUM_failureValue", "AGG_SUM_stepSuccessValue",
+            "AGG_SUM_firstLoginValue"};
+
+    /**
+     * Target columns of the RoleAggregation tables, primary key columns first.
+     */
+    private static final String[] ROLE_AGGREGATION_COLUMNS = {"AGG_TIMESTAMP", "AGG_EVENT_TIMESTAMP", "username",
+            "serviceProvider", "identityProvider", "region", "token", "userStoreDomain", "isFirstLogin",
+            "identityProviderType", "AGG_LAST_EVENT_TIMESTAMP", "meta_tenantId", "remoteIp", "timestamp",
+            "AGG_SUM_successValue", "AGG_SUM_failureValue", "AGG_SUM_stepSuccessValue", "AGG_SUM_firstLoginValue"};
+
+    /**
+     * Target columns of the SessionAggregation tables, primary key columns first.
+     */
+    private static final String[] SESSION_AGGREGATION_COLUMNS = {"AGG_TIMESTAMP", "AGG_EVENT_TIMESTAMP",
+            "meta_tenantId", "AGG_LAST_EVENT_TIMESTAMP", "activeSessionCount", "AGG_SUM_newSessionCount",
+            "AGG_SUM_terminatedSessionCount"};
+
+    private AnalyticsTables() {
+
+    }
+
+    /**
+     * Create the table migrations. Aggregating migrations keep state, so a new list is needed for every run.
+     *
+     * @param rollup true to build the AuthStatAgg & RoleAggregation tables of every granularity from one scan
+     *               of the per hour source table.
+     * @return the table migrations in the order of the migISAnalyticsSpark script.
+     */
+    static List<TableMigration> create(boolean rollup) {
+
+        List<TableMigration> migrations = new ArrayList<>();
+        if (rollup) {
+            migrations.add(authStatRollup());
+            migrations.add(roleRollup());
+        } else {
+            for (Granularity granularity : Granularity.values()) {
+                migrations.add(authStatAgg(granularity));
+            }
+            for (Granularity granularity : Granularity.values()) {
+                migrations.add(roleAggregation(granularity));
+            }
+        }
+        migrations.add(sessionAggregation(Granularity.HOURS));
+        migrations.add(sessionAggregation(Granularity.DAYS));
+        migrations.add(sessionAggregation(Granularity.MONTHS));
+        migrations.add(sessionInformation());
+        migrations.add(overallAuth());
+        migrations.add(suspiciousAlert());
+        migrations.add(securityAlertType());
+        migrations.add(alertLongSessions());
+        migrations.add(activeSessions());
+        migrations.add(activeSessionCount());
+        return migrations;
+    }
+
+    /**
+     * Source table of a per hour/day/month/year DAS stream.
+     *
+     * @param stream      name of the stream, eg:- AuthStat.
+     * @param granularity granularity of the stream table.
+     * @return the name of the source table.
+     */
+    private static String perTimeTable(String stream, Granularity granularity) {
+
+        String name = granularity.name().substring(0, 1) + granularity.name().substring(1).toLowerCase();
+        return "org_wso2_is_analytics_stream_" + stream + "Per" + name.substring(0, name.length() - 1);
+    }
+
+    /**
+     * Source columns starting with meta_tenantId & the time columns of the granularity.
+     *
+     * @param granularity granularity of the source table.
+     * @param columns     columns which follow the time columns.
+     * @return the source columns.
+     */
+    private static String[] columns(Granularity granularity, String... columns) {
+
+        List<String> all = new ArrayList<>();
+        all.add("meta_tenantId");
+        all.addAll(Arrays.asList(granularity.getTimeColumns()));
+        for (String column : columns) {
+            if (column != null) {
+                all.add(column);
+            }
+        }
+        return all.toArray(new String[0]);
+    }
+
+    /**
+     * INSERT INTO TABLE AuthStatAgg_* of the migISAnalyticsSpark script.
+     *
+     * @param granularity granularity of the table.
+     * @return the table migration.
+     */
+    static TableMigration authStatAgg(final Granularity granularity) {
+
+        final boolean hours = granularity == Granularity.HOURS;
+        final int t = granularity.getTimeColumns().length;
+        String[] source = columns(granularity, "username", "serviceProvider", "identityProvider", "region",
+                hours ? "remoteIp" : null, "userStoreDomain", "identityProviderType", "authSuccessCount",
+                "authFailureCount", "authStepSuccessCount", "authFirstSuccessCount", "localUsername",
+                "rolesCommaSeparated", "rolesCommaSeparated");
+        final int keyLength = source.length - 7;
+        AggregationMigration.Function[] functions = {AggregationMigration.Function.SUM,
+                AggregationMigration.Function.SUM, AggregationMigration.Function.SUM,
+                AggregationMigration.Function.SUM, AggregationMigration.Function.FIRST,
+                AggregationMigration.Function.FIRST, AggregationMigration.Function.LAST};
+        return new AggregationMigration(perTimeTable("AuthStat", granularity), "AuthStatAgg_" + granularity.name(),
+                source, AUTH_STAT_AGG_COLUMNS, 9, keyLength, functions, (key, values) -> {
+            long eventTimestamp = granularity.eventTimestamp(key, 1);
+            return new Object[]{granularity.getAggTimestamp(), eventTimestamp, Transformations.asString(key[t + 1]),
+                    Transformations.asString(key[t + 2]), Transformations.asString(key[t + 3]),
+                    Transformations.region(key[t + 4]), Transformations.asString(key[keyLength - 2]),
+                    Transformations.isSet(values[3]) && Transformations.isSet(values[0]),
+                    Transformations.identityProviderType(key[keyLength - 1]), eventTimestamp,
+                    Transformations.asInt(key[0]), Transformations.asString(values[4]),
+                    Transformations.rolesCommaSeparated(values[5], values[6]),
+                    hours ? Transformations.asString(key[t + 5]) : "", eventTimestamp,
+                    Transformations.asLong(values[0]), Transformations.asLong(values[1]),
+                    Transformations.asLong(values[2]), Transformations.asLong(values[3])};
+        });
+    }
+
+    /**
+     * INSERT INTO TABLE RoleAggregation_* of the migISAnalyticsSpark script.
+     *
+     * @param granularity granularity of the table.
+     * @return the table migration.
+     */
+    static TableMigration roleAggregation(final Granularity granularity) {
+
+        final boolean hours = granularity == Granularity.HOURS;
+        final int t = granularity.getTimeColumns().length;
+        String[] source = columns(granularity, "username", "role", "serviceProvider", "identityProvider",
+                hours ? "remoteIp" : null, "region", "userStoreDomain", "identityProviderType", "authSuccessCount",
+                "authFailureCount", "authStepSuccessCount");
+        final int keyLength = source.length - 3;
+        AggregationMigration.Function[] functions = {AggregationMigration.Function.SUM,
+                AggregationMigration.Function.SUM, AggregationMigration.Function.SUM};
+        return new AggregationMigration(perTimeTable("RoleAuthStat", granularity),
+                "RoleAggregation_" + granularity.name(), source, ROLE_AGGREGATION_COLUMNS, 10, keyLength, functions,
+                (key, values) -> {
+            long eventTimestamp = granularity.eventTimestamp(key, 1);
+            String identityProviderType = Transformations.identityProviderType(key[keyLength - 1]);
+            boolean success = Transformations.isSet(values[0]);
+            boolean isFirstLogin = (Transformations.isSet(values[2]) && success)
+                    || (success && identityProviderType.indexOf(',') >= 0);
+            return new Object[]{granularity.getAggTimestamp(), eventTimestamp, Transformations.asString(key[t + 1]),
+                    Transformations.asString(key[t + 3]), Transformations.asString(key[t + 4]),
+                    Transformations.region(key[keyLength - 3]), Transformations.asString(key[t + 2]),
+                    Transformations.asString(key[keyLength - 2]), isFirstLogin, identityProviderType, eventTimestamp,
+                    Transformations.asInt(key[0]), hours ? Transformations.asString(key[t + 5]) : "", eventTimestamp,
+                    Transformations.asLong(values[0]), Transformations.asLong(values[1]),
+                    Transformations.asLong(values[2]), 0L};
+        });
+    }
+
+    /**
+     * AuthStatAgg_* tables of every granularity built from the per hour AuthStat table.
+     *
+     * @return the rollup migration.
+     */
+    static TableMigration authStatRollup() {
+
+        Granularity[] granularities = Granularity.values();
+        AggregationMigration[] levels = new AggregationMigration[granularities.length];
+        for (int i = 0; i < granularities.length; i++) {
+            levels[i] = (AggregationMigration) authStatAgg(granularities[i]);
+        }
+        return new RollupMigration("AuthStatAgg_*", levels, granularities);
+    }
+
+    /**
+     * RoleAggregation_* tables of every granularity built from the per hour RoleAuthStat table.
+     *
+     * @return the rollup migration.
+     */
+    static TableMigration roleRollup() {
+
+        Granularity[] granularities = Granularity.values();
+        AggregationMigration[] levels = new AggregationMigration[granularities.length];
+        for (int i = 0; i < granularities.length; i++) {
+            levels[i] = (AggregationMigration) roleAggregation(granularities[i]);
+        }
+        return new RollupMigration("RoleAggregation_*", levels, granularities);
+    }
+
+    /**
+     * INSERT INTO TABLE SessionAggregation_* of the migISAnalyticsSpark script.
+     *
+     * @param granularity granularity of the table.
+     * @return the table migration.
+     */
+    static TableMigration sessionAggregation(final Granularity granularity) {
+
+        String[] source = columns(granularity, "activeSessionCount", "newSessionCount", "terminatedSessionCount");
+        AggregationMigration.Function[] functions = {AggregationMigration.Function.SUM,
+                AggregationMigration.Function.SUM, AggregationMigration.Function.SUM};
+        return new AggregationMigration(perTimeTable("SessionStat", granularity),
+                "SessionAggregation_" + granularity.name(), source, SESSION_AGGREGATION_COLUMNS, 3,
+                source.length - 3, functions, (key, values) -> {
+            long eventTimestamp = granularity.eventTimestamp(key, 1);
+            return new Object[]{granularity.getAggTimestamp(), eventTimestamp, Transformations.asInt(key[0]),
+                    eventTimestamp, Transformations.asLong(values[0]), Transformations.asLong(values[1]),
+                    Transformations.asLong(values[2])};
+        });
+    }
+
+    /**
+     * INSERT INTO TABLE SessionInformationTable of the migISAnalyticsSpark script.
+     *
+     * @return the table migration.
+     */
+    static TableMigration sessionInformation() {
+
+        String[] source = {"meta_tenantId", "sessionId", "startTimestamp", "renewTimestamp", "terminationTimestamp",
+                "endTimestamp", "duration", "isActive", "username", "userstoreDomain", "remoteIp", "region",
+                "tenantDomain", "serviceProvider", "identityProviders", "rememberMeFlag", "userAgent",
+                "usernameWithTenantDomainAndUserstoreDomain", "_timestamp"};
+        String[] target = {"meta_tenantId", "sessionId", "startTime", "terminateTime", "endTime", "duration",
+                "isActive", "username", "userstoreDomain", "remoteIp", "region", "tenantDomain", "serviceProvider",
+                "identityProviders", "rememberMeFlag", "userAgent", "userStore", "currentTime", "startTimestamp",
+                "renewTimestamp", "terminationTimestamp", "endTimestamp", "timestamp"};
+        return new ProjectionMigration("ORG_WSO2_IS_ANALYTICS_STREAM_SESSIONINFO", "SessionInformationTable",
+                source, target, 2, row -> new Object[]{Transformations.asInt(row[0]),
+                Transformations.asString(row[1]), Transformations.fromUnixTime(row[2]),
+                Transformations.fromUnixTime(row[4]), Transformations.fromUnixTime(row[5]),
+                Transformations.asLong(row[6]), Transformations.asBoolean(row[7]), Transformations.asString(row[8]),
+                Transformations.asString(row[9]), Transformations.asString(row[10]),
+                Transformations.asString(row[11]), Transformations.asString(row[12]),
+                Transformations.asString(row[13]), Transformations.asString(row[14]),
+                Transformations.asBoolean(row[15]), Transformations.asString(row[16]),
+                Transformations.asString(row[17]), Transformations.fromUnixTime(row[18]),
+                Transformations.asLong(row[2]), Transformations.asLong(row[3]), Transformations.asLong(row[4]),
+                Transformations.asLong(row[5]), Transformations.asLong(row[18])});
+    }
+
+    /**
+     * INSERT INTO TABLE OverallAuthTable of the migISAnalyticsSpark script.
+     *
+     * @return the table migration.
+     */
+    static TableMigration overallAuth() {
+
+        String[] source = {"meta_tenantId", "eventId", "eventType", "contextId", "username", "localUsername",
+                "userStoreDomain", "tenantDomain", "remoteIp", "region", "inboundAuthType", "serviceProvider",
+                "rememberMeEnabled", "forceAuthEnabled", "passiveAuthEnabled", "rolesCommaSeparated",
+                "authenticationStep", "identityProvider", "authenticationSuccess", "authStepSuccess",
+                "stepAuthenticator", "isFirstLogin", "identityProviderType", "_timestamp"};
+        String[] target = {"meta_tenantId", "eventId", "eventType", "contextId", "username", "localUsername",
+                "userStoreDomain", "tenantDomain", "remoteIp", "region", "inboundAuthType", "serviceProvider",
+                "rememberMeEnabled", "forceAuthEnabled", "passiveAuthEnabled", "rolesCommaSeparated",
+                "authenticationStep", "identityProvider", "authenticationSuccess", "authStepSuccess",
+                "stepAuthenticator", "isFirstLogin", "identityProviderType", "utcTime", "timestamp"};
+        ProjectionMigration migration = new ProjectionMigration(
+                "ORG_WSO2_IS_ANALYTICS_STREAM_PROCESSEDOVERALLAUTHENTICATION", "OverallAuthTable", source, target, 3,
+                row -> {
+            Object[] out = new Object[25];
+            out[0] = Transformations.asInt(row[0]);
+            for (int i = 1; i < 23; i++) {
+                out[i] = Transformations.asString(row[i]);
+            }
+            out[12] = Transformations.asBoolean(row[12]);
+            out[13] = Transformations.asBoolean(row[13]);
+            out[14] = Transformations.asBoolean(row[14]);
+            out[18] = Transformations.asBoolean(row[18]);
+            out[19] = Transformations.asBoolean(row[19]);
+            out[21] = Transformations.asBoolean(row[21]);
+            out[23] = Transformations.fromUnixTime(row[23]);
+            out[24] = Transformations.asLong(row[23]);
+            return out;
+        });
+        // Every authentication event carries an eventId of its own, so no later event writes its key again.
+        migration.setCrossRangeKeys(false);
+        return migration;
+    }
+
+    /**
+     * INSERT INTO TABLE SuspiciousAlertTable of the migISAnalyticsSpark script.
+     *
+     * @return the table migration.
+     */
+    static TableMigration suspiciousAlert() {
+
+        String[] source = {"meta_tenantId", "username", "msg", "severity", "tenantDomain", "_timestamp"};
+        String[] target = {"meta_tenantId", "username", "msg", "severity", "tenantDomain", "timestamp",
+                "currentTime"};
+        return new ProjectionMigration("ORG_WSO2_IS_ANALYTICS_STREAM_LOGINSUCCESSAFTERMULTIPLEFAILURES",
+                "SuspiciousAlertTable", source, target, 3, row -> new Object[]{Transformations.asInt(row[0]),
+                Transformations.asString(row[1]), Transformations.asString(row[2]), Transformations.asInt(row[3]),
+                Transformations.asString(row[4]), Transformations.asLong(row[5]),
+                Transformations.fromUnixTime(row[5])});
+    }
+
+    /**
+     * INSERT INTO TABLE SecurityAlertTypeTable of the migISAnalyticsSpark script.
+     *
+     * @return the table migration.
+     */
+    static TableMigration securityAlertType() {
+
+        // _timestamp is only read as the resume watermark.
+        String[] source = {"meta_tenantId", "type", "tenantDomain", "msg", "severity", "alertTimestamp",
+                "userReadableTime", "_timestamp"};
+        String[] target = {"meta_tenantId", "alertId", "type", "tenantDomain", "msg", "severity", "alertTimestamp",
+                "userReadableTime"};
+        return new ProjectionMigration("ORG_WSO2_IS_ANALYTICS_ALLISALERTSSTREAM", "SecurityAlertTypeTable",
+                source, target, 2, row -> {
+            Integer tenantId = Transformations.asInt(row[0]);
+            String type = Transformations.asString(row[1]);
+            String tenantDomain = Transformations.asString(row[2]);
+            String msg = Transformations.asString(row[3]);
+            Integer severity = Transformations.asInt(row[4]);
+            Long alertTimestamp = Transformations.asLong(row[5]);
+            String userReadableTime = Transformations.asString(row[6]);
+            return new Object[]{tenantId, Transformations.md5ConcatWs(tenantId, type, tenantDomain, msg, severity,
+                    alertTimestamp, userReadableTime), type, tenantDomain, msg, severity, alertTimestamp,
+                    userReadableTime};
+        });
+    }
+
+    /**
+     * INSERT INTO TABLE AlertLongSessionsTable of the migISAnalyticsSpark script. The GROUP BY over every
+     * selected column only removes duplicate rows.
+     *
+     * @return the table migration.
+     */
+    static TableMigration alertLongSessions() {
+
+        String[] source = {"meta_tenantId", "sessionId", "tenantDomain", "username", "duration", "avgDuration",
+                "_timestamp"};
+        String[] target = {"meta_tenantId", "sessionId", "tenantDomain", "username", "duration", "avgDuration",
+                "timestamp", "currentTime"};
+        return new DistinctMigration("ORG_WSO2_IS_ANALYTICS_STREAM_LONGSESSIONS", "AlertLongSessionsTable",
+                source, target, 2, DistinctMigration.Key.ROW, row -> new Object[]{Transformations.asInt(row[0]),
+                Transformations.asString(row[1]), Transformations.asString(row[2]),
+                Transformations.asString(row[3]), Transformations.asLong(row[4]), Transformations.asDouble(row[5]),
+                Transformations.asLong(row[6]), Transformations.fromUnixTime(row[6])});
+    }
+
+    /**
+     * INSERT INTO TABLE ActiveSessionsTable of the migISAnalyticsSpark script.
+     *
+     * @return the table migration.
+     */
+    static TableMigration activeSessions() {
+
+        String[] source = {"meta_tenantId", "sessionId", "startTimestamp", "renewTimestamp", "terminationTimestamp",
+                "action", "username", "userstoreDomain", "remoteIp", "region", "tenantDomain", "serviceProvider",
+                "identityProviders", "rememberMeFlag", "userAgent", "usernameWithTenantDomainAndUserstoreDomain",
+                "_timestamp"};
+        String[] target = {"meta_tenantId", "sessionId", "startTimestamp", "renewTimestamp", "terminationTimestamp",
+                "action", "username", "userstoreDomain", "remoteIp", "region", "tenantDomain", "serviceProvider",
+                "identityProviders", "rememberMeFlag", "userAgent", "userStore", "timestamp"};
+        return new ProjectionMigration("ORG_WSO2_IS_ANALYTICS_STREAM_ACTIVESESSIONS", "ActiveSessionsTable",
+                source, target, 2, row -> new Object[]{Transformations.asInt(row[0]),
+                Transformations.asString(row[1]), Transformations.asLong(row[2]), Transformations.asLong(row[3]),
+                Transformations.asLong(row[4]), Transformations.asInt(row[5]), Transformations.asString(row[6]),
+                Transformations.asString(row[7]), Transformations.asString(row[8]),
+                Transformations.asString(row[9]), Transformations.asString(row[10]),
+                Transformations.asString(row[11]), Transformations.asString(row[12]),
+                Transformations.asBoolean(row[13]), Transformations.asString(row[14]),
+                Transformations.asString(row[15]), Transformations.asLong(row[16])});
+    }
+
+    /**
+     * INSERT INTO TABLE ActiveSessionCountTable of the migISAnalyticsSpark script.
+     *
+     * @return the table migration.
+     */
+    static TableMigration activeSessionCount() {
+
+        String[] source = {"meta_tenantId", "sessionId"};
+        String[] target = {"meta_tenantId", "activeCount"};
+        AggregationMigration.Function[] functions = {AggregationMigration.Function.COUNT};
+        return new AggregationMigration("ORG_WSO2_IS_ANALYTICS_STREAM_ACTIVESESSIONS", "ActiveSessionCountTable",
+                source, target, 1, 1, functions, (key, values) -> new Object[]{Transformations.asInt(key[0]),
+                values[0]});
+    }
+}
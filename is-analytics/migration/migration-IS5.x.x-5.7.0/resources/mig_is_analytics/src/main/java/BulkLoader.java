@@ -0,0 +1,158 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.List;
+
+/**
+ * Loads rows with the native bulk load API of a database, which is much faster than JDBC batch inserts for
+ * large tables. The JDBC driver is loaded from the jar given by the user, so its API is called by reflection.
+ */
+abstract class BulkLoader {
+
+    /**
+     * Variable which stores whether the bulk load API can be used, until a load finds it can not.
+     */
+    private volatile boolean supported = true;
+
+    /**
+     * Load rows into the target table of a migration, in the current transaction of the connection.
+     *
+     * @param connection connection to the target database, not in auto commit mode.
+     * @param migration  migration whose rows are written.
+     * @param columns    target columns of the migration.
+     * @param rows       rows to load, column values in the order of the target columns.
+     * @throws SQLFeatureNotSupportedException if the driver does not provide the bulk load API.
+     * @throws SQLException                    if the rows could not be loaded.
+     */
+    abstract void load(Connection connection, TableMigration migration, TargetColumns columns, List<Object[]> rows)
+            throws SQLException;
+
+    /**
+     * Getter of supported
+     *
+     * @return the supported
+     */
+    boolean isSupported() {
+
+        return supported;
+    }
+
+    /**
+     * Record that the driver does not provide the bulk load API, or that a load failed for another reason than
+     * a duplicate key, so later batches & tables use batch inserts directly.
+     */
+    void unsupported() {
+
+        this.supported = false;
+    }
+
+    /**
+     * Load a class of the JDBC driver which created a connection.
+     *
+     * @param connection connection created by the driver.
+     * @param className  name of the class.
+     * @return the class.
+     * @throws SQLFeatureNotSupportedException if the driver does not have the class.
+     */
+    static Class<?> driverClass(Connection connection, String className) throws SQLFeatureNotSupportedException {
+
+        try {
+            return Class.forName(className, true, connection.getClass().getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new SQLFeatureNotSupportedException(String.format("%s is not available in the driver", className),
+                    e);
+        }
+    }
+
+    /**
+     * Invoke a public method of the JDBC driver.
+     *
+     * @param target         object whose method is invoked, or the class of a static method.
+     * @param name           name of the method.
+     * @param parameterTypes parameter types of the method.
+     * @param args           arguments of the method.
+     * @return the return value of the method.
+     * @throws SQLFeatureNotSupportedException if the driver does not have the method.
+     * @throws SQLException                    if the method threw an SQLException.
+     */
+    static Object invoke(Object target, String name, Class<?>[] parameterTypes, Object... args) throws SQLException {
+
+        Class<?> type = target instanceof Class ? (Class<?>) target : target.getClass();
+        Method method;
+        try {
+            method = type.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            throw new SQLFeatureNotSupportedException(String.format("%s.%s is not available in the driver",
+                    type.getName(), name), e);
+        }
+        try {
+            return method.invoke(target instanceof Class ? null : target, args);
+        } catch (IllegalAccessException e) {
+            throw new SQLFeatureNotSupportedException(String.format("%s.%s is not accessible", type.getName(), name),
+                    e);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new SQLException(String.format("Error occurred while calling %s.%s", type.getName(), name),
+                    e.getCause());
+        }
+    }
+
+    /**
+     * Create an object of a class of the JDBC driver.
+     *
+     * @param type           class of the object.
+     * @param parameterTypes parameter types of the constructor.
+     * @param args           arguments of the constructor.
+     * @return the new object.
+     * @throws SQLFeatureNotSupportedException if the driver does not have the constructor.
+     * @throws SQLException                    if the constructor threw an SQLException.
+     */
+    static Object create(Class<?> type, Class<?>[] parameterTypes, Object... args) throws SQLException {
+
+        try {
+            return type.getConstructor(parameterTypes).newInstance(args);
+        } catch (NoSuchMethodException | InstantiationException | IllegalAccessException e) {
+            throw new SQLFeatureNotSupportedException(String.format("%s can not be created", type.getName()), e);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new SQLException(String.format("Error occurred while creating %s", type.getName()), e.getCause());
+        }
+    }
+
+    /**
+     * Build the column list of a bulk load statement.
+     *
+     * @param columns target columns of the migration.
+     * @return the comma separated column names.
+     */
+    static String columnList(TargetColumns columns) {
+
+        StringBuilder list = new StringBuilder();
+        for (int i = 0; i < columns.size(); i++) {
+            list.append(i == 0 ? "" : ",").append(columns.getName(i));
+        }
+        return list.toString();
+    }
+}
@@ -0,0 +1,758 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.apache.log4j.Logger;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Dry run of a migration, which estimates the storage the IS_ANALYTICS tables & their indexes will take &
+ * how long they take to load, without writing to the target database. Every source table is counted, & a
+ * sample of its first rows is read, transformed into target rows & inserted into the target table in a
+ * transaction which is rolled back. The width of the sampled target rows is worked out from the column
+ * types of the CREATE TABLE statements of the database, with the row & index entry overheads of its
+ * storage engine, & the load time from the rows per second the sample was read & inserted at.
+ */
+class CapacityPlanner {
+
+    /**
+     * Initialize Logger object to log messages
+     */
+    private static final Logger LOG = Logger.getLogger(CapacityPlanner.class);
+
+    /**
+     * Bytes of a megabyte.
+     */
+    private static final double MB = 1024 * 1024;
+
+    /**
+     * Share of a B-tree page used after rows are inserted in random key order.
+     */
+    private static final double RANDOM_INDEX_FILL = 0.7;
+
+    /**
+     * Share of a B-tree page used when the index is built after the data is loaded, from sorted keys.
+     */
+    private static final double SORTED_INDEX_FILL = 0.9;
+
+    /**
+     * On-disk layout of the rows & index entries of each database type.
+     */
+    enum Storage {
+
+        /**
+         * InnoDB: 5 byte record header, 6 byte transaction id & 7 byte roll pointer, rows stored in the
+         * clustered primary key, pages filled up to 15/16.
+         */
+        MYSQL(18, 15 / 16.0, 13, true),
+        /**
+         * Heap tuples with a 24 byte header & a 4 byte line pointer, a separate primary key index.
+         */
+        POSTGRESQL(28, 0.97, 12, false),
+        /**
+         * Heap blocks with a 3 byte row header, a 2 byte row directory entry & 10% free space, a separate
+         * primary key index whose entries hold a 6 byte rowid.
+         */
+        ORACLE(5, 0.88, 11, false),
+        /**
+         * Rows with a 4 byte header, a column count, a variable column count & a 2 byte slot, stored in the
+         * clustered primary key.
+         */
+        MSSQL(10, 0.98, 9, true);
+
+        /**
+         * Variable which stores the bytes every row takes besides its values & null bitmap.
+         */
+        private final int rowOverhead;
+        /**
+         * Variable which stores the share of a data page used by rows.
+         */
+        private final double dataFill;
+        /**
+         * Variable which stores the bytes every index entry takes besides its key.
+         */
+        private final int indexEntryOverhead;
+        /**
+         * Variable which stores whether the rows are stored in the primary key, so secondary index entries
+         * point to a row with its primary key.
+         */
+        private final boolean clustered;
+
+        /**
+         * Constructor which initiate the variables rowOverhead,dataFill,indexEntryOverhead,clustered.
+         *
+         * @param rowOverhead        bytes every row takes besides its values & null bitmap.
+         * @param dataFill           share of a data page used by rows.
+         * @param indexEntryOverhead bytes every index entry takes besides its key.
+         * @param clustered          rows are stored in the primary key.
+         */
+        Storage(int rowOverhead, double dataFill, int indexEntryOverhead, boolean clustered) {
+
+            this.rowOverhead = rowOverhead;
+            this.dataFill = dataFill;
+            this.indexEntryOverhead = indexEntryOverhead;
+            this.clustered = clustered;
+        }
+
+        /**
+         * Bytes a value takes in a row or an index entry, including its length prefix.
+         *
+         * @param column column of the value.
+         * @param value  value, may be null.
+         * @return the bytes of the value.
+         */
+        long bytes(Column column, Object value) {
+
+            if (value == null) {
+                // MSSQL keeps the space of a fixed length column whether it is null or not.
+                return this == MSSQL && !column.isVariable() ? column.fixedBytes() : this == ORACLE ? 1 : 0;
+            }
+            if (column.isVariable()) {
+                long length = String.valueOf(value).getBytes(StandardCharsets.UTF_8).length;
+                switch (this) {
+                    case MYSQL:
+                        // A utf8mb4 column which may hold more than 255 bytes has a 2 byte length.
+                        return length + (column.length * 4 > 255 ? 2 : 1);
+                    case POSTGRESQL:
+                        return length + (length < 127 ? 1 : 4);
+                    case ORACLE:
+                        return length + (length > 250 ? 3 : 1);
+                    default:
+                        return length + 2;
+                }
+            }
+            if (this == ORACLE && column.type.equals("NUMBER")) {
+                return 1 + oracleNumberBytes(value);
+            }
+            return column.fixedBytes();
+        }
+
+        /**
+         * Bytes of an Oracle NUMBER, an exponent byte & a byte per 2 significant digits.
+         *
+         * @param value numeric or boolean value.
+         * @return the bytes of the number without its length byte.
+         */
+        private static long oracleNumberBytes(Object value) {
+
+            BigDecimal number;
+            try {
+                number = value instanceof Boolean ? ((Boolean) value ? BigDecimal.ONE : BigDecimal.ZERO)
+                        : new BigDecimal(String.valueOf(value));
+            } catch (NumberFormatException e) {
+                return 22;
+            }
+            if (number.signum() == 0) {
+                return 1;
+            }
+            int digits = number.stripTrailingZeros().precision();
+            return 1 + (digits + 1) / 2 + (number.signum() < 0 ? 1 : 0);
+        }
+    }
+
+    /**
+     * Column of an IS_ANALYTICS table, as declared in its CREATE TABLE statement.
+     */
+    static class Column {
+
+        /**
+         * Variable which stores the upper case type of the column without its length.
+         */
+        private final String type;
+        /**
+         * Variable which stores the declared length or precision, 0 if there is none.
+         */
+        private final int length;
+
+        /**
+         * Constructor which initiate the variables type,length.
+         *
+         * @param type   upper case type of the column without its length.
+         * @param length declared length or precision, 0 if there is none.
+         */
+        Column(String type, int length) {
+
+            this.type = type;
+            this.length = length;
+        }
+
+        /**
+         * Getter of type
+         *
+         * @return the type
+         */
+        String getType() {
+
+            return type;
+        }
+
+        /**
+         * Getter of length
+         *
+         * @return the length
+         */
+        int getLength() {
+
+            return length;
+        }
+
+        /**
+         * Check whether the values of the column take as many bytes as their length.
+         *
+         * @return true for character columns.
+         */
+        boolean isVariable() {
+
+            return type.contains("CHAR") || type.equals("TEXT");
+        }
+
+        /**
+         * Bytes of a value of a fixed length column.
+         *
+         * @return the bytes of the type.
+         */
+        long fixedBytes() {
+
+            switch (type) {
+                case "TINYINT":
+                case "BOOLEAN":
+                case "BIT":
+                    return 1;
+                case "SMALLINT":
+                    return 2;
+                case "INT":
+                case "INTEGER":
+                case "REAL":
+                    return 4;
+                case "NUMBER":
+                    return 1 + (Math.max(1, length) + 1) / 2;
+                default:
+                    return 8;
+            }
+        }
+    }
+
+    /**
+     * Columns & indexes of an IS_ANALYTICS table, from its DDL statements.
+     */
+    static class Layout {
+
+        /**
+         * Variable which stores the columns by upper case name, in declaration order.
+         */
+        private final Map<String, Column> columns = new LinkedHashMap<>();
+        /**
+         * Variable which stores the upper case names of the primary key columns.
+         */
+        private final List<String> primaryKey = new ArrayList<>();
+        /**
+         * Variable which stores the upper case column names of each secondary index, by index name.
+         */
+        private final Map<String, List<String>> indexes = new LinkedHashMap<>();
+
+        /**
+         * Getter of columns
+         *
+         * @return the columns
+         */
+        Map<String, Column> getColumns() {
+
+            return columns;
+        }
+
+        /**
+         * Getter of primaryKey
+         *
+         * @return the primaryKey
+         */
+        List<String> getPrimaryKey() {
+
+            return primaryKey;
+        }
+
+        /**
+         * Getter of indexes
+         *
+         * @return the indexes
+         */
+        Map<String, List<String>> getIndexes() {
+
+            return indexes;
+        }
+    }
+
+    /**
+     * Variable which stores the factory of source database connections.
+     */
+    private final ConnectionFactory source;
+    /**
+     * Variable which stores the factory of target database connections.
+     */
+    private final ConnectionFactory target;
+    /**
+     * Variable which stores the migration settings.
+     */
+    private final MigrationConfig config;
+    /**
+     * Variable which stores the on-disk layout of the target database.
+     */
+    private final Storage storage;
+    /**
+     * Variable which stores the layout of each IS_ANALYTICS table, by upper case table name.
+     */
+    private final Map<String, Layout> layouts;
+    /**
+     * Variable which stores the share of a secondary index page used once the data is loaded.
+     */
+    private final double secondaryIndexFill;
+
+    /**
+     * Constructor which initiate the variables source,target,config,storage,layouts,secondaryIndexFill.
+     *
+     * @param source       factory of source database connections.
+     * @param target       factory of target database connections.
+     * @param config       migration settings.
+     * @param storage      on-disk layout of the target database.
+     * @param ddl          DDL statements of the IS_ANALYTICS tables & their indexes in the target database.
+     * @param deferIndexes the secondary indexes are built after the data is loaded.
+     */
+    CapacityPlanner(ConnectionFactory source, ConnectionFactory target, MigrationConfig config, Storage storage,
+                    List<String> ddl, boolean deferIndexes) {
+
+        this.source = source;
+        this.target = target;
+        this.config = config;
+        this.storage = storage;
+        this.layouts = layouts(ddl);
+        this.secondaryIndexFill = deferIndexes ? SORTED_INDEX_FILL : RANDOM_INDEX_FILL;
+    }
+
+    /**
+     * Estimate the storage & load time of the selected tables & log them, followed by the totals.
+     *
+     * @param migrations table migrations to plan.
+     * @return true if every selected table was planned.
+     */
+    boolean run(List<TableMigration> migrations) {
+
+        boolean success = true;
+        double dataBytes = 0;
+        double indexBytes = 0;
+        double seconds = 0;
+        int tables = 0;
+        for (TableMigration migration : migrations) {
+            if (!config.isSelected(migration.getTargetTable())) {
+                continue;
+            }
+            Layout layout = layouts.get(migration.getTargetTable().toUpperCase(Locale.ENGLISH));
+            if (layout == null) {
+                LOG.warn(String.format("No CREATE TABLE statement of %s, it is not planned",
+                        migration.getTargetTable()));
+                success = false;
+                continue;
+            }
+            try {
+                double[] estimate = plan(migration, layout);
+                dataBytes += estimate[0];
+                indexBytes += estimate[1];
+                seconds += estimate[2];
+                tables++;
+            } catch (SQLException e) {
+                success = false;
+                LOG.error(String.format("Error occurred while planning %s from %s, %s", migration.getTargetTable(),
+                        migration.getSourceTable(), e));
+            }
+        }
+        LOG.info(String.format("Plan: %d tables, data %.1f MB, indexes %.1f MB, total %.1f MB, load %s", tables,
+                dataBytes / MB, indexBytes / MB, (dataBytes + indexBytes) / MB, duration(seconds)));
+        return success;
+    }
+
+    /**
+     * Estimate the storage & load time of one table & log them.
+     *
+     * @param migration table migration to plan.
+     * @param layout    columns & indexes of the target table.
+     * @return the bytes of the data, the bytes of the indexes & the seconds to load the table.
+     * @throws SQLException if the source table could not be read.
+     */
+    private double[] plan(TableMigration migration, Layout layout) throws SQLException {
+
+        long sourceRows = count(migration.getSourceTable());
+        List<Object[]> sample = new ArrayList<>();
+        long readStart = System.nanoTime();
+        read(migration, sample);
+        double readRate = rate(sample.size(), System.nanoTime() - readStart);
+
+        List<Object[]> rows = new ArrayList<>();
+        for (Object[] row : sample) {
+            migration.process(row, rows::add);
+        }
+        migration.finish(rows::add);
+        // A sample which holds the whole table gives the exact target rows, otherwise the rows are scaled.
+        // Aggregation groups fill up as more rows are read, so the scaled rows of an aggregation are an upper
+        // bound.
+        boolean exact = sample.size() >= sourceRows;
+        long targetRows = exact || sample.isEmpty() ? rows.size()
+                : (long) Math.ceil(sourceRows * (double) rows.size() / sample.size());
+        double writeRate = writeRate(migration, rows);
+
+        String[] targetColumns = migration.getTargetColumns();
+        Column[] columns = new Column[targetColumns.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = layout.columns.get(targetColumns[i].toUpperCase(Locale.ENGLISH));
+        }
+        double rowBytes = averageRowBytes(layout, columns, rows);
+        double dataBytes = targetRows * rowBytes / storage.dataFill;
+        LOG.info(String.format("%s: %d source rows, %s%d target rows of ~%.0f bytes, data %.1f MB, read %.0f "
+                        + "rows/s, write %s rows/s", migration.getTargetTable(), sourceRows,
+                exact ? "" : migration instanceof ProjectionMigration ? "~" : "at most ", targetRows, rowBytes,
+                dataBytes / MB, readRate, writeRate < 0 ? "unknown" : String.format("%.0f", writeRate)));
+
+        double indexBytes = 0;
+        if (storage.clustered) {
+            LOG.info(String.format("%s primary key: stored with the data", migration.getTargetTable()));
+        } else {
+            double bytes = targetRows * averageEntryBytes(layout, columns, rows, layout.primaryKey, false)
+                    / RANDOM_INDEX_FILL;
+            LOG.info(String.format("%s primary key: %.1f MB", migration.getTargetTable(), bytes / MB));
+            indexBytes += bytes;
+        }
+        for (Map.Entry<String, List<String>> index : layout.indexes.entrySet()) {
+            double bytes = targetRows * averageEntryBytes(layout, columns, rows, index.getValue(), storage.clustered)
+                    / secondaryIndexFill;
+            LOG.info(String.format("%s %s: %.1f MB", migration.getTargetTable(), index.getKey(), bytes / MB));
+            indexBytes += bytes;
+        }
+
+        // The read, transform & write threads overlap when pipelined, so the slower side sets the pace.
+        double readSeconds = readRate > 0 ? sourceRows / readRate : 0;
+        double writeSeconds = writeRate > 0 ? targetRows / writeRate : 0;
+        double seconds = config.getPipelineDepth() > 0 ? Math.max(readSeconds, writeSeconds)
+                : readSeconds + writeSeconds;
+        if (MigrationEngine.readsInRanges(config, migration)) {
+            seconds /= config.getParallelism();
+        }
+        LOG.info(String.format("%s: data & indexes %.1f MB, load %s%s", migration.getTargetTable(),
+                (dataBytes + indexBytes) / MB, writeRate < 0 && targetRows > 0 ? "at least " : "", duration(seconds)));
+        return new double[]{dataBytes, indexBytes, seconds};
+    }
+
+    /**
+     * Count the rows of a source table.
+     *
+     * @param table name of the source table.
+     * @return the number of rows.
+     * @throws SQLException if the table could not be counted.
+     */
+    private long count(String table) throws SQLException {
+
+        try (Connection connection = source.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM " + table);
+             ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next() ? resultSet.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * Read the first planSampleRows rows of a source table.
+     *
+     * @param migration table migration to plan.
+     * @param sample    list which receives the values of the source columns of each row.
+     * @throws SQLException if the source table could not be read.
+     */
+    private void read(TableMigration migration, List<Object[]> sample) throws SQLException {
+
+        try (Connection connection = source.getConnection()) {
+            // Drivers such as Postgresql only stream the result set outside auto commit mode.
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement("SELECT * FROM "
+                    + migration.getSourceTable(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                statement.setFetchSize(Math.min(config.getFetchSize(), config.getPlanSampleRows()));
+                statement.setMaxRows(config.getPlanSampleRows());
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    int[] positions = MigrationEngine.positions(resultSet.getMetaData(), migration);
+                    while (resultSet.next()) {
+                        Object[] row = new Object[positions.length];
+                        for (int i = 0; i < positions.length; i++) {
+                            row[i] = positions[i] == 0 ? null : resultSet.getObject(positions[i]);
+                        }
+                        sample.add(row);
+                    }
+                }
+            } finally {
+                connection.rollback();
+            }
+        }
+    }
+
+    /**
+     * Measure the rows per second the target table takes batch inserts at. The rows are rolled back, so the
+     * commits & the bulk load path, which is usually faster, are not measured.
+     *
+     * @param migration table migration to plan.
+     * @param rows      sampled target rows.
+     * @return the rows per second, -1 if they could not be inserted.
+     */
+    private double writeRate(TableMigration migration, List<Object[]> rows) {
+
+        if (rows.isEmpty()) {
+            return -1;
+        }
+        try (Connection connection = target.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement(TableWriter.insertSql(migration))) {
+                TargetColumns columns = TargetColumns.describe(connection, migration);
+                int batchSize = Math.max(1, config.getBatchSize());
+                int pending = 0;
+                long start = System.nanoTime();
+                for (Object[] row : rows) {
+                    for (int i = 0; i < row.length; i++) {
+                        TableWriter.bind(insert, i + 1, row[i], columns.getType(i));
+                    }
+                    insert.addBatch();
+                    if (++pending == batchSize) {
+                        insert.executeBatch();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    insert.executeBatch();
+                }
+                return rate(rows.size(), System.nanoTime() - start);
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            LOG.warn(String.format("Could not measure the write throughput of %s, eg:- the table does not exist or "
+                    + "already holds the sampled rows, %s", migration.getTargetTable(), e));
+            return -1;
+        }
+    }
+
+    /**
+     * Average bytes of the sampled target rows, with the row overhead & null bitmap of the database.
+     *
+     * @param layout  columns & indexes of the target table.
+     * @param columns declared column of each target column, null for a column missing from the DDL.
+     * @param rows    sampled target rows.
+     * @return the average bytes of a row, the bytes of a row of nulls if there are no rows.
+     */
+    private double averageRowBytes(Layout layout, Column[] columns, List<Object[]> rows) {
+
+        long fixed = storage.rowOverhead + (layout.columns.size() + 7) / 8;
+        // Declared columns which the migration does not write are null in every row.
+        for (Column column : layout.columns.values()) {
+            if (indexOf(columns, column) < 0) {
+                fixed += storage.bytes(column, null);
+            }
+        }
+        if (rows.isEmpty()) {
+            return fixed;
+        }
+        long total = 0;
+        for (Object[] row : rows) {
+            for (int i = 0; i < columns.length; i++) {
+                total += columns[i] == null ? 0 : storage.bytes(columns[i], row[i]);
+            }
+        }
+        return fixed + total / (double) rows.size();
+    }
+
+    /**
+     * Average bytes of an index entry over the sampled target rows.
+     *
+     * @param layout     columns & indexes of the target table.
+     * @param columns    declared column of each target column, null for a column missing from the DDL.
+     * @param rows       sampled target rows.
+     * @param key        upper case names of the index columns.
+     * @param primaryKey the entry points to its row with the primary key columns which are not in the key.
+     * @return the average bytes of an entry.
+     */
+    private double averageEntryBytes(Layout layout, Column[] columns, List<Object[]> rows, List<String> key,
+                                     boolean primaryKey) {
+
+        List<String> entryColumns = new ArrayList<>(key);
+        if (primaryKey) {
+            for (String column : layout.primaryKey) {
+                if (!entryColumns.contains(column)) {
+                    entryColumns.add(column);
+                }
+            }
+        }
+        long fixed = storage.indexEntryOverhead;
+        int[] positions = new int[entryColumns.size()];
+        for (int i = 0; i < positions.length; i++) {
+            Column column = layout.columns.get(entryColumns.get(i));
+            positions[i] = column == null ? -1 : indexOf(columns, column);
+            if (column != null && positions[i] < 0) {
+                fixed += storage.bytes(column, null);
+            }
+        }
+        if (rows.isEmpty()) {
+            return fixed;
+        }
+        long total = 0;
+        for (Object[] row : rows) {
+            for (int position : positions) {
+                total += position < 0 ? 0 : storage.bytes(columns[position], row[position]);
+            }
+        }
+        return fixed + total / (double) rows.size();
+    }
+
+    /**
+     * Find a declared column among the target columns.
+     *
+     * @param columns declared column of each target column.
+     * @param column  column to find.
+     * @return index of the column, -1 if the migration does not write it.
+     */
+    private static int indexOf(Column[] columns, Column column) {
+
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i] == column) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Rows per second of an operation.
+     *
+     * @param rows  rows processed.
+     * @param nanos nanoseconds taken.
+     * @return the rows per second, 0 if no rows were processed.
+     */
+    private static double rate(long rows, long nanos) {
+
+        return rows == 0 ? 0 : rows * 1e9 / Math.max(1, nanos);
+    }
+
+    /**
+     * Format seconds as hours, minutes & seconds.
+     *
+     * @param seconds seconds to format.
+     * @return the duration as HH:mm:ss.
+     */
+    private static String duration(double seconds) {
+
+        long s = (long) Math.ceil(seconds);
+        return String.format("%02d:%02d:%02d", s / 3600, s / 60 % 60, s % 60);
+    }
+
+    /**
+     * Read the columns & indexes of the IS_ANALYTICS tables from their DDL statements.
+     *
+     * @param ddl DDL statements of the tables & their indexes.
+     * @return the layout of each table, by upper case table name.
+     */
+    static Map<String, Layout> layouts(List<String> ddl) {
+
+        Map<String, Layout> layouts = new HashMap<>();
+        for (String s : ddl) {
+            String table = DdlExecutor.tableName(s);
+            if (table == null) {
+                continue;
+            }
+            String body = s.substring(s.indexOf('(') + 1, Math.max(s.indexOf('('), s.lastIndexOf(')'))).trim();
+            if (DdlExecutor.isIndex(s)) {
+                Layout layout = layouts.get(table);
+                if (layout != null) {
+                    layout.indexes.put(DdlExecutor.indexName(s), names(body));
+                }
+                continue;
+            }
+            Layout layout = new Layout();
+            for (String definition : splitTopLevel(body)) {
+                String upper = definition.trim().toUpperCase(Locale.ENGLISH);
+                if (upper.startsWith("PRIMARY KEY")) {
+                    layout.primaryKey.addAll(names(upper.substring(upper.indexOf('(') + 1, upper.lastIndexOf(')'))));
+                    continue;
+                }
+                String[] tokens = upper.split("[\\s(),]+");
+                if (tokens.length < 2) {
+                    continue;
+                }
+                int length = 0;
+                if (tokens.length > 2 && tokens[2].matches("\\d+")) {
+                    length = Integer.parseInt(tokens[2]);
+                }
+                layout.columns.put(tokens[0], new Column(tokens[1], length));
+            }
+            layouts.put(table, layout);
+        }
+        return layouts;
+    }
+
+    /**
+     * Split a comma separated list of column names.
+     *
+     * @param list column names separated by commas.
+     * @return the upper case names.
+     */
+    private static List<String> names(String list) {
+
+        List<String> names = new ArrayList<>();
+        for (String name : list.split(",")) {
+            if (!name.trim().isEmpty()) {
+                names.add(name.trim().toUpperCase(Locale.ENGLISH));
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Split the body of a CREATE TABLE statement into its column & constraint definitions, at the commas
+     * which are not inside parentheses such as NUMBER(19,4).
+     *
+     * @param body text between the outer parentheses of the statement.
+     * @return the definitions.
+     */
+    private static List<String> splitTopLevel(String body) {
+
+        List<String> parts = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < body.length(); i++) {
+            char c = body.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                parts.add(body.substring(start, i));
+                start = i + 1;
+            }
+        }
+        parts.add(body.substring(start));
+        return parts;
+    }
+}
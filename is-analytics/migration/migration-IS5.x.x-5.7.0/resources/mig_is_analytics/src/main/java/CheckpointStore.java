@@ -0,0 +1,267 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.apache.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+
+/**
+ * Progress of the data migration, kept in the MIG_CHECKPOINT table of the IS_ANALYTICS database so a re-run
+ * resumes where the previous run stopped. Each target table has one row with its status, the source
+ * watermark up to which its rows are committed & the number of rows written.
+ */
+class CheckpointStore {
+
+    /**
+     * Initialize Logger object to log messages
+     */
+    private static final Logger LOG = Logger.getLogger(CheckpointStore.class);
+
+    /**
+     * Name of the checkpoint table.
+     */
+    static final String TABLE = "MIG_CHECKPOINT";
+
+    /**
+     * Status of a table whose migration has started.
+     */
+    static final String RUNNING = "RUNNING";
+
+    /**
+     * Status of a table whose migration has finished.
+     */
+    static final String DONE = "DONE";
+
+    /**
+     * Checkpoint of one target table.
+     */
+    static class Checkpoint {
+
+        /**
+         * Variable which stores the status, RUNNING or DONE.
+         */
+        private final String status;
+        /**
+         * Variable which stores the source watermark up to which rows are committed, null if there is none.
+         */
+        private final Long watermark;
+        /**
+         * Variable which stores the number of rows written.
+         */
+        private final long rowsWritten;
+
+        /**
+         * Constructor which initiate the variables status,watermark,rowsWritten.
+         *
+         * @param status      status, RUNNING or DONE.
+         * @param watermark   source watermark up to which rows are committed, null if there is none.
+         * @param rowsWritten number of rows written.
+         */
+        Checkpoint(String status, Long watermark, long rowsWritten) {
+
+            this.status = status;
+            this.watermark = watermark;
+            this.rowsWritten = rowsWritten;
+        }
+
+        /**
+         * Check whether the table is fully migrated.
+         *
+         * @return true if the status is DONE.
+         */
+        boolean isDone() {
+
+            return DONE.equals(status);
+        }
+
+        /**
+         * Getter of watermark
+         *
+         * @return the watermark
+         */
+        Long getWatermark() {
+
+            return watermark;
+        }
+
+        /**
+         * Getter of rowsWritten
+         *
+         * @return the rowsWritten
+         */
+        long getRowsWritten() {
+
+            return rowsWritten;
+        }
+    }
+
+    /**
+     * Variable which stores the factory of target database connections.
+     */
+    private final ConnectionFactory target;
+    /**
+     * Variable which stores the CREATE TABLE statement of the checkpoint table in the target database.
+     */
+    private final String ddl;
+
+    /**
+     * Constructor which initiate the variables target,ddl.
+     *
+     * @param target factory of target database connections.
+     * @param ddl    CREATE TABLE statement of the checkpoint table in the target database.
+     */
+    CheckpointStore(ConnectionFactory target, String ddl) {
+
+        this.target = target;
+        this.ddl = ddl;
+    }
+
+    /**
+     * Create the checkpoint table unless it exists.
+     *
+     * @throws SQLException if the table could not be created.
+     */
+    void init() throws SQLException {
+
+        try (Connection connection = target.getConnection();
+             Statement statement = connection.createStatement()) {
+            try {
+                statement.executeQuery("SELECT TABLE_NAME FROM " + TABLE + " WHERE 1=0").close();
+            } catch (SQLException e) {
+                LOG.info(String.format("Creating checkpoint table %s", TABLE));
+                statement.executeUpdate(ddl);
+            }
+        }
+    }
+
+    /**
+     * Read the checkpoint of a target table.
+     *
+     * @param table name of the target table.
+     * @return the checkpoint, null if the table has not been started.
+     * @throws SQLException if the checkpoint could not be read.
+     */
+    Checkpoint load(String table) throws SQLException {
+
+        try (Connection connection = target.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT STATUS, WATERMARK, ROWS_WRITTEN FROM " + TABLE + " WHERE TABLE_NAME = ?")) {
+            statement.setString(1, table);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return null;
+                }
+                long watermark = resultSet.getLong(2);
+                Long value = resultSet.wasNull() ? null : watermark;
+                return new Checkpoint(resultSet.getString(1), value, resultSet.getLong(3));
+            }
+        }
+    }
+
+    /**
+     * Create the RUNNING checkpoint of a target table unless it has one. Called once before the rows of the
+     * table are written, so the writers of the table only update the row & never insert it concurrently.
+     *
+     * @param table name of the target table.
+     * @throws SQLException if the checkpoint could not be written.
+     */
+    void start(String table) throws SQLException {
+
+        if (load(table) != null) {
+            return;
+        }
+        try (Connection connection = target.getConnection();
+             PreparedStatement insert = connection.prepareStatement("INSERT INTO " + TABLE
+                     + " (STATUS, WATERMARK, ROWS_WRITTEN, TABLE_NAME) VALUES (?, ?, ?, ?)")) {
+            bind(insert, RUNNING, null, 0, table);
+            insert.executeUpdate();
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+        }
+    }
+
+    /**
+     * Record the checkpoint of a target table, which start has created. The caller commits, so the checkpoint
+     * can be committed together with the rows it covers.
+     *
+     * @param connection  connection to the target database.
+     * @param table       name of the target table.
+     * @param status      status, RUNNING or DONE.
+     * @param watermark   source watermark up to which rows are committed, null if there is none.
+     * @param rowsWritten number of rows written.
+     * @throws SQLException if the checkpoint could not be written or the table has no checkpoint.
+     */
+    void save(Connection connection, String table, String status, Long watermark, long rowsWritten)
+            throws SQLException {
+
+        try (PreparedStatement update = connection.prepareStatement("UPDATE " + TABLE
+                + " SET STATUS = ?, WATERMARK = ?, ROWS_WRITTEN = ? WHERE TABLE_NAME = ?")) {
+            bind(update, status, watermark, rowsWritten, table);
+            if (update.executeUpdate() == 0) {
+                throw new SQLException(String.format("%s has no checkpoint in %s, it was removed during the run",
+                        table, TABLE));
+            }
+        }
+    }
+
+    /**
+     * Remove the checkpoint of a target table, so its next run starts from the beginning.
+     *
+     * @param table name of the target table.
+     * @throws SQLException if the checkpoint could not be removed.
+     */
+    void clear(String table) throws SQLException {
+
+        try (Connection connection = target.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "DELETE FROM " + TABLE + " WHERE TABLE_NAME = ?")) {
+            statement.setString(1, table);
+            statement.executeUpdate();
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+        }
+    }
+
+    /**
+     * Bind the values of a checkpoint row.
+     *
+     * @param statement   statement to bind.
+     * @param status      status, RUNNING or DONE.
+     * @param watermark   source watermark, may be null.
+     * @param rowsWritten number of rows written.
+     * @param table       name of the target table.
+     * @throws SQLException if the values could not be bound.
+     */
+    private static void bind(PreparedStatement statement, String status, Long watermark, long rowsWritten,
+                             String table) throws SQLException {
+
+        statement.setString(1, status);
+        if (watermark == null) {
+            statement.setNull(2, Types.BIGINT);
+        } else {
+            statement.setLong(2, watermark);
+        }
+        statement.setLong(3, rowsWritten);
+        statement.setString(4, table);
+    }
+}
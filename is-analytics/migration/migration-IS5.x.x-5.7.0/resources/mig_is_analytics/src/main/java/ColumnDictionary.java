@@ -0,0 +1,102 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary of the values of a low cardinality source column. The driver returns a new String for every
+ * row, so a batch of 50000 rows holds 50000 copies of the same service provider name; encoding replaces each
+ * copy with the one instance kept by the dictionary, & the copy read from the driver is garbage before it
+ * leaves the young generation. Rows hold the shared instance itself rather than an int code, since they are
+ * Object arrays handed to the mappers & bulk loaders, where a code would be boxed again.
+ */
+class ColumnDictionary {
+
+    /**
+     * Upper case names of the source columns which take few distinct values.
+     */
+    private static final Set<String> LOW_CARDINALITY_COLUMNS = new HashSet<>(Arrays.asList("SERVICEPROVIDER",
+            "IDENTITYPROVIDER", "REGION", "USERSTOREDOMAIN", "TENANTDOMAIN", "IDENTITYPROVIDERTYPE",
+            "INBOUNDAUTHTYPE", "EVENTTYPE", "AUTHENTICATIONSTEP", "STEPAUTHENTICATOR", "ROLE", "ROLESCOMMASEPARATED",
+            "TYPE"));
+
+    /**
+     * Variable which stores the shared instance of each value.
+     */
+    private final ConcurrentHashMap<String, String> values = new ConcurrentHashMap<>();
+    /**
+     * Variable which stores the number of values after which new values are no longer added.
+     */
+    private final int capacity;
+
+    /**
+     * Constructor which initiate the variables capacity.
+     *
+     * @param capacity number of values after which new values are no longer added.
+     */
+    ColumnDictionary(int capacity) {
+
+        this.capacity = capacity;
+    }
+
+    /**
+     * Check whether a source column takes few distinct values.
+     *
+     * @param column name of the source column.
+     * @return true if the column is dictionary encoded.
+     */
+    static boolean isLowCardinality(String column) {
+
+        return LOW_CARDINALITY_COLUMNS.contains(column.toUpperCase(Locale.ENGLISH));
+    }
+
+    /**
+     * Replace a value read from the source with the instance kept by the dictionary. Once the dictionary is
+     * full, a column which turns out to have many distinct values is passed through unchanged.
+     *
+     * @param value value read from the source, may be null.
+     * @return the shared instance of the value, or the value itself.
+     */
+    Object encode(Object value) {
+
+        if (!(value instanceof String)) {
+            return value;
+        }
+        String shared = values.get(value);
+        if (shared != null) {
+            return shared;
+        }
+        if (values.size() >= capacity) {
+            return value;
+        }
+        shared = values.putIfAbsent((String) value, (String) value);
+        return shared != null ? shared : value;
+    }
+
+    /**
+     * Number of distinct values in the dictionary.
+     *
+     * @return the number of values.
+     */
+    int size() {
+
+        return values.size();
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Source of additional database connections for work which runs on more than one connection.
+ */
+interface ConnectionFactory {
+
+    /**
+     * Open a new connection to the database.
+     *
+     * @return the connection, to be closed by the caller.
+     * @throws SQLException if the connection could not be established.
+     */
+    Connection getConnection() throws SQLException;
+}
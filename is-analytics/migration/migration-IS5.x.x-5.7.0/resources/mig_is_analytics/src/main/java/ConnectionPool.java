@@ -0,0 +1,519 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.apache.log4j.Logger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Pool of connections to the IS_ANALYTICS database, shared by the DDL workers, the table writers & the
+ * checkpoint store instead of each of them opening a connection through the DriverManager. A borrowed
+ * connection is returned to the pool by closing it. Every new connection runs the session initialization
+ * statements of the database, a connection which was idle for a while is validated before it is handed out &
+ * each connection keeps its most recently used prepared statements, so the statements prepared for every
+ * committed batch, such as the checkpoint update, are parsed once per connection.
+ * <p>
+ * The session initialization statements are chosen per database by DatabaseConnection.sessionDefaults. Settings
+ * which would speed up the load but are not safe on every server are left out of the defaults:
+ * <ul>
+ * <li>MySQL READ COMMITTED, since writes fail with error 1665 under binlog_format=STATEMENT.</li>
+ * <li>MySQL sql_mode, since adding or removing strict mode changes whether DAS values longer than their column
+ * fail the load or are truncated, whatever the server was set up with.</li>
+ * <li>MySQL unique_checks & foreign_key_checks, since the IS_ANALYTICS tables have no unique secondary indexes
+ * & no foreign keys, so there are no checks to skip.</li>
+ * <li>Oracle ENABLE PARALLEL DML, since a parallel insert locks the whole table until the commit, so the
+ * workers loading ranges of one table wait for each other.</li>
+ * <li>MSSQL NOCOUNT, since the checkpoint store relies on the update count to decide whether to insert.</li>
+ * <li>Asynchronous commit on Postgresql & Oracle, unless the run neither resumes, adds a delta nor builds the
+ * rollup.</li>
+ * </ul>
+ */
+class ConnectionPool implements ConnectionFactory, AutoCloseable {
+
+    /**
+     * Initialize Logger object to log messages
+     */
+    private static final Logger LOG = Logger.getLogger(ConnectionPool.class);
+
+    /**
+     * Default milliseconds a connection may be idle before it is validated when borrowed.
+     */
+    private static final long VALIDATION_INTERVAL = 30000;
+
+    /**
+     * Seconds to wait for the database to answer a validation.
+     */
+    private static final int VALIDATION_TIMEOUT = 5;
+
+    /**
+     * Default milliseconds to wait for a connection when every connection is borrowed.
+     */
+    private static final long BORROW_TIMEOUT = 60000;
+
+    /**
+     * Variable which stores the JDBC URL of the database.
+     */
+    private final String url;
+    /**
+     * Variable which stores the database username.
+     */
+    private final String user;
+    /**
+     * Variable which stores the database password.
+     */
+    private final String password;
+    /**
+     * Variable which stores the maximum number of connections open at the same time.
+     */
+    private final int size;
+    /**
+     * Variable which stores the number of prepared statements kept per connection.
+     */
+    private final int statementCacheSize;
+    /**
+     * Variable which stores the statements run on every new connection.
+     */
+    private final List<String> sessionInit;
+    /**
+     * Variable which stores the milliseconds a connection may be idle before it is validated when borrowed.
+     */
+    private final long validationInterval;
+    /**
+     * Variable which stores the milliseconds to wait for a connection when every connection is borrowed.
+     */
+    private final long borrowTimeout;
+    /**
+     * Variable which stores the connections which are not borrowed, most recently returned first.
+     */
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    /**
+     * Variable which stores the number of open connections, borrowed or idle.
+     */
+    private int open;
+    /**
+     * Variable which stores whether the pool is closed.
+     */
+    private boolean closed;
+
+    /**
+     * Physical connection of the pool with its prepared statements.
+     */
+    private static final class PooledConnection {
+
+        /**
+         * Variable which stores the connection to the database.
+         */
+        private final Connection physical;
+        /**
+         * Variable which stores the idle prepared statements by SQL, least recently used first.
+         */
+        private final LinkedHashMap<String, PreparedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+        /**
+         * Variable which stores the time the connection was returned to the pool.
+         */
+        private long returned = System.currentTimeMillis();
+
+        /**
+         * Constructor which initiate the variables physical.
+         *
+         * @param physical connection to the database.
+         */
+        PooledConnection(Connection physical) {
+
+            this.physical = physical;
+        }
+    }
+
+    /**
+     * Constructor which initiate the variables url,user,password,size,statementCacheSize,sessionInit.
+     *
+     * @param url                JDBC URL of the database.
+     * @param user               database username.
+     * @param password           database password.
+     * @param size               maximum number of connections open at the same time.
+     * @param statementCacheSize number of prepared statements kept per connection, 0 to close every statement.
+     * @param sessionInit        statements run on every new connection.
+     */
+    ConnectionPool(String url, String user, String password, int size, int statementCacheSize,
+                   List<String> sessionInit) {
+
+        this(url, user, password, size, statementCacheSize, sessionInit, VALIDATION_INTERVAL, BORROW_TIMEOUT);
+    }
+
+    /**
+     * Constructor which initiate the variables url,user,password,size,statementCacheSize,sessionInit,
+     * validationInterval,borrowTimeout.
+     *
+     * @param url                JDBC URL of the database.
+     * @param user               database username.
+     * @param password           database password.
+     * @param size               maximum number of connections open at the same time.
+     * @param statementCacheSize number of prepared statements kept per connection, 0 to close every statement.
+     * @param sessionInit        statements run on every new connection.
+     * @param validationInterval milliseconds a connection may be idle before it is validated when borrowed.
+     * @param borrowTimeout      milliseconds to wait for a connection when every connection is borrowed.
+     */
+    ConnectionPool(String url, String user, String password, int size, int statementCacheSize,
+                   List<String> sessionInit, long validationInterval, long borrowTimeout) {
+
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.size = Math.max(1, size);
+        this.statementCacheSize = Math.max(0, statementCacheSize);
+        this.sessionInit = sessionInit;
+        this.validationInterval = validationInterval;
+        this.borrowTimeout = borrowTimeout;
+    }
+
+    /**
+     * Borrow a connection, in auto commit mode. Closing it returns it to the pool.
+     *
+     * @return the connection.
+     * @throws SQLException if every connection stays borrowed for too long or a connection could not be opened.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+
+        PooledConnection pooled = borrow();
+        Connection connection = pooled.physical;
+        return (Connection) Proxy.newProxyInstance(connection.getClass().getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(pooled));
+    }
+
+    /**
+     * Close the idle connections & every borrowed connection when it is returned.
+     */
+    @Override
+    public synchronized void close() {
+
+        closed = true;
+        for (PooledConnection pooled : idle) {
+            discard(pooled);
+        }
+        idle.clear();
+        notifyAll();
+    }
+
+    /**
+     * Take an idle connection, or open a new one if fewer than size are open.
+     *
+     * @return the connection.
+     * @throws SQLException if every connection stays borrowed for too long or a connection could not be opened.
+     */
+    private PooledConnection borrow() throws SQLException {
+
+        long deadline = System.currentTimeMillis() + borrowTimeout;
+        while (true) {
+            PooledConnection pooled;
+            synchronized (this) {
+                while (!closed && idle.isEmpty() && open >= size) {
+                    long wait = deadline - System.currentTimeMillis();
+                    if (wait <= 0) {
+                        throw new SQLException(String.format("All %d connections of the pool are in use, raise "
+                                + "poolSize", size));
+                    }
+                    try {
+                        wait(wait);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a connection", e);
+                    }
+                }
+                if (closed) {
+                    throw new SQLException("The connection pool is closed");
+                }
+                pooled = idle.pollFirst();
+                if (pooled == null) {
+                    open++;
+                }
+            }
+            if (pooled == null) {
+                try {
+                    return new PooledConnection(connect());
+                } catch (SQLException | RuntimeException e) {
+                    release();
+                    throw e;
+                }
+            }
+            if (System.currentTimeMillis() - pooled.returned < validationInterval || isValid(pooled)) {
+                return pooled;
+            }
+            LOG.debug("Discarding a pooled connection which is no longer valid");
+            discard(pooled);
+            release();
+        }
+    }
+
+    /**
+     * Open a connection & run the session initialization statements.
+     *
+     * @return the new connection.
+     * @throws SQLException if the connection could not be opened or initialized.
+     */
+    private Connection connect() throws SQLException {
+
+        Connection connection = DriverManager.getConnection(url, user, password);
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : sessionInit) {
+                statement.execute(sql);
+            }
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        return connection;
+    }
+
+    /**
+     * Check whether a connection still works.
+     *
+     * @param pooled the connection.
+     * @return true if the database answered.
+     */
+    private static boolean isValid(PooledConnection pooled) {
+
+        try {
+            return pooled.physical.isValid(VALIDATION_TIMEOUT);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Put a borrowed connection back, after rolling back its open transaction. A connection which can not be
+     * reset is closed instead.
+     *
+     * @param pooled the connection.
+     */
+    private void giveBack(PooledConnection pooled) {
+
+        try {
+            if (!pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            LOG.debug(String.format("Discarding a pooled connection which could not be reset, %s", e));
+            discard(pooled);
+            release();
+            return;
+        }
+        synchronized (this) {
+            if (!closed) {
+                pooled.returned = System.currentTimeMillis();
+                idle.addFirst(pooled);
+                notifyAll();
+                return;
+            }
+        }
+        discard(pooled);
+        release();
+    }
+
+    /**
+     * Record that an open connection was closed, so another may be opened.
+     */
+    private synchronized void release() {
+
+        open--;
+        notifyAll();
+    }
+
+    /**
+     * Close a connection & its prepared statements.
+     *
+     * @param pooled the connection.
+     */
+    private static void discard(PooledConnection pooled) {
+
+        for (PreparedStatement statement : pooled.statements.values()) {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                LOG.debug(e);
+            }
+        }
+        pooled.statements.clear();
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            LOG.debug(e);
+        }
+    }
+
+    /**
+     * Connection handed out by the pool: close returns the connection to the pool & prepareStatement with
+     * only an SQL string reuses an idle statement of the connection.
+     */
+    private final class ConnectionHandler implements InvocationHandler {
+
+        /**
+         * Variable which stores the pooled connection.
+         */
+        private final PooledConnection pooled;
+        /**
+         * Variable which stores whether the connection was returned.
+         */
+        private boolean returned;
+
+        /**
+         * Constructor which initiate the variables pooled.
+         *
+         * @param pooled the pooled connection.
+         */
+        ConnectionHandler(PooledConnection pooled) {
+
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        giveBack(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled " + pooled.physical;
+                default:
+                    break;
+            }
+            if (returned) {
+                throw new SQLException("The connection was returned to the pool");
+            }
+            if ("prepareStatement".equals(method.getName()) && args != null && args.length == 1
+                    && statementCacheSize > 0) {
+                return prepare((String) args[0]);
+            }
+            try {
+                return method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        /**
+         * Take the idle statement of an SQL string, or prepare it.
+         *
+         * @param sql the SQL string.
+         * @return a statement whose close keeps it for the next prepare.
+         * @throws SQLException if the statement could not be prepared.
+         */
+        private PreparedStatement prepare(String sql) throws SQLException {
+
+            PreparedStatement statement = pooled.statements.remove(sql);
+            if (statement == null) {
+                statement = pooled.physical.prepareStatement(sql);
+            }
+            PreparedStatement physical = statement;
+            return (PreparedStatement) Proxy.newProxyInstance(physical.getClass().getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, new InvocationHandler() {
+
+                        /**
+                         * Variable which stores whether the statement was closed.
+                         */
+                        private boolean closed;
+
+                        @Override
+                        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+                            if ("close".equals(method.getName())) {
+                                if (!closed) {
+                                    closed = true;
+                                    keep(sql, physical);
+                                }
+                                return null;
+                            }
+                            if ("isClosed".equals(method.getName())) {
+                                return closed || physical.isClosed();
+                            }
+                            if (closed) {
+                                throw new SQLException("The statement is closed");
+                            }
+                            try {
+                                return method.invoke(physical, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                        }
+                    });
+        }
+
+        /**
+         * Keep a closed statement for the next prepare of its SQL string, closing the least recently used
+         * statement beyond the cache size.
+         *
+         * @param sql       the SQL string.
+         * @param statement the physical statement.
+         */
+        private void keep(String sql, PreparedStatement statement) {
+
+            try {
+                statement.clearParameters();
+                statement.clearBatch();
+            } catch (SQLException e) {
+                close(statement);
+                return;
+            }
+            PreparedStatement previous = pooled.statements.put(sql, statement);
+            if (previous != null) {
+                close(previous);
+            }
+            Iterator<PreparedStatement> eldest = pooled.statements.values().iterator();
+            while (pooled.statements.size() > statementCacheSize) {
+                close(eldest.next());
+                eldest.remove();
+            }
+        }
+
+        /**
+         * Close a physical statement.
+         *
+         * @param statement the statement.
+         */
+        private void close(PreparedStatement statement) {
+
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                LOG.debug(e);
+            }
+        }
+    }
+}
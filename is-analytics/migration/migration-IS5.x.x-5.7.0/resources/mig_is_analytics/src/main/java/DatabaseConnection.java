@@ -18,18 +18,23 @@ import org.apache.log4j.Logger;
 
 import java.io.File;
 import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLClassLoader;
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
 import java.sql.Driver;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 
 /**
- * Initiate Database Connection to create IS_ANALYTICS tables.
+ * Initiate Database Connection to create IS_ANALYTICS tables & migrate the analytics data into them.
  */
 public class DatabaseConnection {
 
@@ -69,6 +74,66 @@ public class DatabaseConnection {
      * Variable which stores the database URL.
      */
     private String dbUrl;
+    /**
+     * Variable which stores whether DDL statements are sent to the database as a single batch.
+     */
+    private boolean batchDDL = true;
+    /**
+     * Variable which stores the number of connections used to create tables concurrently.
+     */
+    private int ddlThreads = 1;
+    /**
+     * Variable which stores whether secondary indexes are built after the data is loaded instead of with the tables.
+     */
+    private boolean deferIndexes = false;
+    /**
+     * Variable which stores whether the aggregation tables are range partitioned on AGG_EVENT_TIMESTAMP.
+     */
+    private boolean partitionAggregations = false;
+    /**
+     * Variable which stores the first month of the aggregation table partitions.
+     */
+    private YearMonth partitionStart = YearMonth.now(ZoneOffset.UTC).minusYears(5).withMonth(1);
+    /**
+     * Variable which stores the last month of the aggregation table partitions.
+     */
+    private YearMonth partitionEnd = YearMonth.now(ZoneOffset.UTC).plusYears(2);
+    /**
+     * Variable which stores the degree of parallelism the database uses to build each secondary index.
+     */
+    private int indexParallelism = 4;
+    /**
+     * Variable which stores the maximum number of connections the pool opens to the database.
+     */
+    private int poolSize = 3;
+    /**
+     * Variable which stores the number of prepared statements the pool keeps per connection.
+     */
+    private int statementCacheSize = 32;
+    /**
+     * Variable which stores the statements run on every new connection separated by ;, null to run none.
+     */
+    private String sessionInit;
+    /**
+     * Variable which stores whether the default session settings let commits return before they are durable.
+     */
+    private boolean asynchronousCommit = false;
+    /**
+     * Variable which stores whether batches of inserts are sent as multi-row statements, when the driver can
+     * rewrite them.
+     */
+    private boolean rewriteBatches = true;
+    /**
+     * Variable which stores the pool of connections to the database, created on the first connection.
+     */
+    private ConnectionPool pool;
+    /**
+     * Variable which stores the run mode, CREATE to create tables, MIGRATE to copy the analytics data, DELTA to
+     * copy the analytics rows added since the last migration, INDEX to build the deferred secondary indexes,
+     * PLAN to estimate the storage & load time of a migration without writing any data, VERIFY to compare the
+     * migrated tables with their source or EXPORT to copy the source tables into files a migration can read.
+     */
+    private String mode = MODE.CREATE.name();
 
     /**
      * Initialize Logger object to log messages
@@ -82,6 +147,13 @@ public class DatabaseConnection {
         MYSQL, POSTGRESQL, ORACLE, MSSQL;
     }
 
+    /**
+     * Represent the set of run modes
+     */
+    private enum MODE {
+        CREATE, MIGRATE, DELTA, INDEX, PLAN, VERIFY, EXPORT;
+    }
+
     /**
      * Object of SQL connection.
      */
@@ -154,11 +226,568 @@ public class DatabaseConnection {
         this.dbUrl = dbUrl;
     }
 
+    /**
+     * Getter of batchDDL
+     *
+     * @return the batchDDL
+     */
+    public boolean isBatchDDL() {
+
+        return batchDDL;
+    }
+
+    /**
+     * Setter of batchDDL
+     *
+     * @param batchDDL the batchDDL to set
+     */
+    public void setBatchDDL(boolean batchDDL) {
+
+        this.batchDDL = batchDDL;
+    }
+
+    /**
+     * Getter of ddlThreads
+     *
+     * @return the ddlThreads
+     */
+    public int getDdlThreads() {
+
+        return ddlThreads;
+    }
+
+    /**
+     * Setter of ddlThreads
+     *
+     * @param ddlThreads the ddlThreads to set
+     */
+    public void setDdlThreads(int ddlThreads) {
+
+        this.ddlThreads = ddlThreads;
+    }
+
+    /**
+     * Getter of deferIndexes
+     *
+     * @return the deferIndexes
+     */
+    public boolean isDeferIndexes() {
+
+        return deferIndexes;
+    }
+
+    /**
+     * Setter of deferIndexes
+     *
+     * @param deferIndexes the deferIndexes to set
+     */
+    public void setDeferIndexes(boolean deferIndexes) {
+
+        this.deferIndexes = deferIndexes;
+    }
+
+    /**
+     * Getter of partitionAggregations
+     *
+     * @return the partitionAggregations
+     */
+    public boolean isPartitionAggregations() {
+
+        return partitionAggregations;
+    }
+
+    /**
+     * Setter of partitionAggregations
+     *
+     * @param partitionAggregations the partitionAggregations to set
+     */
+    public void setPartitionAggregations(boolean partitionAggregations) {
+
+        this.partitionAggregations = partitionAggregations;
+    }
+
+    /**
+     * Getter of partitionStart
+     *
+     * @return the partitionStart
+     */
+    public YearMonth getPartitionStart() {
+
+        return partitionStart;
+    }
+
+    /**
+     * Setter of partitionStart
+     *
+     * @param partitionStart the partitionStart to set
+     */
+    public void setPartitionStart(YearMonth partitionStart) {
+
+        this.partitionStart = partitionStart;
+    }
+
+    /**
+     * Getter of partitionEnd
+     *
+     * @return the partitionEnd
+     */
+    public YearMonth getPartitionEnd() {
+
+        return partitionEnd;
+    }
+
+    /**
+     * Setter of partitionEnd
+     *
+     * @param partitionEnd the partitionEnd to set
+     */
+    public void setPartitionEnd(YearMonth partitionEnd) {
+
+        this.partitionEnd = partitionEnd;
+    }
+
+    /**
+     * Getter of indexParallelism
+     *
+     * @return the indexParallelism
+     */
+    public int getIndexParallelism() {
+
+        return indexParallelism;
+    }
+
+    /**
+     * Setter of indexParallelism
+     *
+     * @param indexParallelism the indexParallelism to set
+     */
+    public void setIndexParallelism(int indexParallelism) {
+
+        this.indexParallelism = indexParallelism;
+    }
+
+    /**
+     * Getter of poolSize
+     *
+     * @return the poolSize
+     */
+    public int getPoolSize() {
+
+        return poolSize;
+    }
+
+    /**
+     * Setter of poolSize
+     *
+     * @param poolSize the poolSize to set
+     */
+    public void setPoolSize(int poolSize) {
+
+        this.poolSize = poolSize;
+    }
+
+    /**
+     * Getter of statementCacheSize
+     *
+     * @return the statementCacheSize
+     */
+    public int getStatementCacheSize() {
+
+        return statementCacheSize;
+    }
+
+    /**
+     * Setter of statementCacheSize
+     *
+     * @param statementCacheSize the statementCacheSize to set
+     */
+    public void setStatementCacheSize(int statementCacheSize) {
+
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    /**
+     * Getter of sessionInit
+     *
+     * @return the sessionInit
+     */
+    public String getSessionInit() {
+
+        return sessionInit;
+    }
+
+    /**
+     * Setter of sessionInit
+     *
+     * @param sessionInit the sessionInit to set
+     */
+    public void setSessionInit(String sessionInit) {
+
+        this.sessionInit = sessionInit;
+    }
+
+    /**
+     * Getter of rewriteBatches
+     *
+     * @return the rewriteBatches
+     */
+    public boolean isRewriteBatches() {
+
+        return rewriteBatches;
+    }
+
+    /**
+     * Setter of rewriteBatches
+     *
+     * @param rewriteBatches the rewriteBatches to set
+     */
+    public void setRewriteBatches(boolean rewriteBatches) {
+
+        this.rewriteBatches = rewriteBatches;
+    }
+
+    /**
+     * Getter of mode
+     *
+     * @return the mode
+     */
+    public String getMode() {
+
+        return mode;
+    }
+
+    /**
+     * Setter of mode
+     *
+     * @param mode the mode to set
+     */
+    public void setMode(String mode) {
+
+        this.mode = mode;
+    }
+
+    /**
+     * Borrow a connection to the database from the pool, which is created on the first call. Closing the
+     * connection returns it to the pool.
+     *
+     * @return the connection.
+     * @throws SQLException if the connection could not be established.
+     */
+    Connection openConnection() throws SQLException {
+
+        ConnectionPool current;
+        synchronized (this) {
+            if (pool == null) {
+                pool = new ConnectionPool(dbUrl, user, pass, poolSize, statementCacheSize, sessionInitStatements());
+            }
+            current = pool;
+        }
+        return current.getConnection();
+    }
+
+    /**
+     * Statements run on every new connection: the sessionInit statements when given, else the defaults of the
+     * database.
+     *
+     * @return the statements.
+     */
+    private List<String> sessionInitStatements() {
+
+        if (sessionInit == null) {
+            return sessionDefaults(dbType, asynchronousCommit);
+        }
+        List<String> statements = new ArrayList<>();
+        for (String sql : sessionInit.split(";")) {
+            if (!sql.trim().isEmpty()) {
+                statements.add(sql.trim());
+            }
+        }
+        return statements;
+    }
+
+    /**
+     * Session settings of each connection to the database unless sessionInit is given, see ConnectionPool for the
+     * settings which are left out. MySQL keeps the settings of the server. Oracle converts numbers & dates independently of the
+     * locale of the client. MSSQL aborts arithmetic overflows as SSMS does, so the plans of the tool & of
+     * queries run from SSMS are shared. Postgresql & Oracle commit without waiting for the log flush when
+     * asynchronousCommit is set.
+     *
+     * @param dbType             type of the database.
+     * @param asynchronousCommit whether commits may return before they are durable.
+     * @return the statements.
+     */
+    static List<String> sessionDefaults(String dbType, boolean asynchronousCommit) {
+
+        List<String> statements = new ArrayList<>();
+        switch (DBTYPE.valueOf(dbType)) {
+            case POSTGRESQL:
+                if (asynchronousCommit) {
+                    statements.add("SET synchronous_commit = off");
+                }
+                break;
+            case ORACLE:
+                statements.add("ALTER SESSION SET NLS_NUMERIC_CHARACTERS = '.,'");
+                statements.add("ALTER SESSION SET NLS_DATE_FORMAT = 'YYYY-MM-DD HH24:MI:SS'");
+                if (asynchronousCommit) {
+                    statements.add("ALTER SESSION SET COMMIT_WAIT = 'NOWAIT'");
+                }
+                break;
+            case MSSQL:
+                statements.add("SET ARITHABORT ON");
+                break;
+            default:
+                break;
+        }
+        return statements;
+    }
+
+    /**
+     * Execute DDL statements, as a single batch if batchDDL is enabled. When ddlThreads is more than one
+     * the tables are created concurrently, each table with its indexes on one connection. When deferIndexes
+     * is enabled the secondary indexes are left out, to be built after the data is loaded. When
+     * partitionAggregations is enabled the aggregation tables are created range partitioned.
+     *
+     * @param al list of DDL statements.
+     * @return true if every statement was executed successfully.
+     */
+    private boolean executeDDL(List<String> al) {
+
+        if (deferIndexes) {
+            List<String> tables = new ArrayList<>();
+            for (String s : al) {
+                if (!DdlExecutor.isIndex(s)) {
+                    tables.add(s);
+                }
+            }
+            LOG.info(String.format("Deferring %d secondary indexes until the data is loaded",
+                    al.size() - tables.size()));
+            al = tables;
+        } else if (DBTYPE.valueOf(dbType) == DBTYPE.MYSQL) {
+            al = inlineIndexes(al);
+        }
+        // Postgresql runs a batch in one implicit transaction, so a failed batch leaves nothing behind.
+        DdlExecutor executor = new DdlExecutor(batchDDL, DBTYPE.valueOf(dbType) == DBTYPE.POSTGRESQL);
+        if (partitionAggregations) {
+            LOG.info(String.format("Partitioning the aggregation tables on AGG_EVENT_TIMESTAMP from %s to %s",
+                    partitionStart, partitionEnd));
+            PartitionedDdl partitioned = PartitionedDdl.valueOf(dbType);
+            // The partition functions of MSSQL are created before any table which uses them.
+            List<String> prelude = partitioned.prelude(partitionStart, partitionEnd);
+            if (!prelude.isEmpty() && !executor.execute(statement, prelude).isEmpty()) {
+                return false;
+            }
+            al = partitioned.apply(al, partitionStart, partitionEnd);
+        }
+        if (ddlThreads > 1) {
+            return executor.executeParallel(this::openConnection, al, ddlThreads).isEmpty();
+        }
+        return executor.execute(statement, al).isEmpty();
+    }
+
+    /**
+     * Move the secondary indexes of MySQL tables into their CREATE TABLE statements as KEY clauses, so each
+     * table is created with its indexes in one statement.
+     *
+     * @param al list of DDL statements, each index after its table.
+     * @return the CREATE TABLE statements with their KEY clauses, & any index whose table is not in the list.
+     */
+    static List<String> inlineIndexes(List<String> al) {
+
+        List<String> statements = new ArrayList<>(al);
+        for (String s : al) {
+            if (!DdlExecutor.isIndex(s)) {
+                continue;
+            }
+            String ddl = s.trim();
+            String columns = ddl.substring(ddl.indexOf('('), ddl.lastIndexOf(')') + 1);
+            for (int i = 0; i < statements.size(); i++) {
+                String table = statements.get(i).trim();
+                if (!DdlExecutor.isIndex(table) && DdlExecutor.tableName(s).equals(DdlExecutor.tableName(table))) {
+                    table = table.substring(0, table.lastIndexOf(')'));
+                    statements.set(i, table + ",KEY " + DdlExecutor.indexName(ddl) + " " + columns + ");");
+                    statements.remove(s);
+                    break;
+                }
+            }
+        }
+        return statements;
+    }
+
+    /**
+     * DDL statements of the IS_ANALYTICS tables & their indexes in the database.
+     *
+     * @return list of DDL statements, each index after its table.
+     */
+    List<String> tablesDDL() {
+
+        switch (DBTYPE.valueOf(dbType)) {
+            case MYSQL:
+                return mySQLTablesDDL();
+            case POSTGRESQL:
+                return postgresqlTablesDDL();
+            case ORACLE:
+                return oracleTablesDDL();
+            case MSSQL:
+                return mssqlTablesDDL();
+            default:
+                return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Statements which build a secondary index after the data is loaded, with the bulk build options of the
+     * database. The Postgresql settings are reset after the index, whether or not it was built, since the
+     * connection goes back to the pool. MSSQL builds the index offline: ONLINE = ON is only available on the
+     * Enterprise edition, & the deferred indexes are built before IS uses the tables, so there are no queries
+     * to keep the tables available for while the index is built more slowly.
+     *
+     * @param createIndex CREATE INDEX statement of the index.
+     * @return the statements to execute in order on one connection.
+     */
+    List<String> indexBuild(String createIndex) {
+
+        String ddl = createIndex.trim();
+        if (ddl.endsWith(";")) {
+            ddl = ddl.substring(0, ddl.length() - 1);
+        }
+        List<String> al = new ArrayList<>();
+        switch (DBTYPE.valueOf(dbType)) {
+            case MYSQL:
+                // InnoDB builds the index in place with a sorted bulk load instead of row by row inserts.
+                al.add(ddl + " ALGORITHM=INPLACE;");
+                break;
+            case POSTGRESQL:
+                al.add("SET maintenance_work_mem = '512MB';");
+                al.add("SET max_parallel_maintenance_workers = " + indexParallelism + ";");
+                al.add(ddl + ";");
+                al.add("RESET maintenance_work_mem;");
+                al.add("RESET max_parallel_maintenance_workers;");
+                break;
+            case ORACLE:
+                al.add(ddl + " PARALLEL " + indexParallelism);
+                // Keep the parallel degree from being used for queries on the index later on.
+                al.add("ALTER INDEX " + DdlExecutor.indexName(ddl) + " NOPARALLEL");
+                break;
+            case MSSQL:
+                al.add(ddl + " WITH (MAXDOP = " + indexParallelism + ", SORT_IN_TEMPDB = ON);");
+                break;
+            default:
+                al.add(createIndex);
+        }
+        return al;
+    }
+
+    /**
+     * Build the secondary indexes which were deferred while the tables were loaded. Indexes which already
+     * exist, eg:- from an earlier run of the index mode, are skipped. Indexes of different tables are built
+     * concurrently over ddlThreads connections.
+     *
+     * @return true if every index was built.
+     */
+    private boolean buildIndexes() {
+
+        List<String> indexes = new ArrayList<>();
+        for (String s : tablesDDL()) {
+            if (DdlExecutor.isIndex(s)) {
+                indexes.add(s);
+            }
+        }
+        List<String> missing = missingIndexes(indexes);
+        if (missing.size() < indexes.size()) {
+            LOG.info(String.format("Skipping %d secondary indexes which already exist",
+                    indexes.size() - missing.size()));
+        }
+        List<List<String>> groups = new ArrayList<>();
+        for (String s : missing) {
+            groups.add(indexBuild(s));
+        }
+        LOG.info(String.format("Building %d secondary indexes", groups.size()));
+        // Settings the database does not know, such as max_parallel_maintenance_workers before Postgresql 11,
+        // only fail on their own, so only the index statements decide the outcome.
+        List<String> failed = new DdlExecutor(false, false).executeGroups(this::openConnection, groups,
+                Math.max(1, ddlThreads));
+        boolean built = failed != null;
+        if (built) {
+            for (String s : failed) {
+                built &= !DdlExecutor.isIndex(s);
+            }
+        }
+        if (built) {
+            LOG.info("IS_ANALYTICS secondary indexes built");
+        } else {
+            LOG.info("Some secondary indexes were not built, check the errors above & re-run in index mode");
+        }
+        return built;
+    }
+
+    /**
+     * Leave out the indexes which already exist in the database. If the metadata of the database could not be
+     * read every index is kept, so the build reports the indexes it could not create.
+     *
+     * @param indexes CREATE INDEX statements.
+     * @return the statements of the indexes which do not exist.
+     */
+    List<String> missingIndexes(List<String> indexes) {
+
+        Set<String> tables = new HashSet<>();
+        for (String s : indexes) {
+            tables.add(DdlExecutor.tableName(s));
+        }
+        Set<String> existing = new HashSet<>();
+        try (Connection connection = openConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            // Unquoted names are stored in upper case by some databases & in lower case by others, so the
+            // tables are matched ignoring case.
+            try (ResultSet tableNames = metaData.getTables(connection.getCatalog(), connection.getSchema(), "%",
+                    new String[]{"TABLE"})) {
+                while (tableNames.next()) {
+                    String table = tableNames.getString("TABLE_NAME");
+                    if (!tables.contains(table.toUpperCase(Locale.ENGLISH))) {
+                        continue;
+                    }
+                    try (ResultSet indexInfo = metaData.getIndexInfo(tableNames.getString("TABLE_CAT"),
+                            tableNames.getString("TABLE_SCHEM"), table, false, true)) {
+                        while (indexInfo.next()) {
+                            if (indexInfo.getString("INDEX_NAME") != null) {
+                                existing.add(indexInfo.getString("INDEX_NAME").toUpperCase(Locale.ENGLISH));
+                            }
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            LOG.warn(String.format("Could not read the existing indexes, building every index, %s", e));
+            return indexes;
+        }
+        List<String> missing = new ArrayList<>();
+        for (String s : indexes) {
+            String name = DdlExecutor.indexName(s);
+            if (name == null || !existing.contains(name.toUpperCase(Locale.ENGLISH))) {
+                missing.add(s);
+            }
+        }
+        return missing;
+    }
+
     /**
      * Create IS_ANALYTICS tables in MySQL database.
      */
     public void createMySQLTables(){
 
+        if (executeDDL(mySQLTablesDDL())) {
+            LOG.info("IS_ANALYTICS tables created in MySQL");
+        } else {
+            LOG.info("Drop all existing tables in the database & re-run the script");
+        }
+    }
+
+    /**
+     * DDL statements of the IS_ANALYTICS tables & their indexes in MySQL database.
+     *
+     * @return list of DDL statements, each index after its table.
+     */
+    private List<String> mySQLTablesDDL() {
+
         String createActiveSessionCountTable = "CREATE TABLE ActiveSessionCountTable ( meta_tenantId int(11) NOT NULL," +
                 "activeCount bigint(20) DEFAULT NULL," +
                 "PRIMARY KEY (meta_tenantId));";
@@ -319,8 +948,10 @@ public class DatabaseConnection {
                 "meta_tenantId int(11) NOT NULL,  tenantDomain varchar(254) DEFAULT NULL," +
                 "sessionId varchar(254) NOT NULL, username varchar(254) DEFAULT NULL," +
                 "duration bigint(20) DEFAULT NULL, avgDuration double DEFAULT NULL," +
-                "PRIMARY KEY (meta_tenantId,sessionId)," +
-                "KEY AlertLongSessionsTable_INDEX (username));";
+                "PRIMARY KEY (meta_tenantId,sessionId));";
+
+        String createAlertLongSessionsTableINDEX = "CREATE INDEX AlertLongSessionsTable_INDEX " +
+                "ON AlertLongSessionsTable (username);";
 
         String createOverallAuthTable = "CREATE TABLE OverallAuthTable ( " +
                 "meta_tenantId int(11) NOT NULL, contextId varchar(254) DEFAULT NULL," +
@@ -358,16 +989,20 @@ public class DatabaseConnection {
                 "startTimestamp bigint(20) DEFAULT NULL, renewTimestamp bigint(20) DEFAULT NULL," +
                 "terminationTimestamp bigint(20) DEFAULT NULL, endTimestamp bigint(20) DEFAULT NULL," +
                 "timestamp bigint(20) DEFAULT NULL," +
-                "PRIMARY KEY (meta_tenantId,sessionId)," +
-                "KEY SessionInformationTable_INDEX (username,userstoreDomain,tenantDomain));";
+                "PRIMARY KEY (meta_tenantId,sessionId));";
+
+        String createSessionInformationTableINDEX = "CREATE INDEX SessionInformationTable_INDEX " +
+                "ON SessionInformationTable (username,userstoreDomain,tenantDomain);";
 
         String createSuspiciousAlertTable = "CREATE TABLE SuspiciousAlertTable ( " +
                 "meta_tenantId int(11) NOT NULL, username varchar(254) NOT NULL," +
                 "severity int(11) DEFAULT NULL, msg varchar(254) NOT NULL," +
                 "tenantDomain varchar(254) DEFAULT NULL, timestamp bigint(20) DEFAULT NULL," +
                 "currentTime varchar(254) DEFAULT NULL," +
-                "PRIMARY KEY (meta_tenantId,username,msg)," +
-                "KEY SuspiciousAlertTable_INDEX (username));";
+                "PRIMARY KEY (meta_tenantId,username,msg));";
+
+        String createSuspiciousAlertTableINDEX = "CREATE INDEX SuspiciousAlertTable_INDEX " +
+                "ON SuspiciousAlertTable (username);";
 
         List<String> al = new ArrayList<>();
         al.add(createActiveSessionCountTable);
@@ -385,20 +1020,14 @@ public class DatabaseConnection {
         al.add(createSessionAggregation_MONTHS);
         al.add(createSessionAggregation_YEARS);
         al.add(createAlertLongSessionsTable);
+        al.add(createAlertLongSessionsTableINDEX);
         al.add(createOverallAuthTable);
         al.add(createSecurityAlertTypeTable);
         al.add(createSessionInformationTable);
+        al.add(createSessionInformationTableINDEX);
         al.add(createSuspiciousAlertTable);
-        try {
-            for (String s : al) {
-                statement.executeUpdate(s);
-            }
-            LOG.info("IS_ANALYTICS tables created in MySQL");
-        } catch (SQLException e) {
-            LOG.error(e);
-            LOG.info("Drop all existing tables in the database & re-run the script");
-        }
-
+        al.add(createSuspiciousAlertTableINDEX);
+        return al;
     }
 
     /**
@@ -406,6 +1035,20 @@ public class DatabaseConnection {
      */
     public void createPostgresqlTables(){
 
+        if (executeDDL(postgresqlTablesDDL())) {
+            LOG.info("IS_ANALYTICS tables created in Postgresql");
+        } else {
+            LOG.info("Drop all existing tables in the database & re-run the script");
+        }
+    }
+
+    /**
+     * DDL statements of the IS_ANALYTICS tables & their indexes in Postgresql database.
+     *
+     * @return list of DDL statements, each index after its table.
+     */
+    private List<String> postgresqlTablesDDL() {
+
         String createActiveSessionCountTable = "CREATE TABLE ActiveSessionCountTable ( meta_tenantId int NOT NULL," +
                 "activeCount bigint DEFAULT NULL," +
                 "PRIMARY KEY (meta_tenantId));";
@@ -645,16 +1288,7 @@ public class DatabaseConnection {
         al.add(createSessionInformationTableINDEX);
         al.add(createSuspiciousAlertTable);
         al.add(createSuspiciousAlertTableINDEX);
-        try {
-            for (String s : al) {
-                statement.executeUpdate(s);
-            }
-            LOG.info("IS_ANALYTICS tables created in Postgresql");
-        } catch (SQLException e) {
-            LOG.error(e);
-            LOG.info("Drop all existing tables in the database & re-run the script");
-        }
-
+        return al;
     }
 
     /**
@@ -662,6 +1296,20 @@ public class DatabaseConnection {
      */
     public void createOracleTables(){
 
+        if (executeDDL(oracleTablesDDL())) {
+            LOG.info("IS_ANALYTICS tables created in Oracle");
+        } else {
+            LOG.info("Drop all existing tables in the database & re-run the script");
+        }
+    }
+
+    /**
+     * DDL statements of the IS_ANALYTICS tables & their indexes in Oracle database.
+     *
+     * @return list of DDL statements, each index after its table.
+     */
+    private List<String> oracleTablesDDL() {
+
         String createActiveSessionCountTable = "CREATE TABLE ACTIVESESSIONCOUNTTABLE ( META_TENANTID NUMBER(10)," +
                 "ACTIVECOUNT NUMBER(19)," +
                 "PRIMARY KEY (META_TENANTID))";
@@ -901,16 +1549,7 @@ public class DatabaseConnection {
         al.add(createSessionInformationTableINDEX);
         al.add(createSuspiciousAlertTable);
         al.add(createSuspiciousAlertTableINDEX);
-        try {
-            for (String s : al) {
-                statement.executeUpdate(s);
-            }
-            LOG.info("IS_ANALYTICS tables created in Oracle");
-        } catch (SQLException e) {
-            LOG.error(e);
-            LOG.info("Drop all existing tables in the database & re-run the script");
-        }
-
+        return al;
     }
 
     /**
@@ -918,6 +1557,20 @@ public class DatabaseConnection {
      */
     public void createMssqlTables(){
 
+        if (executeDDL(mssqlTablesDDL())) {
+            LOG.info("IS_ANALYTICS tables created in Mssql");
+        } else {
+            LOG.info("Drop all existing tables in the database & re-run the script");
+        }
+    }
+
+    /**
+     * DDL statements of the IS_ANALYTICS tables & their indexes in Mssql database.
+     *
+     * @return list of DDL statements, each index after its table.
+     */
+    private List<String> mssqlTablesDDL() {
+
         String createActiveSessionCountTable = "CREATE TABLE ActiveSessionCountTable ( meta_tenantId int NOT NULL," +
                 "activeCount bigint DEFAULT NULL," +
                 "PRIMARY KEY (meta_tenantId));";
@@ -1157,16 +1810,7 @@ public class DatabaseConnection {
         al.add(createSessionInformationTableINDEX);
         al.add(createSuspiciousAlertTable);
         al.add(createSuspiciousAlertTableINDEX);
-        try {
-            for (String s : al) {
-                statement.executeUpdate(s);
-            }
-            LOG.info("IS_ANALYTICS tables created in Mssql");
-        } catch (SQLException e) {
-            LOG.error(e);
-            LOG.info("Drop all existing tables in the database & re-run the script");
-        }
-
+        return al;
     }
 
     /**
@@ -1178,7 +1822,9 @@ public class DatabaseConnection {
         switch (DBTYPE.valueOf(dbType)) {
             case MYSQL:
                 setJdbcDriver("com.mysql.jdbc.Driver");
-                setDbUrl("jdbc:mysql://" + host + ":" + port + "/" + dbName + "?allowMultiQueries=true");
+                // Connector/J 8 refuses LOAD DATA LOCAL INFILE unless it is allowed, even from a stream.
+                setDbUrl("jdbc:mysql://" + host + ":" + port + "/" + dbName + "?allowMultiQueries=true"
+                        + (MODE.valueOf(mode) != MODE.CREATE ? "&allowLoadLocalInfile=true" : ""));
                 LOG.info("Set JDBC driver & Database URL");
                 break;
             case POSTGRESQL:
@@ -1201,22 +1847,55 @@ public class DatabaseConnection {
         }
 
         try {
-            // An abstract representation of file and directory path names.
-            // This creates a new File instance by converting the given pathname
-            // string into an abstract pathname.
-            File file = new File(dbDriver);
-            URL url = null;
-            // This method constructs a file : URI that represents this abstract pathname.
-            url = file.toURI().toURL();
-            URLClassLoader ucl = new URLClassLoader(new URL[]{url});
-            Driver driver = null;
             LOG.info("Attempting to load driver...");
-            driver = (Driver) Class.forName(jdbcDriver, true, ucl).newInstance();
-            DriverManager.registerDriver(new DriverWrapper(driver));
+            DriverWrapper driver = DriverRegistry.load(jdbcDriver, dbDriver);
             LOG.info("Driver Loaded");
+            if (MODE.valueOf(mode) != MODE.CREATE && rewriteBatches) {
+                setDbUrl(dbUrl + batchRewriteProperties(driver));
+            }
+
+            if (MODE.valueOf(mode) == MODE.EXPORT) {
+                // The export only reads the source database, so it runs without a connection to this one.
+                LOG.info("Attempting to export analytics data into files...");
+                export(MigrationConfig.load());
+                return;
+            }
 
+            switch (MODE.valueOf(mode)) {
+                case MIGRATE:
+                    LOG.info("Attempting to migrate analytics data into the given database...");
+                    if (migrate(MigrationConfig.load()) && deferIndexes) {
+                        buildIndexes();
+                    } else if (deferIndexes) {
+                        LOG.info("Secondary indexes were not built, run the script in index mode once every "
+                                + "table is migrated");
+                    }
+                    return;
+                case DELTA:
+                    LOG.info("Attempting to migrate analytics data added since the last migration...");
+                    MigrationConfig config = MigrationConfig.load();
+                    config.setDelta(true);
+                    migrate(config);
+                    return;
+                case INDEX:
+                    LOG.info("Attempting to build secondary indexes in the given database...");
+                    buildIndexes();
+                    return;
+                case PLAN:
+                    LOG.info("Attempting to plan the migration of analytics data into the given database...");
+                    plan(MigrationConfig.load());
+                    return;
+                case VERIFY:
+                    LOG.info("Attempting to verify the migrated analytics data in the given database...");
+                    verify(MigrationConfig.load());
+                    return;
+                default:
+                    break;
+            }
+
+            // Only the table creation runs on this connection, the other modes borrow theirs from the pool.
             LOG.info("Attempting to establish connection to the selected database...");
-            connection = DriverManager.getConnection(dbUrl, user, pass);
+            connection = openConnection();
             LOG.info("Connection established");
 
             LOG.info("Attempting to create tables in the given database...");
@@ -1264,9 +1943,258 @@ public class DatabaseConnection {
                     LOG.error(e);
                 }
             }
+            if (pool != null) {
+                pool.close();
+            }
+        }
+    }
+
+    /**
+     * Connection properties which make the driver send a batch of inserts as multi-row statements, so a batch
+     * takes a few round trips instead of one per row: rewriteBatchedStatements of MySQL Connector/J &
+     * reWriteBatchedInserts of the Postgresql driver from 9.4.1209. A driver which does not list the property
+     * keeps sending the rows one by one.
+     *
+     * @param driver driver of the database.
+     * @return the properties to append to the database URL, empty if the driver has none.
+     */
+    private String batchRewriteProperties(DriverWrapper driver) {
+
+        String property;
+        switch (DBTYPE.valueOf(dbType)) {
+            case MYSQL:
+                property = "rewriteBatchedStatements";
+                break;
+            case POSTGRESQL:
+                property = "reWriteBatchedInserts";
+                break;
+            default:
+                return "";
+        }
+        if (!driver.supportsProperty(dbUrl, property)) {
+            LOG.info(String.format("%s can not rewrite batched inserts, sending them row by row", driver));
+            return "";
+        }
+        return "&" + property + "=true";
+    }
+
+    /**
+     * Choose the native bulk load path of the database.
+     *
+     * @param config migration settings.
+     * @return the bulk loader of the database type.
+     */
+    private BulkLoader bulkLoader(MigrationConfig config) {
+
+        switch (DBTYPE.valueOf(dbType)) {
+            case MYSQL:
+                return new MysqlLoadDataLoader();
+            case POSTGRESQL:
+                return new PostgresqlCopyLoader();
+            case ORACLE:
+                return new OracleArrayLoader(directPathLoad(config));
+            case MSSQL:
+                return new MssqlBulkCopyLoader();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Check whether Oracle bulk loads can use direct path inserts. A direct path insert locks the table until
+     * commit, so parallel writers of one table would wait for each other, & it leaves the blocks of every
+     * commit above the high water mark, so small batches waste most of them.
+     *
+     * @param config migration settings.
+     * @return true if directPathLoad is set, the tables are written serially & the batches are large.
+     */
+    private static boolean directPathLoad(MigrationConfig config) {
+
+        if (!config.isDirectPathLoad()) {
+            return false;
+        }
+        if (config.getParallelism() > 1) {
+            LOG.warn("directPathLoad requires parallelism=1, loading with array inserts instead");
+            return false;
+        }
+        if (config.getBatchSize() < OracleArrayLoader.MIN_DIRECT_PATH_BATCH) {
+            LOG.warn(String.format("directPathLoad requires a batchSize of at least %d, loading with array inserts "
+                    + "instead", OracleArrayLoader.MIN_DIRECT_PATH_BATCH));
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * CREATE TABLE statement of the migration checkpoint table in the database.
+     *
+     * @return the DDL statement.
+     */
+    private String checkpointTableDDL() {
+
+        String number = DBTYPE.valueOf(dbType) == DBTYPE.ORACLE ? "NUMBER(19)" : "BIGINT";
+        String varchar = DBTYPE.valueOf(dbType) == DBTYPE.ORACLE ? "VARCHAR2" : "VARCHAR";
+        return "CREATE TABLE " + CheckpointStore.TABLE + " (TABLE_NAME " + varchar + "(100) NOT NULL, "
+                + "STATUS " + varchar + "(10) NOT NULL, WATERMARK " + number + ", ROWS_WRITTEN " + number + ", "
+                + "PRIMARY KEY (TABLE_NAME))";
+    }
+
+    /**
+     * Copy the DAS analytics source tables into the IS_ANALYTICS tables of this database.
+     *
+     * @param config migration settings.
+     * @throws MalformedURLException  if the source driver location could not be converted to a URL.
+     * @throws ClassNotFoundException if the source driver class is not in the jar.
+     * @throws InstantiationException if the source driver could not be created.
+     * @throws IllegalAccessException if the source driver constructor is not accessible.
+     * @return true if every table was migrated.
+     * @throws SQLException           if the source driver could not be registered or the checkpoint table could
+     *                                not be created.
+     */
+    private boolean migrate(final MigrationConfig config) throws MalformedURLException, ClassNotFoundException,
+            InstantiationException, IllegalAccessException, SQLException {
+
+        // Tables exported by a previous run are read from their files, without the source database.
+        boolean exported = config.getExportDirectory() != null;
+        ConnectionFactory source = exported ? null : sourceConnections(config);
+        if (source == null && !exported) {
+            return false;
+        }
+        // A crash may lose the last batches with their checkpoints. A run which resumes or adds a delta builds on
+        // them, & the rollup writes every granularity from one read, so a lost granularity cannot be redone alone.
+        asynchronousCommit = !config.isResume() && !config.isRollup() && !config.isDelta();
+        CheckpointStore checkpoints = new CheckpointStore(this::openConnection, checkpointTableDDL());
+        checkpoints.init();
+        RowCountEstimator estimator = exported ? new RowCountEstimator(new File(config.getExportDirectory()))
+                : new RowCountEstimator(source, config.getSourceUrl());
+        try (MigrationMetrics metrics = new MigrationMetrics(config.getMetricsInterval());
+             ProgressTracker tracker = new ProgressTracker(metrics, estimator, config.getProgressInterval(),
+                     config.getStatusFile())) {
+            MigrationEngine engine = new MigrationEngine(source, this::openConnection, config,
+                    config.isBulkLoad() && !config.isUpsert() ? bulkLoader(config) : null,
+                    UpsertDialect.valueOf(dbType), checkpoints, metrics, tracker);
+            if (engine.run(AnalyticsTables.create(config.isRollup()))) {
+                LOG.info("IS_ANALYTICS data migrated");
+                return true;
+            }
+            LOG.info("Some tables were not migrated, check the errors above & re-run the script to resume "
+                    + "from the last checkpoint");
+            return false;
         }
     }
 
+    /**
+     * Estimate the storage & load time of the IS_ANALYTICS tables from the DAS analytics source tables, without
+     * writing any data into this database.
+     *
+     * @param config migration settings.
+     * @throws MalformedURLException  if the source driver location could not be converted to a URL.
+     * @throws ClassNotFoundException if the source driver class is not in the jar.
+     * @throws InstantiationException if the source driver could not be created.
+     * @throws IllegalAccessException if the source driver constructor is not accessible.
+     * @throws SQLException           if the source driver could not be registered.
+     */
+    private void plan(MigrationConfig config) throws MalformedURLException, ClassNotFoundException,
+            InstantiationException, IllegalAccessException, SQLException {
+
+        ConnectionFactory source = sourceConnections(config);
+        if (source == null) {
+            return;
+        }
+        CapacityPlanner planner = new CapacityPlanner(source, this::openConnection, config,
+                CapacityPlanner.Storage.valueOf(dbType), tablesDDL(), deferIndexes);
+        // The plan reads the per granularity source tables, which hold the same groups a rollup writes.
+        if (!planner.run(AnalyticsTables.create(false))) {
+            LOG.info("Some tables were not planned, check the errors above");
+        }
+    }
+
+    /**
+     * Compare the IS_ANALYTICS tables of this database with the rows the migration produces from the DAS
+     * analytics source tables.
+     *
+     * @param config migration settings.
+     * @throws MalformedURLException  if the source driver location could not be converted to a URL.
+     * @throws ClassNotFoundException if the source driver class is not in the jar.
+     * @throws InstantiationException if the source driver could not be created.
+     * @throws IllegalAccessException if the source driver constructor is not accessible.
+     * @throws SQLException           if the source driver could not be registered.
+     */
+    private void verify(MigrationConfig config) throws MalformedURLException, ClassNotFoundException,
+            InstantiationException, IllegalAccessException, SQLException {
+
+        ConnectionFactory source = sourceConnections(config);
+        if (source == null) {
+            return;
+        }
+        // The per granularity source tables are compared, which hold the same groups a rollup writes.
+        if (new MigrationVerifier(source, this::openConnection, config).run(AnalyticsTables.create(false))) {
+            LOG.info("IS_ANALYTICS data matches the source");
+        } else {
+            LOG.info("Some tables differ from the source, check the differences above & re-run the migration of "
+                    + "those tables with -Dresume=false -Dtables=...");
+        }
+    }
+
+    /**
+     * Copy the DAS analytics source tables of the selected migrations into files in the export directory, which
+     * a migration with the same export directory reads instead of the source database.
+     *
+     * @param config migration settings.
+     * @throws MalformedURLException  if the source driver location could not be converted to a URL.
+     * @throws ClassNotFoundException if the source driver class is not in the jar.
+     * @throws InstantiationException if the source driver could not be created.
+     * @throws IllegalAccessException if the source driver constructor is not accessible.
+     * @throws SQLException           if the source driver could not be registered.
+     */
+    private void export(MigrationConfig config) throws MalformedURLException, ClassNotFoundException,
+            InstantiationException, IllegalAccessException, SQLException {
+
+        if (config.getExportDirectory() == null) {
+            LOG.error("exportDirectory is required to export analytics data");
+            return;
+        }
+        ConnectionFactory source = sourceConnections(config);
+        if (source == null) {
+            return;
+        }
+        // The source tables of the migration run with the same rollup & tables settings are exported.
+        if (new TableExporter(source, config).run(AnalyticsTables.create(config.isRollup()))) {
+            LOG.info(String.format("IS_ANALYTICS source data exported into %s", config.getExportDirectory()));
+        } else {
+            LOG.info("Some tables were not exported, check the errors above & re-run the export");
+        }
+    }
+
+    /**
+     * Load the source driver & build the factory of source database connections.
+     *
+     * @param config migration settings.
+     * @return the factory of source connections, null if no source database is given.
+     * @throws MalformedURLException  if the source driver location could not be converted to a URL.
+     * @throws ClassNotFoundException if the source driver class is not in the jar.
+     * @throws InstantiationException if the source driver could not be created.
+     * @throws IllegalAccessException if the source driver constructor is not accessible.
+     * @throws SQLException           if the source driver could not be registered.
+     */
+    private ConnectionFactory sourceConnections(final MigrationConfig config) throws MalformedURLException,
+            ClassNotFoundException, InstantiationException, IllegalAccessException, SQLException {
+
+        if (config.getSourceUrl() == null) {
+            LOG.error("sourceUrl is required to migrate analytics data");
+            return null;
+        }
+        final String sourceUser = config.getSourceUser() != null ? config.getSourceUser() : user;
+        final String sourcePassword = config.getSourcePassword() != null ? config.getSourcePassword() : pass;
+        if (config.getSourceDriver() != null) {
+            // The first registered driver which accepts the URL may be another version, loaded for this database.
+            Driver driver = DriverRegistry.load(config.getSourceDriver(),
+                    config.getSourceDriverLocation() != null ? config.getSourceDriverLocation() : dbDriver);
+            return () -> DriverRegistry.connect(driver, config.getSourceUrl(), sourceUser, sourcePassword);
+        }
+        return () -> DriverManager.getConnection(config.getSourceUrl(), sourceUser, sourcePassword);
+    }
+
     /**
      * Main class of the programme.
      *
@@ -1275,6 +2203,26 @@ public class DatabaseConnection {
     public static void main(String[] args) {
 
         DatabaseConnection connection = new DatabaseConnection(args[0], args[1], args[2], args[3], args[4], args[5], args[6]);
+        connection.setBatchDDL(Boolean.parseBoolean(System.getProperty("batchDDL", "true")));
+        connection.setDdlThreads(Integer.parseInt(System.getProperty("ddlThreads", "1")));
+        connection.setDeferIndexes(Boolean.parseBoolean(System.getProperty("deferIndexes", "false")));
+        connection.setPartitionAggregations(Boolean.parseBoolean(System.getProperty("partitionAggregations",
+                "false")));
+        if (System.getProperty("partitionStart") != null) {
+            connection.setPartitionStart(YearMonth.parse(System.getProperty("partitionStart")));
+        }
+        if (System.getProperty("partitionEnd") != null) {
+            connection.setPartitionEnd(YearMonth.parse(System.getProperty("partitionEnd")));
+        }
+        connection.setIndexParallelism(Integer.parseInt(System.getProperty("indexParallelism", "4")));
+        int workers = Math.max(connection.getDdlThreads(), Integer.parseInt(System.getProperty("parallelism", "1")));
+        connection.setPoolSize(Integer.parseInt(System.getProperty("poolSize", String.valueOf(workers + 2))));
+        connection.setStatementCacheSize(Integer.parseInt(System.getProperty("statementCacheSize", "32")));
+        connection.setSessionInit(System.getProperty("sessionInit"));
+        connection.setRewriteBatches(Boolean.parseBoolean(System.getProperty("rewriteBatches", "true")));
+        if (args.length > 7) {
+            connection.setMode(args[7].toUpperCase(Locale.ENGLISH));
+        }
         connection.connect();
     }
 }
@@ -0,0 +1,360 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.apache.log4j.Logger;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Execute IS_ANALYTICS DDL statements, sending them to the database in a single batch where possible.
+ */
+class DdlExecutor {
+
+    /**
+     * Initialize Logger object to log messages
+     */
+    private static final Logger LOG = Logger.getLogger(DdlExecutor.class);
+
+    /**
+     * Variable which stores whether statements are sent as a single batch.
+     */
+    private final boolean batched;
+    /**
+     * Variable which stores whether a failed batch is rolled back as a whole by the database.
+     */
+    private final boolean atomicBatch;
+
+    /**
+     * Constructor which initiate the variables batched,atomicBatch.
+     *
+     * @param batched     send the statements as a single batch.
+     * @param atomicBatch a failed batch is rolled back as a whole, so every statement has to be re-run.
+     */
+    DdlExecutor(boolean batched, boolean atomicBatch) {
+
+        this.batched = batched;
+        this.atomicBatch = atomicBatch;
+    }
+
+    /**
+     * Execute the given DDL statements. Falls back to per-statement execution when the driver rejects
+     * batched DDL or when the batch fails.
+     *
+     * @param statement  statement to execute the DDL with.
+     * @param statements list of DDL statements.
+     * @return list of statements which failed, empty if all statements were executed.
+     */
+    List<String> execute(Statement statement, List<String> statements) {
+
+        if (!batched) {
+            return executeEach(statement, statements);
+        }
+        try {
+            for (String s : statements) {
+                statement.addBatch(s);
+            }
+            statement.executeBatch();
+            return new ArrayList<>();
+        } catch (BatchUpdateException e) {
+            LOG.info(String.format("Batched DDL failed, falling back to per-statement execution, %s", e));
+            clearBatch(statement);
+            if (atomicBatch) {
+                return executeEach(statement, statements);
+            }
+            return executeRemaining(statement, statements, e.getUpdateCounts());
+        } catch (SQLFeatureNotSupportedException e) {
+            LOG.info("Driver does not support batched DDL, falling back to per-statement execution");
+            clearBatch(statement);
+            return executeEach(statement, statements);
+        } catch (SQLException e) {
+            LOG.info(String.format("Batched DDL failed, falling back to per-statement execution, %s", e));
+            clearBatch(statement);
+            return executeEach(statement, statements);
+        }
+    }
+
+    /**
+     * Execute the given DDL statements concurrently over several connections. Each table is created
+     * together with the indexes which follow it, so index creation stays ordered after its table while
+     * independent tables are created at the same time.
+     *
+     * @param factory    factory which opens the worker connections.
+     * @param statements list of DDL statements.
+     * @param threads    number of worker connections.
+     * @return list of statements which failed, empty if all statements were executed.
+     */
+    List<String> executeParallel(ConnectionFactory factory, List<String> statements, int threads) {
+
+        List<String> failed = executeGroups(factory, groupByTable(statements), threads);
+        return failed == null ? statements : failed;
+    }
+
+    /**
+     * Execute groups of DDL statements concurrently over several connections. The statements of a group
+     * are executed in order on one connection.
+     *
+     * @param factory factory which opens the worker connections.
+     * @param groups  groups of DDL statements.
+     * @param threads number of worker connections.
+     * @return list of statements which failed, or null if no connection could be opened.
+     */
+    List<String> executeGroups(ConnectionFactory factory, List<List<String>> groups, int threads) {
+
+        int workers = Math.max(1, Math.min(threads, groups.size()));
+        BlockingQueue<Statement> idle = new ArrayBlockingQueue<>(workers);
+        List<Statement> opened = new ArrayList<>();
+        List<Connection> connections = new ArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        List<String> failed = new ArrayList<>();
+        try {
+            for (int i = 0; i < workers; i++) {
+                try {
+                    Connection connection = factory.getConnection();
+                    Statement s;
+                    try {
+                        s = connection.createStatement();
+                    } catch (SQLException e) {
+                        connection.close();
+                        throw e;
+                    }
+                    opened.add(s);
+                    connections.add(connection);
+                    idle.add(s);
+                } catch (SQLException e) {
+                    if (opened.isEmpty()) {
+                        throw e;
+                    }
+                    LOG.info(String.format("Continuing with %d connections, %s", opened.size(), e));
+                    break;
+                }
+            }
+            LOG.info(String.format("Executing %d groups of statements over %d connections", groups.size(),
+                    opened.size()));
+            List<Future<List<String>>> results = new ArrayList<>();
+            for (final List<String> group : groups) {
+                results.add(pool.submit(() -> {
+                    Statement s = idle.take();
+                    try {
+                        return execute(s, group);
+                    } finally {
+                        idle.put(s);
+                    }
+                }));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                try {
+                    failed.addAll(results.get(i).get());
+                } catch (ExecutionException e) {
+                    LOG.error(String.format("Error occurred while executing [%s], %s",
+                            summary(groups.get(i).get(0)), e.getCause()));
+                    failed.addAll(groups.get(i));
+                }
+            }
+        } catch (SQLException e) {
+            LOG.error(String.format("Error occurred while making connection to the database, %s", e));
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.error(e);
+            return null;
+        } finally {
+            pool.shutdownNow();
+            for (int i = 0; i < opened.size(); i++) {
+                close(opened.get(i), connections.get(i));
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Split DDL statements into one group per table. A CREATE INDEX statement is placed in the group of
+     * the table it indexes, or in the group of the preceding statement if that table is not found.
+     *
+     * @param statements list of DDL statements.
+     * @return groups of statements in their original order.
+     */
+    static List<List<String>> groupByTable(List<String> statements) {
+
+        Map<String, List<String>> groups = new LinkedHashMap<>();
+        List<String> current = null;
+        for (String s : statements) {
+            String table = tableName(s);
+            List<String> group = table == null ? null : groups.get(table);
+            if (group == null && isIndex(s) && current != null) {
+                group = current;
+            }
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(table == null ? s : table, group);
+            }
+            group.add(s);
+            current = group;
+        }
+        return new ArrayList<>(groups.values());
+    }
+
+    /**
+     * Name of the table a CREATE TABLE or CREATE INDEX statement refers to. A partition created with
+     * PARTITION OF refers to its partitioned table, so it is created after it.
+     *
+     * @param s DDL statement.
+     * @return the upper case table name, or null if it could not be determined.
+     */
+    static String tableName(String s) {
+
+        String[] tokens = summary(s).split("\\s+");
+        for (int i = 0; i < tokens.length - 2; i++) {
+            if ("PARTITION".equalsIgnoreCase(tokens[i]) && "OF".equalsIgnoreCase(tokens[i + 1])) {
+                return tokens[i + 2].toUpperCase(Locale.ENGLISH);
+            }
+        }
+        for (int i = 0; i < tokens.length - 1; i++) {
+            if ((isIndex(s) && "ON".equalsIgnoreCase(tokens[i]))
+                    || (!isIndex(s) && "TABLE".equalsIgnoreCase(tokens[i]))) {
+                return tokens[i + 1].toUpperCase(Locale.ENGLISH);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Check whether a DDL statement creates an index.
+     *
+     * @param s DDL statement.
+     * @return true for CREATE INDEX statements.
+     */
+    static boolean isIndex(String s) {
+
+        return s.trim().toUpperCase(Locale.ENGLISH).matches("(?s)^CREATE\\s+(UNIQUE\\s+)?INDEX\\b.*");
+    }
+
+    /**
+     * Name of the index a CREATE INDEX statement creates.
+     *
+     * @param s CREATE INDEX statement.
+     * @return the index name, or null if it could not be determined.
+     */
+    static String indexName(String s) {
+
+        String[] tokens = summary(s).split("\\s+");
+        for (int i = 0; i < tokens.length - 1; i++) {
+            if ("INDEX".equalsIgnoreCase(tokens[i])) {
+                return tokens[i + 1];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Close a worker statement together with its connection. The connection is the one given by the factory,
+     * not statement.getConnection(), so a pooled connection is returned to its pool.
+     *
+     * @param statement  statement to close.
+     * @param connection connection of the statement.
+     */
+    private void close(Statement statement, Connection connection) {
+
+        try {
+            statement.close();
+            connection.close();
+        } catch (SQLException e) {
+            LOG.error(e);
+        }
+    }
+
+    /**
+     * Re-run the statements of a failed batch which were not executed successfully.
+     *
+     * @param statement    statement to execute the DDL with.
+     * @param statements   list of DDL statements of the batch.
+     * @param updateCounts update counts reported by the driver for the failed batch.
+     * @return list of statements which failed.
+     */
+    private List<String> executeRemaining(Statement statement, List<String> statements, int[] updateCounts) {
+
+        List<String> remaining = new ArrayList<>();
+        int executed = updateCounts == null ? 0 : updateCounts.length;
+        for (int i = 0; i < statements.size(); i++) {
+            // Drivers that stop at the first failure only report counts of the statements before it.
+            if (i >= executed || updateCounts[i] == Statement.EXECUTE_FAILED) {
+                remaining.add(statements.get(i));
+            }
+        }
+        return executeEach(statement, remaining);
+    }
+
+    /**
+     * Execute the statements one by one, continuing after a failed statement.
+     *
+     * @param statement  statement to execute the DDL with.
+     * @param statements list of DDL statements.
+     * @return list of statements which failed.
+     */
+    private List<String> executeEach(Statement statement, List<String> statements) {
+
+        List<String> failed = new ArrayList<>();
+        for (String s : statements) {
+            try {
+                statement.executeUpdate(s);
+            } catch (SQLException e) {
+                LOG.error(String.format("Error occurred while executing [%s], %s", summary(s), e));
+                failed.add(s);
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Clear the pending batch of the statement.
+     *
+     * @param statement statement to clear.
+     */
+    private void clearBatch(Statement statement) {
+
+        try {
+            statement.clearBatch();
+        } catch (SQLException e) {
+            LOG.error(e);
+        }
+    }
+
+    /**
+     * Short form of a DDL statement used in log messages.
+     *
+     * @param s DDL statement.
+     * @return the statement up to the opening parenthesis.
+     */
+    static String summary(String s) {
+
+        int end = s.indexOf('(');
+        return (end > 0 ? s.substring(0, end) : s).trim();
+    }
+}
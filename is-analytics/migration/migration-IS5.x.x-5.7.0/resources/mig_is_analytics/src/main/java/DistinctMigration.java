@@ -0,0 +1,86 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import java.sql.SQLException;
+
+/**
+ * Projection which drops duplicate rows as they are read. With the ROW key it drops exact duplicate source
+ * rows, equivalent to a GROUP BY over every selected column, & with the PRIMARY_KEY key it keeps the first
+ * target row of each primary key.
+ */
+class DistinctMigration extends ProjectionMigration {
+
+    /**
+     * Values rows are compared on.
+     */
+    enum Key {
+        /**
+         * Every value of the source row.
+         */
+        ROW,
+        /**
+         * Primary key of the target row. The first row of a key is kept only within one run: a resumed or
+         * delta run starts with an empty set, so a later row with the key of a row written by an earlier run
+         * overwrites that row.
+         */
+        PRIMARY_KEY
+    }
+
+    /**
+     * Variable which stores the values rows are compared on.
+     */
+    private final Key key;
+
+    /**
+     * Variable which stores the rows or primary keys seen so far, shared by the workers of a parallel read.
+     * Duplicate rows have the same watermark, so they are read by the same worker.
+     */
+    private final DistinctRows seen = new DistinctRows();
+
+    /**
+     * Constructor which initiate the variables of the migration and the row mapper.
+     *
+     * @param sourceTable      name of the DAS analytics source table.
+     * @param targetTable      name of the IS_ANALYTICS target table.
+     * @param sourceColumns    source columns read for each source row.
+     * @param targetColumns    target columns of each produced row, primary key columns first.
+     * @param primaryKeyLength number of leading target columns which form the primary key.
+     * @param key              values rows are compared on.
+     * @param mapper           mapper applied to each source row.
+     */
+    DistinctMigration(String sourceTable, String targetTable, String[] sourceColumns, String[] targetColumns,
+                      int primaryKeyLength, Key key, RowMapper mapper) {
+
+        super(sourceTable, targetTable, sourceColumns, targetColumns, primaryKeyLength, mapper);
+        this.key = key;
+    }
+
+    @Override
+    void process(Object[] row, RowSink sink) throws SQLException {
+
+        if (key == Key.ROW) {
+            if (seen.add(row, row.length)) {
+                super.process(row, sink);
+            }
+            return;
+        }
+        super.process(row, produced -> {
+            if (seen.add(produced, getPrimaryKeyLength())) {
+                sink.accept(produced);
+            }
+        });
+    }
+}
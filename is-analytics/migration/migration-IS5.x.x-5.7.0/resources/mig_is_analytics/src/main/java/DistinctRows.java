@@ -0,0 +1,466 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import java.util.Arrays;
+
+/**
+ * Set of the rows seen so far, for streaming deduplication on the full row or on its leading key columns.
+ * <p>
+ * Each row is encoded into bytes & hashed to 64 bits. The hashes are kept in an open addressing table of
+ * primitive longs, with the encoded rows appended to pages of bytes for exact confirmation when two hashes are
+ * equal, so a row costs its encoded size & about 24 bytes rather than a list of boxed values. A Bloom filter
+ * of the hashes answers most lookups of new rows without probing the table. The set is split into segments by
+ * hash, each locked on its own, so parallel workers rarely wait for one another.
+ */
+final class DistinctRows {
+
+    /**
+     * Number of segments, a power of two.
+     */
+    private static final int SEGMENTS = 16;
+
+    /**
+     * Bytes of each page of encoded rows.
+     */
+    private static final int PAGE_SIZE = 1 << 20;
+
+    /**
+     * Number of bits set in the Bloom filter per row.
+     */
+    private static final int BLOOM_HASHES = 3;
+
+    /**
+     * Tags of the encoded values.
+     */
+    private static final byte NULL = 0;
+    private static final byte INTEGRAL = 1;
+    private static final byte FLOATING = 2;
+    private static final byte STRING = 3;
+    private static final byte BOOLEAN = 4;
+    private static final byte BYTES = 5;
+    private static final byte OTHER = 6;
+
+    /**
+     * Buffer of the row being encoded, per thread.
+     */
+    private static final ThreadLocal<Encoder> ENCODER = ThreadLocal.withInitial(Encoder::new);
+
+    /**
+     * Variable which stores the segments, selected by the top bits of the row hash.
+     */
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    /**
+     * Constructor which initiate the variable segments.
+     */
+    DistinctRows() {
+
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * Add the leading values of a row, unless equal values were added before. Values are equal when they have
+     * the same type & value, with all integral types compared as long.
+     *
+     * @param row    values of the row, not kept by the set.
+     * @param length number of leading values which form the key.
+     * @return true if the values were not in the set.
+     */
+    boolean add(Object[] row, int length) {
+
+        Encoder encoder = ENCODER.get();
+        encoder.encode(row, length);
+        return add(encoder, encoder.hash());
+    }
+
+    /**
+     * Add the leading values of a row under a given hash, so rows with equal hashes can be tested.
+     *
+     * @param row    values of the row, not kept by the set.
+     * @param length number of leading values which form the key.
+     * @param hash   hash of the row.
+     * @return true if the values were not in the set.
+     */
+    boolean addWithHash(Object[] row, int length, long hash) {
+
+        Encoder encoder = ENCODER.get();
+        encoder.encode(row, length);
+        return add(encoder, hash);
+    }
+
+    /**
+     * Add an encoded row to the segment of its hash.
+     *
+     * @param encoder encoded row.
+     * @param hash    hash of the row.
+     * @return true if the row was not in the set.
+     */
+    private boolean add(Encoder encoder, long hash) {
+
+        return segments[(int) (hash >>> 60) & (SEGMENTS - 1)].add(hash, encoder.bytes, encoder.length);
+    }
+
+    /**
+     * Estimated bytes of memory used by the set.
+     *
+     * @return the estimated bytes.
+     */
+    long memory() {
+
+        long bytes = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                bytes += segment.memory();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Encodes a row into a reusable buffer, with a type tag before each value & a length before each string.
+     */
+    private static final class Encoder {
+
+        /**
+         * Variable which stores the encoded row.
+         */
+        private byte[] bytes = new byte[256];
+
+        /**
+         * Variable which stores the number of encoded bytes.
+         */
+        private int length;
+
+        /**
+         * Encode the leading values of a row.
+         *
+         * @param row    values of the row.
+         * @param length number of leading values to encode.
+         */
+        void encode(Object[] row, int length) {
+
+            this.length = 0;
+            for (int i = 0; i < length; i++) {
+                Object value = row[i];
+                if (value == null) {
+                    put(NULL);
+                } else if (value instanceof Long || value instanceof Integer || value instanceof Short
+                        || value instanceof Byte) {
+                    put(INTEGRAL);
+                    putLong(((Number) value).longValue());
+                } else if (value instanceof Double || value instanceof Float) {
+                    put(FLOATING);
+                    putLong(Double.doubleToLongBits(((Number) value).doubleValue()));
+                } else if (value instanceof String) {
+                    put(STRING);
+                    putString((String) value);
+                } else if (value instanceof Boolean) {
+                    put(BOOLEAN);
+                    put((byte) ((Boolean) value ? 1 : 0));
+                } else if (value instanceof byte[]) {
+                    byte[] data = (byte[]) value;
+                    put(BYTES);
+                    putVarint(data.length);
+                    for (byte b : data) {
+                        put(b);
+                    }
+                } else {
+                    put(OTHER);
+                    putString(value.toString());
+                }
+            }
+        }
+
+        /**
+         * FNV-1a hash of the encoded row, finished with the SplitMix64 mix so every bit depends on every byte.
+         *
+         * @return the hash.
+         */
+        long hash() {
+
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < length; i++) {
+                hash = (hash ^ (bytes[i] & 0xff)) * 0x100000001b3L;
+            }
+            hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+            hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+            return hash ^ (hash >>> 31);
+        }
+
+        /**
+         * Append a byte, growing the buffer when it is full.
+         *
+         * @param b byte to append.
+         */
+        private void put(byte b) {
+
+            if (length == bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            bytes[length++] = b;
+        }
+
+        /**
+         * Append the 8 bytes of a long.
+         *
+         * @param value value to append.
+         */
+        private void putLong(long value) {
+
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                put((byte) (value >>> shift));
+            }
+        }
+
+        /**
+         * Append a value in 7 bit groups, so small values take one byte.
+         *
+         * @param value non negative value to append.
+         */
+        private void putVarint(int value) {
+
+            while (value >= 0x80) {
+                put((byte) (value | 0x80));
+                value >>>= 7;
+            }
+            put((byte) value);
+        }
+
+        /**
+         * Append the length & the characters of a string, each character in 7 bit groups.
+         *
+         * @param value string to append.
+         */
+        private void putString(String value) {
+
+            putVarint(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                putVarint(value.charAt(i));
+            }
+        }
+    }
+
+    /**
+     * One lock's share of the set.
+     */
+    private static final class Segment {
+
+        /**
+         * Variable which stores the row hash of each slot, 0 for an empty slot.
+         */
+        private long[] hashes = new long[1024];
+
+        /**
+         * Variable which stores the page & position of the encoded row of each slot.
+         */
+        private long[] offsets = new long[1024];
+
+        /**
+         * Variable which stores the number of rows in the segment.
+         */
+        private int size;
+
+        /**
+         * Variable which stores the Bloom filter of the row hashes, 8 bits per slot of the table.
+         */
+        private long[] bloom = new long[1024 / 8];
+
+        /**
+         * Variable which stores the pages of encoded rows, each prefixed by its length.
+         */
+        private byte[][] pages = new byte[1][];
+
+        /**
+         * Variable which stores the number of pages in use.
+         */
+        private int pageCount;
+
+        /**
+         * Variable which stores the bytes used of the last page.
+         */
+        private int pagePosition = PAGE_SIZE;
+
+        /**
+         * Add an encoded row unless it is in the segment.
+         *
+         * @param hash   hash of the row.
+         * @param row    encoded row.
+         * @param length number of bytes of the encoded row.
+         * @return true if the row was not in the segment.
+         */
+        synchronized boolean add(long hash, byte[] row, int length) {
+
+            // 0 marks an empty slot.
+            hash = hash == 0 ? 1 : hash;
+            int mask = hashes.length - 1;
+            int slot = (int) hash & mask;
+            if (mightContain(hash)) {
+                for (; hashes[slot] != 0; slot = (slot + 1) & mask) {
+                    if (hashes[slot] == hash && matches(offsets[slot], row, length)) {
+                        return false;
+                    }
+                }
+            } else {
+                // Not in the filter, so no slot can hold the row & only an empty slot is looked for.
+                while (hashes[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+            }
+            hashes[slot] = hash;
+            offsets[slot] = append(row, length);
+            setBloom(hash);
+            if (++size > hashes.length / 2) {
+                grow();
+            }
+            return true;
+        }
+
+        /**
+         * Estimated bytes of memory used by the segment.
+         *
+         * @return the estimated bytes.
+         */
+        long memory() {
+
+            return hashes.length * 16L + bloom.length * 8L + (long) pageCount * PAGE_SIZE;
+        }
+
+        /**
+         * Whether the Bloom filter may hold a hash.
+         *
+         * @param hash hash of the row.
+         * @return false if the hash was never added.
+         */
+        private boolean mightContain(long hash) {
+
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                int bit = bloomBit(hash, i);
+                if ((bloom[bit >>> 6] & 1L << bit) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Set the bits of a hash in the Bloom filter.
+         *
+         * @param hash hash of the row.
+         */
+        private void setBloom(long hash) {
+
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                int bit = bloomBit(hash, i);
+                bloom[bit >>> 6] |= 1L << bit;
+            }
+        }
+
+        /**
+         * Bit of the Bloom filter for one of its hash functions, derived from two halves of the remixed row
+         * hash. The hash is multiplied first since its low bits select the slot & its top bits the segment.
+         *
+         * @param hash  hash of the row.
+         * @param index index of the hash function.
+         * @return the bit position.
+         */
+        private int bloomBit(long hash, int index) {
+
+            long remixed = hash * 0x9E3779B97F4A7C15L;
+            return ((int) (remixed >>> 32) + index * ((int) remixed | 1)) & (bloom.length * 64 - 1);
+        }
+
+        /**
+         * Double the table & the Bloom filter, reinserting the hashes kept in the table.
+         */
+        private void grow() {
+
+            long[] oldHashes = hashes;
+            long[] oldOffsets = offsets;
+            hashes = new long[oldHashes.length * 2];
+            offsets = new long[oldOffsets.length * 2];
+            bloom = new long[hashes.length / 8];
+            int mask = hashes.length - 1;
+            for (int i = 0; i < oldHashes.length; i++) {
+                long hash = oldHashes[i];
+                if (hash != 0) {
+                    int slot = (int) hash & mask;
+                    while (hashes[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    hashes[slot] = hash;
+                    offsets[slot] = oldOffsets[i];
+                    setBloom(hash);
+                }
+            }
+        }
+
+        /**
+         * Append an encoded row to the pages, starting a new page when it does not fit.
+         *
+         * @param row    encoded row.
+         * @param length number of bytes of the encoded row.
+         * @return the page in the high 32 bits & the position in the low 32 bits.
+         */
+        private long append(byte[] row, int length) {
+
+            int needed = length + 4;
+            if (pagePosition + needed > PAGE_SIZE || pageCount == 0) {
+                if (pageCount == pages.length) {
+                    pages = Arrays.copyOf(pages, pages.length * 2);
+                }
+                // A row larger than a page gets a page of its own.
+                pages[pageCount++] = new byte[Math.max(PAGE_SIZE, needed)];
+                pagePosition = 0;
+            }
+            byte[] page = pages[pageCount - 1];
+            int position = pagePosition;
+            page[position] = (byte) (length >>> 24);
+            page[position + 1] = (byte) (length >>> 16);
+            page[position + 2] = (byte) (length >>> 8);
+            page[position + 3] = (byte) length;
+            System.arraycopy(row, 0, page, position + 4, length);
+            pagePosition += needed;
+            return (long) (pageCount - 1) << 32 | position;
+        }
+
+        /**
+         * Whether the encoded row at an offset equals a given encoded row.
+         *
+         * @param offset page & position of the stored row.
+         * @param row    encoded row.
+         * @param length number of bytes of the encoded row.
+         * @return true if the rows are equal.
+         */
+        private boolean matches(long offset, byte[] row, int length) {
+
+            byte[] page = pages[(int) (offset >>> 32)];
+            int position = (int) offset;
+            int stored = (page[position] & 0xff) << 24 | (page[position + 1] & 0xff) << 16
+                    | (page[position + 2] & 0xff) << 8 | page[position + 3] & 0xff;
+            if (stored != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (page[position + 4 + i] != row[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
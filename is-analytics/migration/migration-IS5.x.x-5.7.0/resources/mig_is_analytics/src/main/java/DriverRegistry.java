@@ -0,0 +1,150 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * JDBC drivers loaded from driver jars at runtime. Each jar gets its own class loader, so the drivers of the
+ * source & target databases, or two versions of one driver, do not share classes. The class loaders & the
+ * drivers are kept for the life of the tool, so a jar is opened & a driver registered with DriverManager
+ * once however often it is asked for.
+ */
+final class DriverRegistry {
+
+    /**
+     * Initialize Logger object to log messages
+     */
+    private static final Logger LOG = Logger.getLogger(DriverRegistry.class);
+
+    /**
+     * Class loader of each driver jar, by absolute path.
+     */
+    private static final Map<String, URLClassLoader> LOADERS = new HashMap<>();
+
+    /**
+     * Registered driver of each driver class & jar.
+     */
+    private static final Map<String, DriverWrapper> DRIVERS = new HashMap<>();
+
+    private DriverRegistry() {
+
+    }
+
+    /**
+     * Load a JDBC driver from a jar & register it with the DriverManager, unless it is already loaded.
+     *
+     * @param driverClass class name of the driver.
+     * @param location    location of the driver jar.
+     * @return the registered driver, which reports the version & properties of the driver in the jar.
+     * @throws MalformedURLException  if the location could not be converted to a URL.
+     * @throws ClassNotFoundException if the driver class is not in the jar.
+     * @throws InstantiationException if the driver has no no-argument constructor or it threw an exception.
+     * @throws IllegalAccessException if the driver constructor is not accessible.
+     * @throws SQLException           if the driver could not be registered.
+     */
+    static synchronized DriverWrapper load(String driverClass, String location) throws MalformedURLException,
+            ClassNotFoundException, InstantiationException, IllegalAccessException, SQLException {
+
+        File file = new File(location).getAbsoluteFile().toPath().normalize().toFile();
+        String key = driverClass + "@" + file.getPath();
+        DriverWrapper cached = DRIVERS.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        DriverWrapper driver = new DriverWrapper(create(Class.forName(driverClass, true, loader(file))));
+        DriverManager.registerDriver(driver);
+        DRIVERS.put(key, driver);
+        LOG.info(String.format("Loaded %s from %s", driver, file));
+        return driver;
+    }
+
+    /**
+     * Class loader of a driver jar, created unless the jar is already open.
+     *
+     * @param file absolute & normalized path of the driver jar.
+     * @return the class loader.
+     * @throws MalformedURLException if the path could not be converted to a URL.
+     */
+    static synchronized URLClassLoader loader(File file) throws MalformedURLException {
+
+        URLClassLoader loader = LOADERS.get(file.getPath());
+        if (loader == null) {
+            loader = new URLClassLoader(new URL[]{file.toURI().toURL()});
+            LOADERS.put(file.getPath(), loader);
+        }
+        return loader;
+    }
+
+    /**
+     * Create a driver with its no-argument constructor.
+     *
+     * @param type class of the driver.
+     * @return the driver.
+     * @throws InstantiationException if the class has no such constructor, is abstract or the constructor threw an
+     *                                exception, which is the cause.
+     * @throws IllegalAccessException if the constructor is not accessible.
+     */
+    private static Driver create(Class<?> type) throws InstantiationException, IllegalAccessException {
+
+        try {
+            return (Driver) type.getDeclaredConstructor().newInstance();
+        } catch (NoSuchMethodException | InvocationTargetException e) {
+            InstantiationException exception = new InstantiationException(String.format("%s can not be created",
+                    type.getName()));
+            exception.initCause(e instanceof InvocationTargetException ? e.getCause() : e);
+            throw exception;
+        }
+    }
+
+    /**
+     * Open a connection with a given driver, rather than the first registered driver which accepts the URL.
+     *
+     * @param driver   driver to connect with.
+     * @param url      JDBC URL of the database.
+     * @param user     database username, may be null.
+     * @param password database password, may be null.
+     * @return the connection.
+     * @throws SQLException if the driver does not accept the URL or the connection could not be established.
+     */
+    static Connection connect(Driver driver, String url, String user, String password) throws SQLException {
+
+        Properties info = new Properties();
+        if (user != null) {
+            info.put("user", user);
+        }
+        if (password != null) {
+            info.put("password", password);
+        }
+        Connection connection = driver.connect(url, info);
+        if (connection == null) {
+            throw new SQLException(String.format("%s does not accept the URL %s", driver, url), "08001");
+        }
+        return connection;
+    }
+}
@@ -23,7 +23,9 @@ import java.util.Properties;
 import java.util.logging.Logger;
 
 /**
- * Dynamically Load Jar in runtime
+ * Dynamically Load Jar in runtime. DriverManager only hands out drivers loaded by the class loader of the
+ * caller, so a driver of a jar loaded at runtime is registered through this wrapper, which passes every call
+ * to the driver itself.
  */
 class DriverWrapper implements Driver {
 
@@ -42,35 +44,63 @@ class DriverWrapper implements Driver {
     @Override
     public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) throws SQLException {
 
-        return new DriverPropertyInfo[0];
+        return this.driver.getPropertyInfo(url, info);
     }
 
     @Override
     public int getMajorVersion() {
 
-        return 0;
+        return this.driver.getMajorVersion();
     }
 
     @Override
     public int getMinorVersion() {
 
-        return 0;
+        return this.driver.getMinorVersion();
     }
 
     @Override
     public boolean jdbcCompliant() {
 
-        return false;
+        return this.driver.jdbcCompliant();
     }
 
     @Override
     public Logger getParentLogger() throws SQLFeatureNotSupportedException {
 
-        return null;
+        return this.driver.getParentLogger();
     }
 
     public Connection connect(String u, Properties p) throws SQLException {
 
         return this.driver.connect(u, p);
     }
+
+    /**
+     * Check whether the driver knows a connection property, from the properties it lists for a URL.
+     *
+     * @param url  JDBC URL the property is used with.
+     * @param name name of the property, matched ignoring case.
+     * @return true if the driver lists the property, false if it does not or can not list its properties.
+     */
+    boolean supportsProperty(String url, String name) {
+
+        try {
+            DriverPropertyInfo[] properties = this.driver.getPropertyInfo(url, new Properties());
+            for (int i = 0; properties != null && i < properties.length; i++) {
+                if (name.equalsIgnoreCase(properties[i].name)) {
+                    return true;
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            return false;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+
+        return this.driver.getClass().getName() + " " + getMajorVersion() + "." + getMinorVersion();
+    }
 }
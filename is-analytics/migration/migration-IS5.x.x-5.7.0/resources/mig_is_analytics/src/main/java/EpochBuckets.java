@@ -0,0 +1,185 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+/**
+ * UTC epoch millis of a year/month/day/hour time bucket, computed with integer arithmetic instead of building &
+ * parsing a date string. The same arithmetic is available as a Spark SQL expression, used by the
+ * migISAnalyticsSpark script in place of to_unix_timestamp with 'yyyy-MM-dd hh:mm:ss Z', which read hour 12
+ * as midnight.
+ */
+final class EpochBuckets {
+
+    /**
+     * Milliseconds in an hour.
+     */
+    private static final long HOUR_MILLIS = 3600000L;
+
+    /**
+     * First year of the cached month offsets.
+     */
+    private static final int FIRST_CACHED_YEAR = 1970;
+
+    /**
+     * Year after the last year of the cached month offsets.
+     */
+    private static final int END_CACHED_YEAR = 2100;
+
+    /**
+     * Days from the start of the year to the start of each month, for common & leap years.
+     */
+    private static final int[][] DAYS_BEFORE_MONTH = {
+            {0, 31, 59, 90, 120, 151, 181, 212, 243, 273, 304, 334},
+            {0, 31, 60, 91, 121, 152, 182, 213, 244, 274, 305, 335}};
+
+    /**
+     * Leap years from year 1 up to & including 1969.
+     */
+    private static final int LEAP_YEARS_BEFORE_EPOCH = 477;
+
+    /**
+     * Epoch day of the first day of each month of the cached years.
+     */
+    private static final int[] MONTH_STARTS = new int[(END_CACHED_YEAR - FIRST_CACHED_YEAR) * 12];
+
+    static {
+        for (int year = FIRST_CACHED_YEAR; year < END_CACHED_YEAR; year++) {
+            for (int month = 1; month <= 12; month++) {
+                MONTH_STARTS[(year - FIRST_CACHED_YEAR) * 12 + month - 1] = (int) monthStart(year, month);
+            }
+        }
+    }
+
+    private EpochBuckets() {
+
+    }
+
+    /**
+     * UTC epoch millis of the start of an hour.
+     *
+     * @param year  year.
+     * @param month month, 1 to 12.
+     * @param day   day of the month, 1 to 31.
+     * @param hour  hour of the day, 0 to 23.
+     * @return epoch millis.
+     */
+    static long epochMillis(int year, int month, int day, int hour) {
+
+        return (epochDay(year, month, day) * 24 + hour) * HOUR_MILLIS;
+    }
+
+    /**
+     * Days since 1970-01-01 of a date.
+     *
+     * @param year  year.
+     * @param month month, 1 to 12.
+     * @param day   day of the month, 1 to 31.
+     * @return epoch day.
+     */
+    static long epochDay(int year, int month, int day) {
+
+        if (year >= FIRST_CACHED_YEAR && year < END_CACHED_YEAR && month >= 1 && month <= 12) {
+            return MONTH_STARTS[(year - FIRST_CACHED_YEAR) * 12 + month - 1] + day - 1;
+        }
+        return monthStart(year, month) + day - 1;
+    }
+
+    /**
+     * Epoch day of the first day of a month.
+     *
+     * @param year  year.
+     * @param month month, 1 to 12.
+     * @return epoch day.
+     */
+    private static long monthStart(int year, int month) {
+
+        long leapYears = Math.floorDiv(year - 1, 4) - Math.floorDiv(year - 1, 100) + Math.floorDiv(year - 1, 400)
+                - LEAP_YEARS_BEFORE_EPOCH;
+        return 365L * (year - 1970) + leapYears + DAYS_BEFORE_MONTH[isLeapYear(year) ? 1 : 0][month - 1];
+    }
+
+    /**
+     * Check whether a year is a leap year of the proleptic Gregorian calendar.
+     *
+     * @param year year.
+     * @return true for a leap year.
+     */
+    static boolean isLeapYear(int year) {
+
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    /**
+     * Spark SQL expression of the UTC epoch millis of the start of an hour, with the arithmetic of
+     * epochMillis. Each argument is a column or an integer literal.
+     *
+     * @param year  year column or literal.
+     * @param month month column or literal, null for the first month.
+     * @param day   day column or literal, null for the first day.
+     * @param hour  hour column or literal, null for the first hour.
+     * @return the LONG expression.
+     */
+    static String sparkSql(String year, String month, String day, String hour) {
+
+        if (isLiteral(year) && (month == null || isLiteral(month)) && (day == null || isLiteral(day))
+                && (hour == null || isLiteral(hour))) {
+            return "cast(" + epochMillis(Integer.parseInt(year), month == null ? 1 : Integer.parseInt(month),
+                    day == null ? 1 : Integer.parseInt(day), hour == null ? 0 : Integer.parseInt(hour))
+                    + " as LONG)";
+        }
+        StringBuilder days = new StringBuilder("365 * (").append(year).append(" - 1970)")
+                .append(" + floor((").append(year).append(" - 1) / 4)")
+                .append(" - floor((").append(year).append(" - 1) / 100)")
+                .append(" + floor((").append(year).append(" - 1) / 400)")
+                .append(" - ").append(LEAP_YEARS_BEFORE_EPOCH);
+        String leapDay = "CASE WHEN " + year + " % 4 = 0 AND (" + year + " % 100 <> 0 OR " + year
+                + " % 400 = 0) THEN 1 ELSE 0 END";
+        if (month != null && isLiteral(month)) {
+            int m = Integer.parseInt(month);
+            if (m > 1) {
+                days.append(" + ").append(DAYS_BEFORE_MONTH[0][m - 1]);
+            }
+            if (m > 2) {
+                days.append(" + ").append(leapDay);
+            }
+        } else if (month != null) {
+            days.append(" + CASE ").append(month);
+            for (int m = 1; m <= 12; m++) {
+                days.append(" WHEN ").append(m).append(" THEN ").append(DAYS_BEFORE_MONTH[0][m - 1]);
+            }
+            days.append(" END + CASE WHEN ").append(month).append(" > 2 THEN ").append(leapDay).append(" ELSE 0 END");
+        }
+        if (day != null && isLiteral(day)) {
+            if (Integer.parseInt(day) != 1) {
+                days.append(" + ").append(Integer.parseInt(day) - 1);
+            }
+        } else if (day != null) {
+            days.append(" + ").append(day).append(" - 1");
+        }
+        boolean addHour = hour != null && !(isLiteral(hour) && Integer.parseInt(hour) == 0);
+        return "(cast(" + days + " as LONG) * 24" + (addHour ? " + " + hour : "") + ") * " + HOUR_MILLIS;
+    }
+
+    /**
+     * Check whether an expression is an integer literal.
+     *
+     * @param expression column or literal.
+     * @return true for an integer literal.
+     */
+    private static boolean isLiteral(String expression) {
+
+        return expression.matches("-?\\d+");
+    }
+}
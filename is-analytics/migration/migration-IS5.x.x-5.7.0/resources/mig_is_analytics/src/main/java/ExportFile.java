@@ -0,0 +1,845 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.apache.log4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Binary columnar copy of a DAS analytics source table, written by an export run & read by a migration run in
+ * place of the source database. The rows are stored in watermark order in chunks, each column of a chunk
+ * holding a null bitmap & its values, so a chunk is read from the memory mapped file without copying it to
+ * the heap & the chunks outside a watermark range are skipped from the min & max in the chunk directory.
+ * All numbers are big endian.
+ * <pre>
+ * header:    "MIGX", version, column count, per column its type & name, index of the watermark column or -1
+ * chunk:     offset of each column block from the start of the chunk, then per column a null bitmap followed
+ *            by 1, 4 or 8 bytes per row, or for text the end offset of each row & the UTF-8 bytes
+ * directory: per chunk its offset, length, rows, lowest & highest watermark & rows without a watermark
+ * trailer:   offset of the directory, chunk count, "MIGX"
+ * </pre>
+ */
+class ExportFile implements AutoCloseable {
+
+    /**
+     * Initialize Logger object to log messages
+     */
+    private static final Logger LOG = Logger.getLogger(ExportFile.class);
+
+    /**
+     * Extension of the exported source tables.
+     */
+    static final String EXTENSION = ".mig";
+
+    /**
+     * First & last bytes of an export file.
+     */
+    private static final int MAGIC = 0x4D494758;
+
+    /**
+     * Version of the file layout.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Bytes of the trailer: directory offset, chunk count & magic.
+     */
+    private static final int TRAILER = 16;
+
+    /**
+     * Bytes of a chunk directory entry.
+     */
+    private static final int ENTRY = 36;
+
+    /**
+     * Column types, read back as Boolean, Integer, Long, Float, Double, BigDecimal & String.
+     */
+    private static final byte BOOLEAN = 1;
+    private static final byte INT = 2;
+    private static final byte LONG = 3;
+    private static final byte FLOAT = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte DECIMAL = 6;
+    private static final byte STRING = 7;
+
+    /**
+     * Variable which stores the path of the file.
+     */
+    private final File file;
+    /**
+     * Variable which stores the channel of the file, mapped one chunk at a time.
+     */
+    private final FileChannel channel;
+    /**
+     * Variable which stores the upper case name of each column.
+     */
+    private final String[] names;
+    /**
+     * Variable which stores the type of each column.
+     */
+    private final byte[] types;
+    /**
+     * Variable which stores the index of the watermark column, -1 if the rows have no watermark.
+     */
+    private final int watermark;
+    /**
+     * Variable which stores the entries of the chunk directory.
+     */
+    private final Chunk[] chunks;
+
+    /**
+     * Open an export file & read its header & chunk directory into the heap, so only the chunks are mapped &
+     * no mapping has to cover the whole file.
+     *
+     * @param file path of the file.
+     * @throws SQLException if the file could not be read or is not an export file.
+     */
+    ExportFile(File file) throws SQLException {
+
+        this.file = file;
+        try {
+            channel = new RandomAccessFile(file, "r").getChannel();
+        } catch (IOException e) {
+            throw new SQLException(String.format("Error occurred while opening the export file %s", file), e);
+        }
+        try {
+            long size = channel.size();
+            ByteBuffer trailer = size < 12 + TRAILER ? null : read(size - TRAILER, TRAILER);
+            if (trailer == null || trailer.getInt(12) != MAGIC) {
+                throw new SQLException(String.format("%s is not a complete export file, export the table again",
+                        file));
+            }
+            long directory = trailer.getLong(0);
+            int count = trailer.getInt(8);
+            ByteBuffer header = read(0, 12);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new SQLException(String.format("%s is not an export file of version %d", file, VERSION));
+            }
+            int columns = header.getInt();
+            names = new String[columns];
+            types = new byte[columns];
+            long position = 12;
+            for (int i = 0; i < columns; i++) {
+                ByteBuffer column = read(position, 3);
+                types[i] = column.get();
+                int length = column.getShort() & 0xffff;
+                names[i] = new String(read(position + 3, length).array(), StandardCharsets.UTF_8)
+                        .toUpperCase(Locale.ENGLISH);
+                position += 3 + length;
+            }
+            watermark = read(position, 4).getInt();
+            if (position + 4 > directory || directory + (long) count * ENTRY + TRAILER != size) {
+                throw new SQLException(String.format("%s is not a complete export file, export the table again",
+                        file));
+            }
+            ByteBuffer entries = read(directory, count * ENTRY);
+            chunks = new Chunk[count];
+            for (int i = 0; i < count; i++) {
+                chunks[i] = new Chunk(entries.getLong(), entries.getInt(), entries.getInt(), entries.getLong(),
+                        entries.getLong(), entries.getInt());
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw new SQLException(String.format("Error occurred while reading the export file %s", file), e);
+        } catch (SQLException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Read bytes of the file into a heap buffer.
+     *
+     * @param position offset of the first byte.
+     * @param length   number of bytes.
+     * @return the buffer, positioned on the first byte.
+     * @throws IOException if the file ends before the last byte.
+     */
+    private ByteBuffer read(long position, int length) throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException(String.format("%s ends before byte %d", file, position + length));
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Export file of a source table in a directory.
+     *
+     * @param directory directory of the exported source tables.
+     * @param table     name of the source table.
+     * @return the path of the file.
+     */
+    static File of(File directory, String table) {
+
+        return new File(directory, table.toUpperCase(Locale.ENGLISH) + EXTENSION);
+    }
+
+    /**
+     * Name of the watermark column, the column the rows are ordered by.
+     *
+     * @return the upper case column name, null if the rows have no watermark.
+     */
+    String getWatermarkColumn() {
+
+        return watermark < 0 ? null : names[watermark];
+    }
+
+    /**
+     * Number of rows whose watermark is at or after a value, counting whole chunks.
+     *
+     * @param from lowest watermark, null to count every row.
+     * @return the number of rows of the chunks which have such a watermark.
+     */
+    long getRows(Long from) {
+
+        long rows = 0;
+        for (Chunk chunk : chunks) {
+            rows += from == null ? chunk.rows : chunk.rows > chunk.nulls && chunk.max >= from ? chunk.rows
+                    - chunk.nulls : 0;
+        }
+        return rows;
+    }
+
+    /**
+     * Lowest & highest watermark at or after a value, from the chunk directory.
+     *
+     * @param from lowest watermark, null for the whole file.
+     * @return the lowest & highest watermark, the lowest clamped to from, null if no row has one.
+     */
+    long[] getRange(Long from) {
+
+        long[] range = null;
+        for (Chunk chunk : chunks) {
+            if (chunk.rows == chunk.nulls || from != null && chunk.max < from) {
+                continue;
+            }
+            long min = from == null ? chunk.min : Math.max(from, chunk.min);
+            if (range == null) {
+                range = new long[]{min, chunk.max};
+            } else {
+                range[0] = Math.min(range[0], min);
+                range[1] = Math.max(range[1], chunk.max);
+            }
+        }
+        return range;
+    }
+
+    /**
+     * Reader of the rows in a watermark range, in file order. A row without a watermark is read only when
+     * withNulls is set, unless both bounds are null, in which case every row is read.
+     *
+     * @param columns   names of the columns to read, matched ignoring case. A missing column reads as null.
+     * @param from      lowest watermark, inclusive, null for no lower bound.
+     * @param to        highest watermark, exclusive, null for no upper bound.
+     * @param withNulls whether rows without a watermark are read.
+     * @return the reader, which fills the values of the columns in the given order.
+     * @throws SQLException if a bound is given & the rows have no watermark.
+     */
+    Pipeline.RowReader rows(String[] columns, Long from, Long to, boolean withNulls) throws SQLException {
+
+        if ((from != null || to != null) && watermark < 0) {
+            throw new SQLException(String.format("%s has no watermark column to read a range of", file));
+        }
+        int[] positions = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            positions[i] = -1;
+            for (int j = 0; j < names.length; j++) {
+                if (names[j].equalsIgnoreCase(columns[i])) {
+                    positions[i] = j;
+                    break;
+                }
+            }
+            if (positions[i] < 0) {
+                LOG.warn(String.format("Column %s not found in %s, migrating it as null", columns[i], file));
+            }
+        }
+        return new Rows(positions, from, to, from == null && to == null || withNulls);
+    }
+
+    @Override
+    public void close() {
+
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOG.debug(e);
+        }
+    }
+
+    /**
+     * Entry of the chunk directory.
+     */
+    private static final class Chunk {
+
+        /**
+         * Variable which stores the offset of the chunk in the file.
+         */
+        private final long offset;
+        /**
+         * Variable which stores the bytes of the chunk.
+         */
+        private final int length;
+        /**
+         * Variable which stores the number of rows of the chunk.
+         */
+        private final int rows;
+        /**
+         * Variable which stores the lowest watermark of the chunk.
+         */
+        private final long min;
+        /**
+         * Variable which stores the highest watermark of the chunk.
+         */
+        private final long max;
+        /**
+         * Variable which stores the number of rows without a watermark.
+         */
+        private final int nulls;
+
+        /**
+         * Constructor which initiate the variables offset,length,rows,min,max,nulls.
+         *
+         * @param offset offset of the chunk in the file.
+         * @param length bytes of the chunk.
+         * @param rows   number of rows of the chunk.
+         * @param min    lowest watermark of the chunk.
+         * @param max    highest watermark of the chunk.
+         * @param nulls  number of rows without a watermark.
+         */
+        Chunk(long offset, int length, int rows, long min, long max, int nulls) {
+
+            this.offset = offset;
+            this.length = length;
+            this.rows = rows;
+            this.min = min;
+            this.max = max;
+            this.nulls = nulls;
+        }
+    }
+
+    /**
+     * Reads the rows of the chunks which overlap a watermark range, decoding each value from the mapped chunk.
+     */
+    private final class Rows implements Pipeline.RowReader {
+
+        /**
+         * Variable which stores the file column of each column read, -1 for a missing column.
+         */
+        private final int[] positions;
+        /**
+         * Variable which stores the lowest watermark read, null for no lower bound.
+         */
+        private final Long from;
+        /**
+         * Variable which stores the watermark above the range, null for no upper bound.
+         */
+        private final Long to;
+        /**
+         * Variable which stores whether rows without a watermark are read.
+         */
+        private final boolean withNulls;
+        /**
+         * Variable which stores the offset of each column block in the current chunk.
+         */
+        private final int[] blocks = new int[names.length];
+        /**
+         * Variable which stores the buffer strings are copied out of.
+         */
+        private byte[] text = new byte[256];
+        /**
+         * Variable which stores the current chunk, null before the first one.
+         */
+        private MappedByteBuffer buffer;
+        /**
+         * Variable which stores the index of the current chunk.
+         */
+        private int chunk = -1;
+        /**
+         * Variable which stores the index of the next row of the current chunk.
+         */
+        private int row;
+
+        /**
+         * Constructor which initiate the variables positions,from,to,withNulls.
+         *
+         * @param positions file column of each column read, -1 for a missing column.
+         * @param from      lowest watermark read, null for no lower bound.
+         * @param to        watermark above the range, null for no upper bound.
+         * @param withNulls whether rows without a watermark are read.
+         */
+        Rows(int[] positions, Long from, Long to, boolean withNulls) {
+
+            this.positions = positions;
+            this.from = from;
+            this.to = to;
+            this.withNulls = withNulls;
+        }
+
+        @Override
+        public boolean next(Object[] values) throws SQLException {
+
+            while (true) {
+                if (buffer == null || row == chunks[chunk].rows) {
+                    if (!nextChunk()) {
+                        return false;
+                    }
+                }
+                int i = row++;
+                if (watermark >= 0 && !matches(i)) {
+                    continue;
+                }
+                for (int j = 0; j < positions.length; j++) {
+                    values[j] = positions[j] < 0 ? null : value(positions[j], i);
+                }
+                return true;
+            }
+        }
+
+        /**
+         * Map the next chunk which may hold rows of the range.
+         *
+         * @return false after the last chunk.
+         * @throws SQLException if the chunk could not be mapped.
+         */
+        private boolean nextChunk() throws SQLException {
+
+            buffer = null;
+            while (++chunk < chunks.length) {
+                Chunk entry = chunks[chunk];
+                boolean ranged = entry.rows > entry.nulls && (from == null || entry.max >= from)
+                        && (to == null || entry.min < to);
+                if (ranged || withNulls && entry.nulls > 0 || watermark < 0) {
+                    try {
+                        buffer = channel.map(FileChannel.MapMode.READ_ONLY, entry.offset, entry.length);
+                    } catch (IOException e) {
+                        throw new SQLException(String.format("Error occurred while reading chunk %d of %s", chunk,
+                                file), e);
+                    }
+                    for (int i = 0; i < blocks.length; i++) {
+                        blocks[i] = buffer.getInt(i * 4);
+                    }
+                    row = 0;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Check whether the watermark of a row of the current chunk is in the range.
+         *
+         * @param i index of the row in the chunk.
+         * @return true if the row is read.
+         */
+        private boolean matches(int i) {
+
+            if (isNull(watermark, i)) {
+                return withNulls;
+            }
+            long value = types[watermark] == INT ? buffer.getInt(values(watermark) + 4 * i)
+                    : buffer.getLong(values(watermark) + 8 * i);
+            return (from == null || value >= from) && (to == null || value < to);
+        }
+
+        /**
+         * Check the null bitmap of a column.
+         *
+         * @param column index of the column in the file.
+         * @param i      index of the row in the chunk.
+         * @return true if the value is null.
+         */
+        private boolean isNull(int column, int i) {
+
+            return (buffer.get(blocks[column] + (i >>> 3)) & (1 << (i & 7))) != 0;
+        }
+
+        /**
+         * Offset of the values of a column, after its null bitmap.
+         *
+         * @param column index of the column in the file.
+         * @return the offset in the current chunk.
+         */
+        private int values(int column) {
+
+            return blocks[column] + (chunks[chunk].rows + 7) / 8;
+        }
+
+        /**
+         * Decode a value of the current chunk.
+         *
+         * @param column index of the column in the file.
+         * @param i      index of the row in the chunk.
+         * @return the value, null for null.
+         */
+        private Object value(int column, int i) {
+
+            if (isNull(column, i)) {
+                return null;
+            }
+            int values = values(column);
+            switch (types[column]) {
+                case BOOLEAN:
+                    return buffer.get(values + i) != 0;
+                case INT:
+                    return buffer.getInt(values + 4 * i);
+                case LONG:
+                    return buffer.getLong(values + 8 * i);
+                case FLOAT:
+                    return buffer.getFloat(values + 4 * i);
+                case DOUBLE:
+                    return buffer.getDouble(values + 8 * i);
+                default:
+                    int start = buffer.getInt(values + 4 * i);
+                    int length = buffer.getInt(values + 4 * (i + 1)) - start;
+                    if (text.length < length) {
+                        text = new byte[Math.max(length, text.length * 2)];
+                    }
+                    ByteBuffer bytes = buffer.duplicate();
+                    bytes.position(values + 4 * (chunks[chunk].rows + 1) + start);
+                    bytes.get(text, 0, length);
+                    String s = new String(text, 0, length, StandardCharsets.UTF_8);
+                    return types[column] == DECIMAL ? new BigDecimal(s) : s;
+            }
+        }
+    }
+
+    /**
+     * Writes the rows of a source result set into an export file, one chunk of rows at a time.
+     */
+    static final class Writer implements AutoCloseable {
+
+        /**
+         * Variable which stores the stream of the file.
+         */
+        private final DataOutputStream output;
+        /**
+         * Variable which stores the type of each column.
+         */
+        private final byte[] types;
+        /**
+         * Variable which stores the index of the watermark column, -1 if there is none.
+         */
+        private final int watermark;
+        /**
+         * Variable which stores the values of the rows of the current chunk, per column.
+         */
+        private final Object[][] values;
+        /**
+         * Variable which stores the entries of the chunk directory.
+         */
+        private final List<long[]> directory = new ArrayList<>();
+        /**
+         * Variable which stores the number of rows of the current chunk.
+         */
+        private int rows;
+        /**
+         * Variable which stores the number of rows written.
+         */
+        private long total;
+        /**
+         * Variable which stores the offset of the next byte written.
+         */
+        private long position;
+
+        /**
+         * Create an export file & write its header.
+         *
+         * @param file            path of the file.
+         * @param metaData        metadata of the source result set.
+         * @param watermarkColumn column the rows are ordered by, null if there is none.
+         * @param chunkRows       number of rows per chunk.
+         * @throws IOException  if the file could not be written.
+         * @throws SQLException if the metadata could not be read.
+         */
+        Writer(File file, ResultSetMetaData metaData, String watermarkColumn, int chunkRows) throws IOException,
+                SQLException {
+
+            int columns = metaData.getColumnCount();
+            types = new byte[columns];
+            values = new Object[columns][Math.max(1, chunkRows)];
+            int index = -1;
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream header = new DataOutputStream(bytes);
+            header.writeInt(MAGIC);
+            header.writeInt(VERSION);
+            header.writeInt(columns);
+            for (int i = 0; i < columns; i++) {
+                types[i] = type(metaData, i + 1);
+                String name = metaData.getColumnLabel(i + 1);
+                if (name.equalsIgnoreCase(watermarkColumn) && (types[i] == INT || types[i] == LONG)) {
+                    index = i;
+                }
+                byte[] utf8 = name.getBytes(StandardCharsets.UTF_8);
+                header.writeByte(types[i]);
+                header.writeShort(utf8.length);
+                header.write(utf8);
+            }
+            header.writeInt(index);
+            watermark = index;
+            output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+            bytes.writeTo(output);
+            position = bytes.size();
+        }
+
+        /**
+         * Type a source column is exported as. Exact decimals of up to 18 digits are exported as Long, other
+         * columns of a type without a binary form as text.
+         *
+         * @param metaData metadata of the source result set.
+         * @param column   1-based position of the column.
+         * @return the column type.
+         * @throws SQLException if the metadata could not be read.
+         */
+        private static byte type(ResultSetMetaData metaData, int column) throws SQLException {
+
+            switch (metaData.getColumnType(column)) {
+                case Types.BOOLEAN:
+                case Types.BIT:
+                    return BOOLEAN;
+                case Types.TINYINT:
+                case Types.SMALLINT:
+                case Types.INTEGER:
+                    return INT;
+                case Types.BIGINT:
+                    return LONG;
+                case Types.REAL:
+                    return FLOAT;
+                case Types.FLOAT:
+                case Types.DOUBLE:
+                    return DOUBLE;
+                case Types.NUMERIC:
+                case Types.DECIMAL:
+                    int precision = metaData.getPrecision(column);
+                    return metaData.getScale(column) == 0 && precision > 0 && precision <= 18 ? LONG : DECIMAL;
+                default:
+                    return STRING;
+            }
+        }
+
+        /**
+         * Append the current row of a source result set.
+         *
+         * @param resultSet source result set positioned on a row.
+         * @throws SQLException if a value could not be read.
+         * @throws IOException  if a full chunk could not be written.
+         */
+        void write(ResultSet resultSet) throws SQLException, IOException {
+
+            for (int i = 0; i < types.length; i++) {
+                Object value;
+                switch (types[i]) {
+                    case BOOLEAN:
+                        value = resultSet.getBoolean(i + 1);
+                        break;
+                    case INT:
+                        value = resultSet.getInt(i + 1);
+                        break;
+                    case LONG:
+                        value = resultSet.getLong(i + 1);
+                        break;
+                    case FLOAT:
+                        value = resultSet.getFloat(i + 1);
+                        break;
+                    case DOUBLE:
+                        value = resultSet.getDouble(i + 1);
+                        break;
+                    case DECIMAL:
+                        BigDecimal decimal = resultSet.getBigDecimal(i + 1);
+                        value = decimal == null ? null : decimal.toString();
+                        break;
+                    default:
+                        value = resultSet.getString(i + 1);
+                }
+                values[i][rows] = resultSet.wasNull() ? null : value;
+            }
+            if (++rows == values[0].length) {
+                flush();
+            }
+        }
+
+        /**
+         * Write the rows of the current chunk & add its directory entry.
+         *
+         * @throws IOException if the chunk could not be written.
+         */
+        private void flush() throws IOException {
+
+            if (rows == 0) {
+                return;
+            }
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            int nulls = watermark < 0 ? rows : 0;
+            for (int i = 0; watermark >= 0 && i < rows; i++) {
+                Object value = values[watermark][i];
+                if (value == null) {
+                    nulls++;
+                } else {
+                    long w = ((Number) value).longValue();
+                    min = Math.min(min, w);
+                    max = Math.max(max, w);
+                }
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream chunk = new DataOutputStream(bytes);
+            int[] blocks = new int[types.length];
+            int offset = types.length * 4;
+            ByteArrayOutputStream[] columns = new ByteArrayOutputStream[types.length];
+            for (int i = 0; i < types.length; i++) {
+                columns[i] = column(i);
+                blocks[i] = offset;
+                offset += columns[i].size();
+            }
+            for (int block : blocks) {
+                chunk.writeInt(block);
+            }
+            for (ByteArrayOutputStream column : columns) {
+                column.writeTo(chunk);
+            }
+            directory.add(new long[]{position, bytes.size(), rows, min, max, nulls});
+            bytes.writeTo(output);
+            position += bytes.size();
+            total += rows;
+            rows = 0;
+        }
+
+        /**
+         * Encode the null bitmap & the values of a column of the current chunk.
+         *
+         * @param column index of the column.
+         * @return the bytes of the column block.
+         * @throws IOException if the block could not be encoded.
+         */
+        private ByteArrayOutputStream column(int column) throws IOException {
+
+            Object[] data = values[column];
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream block = new DataOutputStream(bytes);
+            byte[] bitmap = new byte[(rows + 7) / 8];
+            for (int i = 0; i < rows; i++) {
+                if (data[i] == null) {
+                    bitmap[i >>> 3] |= 1 << (i & 7);
+                }
+            }
+            block.write(bitmap);
+            if (types[column] == STRING || types[column] == DECIMAL) {
+                ByteArrayOutputStream text = new ByteArrayOutputStream();
+                block.writeInt(0);
+                for (int i = 0; i < rows; i++) {
+                    if (data[i] != null) {
+                        text.write(((String) data[i]).getBytes(StandardCharsets.UTF_8));
+                    }
+                    block.writeInt(text.size());
+                }
+                text.writeTo(block);
+            } else {
+                for (int i = 0; i < rows; i++) {
+                    Object value = data[i];
+                    switch (types[column]) {
+                        case BOOLEAN:
+                            block.writeByte(value != null && (Boolean) value ? 1 : 0);
+                            break;
+                        case INT:
+                            block.writeInt(value == null ? 0 : (Integer) value);
+                            break;
+                        case LONG:
+                            block.writeLong(value == null ? 0 : (Long) value);
+                            break;
+                        case FLOAT:
+                            block.writeFloat(value == null ? 0 : (Float) value);
+                            break;
+                        default:
+                            block.writeDouble(value == null ? 0 : (Double) value);
+                    }
+                }
+            }
+            Arrays.fill(data, 0, rows, null);
+            return bytes;
+        }
+
+        /**
+         * Number of rows written.
+         *
+         * @return the number of rows.
+         */
+        long getRows() {
+
+            return total + rows;
+        }
+
+        /**
+         * Number of chunks written.
+         *
+         * @return the number of chunks.
+         */
+        int getChunks() {
+
+            return directory.size();
+        }
+
+        /**
+         * Write the last chunk, the chunk directory & the trailer, then close the file.
+         *
+         * @throws IOException if the file could not be written.
+         */
+        @Override
+        public void close() throws IOException {
+
+            try {
+                flush();
+                long offset = position;
+                for (long[] entry : directory) {
+                    output.writeLong(entry[0]);
+                    output.writeInt((int) entry[1]);
+                    output.writeInt((int) entry[2]);
+                    output.writeLong(entry[3]);
+                    output.writeLong(entry[4]);
+                    output.writeInt((int) entry[5]);
+                }
+                output.writeLong(offset);
+                output.writeInt(directory.size());
+                output.writeInt(MAGIC);
+            } finally {
+                output.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+/**
+ * Time granularities of the SP aggregation tables & the DAS per hour/day/month/year source tables.
+ */
+enum Granularity {
+
+    HOURS(2000, "year", "month", "day", "hour"),
+    DAYS(2001, "year", "month", "day"),
+    MONTHS(2002, "year", "month"),
+    YEARS(2003, "year");
+
+    /**
+     * Variable which stores the AGG_TIMESTAMP written to every row of the aggregation table.
+     */
+    private final long aggTimestamp;
+    /**
+     * Variable which stores the source columns which identify the time bucket.
+     */
+    private final String[] timeColumns;
+
+    /**
+     * Constructor which initiate the variables aggTimestamp,timeColumns.
+     *
+     * @param aggYear     year whose first instant is used as AGG_TIMESTAMP.
+     * @param timeColumns source columns which identify the time bucket.
+     */
+    Granularity(int aggYear, String... timeColumns) {
+
+        this.aggTimestamp = EpochBuckets.epochMillis(aggYear, 1, 1, 0);
+        this.timeColumns = timeColumns;
+    }
+
+    /**
+     * Getter of aggTimestamp
+     *
+     * @return the aggTimestamp
+     */
+    long getAggTimestamp() {
+
+        return aggTimestamp;
+    }
+
+    /**
+     * Getter of timeColumns
+     *
+     * @return the timeColumns
+     */
+    String[] getTimeColumns() {
+
+        return timeColumns;
+    }
+
+    /**
+     * UTC epoch millis of the start of the time bucket, the AGG_EVENT_TIMESTAMP of the aggregation table.
+     *
+     * @param row    row holding the time columns.
+     * @param offset index of the year column in the row.
+     * @return start of the time bucket in epoch millis.
+     */
+    long eventTimestamp(Object[] row, int offset) {
+
+        int year = Transformations.asInt(row[offset]);
+        int month = timeColumns.length > 1 ? Transformations.asInt(row[offset + 1]) : 1;
+        int day = timeColumns.length > 2 ? Transformations.asInt(row[offset + 2]) : 1;
+        int hour = timeColumns.length > 3 ? Transformations.asInt(row[offset + 3]) : 0;
+        return EpochBuckets.epochMillis(year, month, day, hour);
+    }
+
+    /**
+     * Spark SQL expression of the AGG_EVENT_TIMESTAMP of the aggregation table, over the time columns of the
+     * source table.
+     *
+     * @return the LONG expression.
+     */
+    String sparkEventTimestamp() {
+
+        return EpochBuckets.sparkSql(timeColumns[0], timeColumns.length > 1 ? timeColumns[1] : null,
+                timeColumns.length > 2 ? timeColumns[2] : null, timeColumns.length > 3 ? timeColumns[3] : null);
+    }
+
+    /**
+     * Spark SQL expression of the AGG_TIMESTAMP of the aggregation table.
+     *
+     * @return the LONG expression.
+     */
+    String sparkAggTimestamp() {
+
+        return "cast(" + aggTimestamp + " as LONG)";
+    }
+}
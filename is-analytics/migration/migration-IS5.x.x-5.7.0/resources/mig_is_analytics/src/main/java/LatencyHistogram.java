@@ -0,0 +1,120 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of latencies in buckets of powers of two microseconds, so recording is a few atomic additions &
+ * a percentile is accurate to a factor of two, which is enough to tell a 5 ms commit from a 500 ms one.
+ */
+class LatencyHistogram {
+
+    /**
+     * Number of buckets. Bucket 0 holds latencies below 1 microsecond & bucket i those from 2^(i-1) up to 2^i
+     * microseconds, the last one everything longer.
+     */
+    private static final int BUCKETS = 40;
+
+    /**
+     * Variable which stores the number of latencies in each bucket.
+     */
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    /**
+     * Variable which stores the number of latencies.
+     */
+    private final LongAdder count = new LongAdder();
+    /**
+     * Variable which stores the sum of the latencies, in nanoseconds.
+     */
+    private final LongAdder total = new LongAdder();
+    /**
+     * Variable which stores the longest latency, in nanoseconds.
+     */
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Record a latency.
+     *
+     * @param nanos latency in nanoseconds.
+     */
+    void record(long nanos) {
+
+        long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(0, nanos));
+        buckets.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros)));
+        count.increment();
+        total.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    /**
+     * Number of latencies recorded.
+     *
+     * @return the count.
+     */
+    long getCount() {
+
+        return count.sum();
+    }
+
+    /**
+     * Mean latency.
+     *
+     * @return the mean in milliseconds, 0 if none was recorded.
+     */
+    double getMeanMillis() {
+
+        long n = count.sum();
+        return n == 0 ? 0 : total.sum() / 1e6 / n;
+    }
+
+    /**
+     * Longest latency.
+     *
+     * @return the longest latency in milliseconds.
+     */
+    double getMaxMillis() {
+
+        return max.get() / 1e6;
+    }
+
+    /**
+     * Latency below which a share of the latencies fall, as the upper bound of the bucket which holds it.
+     *
+     * @param percentile share of the latencies, from 0 to 100.
+     * @return the latency in milliseconds, 0 if none was recorded.
+     */
+    double getPercentileMillis(double percentile) {
+
+        long[] counts = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            n += counts[i];
+        }
+        long rank = (long) Math.ceil(n * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank && seen > 0) {
+                return Math.min((1L << i) / 1e3, getMaxMillis());
+            }
+        }
+        return 0;
+    }
+}
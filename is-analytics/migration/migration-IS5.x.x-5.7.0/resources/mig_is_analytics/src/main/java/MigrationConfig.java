@@ -0,0 +1,754 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Settings of the data migration, read from Java system properties.
+ */
+public class MigrationConfig {
+
+    /**
+     * Variable which stores the JDBC URL of the source analytics database.
+     */
+    private String sourceUrl;
+    /**
+     * Variable which stores the source database username.
+     */
+    private String sourceUser;
+    /**
+     * Variable which stores the source database password.
+     */
+    private String sourcePassword;
+    /**
+     * Variable which stores the source JDBC driver class, null to use the target driver.
+     */
+    private String sourceDriver;
+    /**
+     * Variable which stores the source database driver location, null to use the target driver location.
+     */
+    private String sourceDriverLocation;
+    /**
+     * Variable which stores the number of rows sent to the target database per batch.
+     */
+    private int batchSize = 1000;
+    /**
+     * Variable which stores the number of rows fetched from the source database per round trip.
+     */
+    private int fetchSize = 1000;
+    /**
+     * Variable which stores whether rows are loaded with the native bulk load path of the database.
+     */
+    private boolean bulkLoad = true;
+    /**
+     * Variable which stores whether Oracle bulk loads use direct path inserts, which lock the table until each
+     * commit & so require one writer per table & large batches.
+     */
+    private boolean directPathLoad = false;
+    /**
+     * Variable which stores whether every batch is written with the upsert statement of the database.
+     */
+    private boolean upsert;
+    /**
+     * Variable which stores whether the tables migrated by a previous run are copied again from their
+     * high-water mark instead of being skipped.
+     */
+    private boolean delta = false;
+    /**
+     * Variable which stores how many milliseconds before the high-water mark a delta run starts reading, to
+     * pick up rows which reached the source late.
+     */
+    private long deltaOverlap = 0;
+    /**
+     * Variable which stores whether the aggregation tables of every granularity are built from one scan of
+     * the per hour source table.
+     */
+    private boolean rollup = false;
+    /**
+     * Variable which stores the number of distinct values kept per low cardinality column, 0 to read every
+     * value as a separate String.
+     */
+    private int dictionarySize = 65536;
+    /**
+     * Variable which stores the megabytes of aggregate groups kept in memory per table before they are spilled
+     * to disk.
+     */
+    private int aggregationMemory = 512;
+    /**
+     * Variable which stores the directory of the spilled aggregate groups, null for the temporary directory.
+     */
+    private String spillDirectory;
+    /**
+     * Variable which stores the directory of the exported source tables, null to read the source database.
+     */
+    private String exportDirectory;
+    /**
+     * Variable which stores the number of rows per chunk of an exported source table.
+     */
+    private int exportChunkRows = 65536;
+    /**
+     * Variable which stores the number of workers which read the watermark ranges of a source table in
+     * parallel, 1 to read each table in one scan.
+     */
+    private int parallelism = 1;
+    /**
+     * Variable which stores the number of chunks of fetchSize rows queued between the read, transform & write
+     * stages of a table, 0 to run the stages one after the other on one thread.
+     */
+    private int pipelineDepth = 4;
+    /**
+     * Variable which stores the seconds between two summaries of the table metrics in the log, 0 to log only
+     * the final summary.
+     */
+    private int metricsInterval = 60;
+    /**
+     * Variable which stores the seconds between two progress reports in the log, 0 to report only when a table
+     * starts or ends.
+     */
+    private int progressInterval = 10;
+    /**
+     * Variable which stores the path of the JSON file the progress is written to, null or empty to write none.
+     */
+    private String statusFile = "migISAnalytics-status.json";
+    /**
+     * Variable which stores the number of rows of each source table read & inserted by a plan run.
+     */
+    private int planSampleRows = 10000;
+    /**
+     * Variable which stores the number of ranges of its time column a table is verified in.
+     */
+    private int verifyBuckets = 64;
+    /**
+     * Variable which stores the number of differing ranges & rows logged per table by a verify run.
+     */
+    private int verifyMaxDiffs = 20;
+    /**
+     * Variable which stores whether a run resumes from the checkpoints of the previous run.
+     */
+    private boolean resume = true;
+    /**
+     * Variable which stores the upper case names of the target tables to migrate, empty to migrate all.
+     */
+    private Set<String> tables = new LinkedHashSet<>();
+
+    /**
+     * Read the migration settings from the Java system properties.
+     *
+     * @return the migration settings.
+     */
+    public static MigrationConfig load() {
+
+        MigrationConfig config = new MigrationConfig();
+        config.setSourceUrl(System.getProperty("sourceUrl"));
+        config.setSourceUser(System.getProperty("sourceUser"));
+        config.setSourcePassword(System.getProperty("sourcePassword"));
+        config.setSourceDriver(System.getProperty("sourceDriver"));
+        config.setSourceDriverLocation(System.getProperty("sourceDriverLocation"));
+        config.setBatchSize(Integer.parseInt(System.getProperty("batchSize", "1000")));
+        config.setFetchSize(Integer.parseInt(System.getProperty("fetchSize", "1000")));
+        config.setBulkLoad(Boolean.parseBoolean(System.getProperty("bulkLoad", "true")));
+        config.setDirectPathLoad(Boolean.parseBoolean(System.getProperty("directPathLoad", "false")));
+        config.setUpsert(Boolean.parseBoolean(System.getProperty("upsert", "false")));
+        config.setResume(Boolean.parseBoolean(System.getProperty("resume", "true")));
+        config.setRollup(Boolean.parseBoolean(System.getProperty("rollup", "false")));
+        config.setDictionarySize(Integer.parseInt(System.getProperty("dictionarySize", "65536")));
+        config.setDeltaOverlap(Long.parseLong(System.getProperty("deltaOverlap", "0")));
+        config.setAggregationMemory(Integer.parseInt(System.getProperty("aggregationMemory", "512")));
+        config.setSpillDirectory(System.getProperty("spillDirectory"));
+        config.setExportDirectory(System.getProperty("exportDirectory"));
+        config.setExportChunkRows(Integer.parseInt(System.getProperty("exportChunkRows", "65536")));
+        config.setParallelism(Integer.parseInt(System.getProperty("parallelism", "1")));
+        config.setPipelineDepth(Integer.parseInt(System.getProperty("pipelineDepth", "4")));
+        config.setMetricsInterval(Integer.parseInt(System.getProperty("metricsInterval", "60")));
+        config.setProgressInterval(Integer.parseInt(System.getProperty("progressInterval", "10")));
+        config.setStatusFile(System.getProperty("statusFile", "migISAnalytics-status.json"));
+        config.setPlanSampleRows(Integer.parseInt(System.getProperty("planSampleRows", "10000")));
+        config.setVerifyBuckets(Integer.parseInt(System.getProperty("verifyBuckets", "64")));
+        config.setVerifyMaxDiffs(Integer.parseInt(System.getProperty("verifyMaxDiffs", "20")));
+        String tables = System.getProperty("tables", "").trim();
+        if (!tables.isEmpty()) {
+            config.setTables(tables.split("\\s*,\\s*"));
+        }
+        return config;
+    }
+
+    /**
+     * Check whether the given target table is selected for migration.
+     *
+     * @param table name of the target table.
+     * @return true if the table is migrated.
+     */
+    public boolean isSelected(String table) {
+
+        return tables.isEmpty() || tables.contains(table.toUpperCase(Locale.ENGLISH));
+    }
+
+    /**
+     * Getter of sourceUrl
+     *
+     * @return the sourceUrl
+     */
+    public String getSourceUrl() {
+
+        return sourceUrl;
+    }
+
+    /**
+     * Setter of sourceUrl
+     *
+     * @param sourceUrl the sourceUrl to set
+     */
+    public void setSourceUrl(String sourceUrl) {
+
+        this.sourceUrl = sourceUrl;
+    }
+
+    /**
+     * Getter of sourceUser
+     *
+     * @return the sourceUser
+     */
+    public String getSourceUser() {
+
+        return sourceUser;
+    }
+
+    /**
+     * Setter of sourceUser
+     *
+     * @param sourceUser the sourceUser to set
+     */
+    public void setSourceUser(String sourceUser) {
+
+        this.sourceUser = sourceUser;
+    }
+
+    /**
+     * Getter of sourcePassword
+     *
+     * @return the sourcePassword
+     */
+    public String getSourcePassword() {
+
+        return sourcePassword;
+    }
+
+    /**
+     * Setter of sourcePassword
+     *
+     * @param sourcePassword the sourcePassword to set
+     */
+    public void setSourcePassword(String sourcePassword) {
+
+        this.sourcePassword = sourcePassword;
+    }
+
+    /**
+     * Getter of sourceDriver
+     *
+     * @return the sourceDriver
+     */
+    public String getSourceDriver() {
+
+        return sourceDriver;
+    }
+
+    /**
+     * Setter of sourceDriver
+     *
+     * @param sourceDriver the sourceDriver to set
+     */
+    public void setSourceDriver(String sourceDriver) {
+
+        this.sourceDriver = sourceDriver;
+    }
+
+    /**
+     * Getter of sourceDriverLocation
+     *
+     * @return the sourceDriverLocation
+     */
+    public String getSourceDriverLocation() {
+
+        return sourceDriverLocation;
+    }
+
+    /**
+     * Setter of sourceDriverLocation
+     *
+     * @param sourceDriverLocation the sourceDriverLocation to set
+     */
+    public void setSourceDriverLocation(String sourceDriverLocation) {
+
+        this.sourceDriverLocation = sourceDriverLocation;
+    }
+
+    /**
+     * Getter of batchSize
+     *
+     * @return the batchSize
+     */
+    public int getBatchSize() {
+
+        return batchSize;
+    }
+
+    /**
+     * Setter of batchSize
+     *
+     * @param batchSize the batchSize to set
+     */
+    public void setBatchSize(int batchSize) {
+
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Getter of fetchSize
+     *
+     * @return the fetchSize
+     */
+    public int getFetchSize() {
+
+        return fetchSize;
+    }
+
+    /**
+     * Setter of fetchSize
+     *
+     * @param fetchSize the fetchSize to set
+     */
+    public void setFetchSize(int fetchSize) {
+
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Getter of bulkLoad
+     *
+     * @return the bulkLoad
+     */
+    public boolean isBulkLoad() {
+
+        return bulkLoad;
+    }
+
+    /**
+     * Setter of bulkLoad
+     *
+     * @param bulkLoad the bulkLoad to set
+     */
+    public void setBulkLoad(boolean bulkLoad) {
+
+        this.bulkLoad = bulkLoad;
+    }
+
+    /**
+     * Getter of directPathLoad
+     *
+     * @return the directPathLoad
+     */
+    public boolean isDirectPathLoad() {
+
+        return directPathLoad;
+    }
+
+    /**
+     * Setter of directPathLoad
+     *
+     * @param directPathLoad the directPathLoad to set
+     */
+    public void setDirectPathLoad(boolean directPathLoad) {
+
+        this.directPathLoad = directPathLoad;
+    }
+
+    /**
+     * Getter of upsert
+     *
+     * @return the upsert
+     */
+    public boolean isUpsert() {
+
+        return upsert;
+    }
+
+    /**
+     * Setter of upsert
+     *
+     * @param upsert the upsert to set
+     */
+    public void setUpsert(boolean upsert) {
+
+        this.upsert = upsert;
+    }
+
+    /**
+     * Getter of delta
+     *
+     * @return the delta
+     */
+    public boolean isDelta() {
+
+        return delta;
+    }
+
+    /**
+     * Setter of delta
+     *
+     * @param delta the delta to set
+     */
+    public void setDelta(boolean delta) {
+
+        this.delta = delta;
+    }
+
+    /**
+     * Getter of deltaOverlap
+     *
+     * @return the deltaOverlap
+     */
+    public long getDeltaOverlap() {
+
+        return deltaOverlap;
+    }
+
+    /**
+     * Setter of deltaOverlap
+     *
+     * @param deltaOverlap the deltaOverlap to set
+     */
+    public void setDeltaOverlap(long deltaOverlap) {
+
+        this.deltaOverlap = deltaOverlap;
+    }
+
+    /**
+     * Getter of rollup
+     *
+     * @return the rollup
+     */
+    public boolean isRollup() {
+
+        return rollup;
+    }
+
+    /**
+     * Setter of rollup
+     *
+     * @param rollup the rollup to set
+     */
+    public void setRollup(boolean rollup) {
+
+        this.rollup = rollup;
+    }
+
+    /**
+     * Getter of dictionarySize
+     *
+     * @return the dictionarySize
+     */
+    public int getDictionarySize() {
+
+        return dictionarySize;
+    }
+
+    /**
+     * Setter of dictionarySize
+     *
+     * @param dictionarySize the dictionarySize to set
+     */
+    public void setDictionarySize(int dictionarySize) {
+
+        this.dictionarySize = dictionarySize;
+    }
+
+    /**
+     * Getter of aggregationMemory
+     *
+     * @return the aggregationMemory
+     */
+    public int getAggregationMemory() {
+
+        return aggregationMemory;
+    }
+
+    /**
+     * Setter of aggregationMemory
+     *
+     * @param aggregationMemory the aggregationMemory to set
+     */
+    public void setAggregationMemory(int aggregationMemory) {
+
+        this.aggregationMemory = aggregationMemory;
+    }
+
+    /**
+     * Getter of spillDirectory
+     *
+     * @return the spillDirectory
+     */
+    public String getSpillDirectory() {
+
+        return spillDirectory;
+    }
+
+    /**
+     * Setter of spillDirectory
+     *
+     * @param spillDirectory the spillDirectory to set
+     */
+    public void setSpillDirectory(String spillDirectory) {
+
+        this.spillDirectory = spillDirectory;
+    }
+
+    /**
+     * Getter of exportDirectory
+     *
+     * @return the exportDirectory
+     */
+    public String getExportDirectory() {
+
+        return exportDirectory;
+    }
+
+    /**
+     * Setter of exportDirectory
+     *
+     * @param exportDirectory the exportDirectory to set
+     */
+    public void setExportDirectory(String exportDirectory) {
+
+        this.exportDirectory = exportDirectory;
+    }
+
+    /**
+     * Getter of exportChunkRows
+     *
+     * @return the exportChunkRows
+     */
+    public int getExportChunkRows() {
+
+        return exportChunkRows;
+    }
+
+    /**
+     * Setter of exportChunkRows
+     *
+     * @param exportChunkRows the exportChunkRows to set
+     */
+    public void setExportChunkRows(int exportChunkRows) {
+
+        this.exportChunkRows = exportChunkRows;
+    }
+
+    /**
+     * Getter of parallelism
+     *
+     * @return the parallelism
+     */
+    public int getParallelism() {
+
+        return parallelism;
+    }
+
+    /**
+     * Setter of parallelism
+     *
+     * @param parallelism the parallelism to set
+     */
+    public void setParallelism(int parallelism) {
+
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Getter of pipelineDepth
+     *
+     * @return the pipelineDepth
+     */
+    public int getPipelineDepth() {
+
+        return pipelineDepth;
+    }
+
+    /**
+     * Setter of pipelineDepth
+     *
+     * @param pipelineDepth the pipelineDepth to set
+     */
+    public void setPipelineDepth(int pipelineDepth) {
+
+        this.pipelineDepth = pipelineDepth;
+    }
+
+    /**
+     * Getter of metricsInterval
+     *
+     * @return the metricsInterval
+     */
+    public int getMetricsInterval() {
+
+        return metricsInterval;
+    }
+
+    /**
+     * Setter of metricsInterval
+     *
+     * @param metricsInterval the metricsInterval to set
+     */
+    public void setMetricsInterval(int metricsInterval) {
+
+        this.metricsInterval = metricsInterval;
+    }
+
+    /**
+     * Getter of progressInterval
+     *
+     * @return the progressInterval
+     */
+    public int getProgressInterval() {
+
+        return progressInterval;
+    }
+
+    /**
+     * Setter of progressInterval
+     *
+     * @param progressInterval the progressInterval to set
+     */
+    public void setProgressInterval(int progressInterval) {
+
+        this.progressInterval = progressInterval;
+    }
+
+    /**
+     * Getter of statusFile
+     *
+     * @return the statusFile
+     */
+    public String getStatusFile() {
+
+        return statusFile;
+    }
+
+    /**
+     * Setter of statusFile
+     *
+     * @param statusFile the statusFile to set
+     */
+    public void setStatusFile(String statusFile) {
+
+        this.statusFile = statusFile;
+    }
+
+    /**
+     * Getter of planSampleRows
+     *
+     * @return the planSampleRows
+     */
+    public int getPlanSampleRows() {
+
+        return planSampleRows;
+    }
+
+    /**
+     * Setter of planSampleRows
+     *
+     * @param planSampleRows the planSampleRows to set
+     */
+    public void setPlanSampleRows(int planSampleRows) {
+
+        this.planSampleRows = planSampleRows;
+    }
+
+    /**
+     * Getter of verifyBuckets
+     *
+     * @return the verifyBuckets
+     */
+    public int getVerifyBuckets() {
+
+        return verifyBuckets;
+    }
+
+    /**
+     * Setter of verifyBuckets
+     *
+     * @param verifyBuckets the verifyBuckets to set
+     */
+    public void setVerifyBuckets(int verifyBuckets) {
+
+        this.verifyBuckets = verifyBuckets;
+    }
+
+    /**
+     * Getter of verifyMaxDiffs
+     *
+     * @return the verifyMaxDiffs
+     */
+    public int getVerifyMaxDiffs() {
+
+        return verifyMaxDiffs;
+    }
+
+    /**
+     * Setter of verifyMaxDiffs
+     *
+     * @param verifyMaxDiffs the verifyMaxDiffs to set
+     */
+    public void setVerifyMaxDiffs(int verifyMaxDiffs) {
+
+        this.verifyMaxDiffs = verifyMaxDiffs;
+    }
+
+    /**
+     * Getter of resume
+     *
+     * @return the resume
+     */
+    public boolean isResume() {
+
+        return resume;
+    }
+
+    /**
+     * Setter of resume
+     *
+     * @param resume the resume to set
+     */
+    public void setResume(boolean resume) {
+
+        this.resume = resume;
+    }
+
+    /**
+     * Setter of tables
+     *
+     * @param tables names of the target tables to migrate
+     */
+    public void setTables(String... tables) {
+
+        this.tables.clear();
+        for (String table : Arrays.asList(tables)) {
+            this.tables.add(table.toUpperCase(Locale.ENGLISH));
+        }
+    }
+}
@@ -0,0 +1,1026 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Copies the DAS analytics source tables into the IS_ANALYTICS tables, replacing the migISAnalyticsSpark script.
+ * Progress is checkpointed per table, so a re-run skips the finished tables & continues a stopped table from
+ * its last committed watermark. Rows at the watermark & rows without one are read again & overwrite their
+ * earlier copy. A delta run continues the finished tables too, so it copies only the rows added to the source
+ * since the last run, except for the aggregated tables which have no watermark & are computed again from
+ * their whole source table.
+ * With an export directory the source tables are read from the files of an export run instead of the source
+ * database.
+ */
+class MigrationEngine {
+
+    /**
+     * Initialize Logger object to log messages
+     */
+    private static final Logger LOG = Logger.getLogger(MigrationEngine.class);
+
+    /**
+     * Number of watermark ranges a table read in parallel is split into per worker.
+     */
+    private static final int PARTITIONS_PER_WORKER = 4;
+
+    /**
+     * Variable which stores the factory of source database connections.
+     */
+    private final ConnectionFactory source;
+    /**
+     * Variable which stores the factory of target database connections.
+     */
+    private final ConnectionFactory target;
+    /**
+     * Variable which stores the migration settings.
+     */
+    private final MigrationConfig config;
+    /**
+     * Variable which stores the native bulk loader of the target database, null to use batch inserts only.
+     */
+    private final BulkLoader loader;
+    /**
+     * Variable which stores the upsert statement of the target database, null to replay failed batches row by row.
+     */
+    private final UpsertDialect dialect;
+    /**
+     * Variable which stores the checkpoints of the migrated tables.
+     */
+    private final CheckpointStore checkpoints;
+    /**
+     * Variable which stores the dictionary of each low cardinality column, shared by the tables which have it.
+     */
+    private final Map<String, ColumnDictionary> dictionaries = new ConcurrentHashMap<>();
+    /**
+     * Variable which stores the directory of the exported source tables, null to read the source database.
+     */
+    private final File exportDirectory;
+    /**
+     * Variable which stores the metrics of the tables & workers.
+     */
+    private final MigrationMetrics metrics;
+    /**
+     * Variable which stores the progress of the run against the estimated source rows.
+     */
+    private final ProgressTracker tracker;
+
+    /**
+     * Constructor which initiate the variables source,target,config,loader,dialect,checkpoints,metrics,tracker.
+     *
+     * @param source      factory of source database connections.
+     * @param target      factory of target database connections.
+     * @param config      migration settings.
+     * @param loader      native bulk loader of the target database, null to use batch inserts only.
+     * @param dialect     upsert statement of the target database, null to replay failed batches row by row.
+     * @param checkpoints checkpoints of the migrated tables.
+     * @param metrics     metrics of the tables & workers.
+     * @param tracker     progress of the run against the estimated source rows.
+     */
+    MigrationEngine(ConnectionFactory source, ConnectionFactory target, MigrationConfig config, BulkLoader loader,
+                    UpsertDialect dialect, CheckpointStore checkpoints, MigrationMetrics metrics,
+                    ProgressTracker tracker) {
+
+        this.source = source;
+        this.target = target;
+        this.config = config;
+        this.loader = loader;
+        this.dialect = dialect;
+        this.checkpoints = checkpoints;
+        this.exportDirectory = config.getExportDirectory() == null ? null : new File(config.getExportDirectory());
+        this.metrics = metrics;
+        this.tracker = tracker;
+    }
+
+    /**
+     * Run the selected migrations one after the other. A failed table is logged and the next table is migrated.
+     *
+     * @param migrations table migrations to run.
+     * @return true if every selected table was migrated.
+     */
+    boolean run(List<TableMigration> migrations) {
+
+        boolean success = true;
+        File spillDirectory = config.getSpillDirectory() == null ? null : new File(config.getSpillDirectory());
+        for (TableMigration migration : migrations) {
+            if (migration instanceof RollupMigration) {
+                for (AggregationMigration level : ((RollupMigration) migration).getLevels()) {
+                    if (config.isSelected(level.getTargetTable())) {
+                        tracker.add(level.getTargetTable(), migration.getSourceTable(), migration.getTargetTable());
+                    }
+                }
+            } else if (config.isSelected(migration.getTargetTable())) {
+                tracker.add(migration.getTargetTable(), migration.getSourceTable(), migration.getTargetTable());
+            }
+        }
+        for (TableMigration migration : migrations) {
+            migration.setMemoryBudget(config.getAggregationMemory() * 1024L * 1024L, spillDirectory);
+            if (migration instanceof RollupMigration) {
+                success &= rollup((RollupMigration) migration);
+                continue;
+            }
+            if (!config.isSelected(migration.getTargetTable())) {
+                continue;
+            }
+            try {
+                if (!config.isResume()) {
+                    checkpoints.clear(migration.getTargetTable());
+                }
+                CheckpointStore.Checkpoint checkpoint = checkpoints.load(migration.getTargetTable());
+                if (checkpoint != null && checkpoint.isDone() && !config.isDelta()) {
+                    LOG.info(String.format("Skipping %s, migrated by a previous run", migration.getTargetTable()));
+                    tracker.skip(migration.getTargetTable());
+                    continue;
+                }
+                long rows = migrate(migration, checkpoint);
+                tracker.finish(migration.getTargetTable(), true);
+                LOG.info(String.format("Migrated %d rows from %s into %s", rows, migration.getSourceTable(),
+                        migration.getTargetTable()));
+            } catch (SQLException e) {
+                success = false;
+                tracker.finish(migration.getTargetTable(), false);
+                LOG.error(String.format("Error occurred while migrating %s into %s, %s", migration.getSourceTable(),
+                        migration.getTargetTable(), e));
+            }
+        }
+        return success;
+    }
+
+    /**
+     * Stream a source table through a migration into its target table. Migrations with a watermark column read
+     * the source in watermark order, resuming from the watermark of the checkpoint if there is one. Migrations
+     * without one read the whole source table again.
+     *
+     * @param migration  table migration to run.
+     * @param checkpoint checkpoint left by a previous run, null to start from the beginning.
+     * @return number of rows written to the target table by this run.
+     * @throws SQLException if the source could not be read or the target could not be written.
+     */
+    long migrate(TableMigration migration, CheckpointStore.Checkpoint checkpoint) throws SQLException {
+
+        String column = migration.getWatermarkColumn();
+        Long watermark = checkpoint != null && column != null ? checkpoint.getWatermark() : null;
+        long rowsBefore = watermark != null ? checkpoint.getRowsWritten() : 0;
+        Long from = watermark;
+        if (watermark != null && checkpoint.isDone()) {
+            from = watermark - config.getDeltaOverlap();
+            LOG.info(String.format("Copying rows of %s from %s %d", migration.getTargetTable(), column, from));
+        } else if (watermark != null) {
+            LOG.info(String.format("Resuming %s from %s %d", migration.getTargetTable(), column, from));
+        } else if (checkpoint != null && checkpoint.isDone()) {
+            LOG.warn(String.format("Recomputing %s from the whole source table %s, it has no _timestamp high-water "
+                    + "mark so the delta takes as long as its full migration", migration.getTargetTable(),
+                    migration.getSourceTable()));
+        } else if (checkpoint != null) {
+            LOG.info(String.format("Restarting %s, it has no watermark to resume from", migration.getTargetTable()));
+        }
+        if (checkpoint == null) {
+            checkpoints.start(migration.getTargetTable());
+        }
+        tracker.start(migration.getTargetTable(), column, from);
+        if (readsInRanges(config, migration)) {
+            long[] bounds = partitionBounds(migration, column, from);
+            if (bounds != null) {
+                return migrateParallel(migration, column, watermark, rowsBefore, bounds);
+            }
+        }
+        // Rows without a watermark are below every high-water mark, so they are read again on a resume or delta.
+        try (SourceRows rows = openRows(migration, column, from, null, true);
+             Connection targetConnection = target.getConnection();
+             TableWriter writer = new TableWriter(targetConnection, migration, config.getBatchSize(), loader)) {
+            writer.setUpsert(dialect, config.isUpsert());
+            Progress progress = new Progress(targetConnection, migration.getTargetTable(), rowsBefore);
+            progress.watermark = from;
+            writer.setCommitListener(progress);
+            stream(rows, migration, column, true, writer, progress);
+            writer.flush();
+            // A delta run which only read rows of the overlap keeps the high-water mark it started with.
+            Long highWaterMark = watermark != null && (progress.watermark == null
+                    || progress.watermark < watermark) ? watermark : progress.watermark;
+            checkpoints.save(targetConnection, migration.getTargetTable(), CheckpointStore.DONE,
+                    highWaterMark, rowsBefore + writer.getRowsWritten());
+            targetConnection.commit();
+            return writer.getRowsWritten();
+        }
+    }
+
+    /**
+     * Split the watermark range of a source table into partitions of equal width, several per worker so a
+     * worker which finishes a sparse range early takes the next one.
+     *
+     * @param migration table migration to run.
+     * @param column    watermark column.
+     * @param from      lowest watermark to read, null to read the whole table.
+     * @return the bounds of each partition, partition i covering bounds[i] up to bounds[i + 1] exclusive, or
+     * null if the table has too few distinct watermarks to split.
+     * @throws SQLException if the range could not be read.
+     */
+    private long[] partitionBounds(TableMigration migration, String column, Long from) throws SQLException {
+
+        long min;
+        long max;
+        if (exportDirectory != null) {
+            // The chunk directory of the export file holds the range, so the file is not read.
+            try (ExportFile file = exportFile(migration, column)) {
+                long[] range = file.getRange(from);
+                if (range == null) {
+                    return null;
+                }
+                min = range[0];
+                max = range[1];
+            }
+        } else {
+            String sql = "SELECT MIN(" + column + "), MAX(" + column + ") FROM " + migration.getSourceTable()
+                    + (from != null ? " WHERE " + column + " >= ?" : "");
+            try (Connection sourceConnection = source.getConnection();
+                 PreparedStatement statement = sourceConnection.prepareStatement(sql)) {
+                if (from != null) {
+                    statement.setLong(1, from);
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (!resultSet.next() || resultSet.getObject(1) == null) {
+                        return null;
+                    }
+                    min = resultSet.getLong(1);
+                    max = resultSet.getLong(2);
+                }
+            }
+        }
+        return partitionBounds(min, max, config.getParallelism());
+    }
+
+    /**
+     * Whether a table is read in watermark ranges by several workers. A table whose target keeps the last row
+     * written per key is read by one worker in watermark order, since the ranges commit in any order.
+     *
+     * @param config    migration settings.
+     * @param migration table migration.
+     * @return true if the source table is split into ranges.
+     */
+    static boolean readsInRanges(MigrationConfig config, TableMigration migration) {
+
+        return migration.getWatermarkColumn() != null && config.getParallelism() > 1 && migration.isPartitionable()
+                && !migration.hasCrossRangeKeys();
+    }
+
+    /**
+     * Split a watermark range into partitions of equal width, several per worker.
+     *
+     * @param min         lowest watermark.
+     * @param max         highest watermark.
+     * @param parallelism number of workers.
+     * @return the bounds of each partition, partition i covering bounds[i] up to bounds[i + 1] exclusive, or
+     * null if the range is too narrow to split.
+     */
+    static long[] partitionBounds(long min, long max, int parallelism) {
+
+        long partitions = Math.min((long) parallelism * PARTITIONS_PER_WORKER, max - min + 1);
+        if (partitions < 2) {
+            return null;
+        }
+        long width = (max - min) / partitions + 1;
+        partitions = (max - min) / width + 1;
+        long[] bounds = new long[(int) partitions + 1];
+        for (int i = 0; i < partitions; i++) {
+            bounds[i] = min + i * width;
+        }
+        bounds[(int) partitions] = max + 1;
+        return bounds;
+    }
+
+    /**
+     * Stream the partitions of a source table through a migration on parallel workers, each reading its
+     * watermark range on its own source connection & writing into the target table on its own target
+     * connection. The rows without a watermark are read with the first partition.
+     *
+     * @param migration  table migration to run, called from every worker.
+     * @param column     watermark column.
+     * @param watermark  high-water mark of a previous run, null if there is none.
+     * @param rowsBefore number of rows written by previous runs.
+     * @param bounds     bounds of the partitions.
+     * @return number of rows written to the target table by this run.
+     * @throws SQLException if a partition could not be read or written.
+     */
+    private long migrateParallel(TableMigration migration, String column, Long watermark, long rowsBefore,
+                                 long[] bounds) throws SQLException {
+
+        int partitions = bounds.length - 1;
+        int workers = Math.min(config.getParallelism(), partitions);
+        LOG.info(String.format("Reading %s in %d %s ranges over %d connections", migration.getSourceTable(),
+                partitions, column, workers));
+        Frontier frontier = new Frontier(migration.getTargetTable(), bounds, rowsBefore);
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(workers,
+                runnable -> new Thread(runnable, "worker-" + threads.incrementAndGet()));
+        long rows = 0;
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int i = 0; i < partitions; i++) {
+                final int partition = i;
+                results.add(pool.submit(() -> migratePartition(migration, column, partition == 0,
+                        frontier, partition)));
+            }
+            SQLException failure = null;
+            for (Future<Long> result : results) {
+                try {
+                    rows += result.get();
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof SQLException ? (SQLException) e.getCause()
+                                : new SQLException(e.getCause());
+                        pool.shutdownNow();
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException(String.format("Interrupted while migrating %s", migration.getTargetTable()), e);
+        } finally {
+            pool.shutdownNow();
+        }
+        Long highWaterMark = frontier.getHighest();
+        if (watermark != null && (highWaterMark == null || highWaterMark < watermark)) {
+            highWaterMark = watermark;
+        }
+        try (Connection targetConnection = target.getConnection()) {
+            targetConnection.setAutoCommit(false);
+            checkpoints.save(targetConnection, migration.getTargetTable(), CheckpointStore.DONE, highWaterMark,
+                    rowsBefore + rows);
+            targetConnection.commit();
+        }
+        return rows;
+    }
+
+    /**
+     * Stream one watermark range of a source table through a migration into its target table.
+     *
+     * @param migration table migration to run.
+     * @param column    watermark column.
+     * @param withNulls whether rows without a watermark are read too.
+     * @param frontier  progress of the partitions of the table.
+     * @param partition index of the partition.
+     * @return number of rows written to the target table.
+     * @throws SQLException if the source could not be read or the target could not be written.
+     */
+    private long migratePartition(TableMigration migration, String column, boolean withNulls, Frontier frontier,
+                                  int partition) throws SQLException {
+
+        try (SourceRows rows = openRows(migration, column, frontier.getStart(partition), frontier.getEnd(partition),
+                withNulls);
+             Connection targetConnection = target.getConnection();
+             TableWriter writer = new TableWriter(targetConnection, migration, config.getBatchSize(), loader)) {
+            writer.setUpsert(dialect, config.isUpsert());
+            PartitionProgress progress = new PartitionProgress(targetConnection, frontier, partition);
+            writer.setCommitListener(progress);
+            stream(rows, migration, column, false, writer, progress);
+            writer.flush();
+            frontier.finish(partition, progress.watermark);
+            return writer.getRowsWritten();
+        }
+    }
+
+    /**
+     * Build the selected granularities of a rollup from one scan of its source table, then write each of them
+     * to its target table.
+     *
+     * @param rollup rollup to run.
+     * @return true if every selected target table was migrated.
+     */
+    private boolean rollup(RollupMigration rollup) {
+
+        AggregationMigration[] levels = rollup.getLevels();
+        boolean[] active = new boolean[levels.length];
+        boolean any = false;
+        for (int i = 0; i < levels.length; i++) {
+            String table = levels[i].getTargetTable();
+            active[i] = config.isSelected(table);
+            try {
+                if (active[i] && !config.isResume()) {
+                    checkpoints.clear(table);
+                }
+                CheckpointStore.Checkpoint checkpoint = active[i] ? checkpoints.load(table) : null;
+                if (checkpoint != null && checkpoint.isDone() && !config.isDelta()) {
+                    LOG.info(String.format("Skipping %s, migrated by a previous run", table));
+                    tracker.skip(table);
+                    active[i] = false;
+                } else if (active[i] && checkpoint == null) {
+                    checkpoints.start(table);
+                }
+            } catch (SQLException e) {
+                LOG.error(String.format("Error occurred while reading or creating the checkpoint of %s, %s", table, e));
+                return false;
+            }
+            rollup.setActive(i, active[i]);
+            any |= active[i];
+        }
+        if (!any) {
+            return true;
+        }
+        if (config.isDelta()) {
+            LOG.warn(String.format("Recomputing %s from the whole source table %s, it has no _timestamp high-water "
+                    + "mark so the delta takes as long as its full migration", rollup.getTargetTable(),
+                    rollup.getSourceTable()));
+        }
+        for (int i = 0; i < levels.length; i++) {
+            if (active[i]) {
+                tracker.start(levels[i].getTargetTable(), null, null);
+            }
+        }
+        try (SourceRows rows = openRows(rollup, null, null, null, true)) {
+            stream(rows, rollup, null, false, null, null);
+        } catch (SQLException e) {
+            LOG.error(String.format("Error occurred while migrating %s into %s, %s", rollup.getSourceTable(),
+                    rollup.getTargetTable(), e));
+            for (int i = 0; i < levels.length; i++) {
+                if (active[i]) {
+                    tracker.finish(levels[i].getTargetTable(), false);
+                }
+            }
+            return false;
+        }
+        boolean success = true;
+        for (int i = 0; i < levels.length; i++) {
+            if (!active[i]) {
+                continue;
+            }
+            try (Connection targetConnection = target.getConnection();
+                 TableWriter writer = new TableWriter(targetConnection, levels[i], config.getBatchSize(), loader)) {
+                writer.setUpsert(dialect, config.isUpsert());
+                writer.setMetrics(metrics.table(levels[i].getTargetTable()),
+                        metrics.worker(Thread.currentThread().getName()));
+                rollup.finish(i, writer);
+                writer.flush();
+                checkpoints.save(targetConnection, levels[i].getTargetTable(), CheckpointStore.DONE, null,
+                        writer.getRowsWritten());
+                targetConnection.commit();
+                tracker.finish(levels[i].getTargetTable(), true);
+                LOG.info(String.format("Migrated %d rows from %s into %s", writer.getRowsWritten(),
+                        rollup.getSourceTable(), levels[i].getTargetTable()));
+            } catch (SQLException e) {
+                success = false;
+                tracker.finish(levels[i].getTargetTable(), false);
+                LOG.error(String.format("Error occurred while migrating %s into %s, %s", rollup.getSourceTable(),
+                        levels[i].getTargetTable(), e));
+            }
+        }
+        return success;
+    }
+
+    /**
+     * Run the rows of a source table through a migration into a writer, on a pipeline of a reader, a transform
+     * & a writer stage unless pipelineDepth is 0. The rows are counted in the metrics of the target table & of
+     * the worker running the migration.
+     *
+     * @param rows      rows of the source table.
+     * @param migration table migration to run.
+     * @param column    watermark column, null if there is none.
+     * @param finish    whether the migration is finished after the last row.
+     * @param writer    writer of the target rows, null if the migration writes none while reading.
+     * @param progress  receives the watermark of each written row, null if there is none.
+     * @throws SQLException if the source could not be read or the target could not be written.
+     */
+    private void stream(SourceRows rows, TableMigration migration, String column, boolean finish,
+                        TableWriter writer, WatermarkListener progress) throws SQLException {
+
+        ColumnDictionary[] encoders = dictionaries(migration);
+        TableMetrics table = metrics.table(migration.getTargetTable());
+        TableMetrics worker = metrics.worker(Thread.currentThread().getName());
+        if (writer != null) {
+            writer.setMetrics(table, worker);
+        }
+        Pipeline pipeline = new Pipeline(migration.getTargetTable(), config.getPipelineDepth(),
+                config.getFetchSize(), table, worker);
+        pipeline.run(row -> {
+            if (!rows.next(row)) {
+                return false;
+            }
+            encode(encoders, row);
+            long bytes = TableMetrics.estimate(row);
+            table.rowRead(bytes);
+            worker.rowRead(bytes);
+            return true;
+        }, encoders.length, index(migration.getSourceColumns(), column), migration, finish, (row, watermark) -> {
+            if (progress != null && watermark != null) {
+                progress.watermark = watermark;
+            }
+            writer.accept(row);
+        });
+    }
+
+    /**
+     * Replace the values of low cardinality columns of a source row with their dictionary instance.
+     *
+     * @param encoders dictionary of each source column, null for a column which is not encoded.
+     * @param row      values of the source columns.
+     */
+    private static void encode(ColumnDictionary[] encoders, Object[] row) {
+
+        for (int i = 0; i < encoders.length; i++) {
+            if (encoders[i] != null) {
+                row[i] = encoders[i].encode(row[i]);
+            }
+        }
+    }
+
+    /**
+     * Open the rows of a source table, from its export file if there is an export directory, in the order of
+     * the watermark column. Rows without a watermark are read only when withNulls is set or no bound is given.
+     *
+     * @param migration table migration to run.
+     * @param column    watermark column, null to read the rows in any order.
+     * @param from      lowest watermark, inclusive, null for no lower bound.
+     * @param to        watermark above the range, exclusive, null for no upper bound. Requires from.
+     * @param withNulls whether rows without a watermark are read with a lower bound or a range.
+     * @return the rows, which have to be closed.
+     * @throws SQLException if the source could not be read.
+     */
+    private SourceRows openRows(TableMigration migration, String column, Long from, Long to, boolean withNulls)
+            throws SQLException {
+
+        SourceRows rows = new SourceRows();
+        try {
+            if (exportDirectory != null) {
+                rows.file = exportFile(migration, column);
+                rows.reader = rows.file.rows(migration.getSourceColumns(), from, to, withNulls);
+                return rows;
+            }
+            StringBuilder sql = new StringBuilder("SELECT * FROM ").append(migration.getSourceTable());
+            if (to != null) {
+                sql.append(" WHERE (").append(column).append(" >= ? AND ").append(column).append(" < ?)")
+                        .append(withNulls ? " OR " + column + " IS NULL" : "");
+            } else if (from != null) {
+                sql.append(" WHERE ").append(column).append(" >= ?")
+                        .append(withNulls ? " OR " + column + " IS NULL" : "");
+            }
+            if (column != null) {
+                sql.append(" ORDER BY ").append(column);
+            }
+            rows.connection = source.getConnection();
+            // Drivers such as Postgresql only stream the result set outside auto commit mode.
+            rows.connection.setAutoCommit(false);
+            rows.statement = rows.connection.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            rows.statement.setFetchSize(config.getFetchSize());
+            if (from != null) {
+                rows.statement.setLong(1, from);
+            }
+            if (to != null) {
+                rows.statement.setLong(2, to);
+            }
+            rows.resultSet = rows.statement.executeQuery();
+            rows.positions = positions(rows.resultSet.getMetaData(), migration);
+            return rows;
+        } catch (SQLException e) {
+            try {
+                rows.close();
+            } catch (SQLException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Open the export file of the source table of a migration.
+     *
+     * @param migration table migration to run.
+     * @param column    watermark column the rows have to be ordered by, null if there is none.
+     * @return the export file.
+     * @throws SQLException if the table was not exported or its file could not be read.
+     */
+    private ExportFile exportFile(TableMigration migration, String column) throws SQLException {
+
+        File path = ExportFile.of(exportDirectory, migration.getSourceTable());
+        if (!path.isFile()) {
+            throw new SQLException(String.format("%s has not been exported into %s, run the export first",
+                    migration.getSourceTable(), path));
+        }
+        ExportFile file = new ExportFile(path);
+        if (column != null && !column.equalsIgnoreCase(file.getWatermarkColumn())) {
+            file.close();
+            throw new SQLException(String.format("%s is not ordered by %s, export the table again", path,
+                    column));
+        }
+        return file;
+    }
+
+    /**
+     * Find the dictionary of each source column of a migration.
+     *
+     * @param migration table migration to run.
+     * @return dictionary of each source column, null for a column which is not encoded.
+     */
+    private ColumnDictionary[] dictionaries(TableMigration migration) {
+
+        String[] columns = migration.getSourceColumns();
+        ColumnDictionary[] encoders = new ColumnDictionary[columns.length];
+        if (config.getDictionarySize() <= 0) {
+            return encoders;
+        }
+        for (int i = 0; i < columns.length; i++) {
+            if (ColumnDictionary.isLowCardinality(columns[i])) {
+                encoders[i] = dictionaries.computeIfAbsent(columns[i].toUpperCase(Locale.ENGLISH),
+                        column -> new ColumnDictionary(config.getDictionarySize()));
+            }
+        }
+        return encoders;
+    }
+
+    /**
+     * Find a column in a list of column names.
+     *
+     * @param columns column names.
+     * @param column  column to find, may be null.
+     * @return index of the column, -1 if it is not in the list.
+     */
+    private static int index(String[] columns, String column) {
+
+        for (int i = 0; column != null && i < columns.length; i++) {
+            if (columns[i].equals(column)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Find the result set position of each source column. Column names are matched ignoring case, since the
+     * analytics tables may have been created with upper case names.
+     *
+     * @param metaData  metadata of the source result set.
+     * @param migration table migration to run.
+     * @return 1-based position of each source column, 0 for a column which does not exist.
+     * @throws SQLException if the metadata could not be read.
+     */
+    static int[] positions(ResultSetMetaData metaData, TableMigration migration) throws SQLException {
+
+        Map<String, Integer> byName = new HashMap<>();
+        for (int i = metaData.getColumnCount(); i > 0; i--) {
+            byName.put(metaData.getColumnLabel(i).toUpperCase(Locale.ENGLISH), i);
+        }
+        String[] columns = migration.getSourceColumns();
+        int[] positions = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            Integer position = byName.get(columns[i].toUpperCase(Locale.ENGLISH));
+            if (position == null) {
+                LOG.warn(String.format("Column %s not found in %s, migrating it as null", columns[i],
+                        migration.getSourceTable()));
+                positions[i] = 0;
+            } else {
+                positions[i] = position;
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Rows of a source table, read from a result set of the source database or from an export file.
+     */
+    private static final class SourceRows implements Pipeline.RowReader, AutoCloseable {
+
+        /**
+         * Variable which stores the source connection, null for an export file.
+         */
+        private Connection connection;
+        /**
+         * Variable which stores the query of the rows.
+         */
+        private PreparedStatement statement;
+        /**
+         * Variable which stores the result set of the rows.
+         */
+        private ResultSet resultSet;
+        /**
+         * Variable which stores the 1-based result set position of each source column, 0 for a missing column.
+         */
+        private int[] positions;
+        /**
+         * Variable which stores the export file, null for the source database.
+         */
+        private ExportFile file;
+        /**
+         * Variable which stores the reader of the rows of the export file.
+         */
+        private Pipeline.RowReader reader;
+
+        @Override
+        public boolean next(Object[] row) throws SQLException {
+
+            if (reader != null) {
+                return reader.next(row);
+            }
+            if (!resultSet.next()) {
+                return false;
+            }
+            for (int i = 0; i < positions.length; i++) {
+                row[i] = positions[i] == 0 ? null : resultSet.getObject(positions[i]);
+            }
+            return true;
+        }
+
+        @Override
+        public void close() throws SQLException {
+
+            if (file != null) {
+                file.close();
+            }
+            if (connection == null) {
+                return;
+            }
+            try {
+                if (statement != null) {
+                    statement.close();
+                }
+                connection.rollback();
+            } finally {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Records the checkpoint of a table before each commit, from the watermark of the source row whose target
+     * row is being written.
+     */
+    private abstract static class WatermarkListener implements TableWriter.CommitListener {
+
+        /**
+         * Variable which stores the watermark of the source row being written, null if there is none.
+         */
+        Long watermark;
+    }
+
+    /**
+     * Progress of the partitions of a table read in parallel. The checkpoint of the table records the lowest
+     * watermark below which every partition has committed its rows, so a stopped run resumes from there & a
+     * partition which was ahead reads some of its rows again. A partition counts its previous commit as done
+     * only when it commits again, since until then the commit may still fail.
+     */
+    private static class Frontier {
+
+        /**
+         * Variable which stores the name of the target table.
+         */
+        private final String table;
+        /**
+         * Variable which stores the bounds of the partitions.
+         */
+        private final long[] bounds;
+        /**
+         * Variable which stores, per partition, the watermark below which its rows are committed.
+         */
+        private final long[] committed;
+        /**
+         * Variable which stores, per partition, the watermark of its commit in progress, null if there is none.
+         */
+        private final Long[] pending;
+        /**
+         * Variable which stores, per partition, the number of rows it has written.
+         */
+        private final long[] rows;
+        /**
+         * Variable which stores, per partition, whether all its rows are committed.
+         */
+        private final boolean[] finished;
+        /**
+         * Variable which stores the number of rows written by previous runs.
+         */
+        private final long rowsBefore;
+        /**
+         * Variable which stores the highest watermark read, null if no row had one.
+         */
+        private Long highest;
+
+        /**
+         * Constructor which initiate the variables table,bounds,rowsBefore.
+         *
+         * @param table      name of the target table.
+         * @param bounds     bounds of the partitions.
+         * @param rowsBefore number of rows written by previous runs.
+         */
+        Frontier(String table, long[] bounds, long rowsBefore) {
+
+            this.table = table;
+            this.bounds = bounds;
+            this.committed = Arrays.copyOf(bounds, bounds.length - 1);
+            this.pending = new Long[committed.length];
+            this.rows = new long[committed.length];
+            this.finished = new boolean[committed.length];
+            this.rowsBefore = rowsBefore;
+        }
+
+        /**
+         * Record a commit of a partition in progress.
+         *
+         * @param partition   index of the partition.
+         * @param watermark   watermark below which the rows of the partition are being committed.
+         * @param rowsWritten number of rows the partition has written.
+         * @return watermark below which every partition will have committed its rows.
+         */
+        synchronized long commit(int partition, long watermark, long rowsWritten) {
+
+            if (pending[partition] != null) {
+                committed[partition] = pending[partition];
+            }
+            pending[partition] = watermark;
+            rows[partition] = rowsWritten;
+            long frontier = watermark;
+            for (int i = 0; i < committed.length; i++) {
+                if (i != partition && !finished[i]) {
+                    frontier = Math.min(frontier, committed[i]);
+                }
+            }
+            return frontier;
+        }
+
+        /**
+         * Record that every row of a partition is committed.
+         *
+         * @param partition index of the partition.
+         * @param watermark highest watermark of the partition, null if it had no row with one.
+         */
+        synchronized void finish(int partition, Long watermark) {
+
+            finished[partition] = true;
+            if (watermark != null && (highest == null || watermark > highest)) {
+                highest = watermark;
+            }
+        }
+
+        /**
+         * Number of rows written by this & previous runs.
+         *
+         * @return the number of rows.
+         */
+        synchronized long getRowsWritten() {
+
+            long total = rowsBefore;
+            for (long count : rows) {
+                total += count;
+            }
+            return total;
+        }
+
+        /**
+         * Lowest watermark of a partition.
+         *
+         * @param partition index of the partition.
+         * @return the inclusive lower bound.
+         */
+        long getStart(int partition) {
+
+            return bounds[partition];
+        }
+
+        /**
+         * Watermark above the partition.
+         *
+         * @param partition index of the partition.
+         * @return the exclusive upper bound.
+         */
+        long getEnd(int partition) {
+
+            return bounds[partition + 1];
+        }
+
+        /**
+         * Getter of highest
+         *
+         * @return the highest
+         */
+        synchronized Long getHighest() {
+
+            return highest;
+        }
+
+        /**
+         * Getter of table
+         *
+         * @return the table
+         */
+        String getTable() {
+
+            return table;
+        }
+    }
+
+    /**
+     * Records the checkpoint of a table read in parallel together with each committed batch of one of its
+     * partitions.
+     */
+    private class PartitionProgress extends WatermarkListener {
+
+        /**
+         * Variable which stores the connection the rows of the partition are written with.
+         */
+        private final Connection connection;
+        /**
+         * Variable which stores the progress of the partitions of the table.
+         */
+        private final Frontier frontier;
+        /**
+         * Variable which stores the index of the partition.
+         */
+        private final int partition;
+
+        /**
+         * Constructor which initiate the variables connection,frontier,partition.
+         *
+         * @param connection connection the rows of the partition are written with.
+         * @param frontier   progress of the partitions of the table.
+         * @param partition  index of the partition.
+         */
+        PartitionProgress(Connection connection, Frontier frontier, int partition) {
+
+            this.connection = connection;
+            this.frontier = frontier;
+            this.partition = partition;
+        }
+
+        @Override
+        public void beforeCommit(long rowsWritten) throws SQLException {
+
+            long current = watermark != null ? watermark : frontier.getStart(partition);
+            long safe = frontier.commit(partition, current, rowsWritten);
+            checkpoints.save(connection, frontier.getTable(), CheckpointStore.RUNNING, safe,
+                    frontier.getRowsWritten());
+        }
+    }
+
+    /**
+     * Records the checkpoint of a table together with each committed batch of its rows. Since the source is
+     * read in watermark order & a batch is written while its last row is processed, every source row below
+     * the watermark of the current row is committed.
+     */
+    private class Progress extends WatermarkListener {
+
+        /**
+         * Variable which stores the connection the rows are written with.
+         */
+        private final Connection connection;
+        /**
+         * Variable which stores the name of the target table.
+         */
+        private final String table;
+        /**
+         * Variable which stores the number of rows written by previous runs.
+         */
+        private final long rowsBefore;
+
+        /**
+         * Constructor which initiate the variables connection,table,rowsBefore.
+         *
+         * @param connection connection the rows are written with.
+         * @param table      name of the target table.
+         * @param rowsBefore number of rows written by previous runs.
+         */
+        Progress(Connection connection, String table, long rowsBefore) {
+
+            this.connection = connection;
+            this.table = table;
+            this.rowsBefore = rowsBefore;
+        }
+
+        @Override
+        public void beforeCommit(long rowsWritten) throws SQLException {
+
+            checkpoints.save(connection, table, CheckpointStore.RUNNING, watermark, rowsBefore + rowsWritten);
+        }
+    }
+}
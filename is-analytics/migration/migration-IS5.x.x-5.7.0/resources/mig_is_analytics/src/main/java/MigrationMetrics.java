@@ -0,0 +1,189 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.apache.log4j.Logger;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * Metrics of a migration run, per target table & per worker. Each is registered as an MBean of the platform
+ * MBean server, so a live migration can be watched with jconsole or any JMX client, & summarized in the log
+ * every metricsInterval seconds. Comparing the time the tables spend in the source, transform & target
+ * stages shows which of them holds the migration back.
+ */
+class MigrationMetrics implements AutoCloseable {
+
+    /**
+     * Initialize Logger object to log messages
+     */
+    private static final Logger LOG = Logger.getLogger(MigrationMetrics.class);
+
+    /**
+     * JMX domain of the MBeans.
+     */
+    private static final String DOMAIN = "org.wso2.migisanalytics";
+
+    /**
+     * Variable which stores the metrics of each target table.
+     */
+    private final Map<String, TableMetrics> tables = new ConcurrentHashMap<>();
+    /**
+     * Variable which stores the metrics of each worker.
+     */
+    private final Map<String, TableMetrics> workers = new ConcurrentHashMap<>();
+    /**
+     * Variable which stores the thread which logs the summaries, null if they are not logged.
+     */
+    private final ScheduledExecutorService summaries;
+
+    /**
+     * Constructor which initiate the variables summaries.
+     *
+     * @param interval seconds between two summaries in the log, 0 to log only the final summary.
+     */
+    MigrationMetrics(int interval) {
+
+        if (interval > 0) {
+            summaries = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "migration-metrics");
+                thread.setDaemon(true);
+                return thread;
+            });
+            summaries.scheduleAtFixedRate(this::logSummary, interval, interval, TimeUnit.SECONDS);
+        } else {
+            summaries = null;
+        }
+    }
+
+    /**
+     * Metrics of a target table, registered on first use.
+     *
+     * @param table name of the target table.
+     * @return the metrics.
+     */
+    TableMetrics table(String table) {
+
+        return tables.computeIfAbsent(table, name -> register("Table", name));
+    }
+
+    /**
+     * Metrics of a worker, registered on first use.
+     *
+     * @param worker name of the worker.
+     * @return the metrics.
+     */
+    TableMetrics worker(String worker) {
+
+        return workers.computeIfAbsent(worker, name -> register("Worker", name));
+    }
+
+    /**
+     * Log the final summary of every table & unregister the MBeans.
+     */
+    @Override
+    public void close() {
+
+        if (summaries != null) {
+            summaries.shutdownNow();
+        }
+        logSummary();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (Map.Entry<String, TableMetrics> entry : tables.entrySet()) {
+            unregister(server, "Table", entry.getKey());
+        }
+        for (Map.Entry<String, TableMetrics> entry : workers.entrySet()) {
+            unregister(server, "Worker", entry.getKey());
+        }
+    }
+
+    /**
+     * Log a line for every table which read or wrote rows since the previous summary.
+     */
+    private synchronized void logSummary() {
+
+        for (TableMetrics metrics : tables.values()) {
+            String summary = metrics.summary();
+            if (summary != null) {
+                LOG.info(summary);
+            }
+        }
+    }
+
+    /**
+     * Create metrics & register them as an MBean. Metrics which could not be registered are still logged.
+     *
+     * @param type type of the MBean, Table or Worker.
+     * @param name name of the table or the worker.
+     * @return the metrics.
+     */
+    private static TableMetrics register(String type, String name) {
+
+        TableMetrics metrics = new TableMetrics(name);
+        try {
+            ObjectName objectName = objectName(type, name);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(new StandardMBean(metrics, TableMetricsMBean.class), objectName);
+        } catch (JMException e) {
+            LOG.warn(String.format("Could not register the metrics of %s as an MBean, %s", name, e));
+        }
+        return metrics;
+    }
+
+    /**
+     * Unregister an MBean if it is registered.
+     *
+     * @param server MBean server.
+     * @param type   type of the MBean, Table or Worker.
+     * @param name   name of the table or the worker.
+     */
+    private static void unregister(MBeanServer server, String type, String name) {
+
+        try {
+            ObjectName objectName = objectName(type, name);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            LOG.debug(e);
+        }
+    }
+
+    /**
+     * Name of an MBean. Names such as AuthStatAgg_* of a rollup are quoted.
+     *
+     * @param type type of the MBean, Table or Worker.
+     * @param name name of the table or the worker.
+     * @return the object name.
+     * @throws JMException if the name is not a valid object name.
+     */
+    private static ObjectName objectName(String type, String name) throws JMException {
+
+        return new ObjectName(DOMAIN + ":type=" + type + ",name=" + (name.matches("[\\w.-]+") ? name
+                : ObjectName.quote(name)));
+    }
+}
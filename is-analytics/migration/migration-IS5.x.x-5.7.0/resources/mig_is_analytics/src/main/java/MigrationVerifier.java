@@ -0,0 +1,941 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks that the IS_ANALYTICS tables hold the rows the migration produces from the DAS analytics source
+ * tables, without copying either side. The source rows are transformed as in a migration & the target rows
+ * are read back, & each side is reduced to a digest per range of a time column & tenant: the row count, the
+ * sum & the xor of a 64 bit hash of every row, which do not depend on the order the rows are read in. The
+ * target ranges are read in parallel while the source is read, in _timestamp ranges too when no key of the
+ * table spans them, & only the ranges whose digests differ are read again to list the rows which differ.
+ */
+class MigrationVerifier {
+
+    /**
+     * Initialize Logger object to log messages
+     */
+    private static final Logger LOG = Logger.getLogger(MigrationVerifier.class);
+
+    /**
+     * Name of the tenant column, the second level of the drill down.
+     */
+    private static final String TENANT_COLUMN = "meta_tenantId";
+
+    /**
+     * Range of the rows whose time column is null.
+     */
+    private static final long NULL_RANGE = Long.MIN_VALUE;
+
+    /**
+     * Most rows of the differing ranges read again to list the differing rows, so a table which differs as
+     * a whole is reported by range only.
+     */
+    private static final long ROW_DRILL_LIMIT = 100000;
+
+    /**
+     * Aggregate functions of the state kept per primary key: the row hash, the range & the tenant of the last
+     * row with the key.
+     */
+    private static final AggregationMigration.Function[] LAST_ROW = {AggregationMigration.Function.LAST,
+            AggregationMigration.Function.LAST, AggregationMigration.Function.LAST};
+
+    /**
+     * Order independent digest of a set of rows.
+     */
+    static class Digest {
+
+        /**
+         * Variable which stores the number of rows.
+         */
+        private long count;
+        /**
+         * Variable which stores the sum of the row hashes.
+         */
+        private long sum;
+        /**
+         * Variable which stores the xor of the row hashes.
+         */
+        private long xor;
+
+        /**
+         * Add a row.
+         *
+         * @param hash hash of the row.
+         */
+        void add(long hash) {
+
+            count++;
+            sum += hash;
+            xor ^= hash;
+        }
+
+        /**
+         * Add the rows of another digest.
+         *
+         * @param other digest to add.
+         */
+        void merge(Digest other) {
+
+            count += other.count;
+            sum += other.sum;
+            xor ^= other.xor;
+        }
+
+        /**
+         * Check whether another digest is of the same rows.
+         *
+         * @param other digest to compare, may be null for no rows.
+         * @return true if the digests are equal.
+         */
+        boolean matches(Digest other) {
+
+            Digest that = other == null ? new Digest() : other;
+            return count == that.count && sum == that.sum && xor == that.xor;
+        }
+
+        /**
+         * Getter of count
+         *
+         * @return the count
+         */
+        long getCount() {
+
+            return count;
+        }
+    }
+
+    /**
+     * Ranges of equal width of the time column of a target table.
+     */
+    private static class Ranges {
+
+        /**
+         * Variable which stores the time column, null to check the table as one range.
+         */
+        private final String column;
+        /**
+         * Variable which stores the lowest value of the first range.
+         */
+        private final long min;
+        /**
+         * Variable which stores the width of each range.
+         */
+        private final long width;
+        /**
+         * Variable which stores the number of ranges which cover the target table.
+         */
+        private final int count;
+
+        /**
+         * Constructor which initiate the variables column,min,width,count.
+         *
+         * @param column time column, null to check the table as one range.
+         * @param min    lowest value of the first range.
+         * @param width  width of each range.
+         * @param count  number of ranges which cover the target table.
+         */
+        Ranges(String column, long min, long width, int count) {
+
+            this.column = column;
+            this.min = min;
+            this.width = width;
+            this.count = count;
+        }
+
+        /**
+         * Range of a value of the time column. Source values outside the target ranges fall into ranges of
+         * their own.
+         *
+         * @param value normalized value of the time column.
+         * @return the index of the range, NULL_RANGE for a null or non numeric value.
+         */
+        long index(Object value) {
+
+            if (column == null) {
+                return 0;
+            }
+            return value instanceof Long ? Math.floorDiv((Long) value - min, width) : NULL_RANGE;
+        }
+
+        /**
+         * Condition which selects the rows of a range.
+         *
+         * @param index index of the range.
+         * @return the WHERE clause, empty for the whole table.
+         */
+        String where(long index) {
+
+            if (column == null) {
+                return "";
+            }
+            if (index == NULL_RANGE) {
+                return " WHERE " + column + " IS NULL";
+            }
+            long lower = min + index * width;
+            return " WHERE " + column + " >= " + lower + " AND " + column + " < " + (lower + width);
+        }
+
+        /**
+         * Describe a range for the log.
+         *
+         * @param index index of the range.
+         * @return the column & its values in the range.
+         */
+        String describe(long index) {
+
+            if (column == null) {
+                return "all rows";
+            }
+            if (index == NULL_RANGE) {
+                return column + " null";
+            }
+            long lower = min + index * width;
+            return String.format("%s %d to %d", column, lower, lower + width - 1);
+        }
+    }
+
+    /**
+     * Variable which stores the factory of source database connections.
+     */
+    private final ConnectionFactory source;
+    /**
+     * Variable which stores the factory of target database connections.
+     */
+    private final ConnectionFactory target;
+    /**
+     * Variable which stores the migration settings.
+     */
+    private final MigrationConfig config;
+
+    /**
+     * Constructor which initiate the variables source,target,config.
+     *
+     * @param source factory of source database connections.
+     * @param target factory of target database connections.
+     * @param config migration settings.
+     */
+    MigrationVerifier(ConnectionFactory source, ConnectionFactory target, MigrationConfig config) {
+
+        this.source = source;
+        this.target = target;
+        this.config = config;
+    }
+
+    /**
+     * Verify the selected tables one after the other & log the tables & rows which differ.
+     *
+     * @param migrations table migrations to verify.
+     * @return true if every selected table matches its source.
+     */
+    boolean run(List<TableMigration> migrations) {
+
+        AtomicInteger threads = new AtomicInteger();
+        // One more thread than the parallelism, so a source read by one thread runs beside the target ranges.
+        ExecutorService pool = Executors.newFixedThreadPool(poolSize(),
+                runnable -> new Thread(runnable, "verifier-" + threads.incrementAndGet()));
+        int verified = 0;
+        int matched = 0;
+        try {
+            for (TableMigration migration : migrations) {
+                if (!config.isSelected(migration.getTargetTable())) {
+                    continue;
+                }
+                verified++;
+                try {
+                    if (verify(migration, pool)) {
+                        matched++;
+                    }
+                } catch (SQLException e) {
+                    LOG.error(String.format("Error occurred while verifying %s against %s, %s",
+                            migration.getTargetTable(), migration.getSourceTable(), e));
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        LOG.info(String.format("Verification: %d of %d tables match the source", matched, verified));
+        return matched == verified;
+    }
+
+    /**
+     * Compare the digests of a table by range & tenant, & list the rows of the ranges which differ.
+     *
+     * @param migration table migration to verify.
+     * @param pool      threads which read the source & the target ranges.
+     * @return true if the table matches its source.
+     * @throws SQLException if either side could not be read.
+     */
+    private boolean verify(TableMigration migration, ExecutorService pool) throws SQLException {
+
+        String[] columns = migration.getTargetColumns();
+        int time = timeColumn(columns);
+        int tenant = index(columns, TENANT_COLUMN);
+        Ranges ranges = ranges(migration, time < 0 ? null : columns[time]);
+        migration.setMemoryBudget(config.getAggregationMemory() * 1024L * 1024L, spillDirectory());
+
+        List<Future<Map<List<Object>, Digest>>> results = new ArrayList<>();
+        long budget = config.getAggregationMemory() * 1024L * 1024L;
+        long[] bounds = sourceBounds(migration);
+        if (bounds == null) {
+            results.add(pool.submit(() -> sourceDigests(migration, ranges, time, tenant, null, false, budget)));
+        } else {
+            LOG.info(String.format("Reading %s in %d ranges of %s", migration.getSourceTable(), bounds.length - 1,
+                    migration.getWatermarkColumn()));
+            for (int i = 0; i < bounds.length - 1; i++) {
+                long[] range = {bounds[i], bounds[i + 1]};
+                // The rows without a watermark are read with the first range, as the migration reads them.
+                boolean withNulls = i == 0;
+                results.add(pool.submit(() -> sourceDigests(migration, ranges, time, tenant, range, withNulls,
+                        budget / poolSize())));
+            }
+        }
+        int sources = results.size();
+        List<Long> indexes = new ArrayList<>();
+        for (long i = 0; i < ranges.count; i++) {
+            indexes.add(i);
+        }
+        if (ranges.column != null) {
+            indexes.add(NULL_RANGE);
+        }
+        for (Long index : indexes) {
+            results.add(pool.submit(() -> {
+                Map<List<Object>, Digest> cells = new HashMap<>();
+                scanTarget(migration, ranges.where(index), row -> digest(cells, cell(ranges, time, tenant, row))
+                        .add(hash(row)));
+                return cells;
+            }));
+        }
+        Map<List<Object>, Digest> sourceCells = new HashMap<>();
+        Map<List<Object>, Digest> targetCells = new HashMap<>();
+        for (int i = 0; i < results.size(); i++) {
+            Map<List<Object>, Digest> cells = i < sources ? sourceCells : targetCells;
+            for (Map.Entry<List<Object>, Digest> cell : get(results.get(i), results, migration).entrySet()) {
+                digest(cells, cell.getKey()).merge(cell.getValue());
+            }
+        }
+        return compare(migration, ranges, time, tenant, sourceCells, targetCells);
+    }
+
+    /**
+     * Compare the digests of each range, then of each tenant within the ranges which differ, & log them.
+     *
+     * @param migration   table migration to verify.
+     * @param ranges      ranges of the time column.
+     * @param time        index of the time column in the target row, -1 if there is none.
+     * @param tenant      index of the tenant column in the target row, -1 if there is none.
+     * @param sourceCells digest of the source rows by range & tenant.
+     * @param targetCells digest of the target rows by range & tenant.
+     * @return true if every range matches.
+     * @throws SQLException if the differing rows could not be read.
+     */
+    private boolean compare(TableMigration migration, Ranges ranges, int time, int tenant,
+                            Map<List<Object>, Digest> sourceCells, Map<List<Object>, Digest> targetCells)
+            throws SQLException {
+
+        Map<Long, Digest[]> byRange = new TreeMap<>();
+        Set<List<Object>> cells = new HashSet<>(sourceCells.keySet());
+        cells.addAll(targetCells.keySet());
+        for (List<Object> cell : cells) {
+            Digest[] digests = byRange.computeIfAbsent((Long) cell.get(0), range -> new Digest[]{new Digest(),
+                    new Digest()});
+            if (sourceCells.containsKey(cell)) {
+                digests[0].merge(sourceCells.get(cell));
+            }
+            if (targetCells.containsKey(cell)) {
+                digests[1].merge(targetCells.get(cell));
+            }
+        }
+        Digest sourceTotal = new Digest();
+        Digest targetTotal = new Digest();
+        List<Long> differing = new ArrayList<>();
+        for (Map.Entry<Long, Digest[]> range : byRange.entrySet()) {
+            sourceTotal.merge(range.getValue()[0]);
+            targetTotal.merge(range.getValue()[1]);
+            if (!range.getValue()[0].matches(range.getValue()[1])) {
+                differing.add(range.getKey());
+            }
+        }
+        String table = migration.getTargetTable();
+        if (differing.isEmpty()) {
+            LOG.info(String.format("%s: %d rows match the source", table, targetTotal.getCount()));
+            return true;
+        }
+        LOG.warn(String.format("%s: %d of %d ranges differ, %d rows in the source & %d in the target", table,
+                differing.size(), byRange.size(), sourceTotal.getCount(), targetTotal.getCount()));
+
+        int reported = 0;
+        long drillRows = 0;
+        Set<List<Object>> differingCells = new HashSet<>();
+        for (Long range : differing) {
+            Digest[] digests = byRange.get(range);
+            if (reported++ < config.getVerifyMaxDiffs()) {
+                LOG.warn(String.format("%s: %s differs, %d rows in the source & %d in the target", table,
+                        ranges.describe(range), digests[0].getCount(), digests[1].getCount()));
+            }
+            for (List<Object> cell : cells) {
+                if (!range.equals(cell.get(0)) || sourceCells.containsKey(cell)
+                        && sourceCells.get(cell).matches(targetCells.get(cell))) {
+                    continue;
+                }
+                Digest sourceCell = sourceCells.containsKey(cell) ? sourceCells.get(cell) : new Digest();
+                Digest targetCell = targetCells.containsKey(cell) ? targetCells.get(cell) : new Digest();
+                differingCells.add(cell);
+                drillRows += sourceCell.getCount() + targetCell.getCount();
+                if (tenant >= 0 && reported++ < config.getVerifyMaxDiffs()) {
+                    LOG.warn(String.format("%s: %s %s %s differs, %d rows in the source & %d in the target", table,
+                            ranges.describe(range), TENANT_COLUMN, cell.get(1), sourceCell.getCount(),
+                            targetCell.getCount()));
+                }
+            }
+        }
+        if (drillRows > ROW_DRILL_LIMIT) {
+            LOG.warn(String.format("%s: the differing ranges hold %d rows, the rows are not listed above %d", table,
+                    drillRows, ROW_DRILL_LIMIT));
+        } else {
+            compareRows(migration, ranges, time, tenant, differingCells);
+        }
+        return false;
+    }
+
+    /**
+     * Read the rows of the differing ranges & tenants again from both sides & log the rows which differ.
+     *
+     * @param migration table migration to verify.
+     * @param ranges    ranges of the time column.
+     * @param time      index of the time column in the target row, -1 if there is none.
+     * @param tenant    index of the tenant column in the target row, -1 if there is none.
+     * @param cells     ranges & tenants which differ.
+     * @throws SQLException if either side could not be read.
+     */
+    private void compareRows(TableMigration migration, Ranges ranges, int time, int tenant,
+                             Set<List<Object>> cells) throws SQLException {
+
+        int keyLength = migration.getPrimaryKeyLength();
+        // The rows of the first read are gone, eg:- the rows seen by a distinct migration, so a new one is read.
+        TableMigration again = fresh(migration);
+        again.setMemoryBudget(config.getAggregationMemory() * 1024L * 1024L, spillDirectory());
+        Map<List<Object>, Object[]> sourceRows = new HashMap<>();
+        // The last row of a key decides whether the key is in a differing range, as it is the row the target keeps.
+        scanSource(again, null, false, row -> {
+            List<Object> key = Arrays.asList(Arrays.copyOf(row, keyLength));
+            if (cells.contains(cell(ranges, time, tenant, row))) {
+                sourceRows.put(key, row);
+            } else {
+                sourceRows.remove(key);
+            }
+        });
+        Map<List<Object>, Object[]> targetRows = new HashMap<>();
+        Set<Long> indexes = new HashSet<>();
+        for (List<Object> cell : cells) {
+            indexes.add((Long) cell.get(0));
+        }
+        for (Long index : indexes) {
+            scanTarget(migration, ranges.where(index), row -> {
+                if (cells.contains(cell(ranges, time, tenant, row))) {
+                    targetRows.put(Arrays.asList(Arrays.copyOf(row, keyLength)), row);
+                }
+            });
+        }
+
+        String table = migration.getTargetTable();
+        String[] columns = migration.getTargetColumns();
+        int missing = 0;
+        int different = 0;
+        int reported = 0;
+        for (Map.Entry<List<Object>, Object[]> row : sourceRows.entrySet()) {
+            Object[] targetRow = targetRows.remove(row.getKey());
+            if (targetRow == null) {
+                missing++;
+                if (reported++ < config.getVerifyMaxDiffs()) {
+                    LOG.warn(String.format("%s: row %s is missing from the target", table, row.getKey()));
+                }
+            } else if (!Arrays.equals(row.getValue(), targetRow)) {
+                different++;
+                if (reported++ < config.getVerifyMaxDiffs()) {
+                    List<String> differingColumns = new ArrayList<>();
+                    for (int i = 0; i < columns.length; i++) {
+                        if (!Objects.equals(row.getValue()[i], targetRow[i])) {
+                            differingColumns.add(String.format("%s %s in the source & %s in the target", columns[i],
+                                    row.getValue()[i], targetRow[i]));
+                        }
+                    }
+                    LOG.warn(String.format("%s: row %s differs, %s", table, row.getKey(),
+                            String.join(", ", differingColumns)));
+                }
+            }
+        }
+        for (List<Object> key : targetRows.keySet()) {
+            if (reported++ < config.getVerifyMaxDiffs()) {
+                LOG.warn(String.format("%s: row %s is not in the source", table, key));
+            }
+        }
+        LOG.warn(String.format("%s: %d rows missing from the target, %d rows not in the source, %d rows differ",
+                table, missing, targetRows.size(), different));
+    }
+
+    /**
+     * Digest the target rows produced from the source table by range & tenant. A migration may produce several
+     * rows with the same primary key, eg:- the events of one session or the groups of an aggregation which
+     * differ only in columns outside the key, of which the target keeps the last written, so only the last row
+     * of each key is counted, with the keys beyond the memory budget kept on disk.
+     *
+     * @param migration table migration to verify.
+     * @param ranges    ranges of the time column.
+     * @param time      index of the time column in the target row, -1 if there is none.
+     * @param tenant    index of the tenant column in the target row, -1 if there is none.
+     * @param range     lowest watermark & watermark above the source rows to read, null to read every row.
+     * @param withNulls whether the rows without a watermark are read with the range.
+     * @param budget    estimated bytes of the keys kept in memory.
+     * @return the digest of each range & tenant.
+     * @throws SQLException if the source could not be read.
+     */
+    private Map<List<Object>, Digest> sourceDigests(TableMigration migration, Ranges ranges, int time, int tenant,
+                                                    long[] range, boolean withNulls, long budget)
+            throws SQLException {
+
+        Map<List<Object>, Digest> cells = new HashMap<>();
+        int keyLength = migration.getPrimaryKeyLength();
+        SpillingGroups<List<Object>> keys = new SpillingGroups<>(migration.getTargetTable(), LAST_ROW,
+                new SpillingGroups.KeyCodec<List<Object>>() {
+                    @Override
+                    public Object[] encode(List<Object> key) {
+
+                        return key.toArray();
+                    }
+
+                    @Override
+                    public List<Object> decode(Object[] values) {
+
+                        return Arrays.asList(values);
+                    }
+                });
+        keys.setBudget(budget, spillDirectory());
+        try {
+            scanSource(migration, range, withNulls, row -> {
+                List<Object> key = Arrays.asList(Arrays.copyOf(row, keyLength));
+                List<Object> cell = cell(ranges, time, tenant, row);
+                Object[] state = keys.get(key);
+                if (state == null) {
+                    keys.add(key, new Object[]{hash(row), cell.get(0), cell.get(1)});
+                } else {
+                    state[0] = hash(row);
+                    state[1] = cell.get(0);
+                    state[2] = cell.get(1);
+                }
+            });
+            keys.drain((key, state) -> digest(cells, Arrays.asList(state[1], state[2])).add((Long) state[0]));
+        } finally {
+            keys.close();
+        }
+        return cells;
+    }
+
+    /**
+     * Read a source table in watermark order, the order the migration writes it in, & transform its rows.
+     *
+     * @param migration table migration to verify.
+     * @param range     lowest watermark & watermark above the rows to read, null to read every row.
+     * @param withNulls whether the rows without a watermark are read with the range.
+     * @param sink      receiver of the normalized target rows.
+     * @throws SQLException if the source could not be read.
+     */
+    private void scanSource(TableMigration migration, long[] range, boolean withNulls, RowSink sink)
+            throws SQLException {
+
+        String column = migration.getWatermarkColumn();
+        StringBuilder sql = new StringBuilder("SELECT * FROM ").append(migration.getSourceTable());
+        if (range != null) {
+            sql.append(" WHERE (").append(column).append(" >= ? AND ").append(column).append(" < ?)")
+                    .append(withNulls ? " OR " + column + " IS NULL" : "");
+        }
+        if (column != null) {
+            sql.append(" ORDER BY ").append(column);
+        }
+        RowSink normalized = row -> sink.accept(normalize(row));
+        try (Connection connection = source.getConnection()) {
+            // Drivers such as Postgresql only stream the result set outside auto commit mode.
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(sql.toString(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                statement.setFetchSize(config.getFetchSize());
+                if (range != null) {
+                    statement.setLong(1, range[0]);
+                    statement.setLong(2, range[1]);
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    int[] positions = MigrationEngine.positions(resultSet.getMetaData(), migration);
+                    Object[] row = new Object[positions.length];
+                    while (resultSet.next()) {
+                        for (int i = 0; i < positions.length; i++) {
+                            row[i] = positions[i] == 0 ? null : resultSet.getObject(positions[i]);
+                        }
+                        migration.process(row, normalized);
+                    }
+                }
+                migration.finish(normalized);
+            } finally {
+                connection.rollback();
+            }
+        }
+    }
+
+    /**
+     * Read the rows of a target table.
+     *
+     * @param migration table migration to verify.
+     * @param where     condition which selects the rows, empty for every row.
+     * @param sink      receiver of the normalized target rows.
+     * @throws SQLException if the target could not be read.
+     */
+    private void scanTarget(TableMigration migration, String where, RowSink sink) throws SQLException {
+
+        String sql = "SELECT " + String.join(",", migration.getTargetColumns()) + " FROM "
+                + migration.getTargetTable() + where;
+        try (Connection connection = target.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY)) {
+                statement.setFetchSize(config.getFetchSize());
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    int size = migration.getTargetColumns().length;
+                    while (resultSet.next()) {
+                        Object[] row = new Object[size];
+                        for (int i = 0; i < size; i++) {
+                            row[i] = resultSet.getObject(i + 1);
+                        }
+                        sink.accept(normalize(row));
+                    }
+                }
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    /**
+     * Split the watermark range of a source table into ranges read on parallel threads, as the migration reads
+     * it. The table is read in one pass when the rows of a key may fall in different ranges, since only the
+     * last of them is in the target.
+     *
+     * @param migration table migration to verify.
+     * @return the bounds of each range, range i covering bounds[i] up to bounds[i + 1] exclusive, or null to
+     * read the table in one pass.
+     * @throws SQLException if the range could not be read.
+     */
+    private long[] sourceBounds(TableMigration migration) throws SQLException {
+
+        String column = migration.getWatermarkColumn();
+        if (column == null || config.getParallelism() < 2 || !migration.isPartitionable()
+                || migration.hasCrossRangeKeys()) {
+            return null;
+        }
+        try (Connection connection = source.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT MIN(" + column + "), MAX(" + column
+                     + ") FROM " + migration.getSourceTable());
+             ResultSet resultSet = statement.executeQuery()) {
+            if (!resultSet.next() || resultSet.getObject(1) == null) {
+                return null;
+            }
+            return MigrationEngine.partitionBounds(resultSet.getLong(1), resultSet.getLong(2),
+                    config.getParallelism());
+        }
+    }
+
+    /**
+     * Split the values of the time column of a target table into verifyBuckets ranges of equal width.
+     *
+     * @param migration table migration to verify.
+     * @param column    time column, null to check the table as one range.
+     * @return the ranges.
+     * @throws SQLException if the values could not be read.
+     */
+    private Ranges ranges(TableMigration migration, String column) throws SQLException {
+
+        if (column == null) {
+            return new Ranges(null, 0, 1, 1);
+        }
+        try (Connection connection = target.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT MIN(" + column + "), MAX(" + column
+                     + ") FROM " + migration.getTargetTable());
+             ResultSet resultSet = statement.executeQuery()) {
+            if (!resultSet.next() || resultSet.getObject(1) == null) {
+                return new Ranges(column, 0, 1, 1);
+            }
+            long min = resultSet.getLong(1);
+            long max = resultSet.getLong(2);
+            long width = (max - min) / Math.max(1, config.getVerifyBuckets()) + 1;
+            return new Ranges(column, min, width, (int) ((max - min) / width + 1));
+        }
+    }
+
+    /**
+     * Read a future of the verification of a table, cancelling the other reads of the table if it failed.
+     *
+     * @param result    future to read.
+     * @param others    every read of the table.
+     * @param migration table migration to verify.
+     * @param <T>       type of the result.
+     * @return the result.
+     * @throws SQLException if the read failed or was interrupted.
+     */
+    private static <T> T get(Future<T> result, List<? extends Future<?>> others, TableMigration migration)
+            throws SQLException {
+
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            for (Future<?> other : others) {
+                other.cancel(true);
+            }
+            throw e.getCause() instanceof SQLException ? (SQLException) e.getCause() : new SQLException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException(String.format("Interrupted while verifying %s", migration.getTargetTable()), e);
+        }
+    }
+
+    /**
+     * New instance of a table migration, without the state of a previous read.
+     *
+     * @param migration table migration to verify.
+     * @return the migration of the same target table.
+     */
+    private TableMigration fresh(TableMigration migration) {
+
+        for (TableMigration candidate : AnalyticsTables.create(false)) {
+            if (candidate.getTargetTable().equals(migration.getTargetTable())) {
+                return candidate;
+            }
+        }
+        return migration;
+    }
+
+    /**
+     * Number of threads which read the source & the target ranges.
+     *
+     * @return one more than the parallelism.
+     */
+    private int poolSize() {
+
+        return Math.max(1, config.getParallelism()) + 1;
+    }
+
+    /**
+     * Directory of the keys & groups kept on disk.
+     *
+     * @return the spill directory, null for the temporary directory.
+     */
+    private File spillDirectory() {
+
+        return config.getSpillDirectory() == null ? null : new File(config.getSpillDirectory());
+    }
+
+    /**
+     * Time column of a target table: AGG_EVENT_TIMESTAMP for the aggregation tables, otherwise timestamp or
+     * the first column whose name ends with timestamp.
+     *
+     * @param columns target columns.
+     * @return the index of the column, -1 if there is none.
+     */
+    private static int timeColumn(String[] columns) {
+
+        int agg = index(columns, "AGG_EVENT_TIMESTAMP");
+        if (agg >= 0) {
+            return agg;
+        }
+        int timestamp = index(columns, "timestamp");
+        if (timestamp >= 0) {
+            return timestamp;
+        }
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].toLowerCase(Locale.ENGLISH).endsWith("timestamp")) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Find a column ignoring case.
+     *
+     * @param columns column names.
+     * @param column  column to find.
+     * @return the index of the column, -1 if it is not in the list.
+     */
+    private static int index(String[] columns, String column) {
+
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].equalsIgnoreCase(column)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Range & tenant of a normalized target row.
+     *
+     * @param ranges ranges of the time column.
+     * @param time   index of the time column in the row, -1 if there is none.
+     * @param tenant index of the tenant column in the row, -1 if there is none.
+     * @param row    normalized target row.
+     * @return the range index followed by the tenant.
+     */
+    private static List<Object> cell(Ranges ranges, int time, int tenant, Object[] row) {
+
+        return Arrays.asList(ranges.index(time < 0 ? null : row[time]), tenant < 0 ? null : row[tenant]);
+    }
+
+    /**
+     * Digest of a range & tenant, added if there is none yet.
+     *
+     * @param cells digest of each range & tenant.
+     * @param cell  range & tenant.
+     * @return the digest.
+     */
+    private static Digest digest(Map<List<Object>, Digest> cells, List<Object> cell) {
+
+        return cells.computeIfAbsent(cell, key -> new Digest());
+    }
+
+    /**
+     * Convert the values of a row to the same types whichever side they are read from: whole numbers & booleans
+     * to Long, other numbers to Double rounded to 4 decimals as in an Oracle NUMBER(19,4), & empty strings to
+     * null as Oracle stores them.
+     *
+     * @param row values read from the database or produced by a migration.
+     * @return a new array with the normalized values.
+     */
+    private static Object[] normalize(Object[] row) {
+
+        Object[] values = new Object[row.length];
+        for (int i = 0; i < row.length; i++) {
+            values[i] = normalize(row[i]);
+        }
+        return values;
+    }
+
+    /**
+     * Convert a value to the type of its normalized form.
+     *
+     * @param value value read from the database or produced by a migration.
+     * @return the normalized value.
+     */
+    private static Object normalize(Object value) {
+
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value ? 1L : 0L;
+        }
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte
+                || value instanceof BigInteger) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Number) {
+            double number = ((Number) value).doubleValue();
+            if (number == Math.rint(number) && Math.abs(number) < 1L << 53) {
+                return (long) number;
+            }
+            return new BigDecimal(number).setScale(4, RoundingMode.HALF_UP).doubleValue();
+        }
+        String string = value.toString();
+        return string.isEmpty() ? null : string;
+    }
+
+    /**
+     * 64 bit hash of a normalized row, which depends on the position of each value.
+     *
+     * @param row normalized row.
+     * @return the hash.
+     */
+    private static long hash(Object[] row) {
+
+        long hash = 0x9E3779B97F4A7C15L;
+        for (Object value : row) {
+            hash = mix(hash * 31 + hash(value));
+        }
+        return hash;
+    }
+
+    /**
+     * 64 bit hash of a normalized value.
+     *
+     * @param value normalized value.
+     * @return the hash.
+     */
+    private static long hash(Object value) {
+
+        if (value == null) {
+            return 0x5851F42D4C957F2DL;
+        }
+        if (value instanceof Long) {
+            return mix((Long) value);
+        }
+        if (value instanceof Double) {
+            return mix(Double.doubleToLongBits((Double) value)) ^ 1;
+        }
+        // FNV-1a over the characters.
+        String string = (String) value;
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < string.length(); i++) {
+            hash = (hash ^ string.charAt(i)) * 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Finalizer of the SplitMix64 generator, which spreads every input bit over the whole hash.
+     *
+     * @param z value to mix.
+     * @return the mixed value.
+     */
+    private static long mix(long z) {
+
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
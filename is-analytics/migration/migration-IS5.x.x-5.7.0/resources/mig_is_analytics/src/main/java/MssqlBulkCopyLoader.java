@@ -0,0 +1,166 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Loads rows into SQL Server with SQLServerBulkCopy. The rows are handed to the driver as an
+ * ISQLServerBulkData, or an ISQLServerBulkRecord with older drivers, implemented with a proxy since the
+ * interface comes from the driver jar.
+ */
+class MssqlBulkCopyLoader extends BulkLoader {
+
+    @Override
+    void load(Connection connection, TableMigration migration, TargetColumns columns, List<Object[]> rows)
+            throws SQLException {
+
+        Class<?> bulkCopyClass = driverClass(connection, "com.microsoft.sqlserver.jdbc.SQLServerBulkCopy");
+        Class<?> recordClass = recordClass(connection, bulkCopyClass);
+        // The bulk copy only accepts the driver's own connection, not the one handed out by the pool.
+        Object bulkCopy = create(bulkCopyClass, new Class<?>[]{Connection.class},
+                connection.unwrap(Connection.class));
+        try {
+            invoke(bulkCopy, "setDestinationTableName", new Class<?>[]{String.class}, migration.getTargetTable());
+            for (int i = 0; i < columns.size(); i++) {
+                invoke(bulkCopy, "addColumnMapping", new Class<?>[]{int.class, String.class}, i + 1,
+                        columns.getName(i));
+            }
+            Object record = Proxy.newProxyInstance(recordClass.getClassLoader(), new Class<?>[]{recordClass},
+                    new BulkRecord(columns, rows));
+            invoke(bulkCopy, "writeToServer", new Class<?>[]{recordClass}, record);
+        } finally {
+            invoke(bulkCopy, "close", new Class<?>[0]);
+        }
+    }
+
+    /**
+     * Find the row source interface which writeToServer of the driver accepts. Newer drivers declare
+     * ISQLServerBulkData, which ISQLServerBulkRecord extends, & older drivers only have ISQLServerBulkRecord.
+     *
+     * @param connection    connection created by the driver.
+     * @param bulkCopyClass SQLServerBulkCopy class of the driver.
+     * @return ISQLServerBulkData if writeToServer accepts it, otherwise ISQLServerBulkRecord.
+     * @throws SQLFeatureNotSupportedException if the driver has neither interface.
+     */
+    private static Class<?> recordClass(Connection connection, Class<?> bulkCopyClass)
+            throws SQLFeatureNotSupportedException {
+
+        try {
+            Class<?> dataClass = driverClass(connection, "com.microsoft.sqlserver.jdbc.ISQLServerBulkData");
+            bulkCopyClass.getMethod("writeToServer", dataClass);
+            return dataClass;
+        } catch (SQLFeatureNotSupportedException | NoSuchMethodException e) {
+            return driverClass(connection, "com.microsoft.sqlserver.jdbc.ISQLServerBulkRecord");
+        }
+    }
+
+    /**
+     * Row source of the driver over a list of rows. Methods which only matter for CSV input are answered with
+     * the default value of their return type.
+     */
+    private static class BulkRecord implements InvocationHandler {
+
+        /**
+         * Variable which stores the target columns.
+         */
+        private final TargetColumns columns;
+        /**
+         * Variable which stores the iterator over the rows.
+         */
+        private final Iterator<Object[]> rows;
+        /**
+         * Variable which stores the current row.
+         */
+        private Object[] row;
+
+        /**
+         * Constructor which initiate the variables columns,rows.
+         *
+         * @param columns target columns.
+         * @param rows    rows to load.
+         */
+        BulkRecord(TargetColumns columns, List<Object[]> rows) {
+
+            this.columns = columns;
+            this.rows = rows.iterator();
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+
+            switch (method.getName()) {
+                case "getColumnOrdinals":
+                    Set<Integer> ordinals = new LinkedHashSet<>();
+                    for (int i = 1; i <= columns.size(); i++) {
+                        ordinals.add(i);
+                    }
+                    return ordinals;
+                case "getColumnName":
+                    return columns.getName((Integer) args[0] - 1);
+                case "getColumnType":
+                    return columns.getType((Integer) args[0] - 1);
+                case "getPrecision":
+                    return columns.getPrecision((Integer) args[0] - 1);
+                case "getScale":
+                    return columns.getScale((Integer) args[0] - 1);
+                case "isAutoIncrement":
+                    return false;
+                case "next":
+                    row = rows.hasNext() ? rows.next() : null;
+                    return row != null;
+                case "getRowData":
+                    return row;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return "BulkRecord";
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        }
+
+        /**
+         * Default value of a return type.
+         *
+         * @param type return type of a method.
+         * @return false or 0 for primitive types, otherwise null.
+         */
+        private static Object defaultValue(Class<?> type) {
+
+            if (type == boolean.class) {
+                return false;
+            }
+            if (type == int.class) {
+                return 0;
+            }
+            if (type == long.class) {
+                return 0L;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Loads rows into MySQL with LOAD DATA LOCAL INFILE, reading the rows from a stream given to the statement
+ * instead of a file. REPLACE overwrites rows which already exist, like the CarbonJDBC merge. The connection
+ * needs allowLoadLocalInfile=true with Connector/J 8.
+ * <p>
+ * LOCAL loads turn the values an INSERT would reject, eg:- a string longer than its column or a malformed
+ * number, into warnings even in strict mode, & store them truncated or zeroed. A load with warnings fails with
+ * a data exception, so the batch is rolled back & it & the later batches are written with batch inserts, which
+ * report the value.
+ */
+class MysqlLoadDataLoader extends BulkLoader {
+
+    /**
+     * SQLState of a value the target column can not hold. Unlike an integrity constraint violation, it stops the
+     * writer from using the loader for the later batches.
+     */
+    private static final String DATA_EXCEPTION = "22000";
+
+    @Override
+    void load(Connection connection, TableMigration migration, TargetColumns columns, List<Object[]> rows)
+            throws SQLException {
+
+        String sql = "LOAD DATA LOCAL INFILE 'stream' REPLACE INTO TABLE " + migration.getTargetTable()
+                + " CHARACTER SET utf8mb4 FIELDS TERMINATED BY '\\t' ESCAPED BY '\\\\' LINES TERMINATED BY '\\n' ("
+                + columnList(columns) + ")";
+        try (Statement statement = connection.createStatement()) {
+            invoke(statement, "setLocalInfileInputStream", new Class<?>[]{InputStream.class},
+                    new ByteArrayInputStream(tsv(rows).getBytes(StandardCharsets.UTF_8)));
+            statement.execute(sql);
+            failOnWarnings(statement.getWarnings(), migration.getTargetTable());
+        }
+    }
+
+    /**
+     * Fail a load which raised warnings.
+     *
+     * @param warning first warning of the load, null if there is none.
+     * @param table   name of the target table, used in the message.
+     * @throws SQLException with SQLState 22000 if there is a warning.
+     */
+    static void failOnWarnings(SQLWarning warning, String table) throws SQLException {
+
+        if (warning == null) {
+            return;
+        }
+        int count = 0;
+        for (SQLWarning w = warning; w != null; w = w.getNextWarning()) {
+            count++;
+        }
+        throw new SQLException(String.format("LOAD DATA into %s raised %d warnings, the first: %s", table, count,
+                warning.getMessage()), DATA_EXCEPTION);
+    }
+
+    /**
+     * Encode rows as tab separated values with the default escaping of LOAD DATA. Null is \N & booleans are
+     * 1 or 0.
+     *
+     * @param rows rows to encode.
+     * @return the tab separated text.
+     */
+    static String tsv(List<Object[]> rows) {
+
+        StringBuilder tsv = new StringBuilder();
+        for (Object[] row : rows) {
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0) {
+                    tsv.append('\t');
+                }
+                Object value = row[i];
+                if (value == null) {
+                    tsv.append("\\N");
+                } else if (value instanceof Boolean) {
+                    tsv.append((Boolean) value ? '1' : '0');
+                } else if (value instanceof String) {
+                    escape(tsv, (String) value);
+                } else {
+                    tsv.append(value);
+                }
+            }
+            tsv.append('\n');
+        }
+        return tsv.toString();
+    }
+
+    /**
+     * Append a string with the characters which LOAD DATA treats as separators escaped.
+     *
+     * @param tsv   text to append to.
+     * @param value string to append.
+     */
+    private static void escape(StringBuilder tsv, String value) {
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    tsv.append("\\\\");
+                    break;
+                case '\t':
+                    tsv.append("\\t");
+                    break;
+                case '\n':
+                    tsv.append("\\n");
+                    break;
+                case '\r':
+                    tsv.append("\\r");
+                    break;
+                case '\0':
+                    tsv.append("\\0");
+                    break;
+                default:
+                    tsv.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Loads rows into Oracle with an array insert. The Oracle driver sends a JDBC batch as one array bound
+ * execution. With direct path the APPEND_VALUES hint writes the array above the high water mark without going
+ * through the buffer cache, but each load locks the table exclusively until commit & leaves the blocks of
+ * every commit above the high water mark, so it only suits one writer per table & large batch sizes.
+ */
+class OracleArrayLoader extends BulkLoader {
+
+    /**
+     * Smallest batch size a direct path load is used with, smaller batches waste most of their blocks.
+     */
+    static final int MIN_DIRECT_PATH_BATCH = 10000;
+
+    /**
+     * Variable which stores whether the rows are loaded with a direct path insert.
+     */
+    private final boolean directPath;
+
+    /**
+     * Constructor which initiate the variable directPath.
+     *
+     * @param directPath whether the rows are loaded with a direct path insert, which requires one writer per
+     *                   table & large batches.
+     */
+    OracleArrayLoader(boolean directPath) {
+
+        this.directPath = directPath;
+    }
+
+    @Override
+    void load(Connection connection, TableMigration migration, TargetColumns columns, List<Object[]> rows)
+            throws SQLException {
+
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < columns.size(); i++) {
+            values.append(i == 0 ? "?" : ",?");
+        }
+        String sql = (directPath ? "INSERT /*+ APPEND_VALUES */ INTO " : "INSERT INTO ")
+                + migration.getTargetTable() + " (" + columnList(columns) + ") VALUES (" + values + ")";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (Object[] row : rows) {
+                for (int i = 0; i < row.length; i++) {
+                    TableWriter.bind(statement, i + 1, row[i], columns.getType(i));
+                }
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Range partitioned DDL of the aggregation tables in each database type. AuthStatAgg_*, RoleAggregation_* &
+ * SessionAggregation_* are partitioned on AGG_EVENT_TIMESTAMP, per month for the HOURS & DAYS tables & per year
+ * for the MONTHS & YEARS tables, so time bounded queries only read the partitions of their range & old data is
+ * purged by dropping partitions. Rows before the first partition go into one partition, as do rows after the
+ * last one except on Oracle, which adds interval partitions as rows arrive.
+ */
+enum PartitionedDdl {
+
+    /**
+     * PARTITION BY RANGE with a MAXVALUE partition.
+     */
+    MYSQL {
+        @Override
+        List<String> partition(String createTable, String table, Unit unit, YearMonth start, YearMonth end) {
+
+            List<Long> bounds = unit.bounds(start, end);
+            StringBuilder sql = new StringBuilder(withoutSemicolon(createTable)).append(" PARTITION BY RANGE (")
+                    .append(COLUMN).append(") (PARTITION ").append(BEFORE).append(" VALUES LESS THAN (")
+                    .append(bounds.get(0)).append(')');
+            for (int i = 1; i < bounds.size(); i++) {
+                sql.append(", PARTITION ").append(unit.name(bounds.get(i - 1))).append(" VALUES LESS THAN (")
+                        .append(bounds.get(i)).append(')');
+            }
+            sql.append(", PARTITION ").append(AFTER).append(" VALUES LESS THAN MAXVALUE);");
+            return Collections.singletonList(sql.toString());
+        }
+    },
+
+    /**
+     * Declarative partitioning, one PARTITION OF table per range, which needs Postgresql 11 for the primary key.
+     */
+    POSTGRESQL {
+        @Override
+        List<String> partition(String createTable, String table, Unit unit, YearMonth start, YearMonth end) {
+
+            List<Long> bounds = unit.bounds(start, end);
+            List<String> al = new ArrayList<>();
+            al.add(withoutSemicolon(createTable) + " PARTITION BY RANGE (" + COLUMN + ");");
+            al.add(partitionOf(table, BEFORE, "MINVALUE", String.valueOf(bounds.get(0))));
+            for (int i = 1; i < bounds.size(); i++) {
+                al.add(partitionOf(table, unit.name(bounds.get(i - 1)), String.valueOf(bounds.get(i - 1)),
+                        String.valueOf(bounds.get(i))));
+            }
+            al.add(partitionOf(table, AFTER, String.valueOf(bounds.get(bounds.size() - 1)), "MAXVALUE"));
+            return al;
+        }
+
+        /**
+         * CREATE TABLE statement of one partition.
+         *
+         * @param table     name of the partitioned table.
+         * @param partition name of the partition, appended to the table name.
+         * @param from      lower bound of the range, inclusive.
+         * @param to        upper bound of the range, exclusive.
+         * @return the DDL statement.
+         */
+        private String partitionOf(String table, String partition, String from, String to) {
+
+            return "CREATE TABLE " + table + "_" + partition + " PARTITION OF " + table + " FOR VALUES FROM (" + from
+                    + ") TO (" + to + ");";
+        }
+    },
+
+    /**
+     * Interval partitioning, with monthly or yearly ranges until the last partition & 30 or 365 day intervals
+     * after it, since the interval of a number column has a fixed width.
+     */
+    ORACLE {
+        @Override
+        List<String> partition(String createTable, String table, Unit unit, YearMonth start, YearMonth end) {
+
+            List<Long> bounds = unit.bounds(start, end);
+            StringBuilder sql = new StringBuilder(withoutSemicolon(createTable)).append(" PARTITION BY RANGE (")
+                    .append(COLUMN).append(") INTERVAL (").append(unit.interval).append(") (PARTITION ")
+                    .append(BEFORE).append(" VALUES LESS THAN (").append(bounds.get(0)).append(')');
+            for (int i = 1; i < bounds.size(); i++) {
+                sql.append(", PARTITION ").append(unit.name(bounds.get(i - 1))).append(" VALUES LESS THAN (")
+                        .append(bounds.get(i)).append(')');
+            }
+            return Collections.singletonList(sql.append(')').toString());
+        }
+    },
+
+    /**
+     * Tables on a partition scheme of a RANGE RIGHT partition function, one function per unit.
+     */
+    MSSQL {
+        @Override
+        List<String> prelude(YearMonth start, YearMonth end) {
+
+            List<String> al = new ArrayList<>();
+            for (Unit unit : Unit.values()) {
+                StringBuilder values = new StringBuilder();
+                for (long bound : unit.bounds(start, end)) {
+                    values.append(values.length() == 0 ? "" : ",").append(bound);
+                }
+                al.add("CREATE PARTITION FUNCTION " + function(unit) + " (bigint) AS RANGE RIGHT FOR VALUES ("
+                        + values + ");");
+                al.add("CREATE PARTITION SCHEME " + scheme(unit) + " AS PARTITION " + function(unit)
+                        + " ALL TO ([PRIMARY]);");
+            }
+            return al;
+        }
+
+        @Override
+        List<String> partition(String createTable, String table, Unit unit, YearMonth start, YearMonth end) {
+
+            return Collections.singletonList(withoutSemicolon(createTable) + " ON " + scheme(unit) + " (" + COLUMN
+                    + ");");
+        }
+
+        /**
+         * Name of the partition function of a unit.
+         *
+         * @param unit unit of the partitions.
+         * @return the function name.
+         */
+        private String function(Unit unit) {
+
+            return "AGG_" + unit + "_PF";
+        }
+
+        /**
+         * Name of the partition scheme of a unit.
+         *
+         * @param unit unit of the partitions.
+         * @return the scheme name.
+         */
+        private String scheme(Unit unit) {
+
+            return "AGG_" + unit + "_PS";
+        }
+    };
+
+    /**
+     * Column the aggregation tables are partitioned on.
+     */
+    private static final String COLUMN = "AGG_EVENT_TIMESTAMP";
+
+    /**
+     * Name of the partition of the rows before the first range.
+     */
+    private static final String BEFORE = "P_BEFORE";
+
+    /**
+     * Name of the partition of the rows after the last range.
+     */
+    private static final String AFTER = "P_AFTER";
+
+    /**
+     * Width of the partitions of a table.
+     */
+    enum Unit {
+
+        MONTHLY(30L * 24 * 60 * 60 * 1000), YEARLY(365L * 24 * 60 * 60 * 1000);
+
+        /**
+         * Variable which stores the Oracle interval after the last range, in milliseconds.
+         */
+        private final long interval;
+
+        /**
+         * Constructor which initiate the variable interval.
+         *
+         * @param interval Oracle interval after the last range, in milliseconds.
+         */
+        Unit(long interval) {
+
+            this.interval = interval;
+        }
+
+        /**
+         * Epoch millis of the start of each month or year from start to end, in UTC.
+         *
+         * @param start first month of the ranges.
+         * @param end   last month of the ranges.
+         * @return the bounds, at least two.
+         */
+        List<Long> bounds(YearMonth start, YearMonth end) {
+
+            YearMonth from = this == MONTHLY ? start : start.withMonth(1);
+            YearMonth to = this == MONTHLY ? end.plusMonths(1) : end.withMonth(1).plusYears(1);
+            List<Long> bounds = new ArrayList<>();
+            for (YearMonth month = from; !month.isAfter(to); month = this == MONTHLY ? month.plusMonths(1)
+                    : month.plusYears(1)) {
+                bounds.add(month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli());
+            }
+            return bounds;
+        }
+
+        /**
+         * Name of the partition of the range starting at a bound, eg:- P201901 or P2019.
+         *
+         * @param bound epoch millis of the start of the range.
+         * @return the partition name.
+         */
+        String name(long bound) {
+
+            YearMonth month = YearMonth.from(Instant.ofEpochMilli(bound).atZone(ZoneOffset.UTC));
+            return this == MONTHLY ? String.format(Locale.ENGLISH, "P%04d%02d", month.getYear(),
+                    month.getMonthValue()) : String.format(Locale.ENGLISH, "P%04d", month.getYear());
+        }
+    }
+
+    /**
+     * Statements to run before the partitioned tables are created, eg:- the partition functions of MSSQL.
+     *
+     * @param start first month of the ranges.
+     * @param end   last month of the ranges.
+     * @return the DDL statements, may be empty.
+     */
+    List<String> prelude(YearMonth start, YearMonth end) {
+
+        return Collections.emptyList();
+    }
+
+    /**
+     * Partitioned form of the CREATE TABLE statement of an aggregation table.
+     *
+     * @param createTable CREATE TABLE statement of the table.
+     * @param table       name of the table.
+     * @param unit        width of the partitions.
+     * @param start       first month of the ranges.
+     * @param end         last month of the ranges.
+     * @return the DDL statements which replace the statement, the table first.
+     */
+    abstract List<String> partition(String createTable, String table, Unit unit, YearMonth start, YearMonth end);
+
+    /**
+     * Replace the CREATE TABLE statements of the aggregation tables with their partitioned form. Other
+     * statements are kept as they are. The prelude has to be run first.
+     *
+     * @param ddl   DDL statements of the IS_ANALYTICS tables & their indexes.
+     * @param start first month of the ranges.
+     * @param end   last month of the ranges.
+     * @return the DDL statements.
+     */
+    List<String> apply(List<String> ddl, YearMonth start, YearMonth end) {
+
+        List<String> al = new ArrayList<>();
+        for (String s : ddl) {
+            Unit unit = DdlExecutor.isIndex(s) ? null : unit(DdlExecutor.tableName(s));
+            if (unit == null) {
+                al.add(s);
+            } else {
+                String table = DdlExecutor.summary(s).split("\\s+")[2];
+                al.addAll(partition(s, table, unit, start, end));
+            }
+        }
+        return al;
+    }
+
+    /**
+     * Width of the partitions of an aggregation table.
+     *
+     * @param table upper case table name, may be null.
+     * @return the unit, null if the table is not partitioned.
+     */
+    static Unit unit(String table) {
+
+        if (table == null || !table.matches("(AUTHSTATAGG|ROLEAGGREGATION|SESSIONAGGREGATION)_(HOURS|DAYS|MONTHS"
+                + "|YEARS)")) {
+            return null;
+        }
+        return table.endsWith("_HOURS") || table.endsWith("_DAYS") ? Unit.MONTHLY : Unit.YEARLY;
+    }
+
+    /**
+     * Strip the trailing semicolon of a statement.
+     *
+     * @param s DDL statement.
+     * @return the statement without the semicolon.
+     */
+    private static String withoutSemicolon(String s) {
+
+        String ddl = s.trim();
+        return ddl.endsWith(";") ? ddl.substring(0, ddl.length() - 1) : ddl;
+    }
+}
@@ -0,0 +1,465 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.apache.log4j.Logger;
+
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the source rows of a table through a migration in three stages, so fetching from the source,
+ * transforming & writing to the target overlap: a reader thread fills chunks of source rows, a transform
+ * thread feeds them to the migration & the calling thread writes the produced rows. The stages are connected
+ * by queues of a fixed number of chunks. A slow target fills the queue of produced rows, which stops the
+ * transform stage, which in turn stops the reader once every chunk of source rows is in use, so at most
+ * depth + 2 chunks of source rows & depth chunks of target rows are held in memory.
+ * <p>
+ * Every produced row carries the watermark of the source row it was produced from, so progress recorded
+ * while writing it has the same meaning as in a single threaded run. While the stages run, the pipeline is
+ * registered with its metrics, which report the sizes of its queues.
+ */
+class Pipeline {
+
+    /**
+     * Initialize Logger object to log messages
+     */
+    private static final Logger LOG = Logger.getLogger(Pipeline.class);
+
+    /**
+     * Reads the next source row.
+     */
+    interface RowReader {
+
+        /**
+         * Read the next source row into an array.
+         *
+         * @param row array which receives the values of the source columns.
+         * @return false if there are no more rows.
+         * @throws SQLException if the row could not be read.
+         */
+        boolean next(Object[] row) throws SQLException;
+    }
+
+    /**
+     * Writes the produced rows.
+     */
+    interface RowWriter {
+
+        /**
+         * Write a produced row.
+         *
+         * @param row       values of the target columns.
+         * @param watermark watermark of the last source row with one up to the row, null if there is none.
+         * @throws SQLException if the row could not be written.
+         */
+        void write(Object[] row, Long watermark) throws SQLException;
+    }
+
+    /**
+     * Rows passed from one stage to the next.
+     */
+    private static final class Chunk {
+
+        /**
+         * Variable which stores the rows, reused for the next chunk in the case of source rows.
+         */
+        private final Object[][] rows;
+        /**
+         * Variable which stores the watermark of each row.
+         */
+        private final Long[] watermarks;
+        /**
+         * Variable which stores the number of rows in the chunk.
+         */
+        private int size;
+        /**
+         * Variable which stores whether the chunk ends the rows, with or without a failure.
+         */
+        private boolean last;
+        /**
+         * Variable which stores the failure of an earlier stage, null if there is none.
+         */
+        private Exception failure;
+
+        /**
+         * Constructor which initiate the variables rows,watermarks.
+         *
+         * @param capacity number of rows of the chunk.
+         */
+        Chunk(int capacity) {
+
+            this.rows = new Object[capacity][];
+            this.watermarks = new Long[capacity];
+        }
+    }
+
+    /**
+     * Variable which stores the name of the table, used in messages.
+     */
+    private final String table;
+    /**
+     * Variable which stores the number of chunks each queue holds, 0 to run every stage on the calling thread.
+     */
+    private final int depth;
+    /**
+     * Variable which stores the number of rows per chunk.
+     */
+    private final int chunkSize;
+    /**
+     * Variable which stores the number of chunks the read queue & the write queue can hold.
+     */
+    private final int queueCapacity;
+    /**
+     * Variable which stores the chunks of source rows the reader may fill.
+     */
+    private final BlockingQueue<Chunk> free;
+    /**
+     * Variable which stores the chunks of source rows waiting to be transformed.
+     */
+    private final BlockingQueue<Chunk> read;
+    /**
+     * Variable which stores the chunks of target rows waiting to be written.
+     */
+    private final BlockingQueue<Chunk> transformed;
+    /**
+     * Variable which stores the metrics of the table & the worker, which receive the time spent in each stage.
+     */
+    private final TableMetrics[] metrics;
+    /**
+     * Variable which stores the nanoseconds the reader waited for a free chunk.
+     */
+    private volatile long readerWait;
+    /**
+     * Variable which stores the nanoseconds the transform stage waited for room in the write queue.
+     */
+    private volatile long transformWait;
+    /**
+     * Variable which stores the nanoseconds the writer waited for target rows.
+     */
+    private volatile long writerWait;
+
+    /**
+     * Constructor which initiate the variables table,depth,chunkSize,metrics and the queues.
+     *
+     * @param table     name of the table, used in messages.
+     * @param depth     number of chunks each queue holds, 0 to run every stage on the calling thread.
+     * @param chunkSize number of rows per chunk.
+     * @param metrics   metrics which receive the time spent in each stage & report the queue sizes unless depth
+     *                  is 0.
+     */
+    Pipeline(String table, int depth, int chunkSize, TableMetrics... metrics) {
+
+        this.table = table;
+        this.metrics = metrics;
+        this.depth = Math.max(0, depth);
+        this.chunkSize = Math.max(1, chunkSize);
+        int capacity = Math.max(1, this.depth);
+        this.queueCapacity = capacity + 1;
+        this.free = new ArrayBlockingQueue<>(capacity + 2);
+        this.read = new ArrayBlockingQueue<>(queueCapacity);
+        this.transformed = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    /**
+     * Run every source row through a migration & write the rows it produces.
+     *
+     * @param reader        reader of the source rows.
+     * @param columns       number of source columns.
+     * @param watermarkIndex index of the watermark among the source columns, -1 if there is none.
+     * @param migration     migration which transforms the rows.
+     * @param finish        whether the migration is finished after the last row.
+     * @param writer        writer of the produced rows.
+     * @throws SQLException if a row could not be read, transformed or written.
+     */
+    void run(RowReader reader, int columns, int watermarkIndex, TableMigration migration, boolean finish,
+             RowWriter writer) throws SQLException {
+
+        if (depth == 0) {
+            Object[] row = new Object[columns];
+            Long[] watermark = new Long[1];
+            RowSink sink = produced -> writer.write(produced, watermark[0]);
+            while (reader.next(row)) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new SQLException(String.format("Interrupted while migrating %s", table));
+                }
+                if (watermarkIndex >= 0 && row[watermarkIndex] != null) {
+                    watermark[0] = Transformations.asLong(row[watermarkIndex]);
+                }
+                migration.process(row, sink);
+            }
+            if (finish) {
+                migration.finish(sink);
+            }
+            return;
+        }
+        for (int i = 0; i < depth + 2; i++) {
+            Chunk chunk = new Chunk(chunkSize);
+            for (int j = 0; j < chunkSize; j++) {
+                chunk.rows[j] = new Object[columns];
+            }
+            free.add(chunk);
+        }
+        for (TableMetrics m : metrics) {
+            m.pipelineStarted(this);
+        }
+        ExecutorService stages = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> reading = stages.submit(() -> {
+                readStage(reader);
+                return null;
+            });
+            Future<?> transforming = stages.submit(() -> {
+                transformStage(watermarkIndex, migration, finish);
+                return null;
+            });
+            writeStage(writer);
+            reading.get();
+            transforming.get();
+            LOG.debug(String.format("Pipeline of %s finished, the reader waited %d ms for free chunks, the "
+                    + "transform stage %d ms for the writer & the writer %d ms for rows", table,
+                    TimeUnit.NANOSECONDS.toMillis(readerWait), TimeUnit.NANOSECONDS.toMillis(transformWait),
+                    TimeUnit.NANOSECONDS.toMillis(writerWait)));
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof SQLException ? (SQLException) e.getCause() : new SQLException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException(String.format("Interrupted while migrating %s", table), e);
+        } finally {
+            stages.shutdownNow();
+            for (TableMetrics m : metrics) {
+                m.pipelineFinished(this);
+            }
+            free.clear();
+            read.clear();
+            transformed.clear();
+        }
+    }
+
+    /**
+     * Number of chunks of source rows waiting to be transformed.
+     *
+     * @return the size of the read queue.
+     */
+    int getReadQueueSize() {
+
+        return read.size();
+    }
+
+    /**
+     * Number of chunks of target rows waiting to be written.
+     *
+     * @return the size of the write queue.
+     */
+    int getWriteQueueSize() {
+
+        return transformed.size();
+    }
+
+    /**
+     * Number of chunks the read queue & the write queue can each hold.
+     *
+     * @return the capacity of a queue.
+     */
+    int getQueueCapacity() {
+
+        return queueCapacity;
+    }
+
+    /**
+     * Fill free chunks with source rows until the source is exhausted or fails.
+     *
+     * @param reader reader of the source rows.
+     * @throws InterruptedException if a later stage failed.
+     */
+    private void readStage(RowReader reader) throws InterruptedException {
+
+        while (true) {
+            long start = System.nanoTime();
+            Chunk chunk = free.take();
+            readerWait += System.nanoTime() - start;
+            chunk.size = 0;
+            start = System.nanoTime();
+            try {
+                while (chunk.size < chunkSize && reader.next(chunk.rows[chunk.size])) {
+                    chunk.size++;
+                }
+                chunk.last = chunk.size < chunkSize;
+            } catch (SQLException | RuntimeException e) {
+                chunk.last = true;
+                chunk.failure = e;
+            }
+            long fetched = System.nanoTime() - start;
+            for (TableMetrics m : metrics) {
+                m.addSourceTime(fetched);
+            }
+            read.put(chunk);
+            if (chunk.last) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Feed the chunks of source rows to the migration & pass the rows it produces on.
+     *
+     * @param watermarkIndex index of the watermark among the source columns, -1 if there is none.
+     * @param migration      migration which transforms the rows.
+     * @param finish         whether the migration is finished after the last row.
+     * @throws InterruptedException if a later stage failed.
+     */
+    private void transformStage(int watermarkIndex, TableMigration migration, boolean finish)
+            throws InterruptedException {
+
+        Chunk[] output = {new Chunk(chunkSize)};
+        Long[] watermark = new Long[1];
+        RowSink sink = row -> {
+            Chunk chunk = output[0];
+            chunk.rows[chunk.size] = row;
+            chunk.watermarks[chunk.size++] = watermark[0];
+            if (chunk.size == chunkSize) {
+                pass(chunk);
+                output[0] = new Chunk(chunkSize);
+            }
+        };
+        try {
+            while (true) {
+                Chunk chunk = read.take();
+                long start = System.nanoTime();
+                long waited = transformWait;
+                for (int i = 0; i < chunk.size; i++) {
+                    Object[] row = chunk.rows[i];
+                    if (watermarkIndex >= 0 && row[watermarkIndex] != null) {
+                        watermark[0] = Transformations.asLong(row[watermarkIndex]);
+                    }
+                    migration.process(row, sink);
+                }
+                // Time spent waiting for the writer is counted by pass, not as transform time.
+                addTransformTime(System.nanoTime() - start - (transformWait - waited));
+                if (chunk.failure != null) {
+                    output[0].failure = chunk.failure;
+                    break;
+                }
+                if (chunk.last) {
+                    break;
+                }
+                free.put(chunk);
+            }
+            if (finish && output[0].failure == null) {
+                long start = System.nanoTime();
+                long waited = transformWait;
+                migration.finish(sink);
+                addTransformTime(System.nanoTime() - start - (transformWait - waited));
+            }
+        } catch (InterruptedStage e) {
+            throw e.getCause();
+        } catch (SQLException | RuntimeException e) {
+            output[0].failure = e;
+        }
+        output[0].last = true;
+        pass(output[0]);
+    }
+
+    /**
+     * Write the produced rows until the last chunk.
+     *
+     * @param writer writer of the produced rows.
+     * @throws SQLException if a row could not be written or an earlier stage failed.
+     * @throws InterruptedException if the calling thread is interrupted.
+     */
+    private void writeStage(RowWriter writer) throws SQLException, InterruptedException {
+
+        while (true) {
+            long start = System.nanoTime();
+            Chunk chunk = transformed.take();
+            writerWait += System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < chunk.size; i++) {
+                writer.write(chunk.rows[i], chunk.watermarks[i]);
+            }
+            long written = System.nanoTime() - start;
+            for (TableMetrics m : metrics) {
+                m.addTargetTime(written);
+            }
+            if (chunk.failure != null) {
+                throw chunk.failure instanceof SQLException ? (SQLException) chunk.failure
+                        : new SQLException(chunk.failure);
+            }
+            if (chunk.last) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Record time spent by the transform stage.
+     *
+     * @param nanos time in nanoseconds.
+     */
+    private void addTransformTime(long nanos) {
+
+        for (TableMetrics m : metrics) {
+            m.addTransformTime(nanos);
+        }
+    }
+
+    /**
+     * Pass a chunk of target rows to the writer, waiting while the write queue is full.
+     *
+     * @param chunk chunk of target rows.
+     * @throws InterruptedStage if a later stage failed while waiting.
+     */
+    private void pass(Chunk chunk) {
+
+        long start = System.nanoTime();
+        try {
+            transformed.put(chunk);
+        } catch (InterruptedException e) {
+            throw new InterruptedStage(e);
+        } finally {
+            transformWait += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Carries an interruption out of a RowSink, whose accept can only throw SQLException.
+     */
+    private static final class InterruptedStage extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructor which initiate the cause.
+         *
+         * @param cause the interruption.
+         */
+        InterruptedStage(InterruptedException cause) {
+
+            super(cause);
+        }
+
+        @Override
+        public synchronized InterruptedException getCause() {
+
+            return (InterruptedException) super.getCause();
+        }
+    }
+}
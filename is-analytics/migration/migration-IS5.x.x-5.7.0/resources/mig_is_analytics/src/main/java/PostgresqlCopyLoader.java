@@ -0,0 +1,65 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Loads rows into Postgresql with COPY FROM STDIN in CSV format, through the CopyManager of the driver.
+ */
+class PostgresqlCopyLoader extends BulkLoader {
+
+    @Override
+    void load(Connection connection, TableMigration migration, TargetColumns columns, List<Object[]> rows)
+            throws SQLException {
+
+        Class<?> pgConnection = driverClass(connection, "org.postgresql.PGConnection");
+        Object copyManager = invoke(connection.unwrap(pgConnection), "getCopyAPI", new Class<?>[0]);
+        String sql = "COPY " + migration.getTargetTable() + " (" + columnList(columns) + ") FROM STDIN CSV";
+        invoke(copyManager, "copyIn", new Class<?>[]{String.class, Reader.class}, sql,
+                new StringReader(csv(rows)));
+    }
+
+    /**
+     * Encode rows as CSV. Null is an unquoted empty field & every string is quoted, so an empty string stays
+     * an empty string.
+     *
+     * @param rows rows to encode.
+     * @return the CSV text.
+     */
+    static String csv(List<Object[]> rows) {
+
+        StringBuilder csv = new StringBuilder();
+        for (Object[] row : rows) {
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0) {
+                    csv.append(',');
+                }
+                Object value = row[i];
+                if (value instanceof String) {
+                    csv.append('"').append(((String) value).replace("\"", "\"\"")).append('"');
+                } else if (value != null) {
+                    csv.append(value);
+                }
+            }
+            csv.append('\n');
+        }
+        return csv.toString();
+    }
+}
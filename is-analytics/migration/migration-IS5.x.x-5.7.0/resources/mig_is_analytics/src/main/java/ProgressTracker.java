@@ -0,0 +1,462 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Progress of a migration run against the estimated rows of the source tables: the share of each table
+ * read, its current rows per second & the time it is projected to finish, & the same for the whole run. It
+ * is logged every progressInterval seconds & written to a JSON status file which other tools can poll. The
+ * rows are estimated in the background, so the migration does not wait for a slow count.
+ * <p>
+ * Progress is measured on the rows read, so the aggregation tables, which are written after their source is
+ * read, spend a little longer at 100% than the other tables.
+ */
+class ProgressTracker implements AutoCloseable {
+
+    /**
+     * Initialize Logger object to log messages
+     */
+    private static final Logger LOG = Logger.getLogger(ProgressTracker.class);
+
+    /**
+     * State of a table in the run.
+     */
+    enum State {
+        PENDING, RUNNING, DONE, SKIPPED, FAILED
+    }
+
+    /**
+     * Progress of one target table.
+     */
+    private static final class Entry {
+
+        /**
+         * Variable which stores the name of the target table.
+         */
+        private final String table;
+        /**
+         * Variable which stores the name of the source table.
+         */
+        private final String sourceTable;
+        /**
+         * Variable which stores the metrics which count the source rows read for the table, shared by the
+         * granularities of a rollup.
+         */
+        private final TableMetrics reader;
+        /**
+         * Variable which stores the estimated source rows to read, -1 until it is estimated.
+         */
+        private volatile long expected = -1;
+        /**
+         * Variable which stores the state of the table.
+         */
+        private State state = State.PENDING;
+        /**
+         * Variable which stores the rows read by the metrics before the table started.
+         */
+        private long readBefore;
+        /**
+         * Variable which stores the rows read at the previous report.
+         */
+        private long reportedRows;
+        /**
+         * Variable which stores the System.nanoTime of the previous report, 0 before the table started.
+         */
+        private long reportedAt;
+        /**
+         * Variable which stores the rows read per second between the last two reports.
+         */
+        private double rate;
+
+        /**
+         * Constructor which initiate the variables table,sourceTable,reader.
+         *
+         * @param table       name of the target table.
+         * @param sourceTable name of the source table.
+         * @param reader      metrics which count the source rows read for the table.
+         */
+        Entry(String table, String sourceTable, TableMetrics reader) {
+
+            this.table = table;
+            this.sourceTable = sourceTable;
+            this.reader = reader;
+        }
+
+        /**
+         * Source rows read for the table in this run.
+         *
+         * @return the number of rows.
+         */
+        long read() {
+
+            return state == State.PENDING ? 0 : reader.getRowsRead() - readBefore;
+        }
+    }
+
+    /**
+     * Variable which stores the metrics which count the rows read.
+     */
+    private final MigrationMetrics metrics;
+    /**
+     * Variable which stores the estimator of the source rows.
+     */
+    private final RowCountEstimator estimator;
+    /**
+     * Variable which stores the status file, null if none is written.
+     */
+    private final File statusFile;
+    /**
+     * Variable which stores the progress of each target table, in the order of the run.
+     */
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    /**
+     * Variable which stores the thread which estimates the source rows.
+     */
+    private final ExecutorService estimates;
+    /**
+     * Variable which stores the thread which reports the progress, null if it is only reported at the end.
+     */
+    private final ScheduledExecutorService reports;
+
+    /**
+     * Constructor which initiate the variables metrics,estimator,statusFile and starts the reports.
+     *
+     * @param metrics    metrics which count the rows read.
+     * @param estimator  estimator of the source rows.
+     * @param interval   seconds between two reports, 0 to report only when a table starts or ends.
+     * @param statusFile path of the status file, null or empty to write none.
+     */
+    ProgressTracker(MigrationMetrics metrics, RowCountEstimator estimator, int interval, String statusFile) {
+
+        this.metrics = metrics;
+        this.estimator = estimator;
+        this.statusFile = statusFile == null || statusFile.trim().isEmpty() ? null : new File(statusFile.trim());
+        this.estimates = Executors.newSingleThreadExecutor(daemon("migration-estimates"));
+        if (interval > 0) {
+            reports = Executors.newSingleThreadScheduledExecutor(daemon("migration-progress"));
+            reports.scheduleAtFixedRate(() -> report(true), interval, interval, TimeUnit.SECONDS);
+        } else {
+            reports = null;
+        }
+    }
+
+    /**
+     * Add a target table to the run & start estimating its source rows.
+     *
+     * @param table       name of the target table.
+     * @param sourceTable name of the source table.
+     * @param reader      name of the metrics which count the source rows read for the table.
+     */
+    synchronized void add(String table, String sourceTable, String reader) {
+
+        Entry entry = new Entry(table, sourceTable, metrics.table(reader));
+        entries.put(table, entry);
+        estimates.submit(() -> {
+            entry.expected = estimator.estimate(sourceTable);
+        });
+    }
+
+    /**
+     * Record that a table started.
+     *
+     * @param table  name of the target table.
+     * @param column watermark column, null if there is none.
+     * @param from   lowest watermark read, null to read the whole source table.
+     */
+    synchronized void start(String table, String column, Long from) {
+
+        Entry entry = entries.get(table);
+        if (entry == null) {
+            return;
+        }
+        entry.state = State.RUNNING;
+        entry.readBefore = entry.reader.getRowsRead();
+        entry.reportedRows = 0;
+        entry.reportedAt = System.nanoTime();
+        if (column != null && from != null) {
+            estimates.submit(() -> {
+                entry.expected = estimator.estimate(entry.sourceTable, column, from);
+            });
+        }
+        report(false);
+    }
+
+    /**
+     * Record that a table was skipped, since a previous run migrated it.
+     *
+     * @param table name of the target table.
+     */
+    synchronized void skip(String table) {
+
+        Entry entry = entries.get(table);
+        if (entry != null) {
+            entry.state = State.SKIPPED;
+        }
+    }
+
+    /**
+     * Record that a table ended.
+     *
+     * @param table   name of the target table.
+     * @param success whether every row of the table was migrated.
+     */
+    synchronized void finish(String table, boolean success) {
+
+        Entry entry = entries.get(table);
+        if (entry == null) {
+            return;
+        }
+        if (entry.state == State.PENDING) {
+            start(table, null, null);
+        }
+        entry.state = success ? State.DONE : State.FAILED;
+        report(false);
+    }
+
+    /**
+     * Stop the reports & write the final status. Tables which did not end are reported as failed.
+     */
+    @Override
+    public synchronized void close() {
+
+        estimates.shutdownNow();
+        if (reports != null) {
+            reports.shutdownNow();
+        }
+        for (Entry entry : entries.values()) {
+            if (entry.state == State.PENDING || entry.state == State.RUNNING) {
+                entry.state = State.FAILED;
+            }
+        }
+        report(false);
+    }
+
+    /**
+     * Write the status file, & log the progress of the running tables & the run.
+     *
+     * @param log whether the progress is logged.
+     */
+    private synchronized void report(boolean log) {
+
+        long now = System.nanoTime();
+        long expectedTotal = 0;
+        long readTotal = 0;
+        double rateTotal = 0;
+        boolean estimated = true;
+        int done = 0;
+        int tables = 0;
+        List<String> lines = new ArrayList<>();
+        // The granularities of a rollup share one source table, which is counted once in the totals.
+        Map<TableMetrics, Boolean> counted = new IdentityHashMap<>();
+        for (Entry entry : entries.values()) {
+            if (entry.state == State.SKIPPED) {
+                continue;
+            }
+            tables++;
+            long read = entry.read();
+            if (entry.state == State.RUNNING) {
+                double seconds = (now - entry.reportedAt) / 1e9;
+                if (seconds >= 1) {
+                    entry.rate = (read - entry.reportedRows) / seconds;
+                    entry.reportedRows = read;
+                    entry.reportedAt = now;
+                }
+            } else {
+                entry.rate = 0;
+                done += entry.state == State.PENDING ? 0 : 1;
+            }
+            if (counted.put(entry.reader, Boolean.TRUE) == null) {
+                long expected = expected(entry);
+                estimated &= expected >= 0;
+                expectedTotal += Math.max(expected, 0);
+                readTotal += read;
+                rateTotal += entry.rate;
+            }
+            if (log && entry.state == State.RUNNING) {
+                lines.add(line(entry.table, read, expected(entry), entry.rate));
+            }
+        }
+        if (log && !lines.isEmpty()) {
+            for (String line : lines) {
+                LOG.info(line);
+            }
+            LOG.info(String.format("%s, %d of %d tables finished", line("Migration", readTotal,
+                    estimated ? expectedTotal : -1, rateTotal), done, tables));
+        }
+        if (statusFile != null) {
+            writeStatus(readTotal, estimated ? expectedTotal : -1, rateTotal);
+        }
+    }
+
+    /**
+     * Rows a table is expected to read, which is the rows it read once it is done.
+     *
+     * @param entry progress of the table.
+     * @return the number of rows, -1 while it is not estimated.
+     */
+    private static long expected(Entry entry) {
+
+        if (entry.state == State.DONE) {
+            return entry.read();
+        }
+        return entry.expected < 0 ? -1 : Math.max(entry.expected, entry.read());
+    }
+
+    /**
+     * Progress line of a table or the run.
+     *
+     * @param name     name of the table, or Migration for the run.
+     * @param read     rows read.
+     * @param expected rows expected, -1 while they are not estimated.
+     * @param rate     rows read per second.
+     * @return the line.
+     */
+    static String line(String name, long read, long expected, double rate) {
+
+        if (expected < 0) {
+            return String.format("%s: read %d rows at %.0f rows/s, estimating the rows to read", name, read, rate);
+        }
+        long remaining = expected - read;
+        return String.format("%s: %.1f%% of ~%d rows read at %.0f rows/s, %s", name, percent(read, expected),
+                expected, rate, remaining == 0 ? "finished reading" : rate <= 0 ? "no finish time yet"
+                        : "finishes at " + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.ENGLISH).format(
+                        new Date(System.currentTimeMillis() + (long) (remaining / rate * 1000))));
+    }
+
+    /**
+     * Share of the expected rows which are read.
+     *
+     * @param read     rows read.
+     * @param expected rows expected.
+     * @return the percentage.
+     */
+    private static double percent(long read, long expected) {
+
+        return expected <= 0 ? 100 : Math.min(100, read * 100.0 / expected);
+    }
+
+    /**
+     * Write the progress to the status file, replacing it in one step so a reader never sees half a file.
+     *
+     * @param read     rows read by the run.
+     * @param expected rows expected by the run, -1 while they are not estimated.
+     * @param rate     rows read per second by the run.
+     */
+    private void writeStatus(long read, long expected, double rate) {
+
+        boolean running = false;
+        boolean failed = false;
+        StringBuilder json = new StringBuilder("{\n  \"updated\": \"").append(Instant.now()).append("\",\n");
+        StringBuilder tables = new StringBuilder();
+        for (Entry entry : entries.values()) {
+            running |= entry.state == State.RUNNING || entry.state == State.PENDING;
+            failed |= entry.state == State.FAILED;
+            tables.append(tables.length() == 0 ? "\n" : ",\n").append("    {\"table\": ").append(quote(entry.table))
+                    .append(", \"sourceTable\": ").append(quote(entry.sourceTable)).append(", \"state\": \"")
+                    .append(entry.state).append("\", ");
+            progress(tables, entry.read(), expected(entry), entry.rate);
+            tables.append('}');
+        }
+        json.append("  \"state\": \"").append(running ? State.RUNNING : failed ? State.FAILED : State.DONE)
+                .append("\",\n  ");
+        progress(json, read, expected, rate);
+        json.append(",\n  \"tables\": [").append(tables).append("\n  ]\n}\n");
+        File temporary = new File(statusFile.getPath() + ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temporary.toPath(), StandardCharsets.UTF_8)) {
+                writer.write(json.toString());
+            }
+            try {
+                Files.move(temporary.toPath(), statusFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary.toPath(), statusFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            LOG.warn(String.format("Could not write the status file %s, %s", statusFile, e));
+        }
+    }
+
+    /**
+     * Append the progress fields of a table or the run to a JSON object.
+     *
+     * @param json     JSON object being written.
+     * @param read     rows read.
+     * @param expected rows expected, -1 while they are not estimated.
+     * @param rate     rows read per second.
+     */
+    static void progress(StringBuilder json, long read, long expected, double rate) {
+
+        json.append("\"rowsRead\": ").append(read).append(", \"rowsExpected\": ")
+                .append(expected < 0 ? "null" : String.valueOf(expected)).append(", \"percent\": ")
+                .append(expected < 0 ? "null" : String.format(Locale.ENGLISH, "%.1f", percent(read, expected)))
+                .append(", \"rowsPerSecond\": ").append(Math.round(rate)).append(", \"finishesAt\": ");
+        if (expected >= 0 && expected > read && rate > 0) {
+            json.append('"').append(Instant.now().plusMillis((long) ((expected - read) / rate * 1000))).append('"');
+        } else {
+            json.append("null");
+        }
+    }
+
+    /**
+     * JSON string of a name.
+     *
+     * @param value the name.
+     * @return the quoted & escaped name.
+     */
+    private static String quote(String value) {
+
+        return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+
+    /**
+     * Factory of named daemon threads, which do not keep the tool running.
+     *
+     * @param name name of the thread.
+     * @return the thread factory.
+     */
+    private static ThreadFactory daemon(String name) {
+
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
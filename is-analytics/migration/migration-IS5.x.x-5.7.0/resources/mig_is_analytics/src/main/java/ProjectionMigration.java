@@ -0,0 +1,107 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import java.sql.SQLException;
+
+/**
+ * Table migration which maps every source row to one target row.
+ */
+class ProjectionMigration extends TableMigration {
+
+    /**
+     * Maps a source row to a target row.
+     */
+    interface RowMapper {
+
+        /**
+         * Map a source row.
+         *
+         * @param row values of the source columns.
+         * @return a new array with the values of the target columns.
+         */
+        Object[] map(Object[] row);
+    }
+
+    /**
+     * Source column used as the resume watermark when the migration reads it.
+     */
+    private static final String TIMESTAMP_COLUMN = "_timestamp";
+
+    /**
+     * Variable which stores the mapper applied to each source row.
+     */
+    private final RowMapper mapper;
+    /**
+     * Variable which stores whether source rows in different watermark ranges may produce the same primary key.
+     */
+    private boolean crossRangeKeys = true;
+
+    /**
+     * Constructor which initiate the variables of the migration and the row mapper.
+     *
+     * @param sourceTable      name of the DAS analytics source table.
+     * @param targetTable      name of the IS_ANALYTICS target table.
+     * @param sourceColumns    source columns read for each source row.
+     * @param targetColumns    target columns of each produced row, primary key columns first.
+     * @param primaryKeyLength number of leading target columns which form the primary key.
+     * @param mapper           mapper applied to each source row.
+     */
+    ProjectionMigration(String sourceTable, String targetTable, String[] sourceColumns, String[] targetColumns,
+                        int primaryKeyLength, RowMapper mapper) {
+
+        super(sourceTable, targetTable, sourceColumns, targetColumns, primaryKeyLength);
+        this.mapper = mapper;
+    }
+
+    @Override
+    void process(Object[] row, RowSink sink) throws SQLException {
+
+        sink.accept(mapper.map(row));
+    }
+
+    @Override
+    boolean isPartitionable() {
+
+        return true;
+    }
+
+    @Override
+    boolean hasCrossRangeKeys() {
+
+        return crossRangeKeys;
+    }
+
+    /**
+     * Setter of crossRangeKeys
+     *
+     * @param crossRangeKeys whether source rows in different watermark ranges may produce the same primary key.
+     */
+    void setCrossRangeKeys(boolean crossRangeKeys) {
+
+        this.crossRangeKeys = crossRangeKeys;
+    }
+
+    @Override
+    String getWatermarkColumn() {
+
+        for (String column : getSourceColumns()) {
+            if (TIMESTAMP_COLUMN.equalsIgnoreCase(column)) {
+                return column;
+            }
+        }
+        return null;
+    }
+}
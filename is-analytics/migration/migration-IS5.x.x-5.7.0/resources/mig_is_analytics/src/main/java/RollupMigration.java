@@ -0,0 +1,331 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import java.io.File;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds the aggregation tables of every granularity from one scan of the per hour source table, instead of
+ * scanning the per hour, day, month & year tables one after the other. Each granularity is an
+ * AggregationMigration of the per hour table whose GROUP BY key leaves out the finer time columns, so its
+ * target rows are built by the same group mapper as a separate migration.
+ * <p>
+ * A group is keyed by its time bucket packed into a long & the values of its other key columns. Rows are
+ * looked up with a reused probe key, so only a new group allocates memory.
+ */
+class RollupMigration extends TableMigration {
+
+    /**
+     * Variable which stores the migration of each granularity, finest first.
+     */
+    private final AggregationMigration[] levels;
+    /**
+     * Variable which stores the granularity of each migration.
+     */
+    private final Granularity[] granularities;
+    /**
+     * Variable which stores the source row index of the year, month, day & hour columns.
+     */
+    private final int[] timeIndexes;
+    /**
+     * Variable which stores, per granularity, the source row index of each non time GROUP BY column.
+     */
+    private final int[][] keyIndexes;
+    /**
+     * Variable which stores, per granularity, the position of each GROUP BY column in the key of the
+     * granularity: a non time column as its index among the non time columns, a time column as -1 - its index
+     * among year, month, day & hour.
+     */
+    private final int[][] keyLayouts;
+    /**
+     * Variable which stores, per granularity, the source row index of each aggregated column.
+     */
+    private final int[][] valueIndexes;
+    /**
+     * Variable which stores, per granularity, the reused array of aggregated values of the current row.
+     */
+    private final Object[][] values;
+    /**
+     * Variable which stores, per granularity, the reused key of the current row.
+     */
+    private final Key[] probes;
+    /**
+     * Variable which stores, per granularity, the aggregate state of each group.
+     */
+    private final List<SpillingGroups<Key>> groups;
+    /**
+     * Variable which stores, per granularity, whether it is aggregated in this run.
+     */
+    private final boolean[] active;
+
+    /**
+     * Group of one granularity, identified by its packed time bucket & its non time key values.
+     */
+    private static final class Key {
+
+        /**
+         * Variable which stores the time bucket as yyyyMMddHH, with the fields below the granularity set to 0.
+         */
+        private long bucket;
+        /**
+         * Variable which stores the values of the non time key columns.
+         */
+        private final Object[] columns;
+        /**
+         * Variable which stores the hash code of the key.
+         */
+        private int hash;
+
+        /**
+         * Constructor which initiate the variables columns & leaves the key empty.
+         *
+         * @param size number of non time key columns.
+         */
+        Key(int size) {
+
+            this.columns = new Object[size];
+        }
+
+        /**
+         * Compute the hash code after the bucket & the columns are set.
+         */
+        void rehash() {
+
+            hash = 31 * Arrays.hashCode(columns) + Long.hashCode(bucket);
+        }
+
+        /**
+         * Copy of the key which can be stored in the group map.
+         *
+         * @return the copy.
+         */
+        Key copy() {
+
+            Key key = new Key(columns.length);
+            key.bucket = bucket;
+            System.arraycopy(columns, 0, key.columns, 0, columns.length);
+            key.hash = hash;
+            return key;
+        }
+
+        @Override
+        public int hashCode() {
+
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return bucket == key.bucket && hash == key.hash && Arrays.equals(columns, key.columns);
+        }
+    }
+
+    /**
+     * Constructor which initiate the variables levels,granularities and maps the columns of each granularity
+     * onto the source columns of the finest one.
+     *
+     * @param targetTable   name of the target tables, used in messages.
+     * @param levels        migration of each granularity, finest first, all reading the source table of the first.
+     * @param granularities granularity of each migration.
+     */
+    @SuppressWarnings("unchecked")
+    RollupMigration(String targetTable, AggregationMigration[] levels, Granularity[] granularities) {
+
+        super(levels[0].getSourceTable(), targetTable, levels[0].getSourceColumns(), levels[0].getTargetColumns(),
+                levels[0].getPrimaryKeyLength());
+        this.levels = levels;
+        this.granularities = granularities;
+        String[] source = getSourceColumns();
+        String[] time = Granularity.HOURS.getTimeColumns();
+        this.timeIndexes = new int[time.length];
+        for (int t = 0; t < time.length; t++) {
+            timeIndexes[t] = index(source, time[t]);
+        }
+        this.keyIndexes = new int[levels.length][];
+        this.keyLayouts = new int[levels.length][];
+        this.valueIndexes = new int[levels.length][];
+        this.values = new Object[levels.length][];
+        this.probes = new Key[levels.length];
+        this.groups = new ArrayList<>(levels.length);
+        this.active = new boolean[levels.length];
+        for (int i = 0; i < levels.length; i++) {
+            String[] columns = levels[i].getSourceColumns();
+            int keyLength = levels[i].getKeyLength();
+            keyLayouts[i] = new int[keyLength];
+            int[] keys = new int[keyLength];
+            int size = 0;
+            for (int j = 0; j < keyLength; j++) {
+                int t = Arrays.asList(time).indexOf(columns[j]);
+                if (t >= 0) {
+                    keyLayouts[i][j] = -1 - t;
+                } else {
+                    keyLayouts[i][j] = size;
+                    keys[size++] = index(source, columns[j]);
+                }
+            }
+            keyIndexes[i] = Arrays.copyOf(keys, size);
+            valueIndexes[i] = new int[columns.length - keyLength];
+            for (int j = keyLength; j < columns.length; j++) {
+                valueIndexes[i][j - keyLength] = index(source, columns[j]);
+            }
+            values[i] = new Object[valueIndexes[i].length];
+            probes[i] = new Key(size);
+            int keySize = size;
+            groups.add(new SpillingGroups<>(levels[i].getTargetTable(), levels[i].getFunctions(),
+                    new SpillingGroups.KeyCodec<Key>() {
+                        @Override
+                        public Object[] encode(Key key) {
+
+                            Object[] values = Arrays.copyOf(key.columns, keySize + 1);
+                            values[keySize] = key.bucket;
+                            return values;
+                        }
+
+                        @Override
+                        public Key decode(Object[] values) {
+
+                            Key key = new Key(keySize);
+                            System.arraycopy(values, 0, key.columns, 0, keySize);
+                            key.bucket = (Long) values[keySize];
+                            key.rehash();
+                            return key;
+                        }
+                    }));
+            active[i] = true;
+        }
+    }
+
+    /**
+     * Find a column in the source columns.
+     *
+     * @param columns source columns.
+     * @param column  column to find.
+     * @return index of the column.
+     * @throws IllegalArgumentException if the column is not a source column.
+     */
+    private static int index(String[] columns, String column) {
+
+        int index = Arrays.asList(columns).indexOf(column);
+        if (index < 0) {
+            throw new IllegalArgumentException(String.format("%s is not a column of the finest granularity",
+                    column));
+        }
+        return index;
+    }
+
+    @Override
+    void process(Object[] row, RowSink sink) throws SQLException {
+
+        int year = Transformations.asInt(row[timeIndexes[0]]);
+        int month = Transformations.asInt(row[timeIndexes[1]]);
+        int day = Transformations.asInt(row[timeIndexes[2]]);
+        int hour = Transformations.asInt(row[timeIndexes[3]]);
+        for (int i = 0; i < levels.length; i++) {
+            if (!active[i]) {
+                continue;
+            }
+            int depth = granularities[i].getTimeColumns().length;
+            Key probe = probes[i];
+            probe.bucket = ((year * 100L + (depth > 1 ? month : 0)) * 100 + (depth > 2 ? day : 0)) * 100
+                    + (depth > 3 ? hour : 0);
+            int[] keys = keyIndexes[i];
+            for (int k = 0; k < keys.length; k++) {
+                probe.columns[k] = row[keys[k]];
+            }
+            probe.rehash();
+            Object[] state = groups.get(i).get(probe);
+            if (state == null) {
+                state = AggregationMigration.newState(levels[i].getFunctions().length);
+                groups.get(i).add(probe.copy(), state);
+            }
+            int[] indexes = valueIndexes[i];
+            for (int v = 0; v < indexes.length; v++) {
+                values[i][v] = row[indexes[v]];
+            }
+            AggregationMigration.accumulate(state, values[i], 0, levels[i].getFunctions());
+        }
+    }
+
+    /**
+     * Emit the groups of one granularity to its target table.
+     *
+     * @param level index of the granularity.
+     * @param sink  receiver of the target rows of the granularity.
+     * @throws SQLException if a target row could not be written.
+     */
+    void finish(int level, RowSink sink) throws SQLException {
+
+        AggregationMigration migration = levels[level];
+        int[] layout = keyLayouts[level];
+        groups.get(level).drain((key, state) -> {
+            long bucket = key.bucket;
+            int[] time = {(int) (bucket / 1000000), (int) (bucket / 10000 % 100), (int) (bucket / 100 % 100),
+                    (int) (bucket % 100)};
+            Object[] columns = new Object[layout.length];
+            for (int j = 0; j < layout.length; j++) {
+                columns[j] = layout[j] < 0 ? (Object) time[-1 - layout[j]] : key.columns[layout[j]];
+            }
+            sink.accept(migration.getMapper().map(columns,
+                    AggregationMigration.result(state, migration.getFunctions())));
+        });
+    }
+
+    /**
+     * Split the budget between the granularities, since their groups are all kept until the scan ends.
+     *
+     * @param bytes          estimated bytes of state kept in memory.
+     * @param spillDirectory directory of the spilled state, null for the temporary directory.
+     */
+    @Override
+    void setMemoryBudget(long bytes, File spillDirectory) {
+
+        for (SpillingGroups<Key> level : groups) {
+            level.setBudget(bytes / groups.size(), spillDirectory);
+        }
+    }
+
+    /**
+     * Getter of levels
+     *
+     * @return the levels
+     */
+    AggregationMigration[] getLevels() {
+
+        return levels;
+    }
+
+    /**
+     * Setter of active
+     *
+     * @param level  index of the granularity.
+     * @param active whether the granularity is aggregated in this run.
+     */
+    void setActive(int level, boolean active) {
+
+        this.active[level] = active;
+    }
+}
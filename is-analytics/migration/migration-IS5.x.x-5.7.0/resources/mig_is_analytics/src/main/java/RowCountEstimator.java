@@ -0,0 +1,198 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Estimates the number of rows of the source tables for progress reporting. The row count kept in the
+ * statistics of MySQL, Postgresql, Oracle & MSSQL is read from the catalog, which is immediate but may be
+ * stale; other databases & tables without statistics are counted. Tables read from an export file are
+ * counted from the chunk directory of the file.
+ */
+class RowCountEstimator {
+
+    /**
+     * Initialize Logger object to log messages
+     */
+    private static final Logger LOG = Logger.getLogger(RowCountEstimator.class);
+
+    /**
+     * Variable which stores the factory of source database connections.
+     */
+    private final ConnectionFactory source;
+    /**
+     * Variable which stores the catalog query of the row count of a table, by upper case table name, null to
+     * count the rows.
+     */
+    private final String statisticsSql;
+    /**
+     * Variable which stores the directory of the exported source tables, null to read the source database.
+     */
+    private final File exportDirectory;
+    /**
+     * Variable which stores the estimated rows of each source table.
+     */
+    private final Map<String, Long> estimates = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor which initiate the variables source,statisticsSql.
+     *
+     * @param source    factory of source database connections.
+     * @param sourceUrl JDBC URL of the source database, which tells where its statistics are kept.
+     */
+    RowCountEstimator(ConnectionFactory source, String sourceUrl) {
+
+        this.source = source;
+        this.statisticsSql = statisticsSql(sourceUrl == null ? "" : sourceUrl.toLowerCase(Locale.ENGLISH));
+        this.exportDirectory = null;
+    }
+
+    /**
+     * Constructor which initiate the variable exportDirectory, to estimate the rows of the exported tables.
+     *
+     * @param exportDirectory directory of the exported source tables.
+     */
+    RowCountEstimator(File exportDirectory) {
+
+        this.source = null;
+        this.statisticsSql = null;
+        this.exportDirectory = exportDirectory;
+    }
+
+    /**
+     * Estimated number of rows of a source table.
+     *
+     * @param table name of the source table.
+     * @return the number of rows, -1 if it could not be estimated.
+     */
+    long estimate(String table) {
+
+        return estimates.computeIfAbsent(table.toUpperCase(Locale.ENGLISH), name -> {
+            if (exportDirectory != null) {
+                return exported(table, null);
+            }
+            try (Connection connection = source.getConnection()) {
+                if (statisticsSql != null) {
+                    try (PreparedStatement statement = connection.prepareStatement(statisticsSql)) {
+                        statement.setString(1, name);
+                        try (ResultSet resultSet = statement.executeQuery()) {
+                            if (resultSet.next() && resultSet.getLong(1) > 0) {
+                                return resultSet.getLong(1);
+                            }
+                        }
+                    } catch (SQLException e) {
+                        LOG.debug(String.format("Could not read the statistics of %s, counting its rows, %s", table,
+                                e));
+                    }
+                }
+                try (PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM " + table);
+                     ResultSet resultSet = statement.executeQuery()) {
+                    return resultSet.next() ? resultSet.getLong(1) : -1L;
+                }
+            } catch (SQLException e) {
+                LOG.warn(String.format("Could not estimate the rows of %s, %s", table, e));
+                return -1L;
+            }
+        });
+    }
+
+    /**
+     * Estimated number of rows of a source table at or after a watermark, assuming the watermarks are spread
+     * evenly between the lowest & the highest.
+     *
+     * @param table  name of the source table.
+     * @param column watermark column.
+     * @param from   lowest watermark read.
+     * @return the number of rows, -1 if it could not be estimated.
+     */
+    long estimate(String table, String column, long from) {
+
+        if (exportDirectory != null) {
+            return exported(table, from);
+        }
+        long rows = estimate(table);
+        if (rows < 0) {
+            return rows;
+        }
+        try (Connection connection = source.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT MIN(" + column + "), MAX(" + column
+                     + ") FROM " + table);
+             ResultSet resultSet = statement.executeQuery()) {
+            if (!resultSet.next() || resultSet.getObject(1) == null) {
+                return 0;
+            }
+            long min = resultSet.getLong(1);
+            long max = resultSet.getLong(2);
+            double share = Math.min(1, Math.max(0, (max - Math.max(from, min) + 1) / (double) (max - min + 1)));
+            return (long) Math.ceil(rows * share);
+        } catch (SQLException e) {
+            LOG.warn(String.format("Could not estimate the rows of %s from %s %d, %s", table, column, from, e));
+            return -1;
+        }
+    }
+
+    /**
+     * Number of rows of an exported table from the chunk directory of its file.
+     *
+     * @param table name of the source table.
+     * @param from  lowest watermark read, null to count every row.
+     * @return the number of rows, -1 if the file could not be read.
+     */
+    private long exported(String table, Long from) {
+
+        try (ExportFile file = new ExportFile(ExportFile.of(exportDirectory, table))) {
+            return file.getRows(from);
+        } catch (SQLException e) {
+            LOG.warn(String.format("Could not estimate the rows of %s, %s", table, e));
+            return -1L;
+        }
+    }
+
+    /**
+     * Catalog query of the row count of a table in the statistics of the source database.
+     *
+     * @param url lower case JDBC URL of the source database.
+     * @return the query, null if the rows have to be counted.
+     */
+    private static String statisticsSql(String url) {
+
+        if (url.startsWith("jdbc:mysql:") || url.startsWith("jdbc:mariadb:")) {
+            return "SELECT TABLE_ROWS FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() "
+                    + "AND UPPER(TABLE_NAME) = ?";
+        }
+        if (url.startsWith("jdbc:postgresql:")) {
+            return "SELECT CAST(c.reltuples AS BIGINT) FROM pg_class c WHERE c.relkind = 'r' "
+                    + "AND pg_table_is_visible(c.oid) AND UPPER(c.relname) = ?";
+        }
+        if (url.startsWith("jdbc:oracle:")) {
+            return "SELECT NUM_ROWS FROM USER_TABLES WHERE TABLE_NAME = ?";
+        }
+        if (url.startsWith("jdbc:sqlserver:")) {
+            return "SELECT SUM(p.rows) FROM sys.partitions p JOIN sys.tables t ON p.object_id = t.object_id "
+                    + "WHERE p.index_id IN (0, 1) AND UPPER(t.name) = ?";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import java.sql.SQLException;
+
+/**
+ * Receiver of the rows produced for a target table.
+ */
+interface RowSink {
+
+    /**
+     * Accept a row of the target table. The sink takes ownership of the array.
+     *
+     * @param row column values in the order of the target columns.
+     * @throws SQLException if the row could not be written.
+     */
+    void accept(Object[] row) throws SQLException;
+}
@@ -0,0 +1,567 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.apache.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Aggregate state of the groups of an aggregation, kept in memory up to a budget. When the estimated size of
+ * the groups exceeds the budget, they are written to partition files by the hash of their key & the memory
+ * is released. A group may then be spread over several runs of its partition file, written in scan order,
+ * so at the end each partition is read back on its own & the runs of a group are merged in the order they
+ * were written, which keeps the scan order semantics of first() & last(). A partition whose groups do not fit
+ * in the budget, eg:- because of skewed keys, is split by other bits of the key hash before it is read.
+ *
+ * @param <K> type of the group key.
+ */
+class SpillingGroups<K> {
+
+    /**
+     * Initialize Logger object to log messages
+     */
+    private static final Logger LOG = Logger.getLogger(SpillingGroups.class);
+
+    /**
+     * Number of partition files the groups are spread over, so one partition fits in the budget when the
+     * groups are up to this many times larger than the budget.
+     */
+    private static final int PARTITIONS = 64;
+
+    /**
+     * Number of bits of the key hash which choose the partition of a group.
+     */
+    private static final int PARTITION_BITS = 6;
+
+    /**
+     * Number of times a partition is split before its groups are merged in memory whatever their size, since
+     * the groups left after that share all the bits of their hash.
+     */
+    private static final int MAX_SPLITS = 4;
+
+    /**
+     * Estimated bytes of a group besides its values: the hash map entry, the key & state arrays.
+     */
+    private static final long GROUP_OVERHEAD = 96;
+
+    /**
+     * Converts a group key to & from the values written to a partition file.
+     *
+     * @param <K> type of the group key.
+     */
+    interface KeyCodec<K> {
+
+        /**
+         * Values of a key.
+         *
+         * @param key group key.
+         * @return the values of the key.
+         */
+        Object[] encode(K key);
+
+        /**
+         * Key of values read back from a partition file.
+         *
+         * @param values values of the key.
+         * @return the group key.
+         */
+        K decode(Object[] values);
+    }
+
+    /**
+     * Receives the groups when the aggregation is finished.
+     *
+     * @param <K> type of the group key.
+     */
+    interface GroupConsumer<K> {
+
+        /**
+         * Receive a group.
+         *
+         * @param key   group key.
+         * @param state aggregate state of the group.
+         * @throws SQLException if the group could not be written.
+         */
+        void accept(K key, Object[] state) throws SQLException;
+    }
+
+    /**
+     * Variable which stores the name of the aggregation, used in file names & messages.
+     */
+    private final String name;
+    /**
+     * Variable which stores the aggregate functions of the state.
+     */
+    private final AggregationMigration.Function[] functions;
+    /**
+     * Variable which stores the converter of the group keys.
+     */
+    private final KeyCodec<K> codec;
+    /**
+     * Variable which stores the groups in memory.
+     */
+    private final Map<K, Object[]> groups = new HashMap<>();
+    /**
+     * Variable which stores the estimated size of the groups in memory, in bytes.
+     */
+    private long size;
+    /**
+     * Variable which stores the estimated size the groups in memory may reach before they are spilled.
+     */
+    private long budget = Long.MAX_VALUE;
+    /**
+     * Variable which stores the directory of the partition files.
+     */
+    private File directory;
+    /**
+     * Variable which stores the partition files, null until the first spill.
+     */
+    private File[] files;
+    /**
+     * Variable which stores the open streams of the partition files.
+     */
+    private DataOutputStream[] outputs;
+
+    /**
+     * Constructor which initiate the variables name,functions,codec.
+     *
+     * @param name      name of the aggregation, used in file names & messages.
+     * @param functions aggregate functions of the state.
+     * @param codec     converter of the group keys.
+     */
+    SpillingGroups(String name, AggregationMigration.Function[] functions, KeyCodec<K> codec) {
+
+        this.name = name;
+        this.functions = functions;
+        this.codec = codec;
+    }
+
+    /**
+     * Limit the memory used by the groups.
+     *
+     * @param budget    estimated bytes the groups may use before they are written to disk.
+     * @param directory directory of the partition files, null for the temporary directory.
+     */
+    void setBudget(long budget, File directory) {
+
+        this.budget = budget;
+        this.directory = directory;
+    }
+
+    /**
+     * Find the state of a group in memory.
+     *
+     * @param key group key.
+     * @return the aggregate state, null if the group is not in memory.
+     */
+    Object[] get(K key) {
+
+        return groups.get(key);
+    }
+
+    /**
+     * Add a group which is not in memory. The groups in memory are written to disk first if they exceed the
+     * budget, so the returned state stays in memory until the next add.
+     *
+     * @param key   group key, not changed afterwards.
+     * @param state aggregate state of the group.
+     * @throws SQLException if the groups could not be written to disk.
+     */
+    void add(K key, Object[] state) throws SQLException {
+
+        if (size > budget) {
+            spill();
+        }
+        groups.put(key, state);
+        size += GROUP_OVERHEAD + estimate(codec.encode(key)) + estimate(state);
+    }
+
+    /**
+     * Hand every group to a consumer & release them.
+     *
+     * @param consumer receiver of the groups.
+     * @throws SQLException if the groups could not be read back from disk or the consumer failed.
+     */
+    void drain(GroupConsumer<K> consumer) throws SQLException {
+
+        if (files == null) {
+            for (Map.Entry<K, Object[]> group : groups.entrySet()) {
+                consumer.accept(group.getKey(), group.getValue());
+            }
+            groups.clear();
+            size = 0;
+            return;
+        }
+        spill();
+        try {
+            for (DataOutputStream output : outputs) {
+                output.close();
+            }
+            for (File file : files) {
+                drain(file, 0, consumer);
+            }
+        } catch (IOException e) {
+            throw new SQLException(String.format("Error occurred while reading the spilled groups of %s", name), e);
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Read a partition file back, merging the runs of each group, & hand its groups to a consumer. If the
+     * groups exceed the budget the partition is split into smaller ones by the next bits of the key hash,
+     * which are drained one after the other.
+     *
+     * @param file     partition file.
+     * @param splits   number of times the groups of the file were split since they were spilled.
+     * @param consumer receiver of the groups.
+     * @throws IOException  if the file could not be read or split.
+     * @throws SQLException if the consumer failed.
+     */
+    private void drain(File file, int splits, GroupConsumer<K> consumer) throws IOException, SQLException {
+
+        boolean fits = true;
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                K key;
+                try {
+                    key = codec.decode(readValues(input));
+                } catch (EOFException e) {
+                    break;
+                }
+                Object[] state = readValues(input);
+                Object[] earlier = groups.get(key);
+                if (earlier != null) {
+                    AggregationMigration.merge(earlier, state, functions);
+                } else if (size > budget && splits < MAX_SPLITS) {
+                    fits = false;
+                    break;
+                } else {
+                    groups.put(key, state);
+                    size += GROUP_OVERHEAD + estimate(codec.encode(key)) + estimate(state);
+                }
+            }
+        }
+        if (fits) {
+            if (size > budget && splits == MAX_SPLITS) {
+                LOG.warn(String.format("Groups of %s with the same hash exceed the aggregation memory, merging "
+                        + "them in memory", name));
+            }
+            for (Map.Entry<K, Object[]> group : groups.entrySet()) {
+                consumer.accept(group.getKey(), group.getValue());
+            }
+            groups.clear();
+            size = 0;
+            return;
+        }
+        groups.clear();
+        size = 0;
+        LOG.debug(String.format("Splitting a partition of %s which exceeds the aggregation memory", name));
+        File[] parts = split(file, splits + 1);
+        try {
+            for (File part : parts) {
+                if (part != null) {
+                    drain(part, splits + 1, consumer);
+                }
+            }
+        } finally {
+            delete(parts);
+        }
+    }
+
+    /**
+     * Split a partition file into smaller partitions, keeping the runs of each group in the order they were
+     * written.
+     *
+     * @param file   partition file.
+     * @param splits number of times the groups are split, which chooses the bits of the hash used.
+     * @return the new partition files, null for a partition without groups.
+     * @throws IOException if the file could not be read or the partitions could not be written.
+     */
+    private File[] split(File file, int splits) throws IOException {
+
+        File[] parts = new File[PARTITIONS];
+        DataOutputStream[] streams = new DataOutputStream[PARTITIONS];
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                Object[] key;
+                try {
+                    key = readValues(input);
+                } catch (EOFException e) {
+                    break;
+                }
+                Object[] state = readValues(input);
+                int partition = partition(codec.decode(key), splits);
+                if (streams[partition] == null) {
+                    parts[partition] = File.createTempFile("mig-" + name.replaceAll("\\W", "_") + "-" + splits
+                            + "-" + partition + "-", ".spill", directory);
+                    parts[partition].deleteOnExit();
+                    streams[partition] = new DataOutputStream(new BufferedOutputStream(
+                            new FileOutputStream(parts[partition])));
+                }
+                writeValues(streams[partition], key);
+                writeValues(streams[partition], state);
+            }
+        } catch (IOException e) {
+            close(streams);
+            delete(parts);
+            throw e;
+        }
+        close(streams);
+        return parts;
+    }
+
+    /**
+     * Partition of a group. Each split of a partition uses the next bits of the key hash.
+     *
+     * @param key    group key.
+     * @param splits number of times the groups were split.
+     * @return the partition.
+     */
+    private static int partition(Object key, int splits) {
+
+        return Integer.rotateRight(key.hashCode(), PARTITION_BITS * splits) & (PARTITIONS - 1);
+    }
+
+    /**
+     * Close the streams of partition files.
+     *
+     * @param streams streams to close, null for a partition without a file.
+     * @throws IOException if a stream could not be flushed.
+     */
+    private static void close(DataOutputStream[] streams) throws IOException {
+
+        IOException failure = null;
+        for (DataOutputStream stream : streams) {
+            try {
+                if (stream != null) {
+                    stream.close();
+                }
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Delete partition files.
+     *
+     * @param parts files to delete, null for a partition without a file.
+     */
+    private static void delete(File[] parts) {
+
+        for (File part : parts) {
+            if (part != null && !part.delete()) {
+                LOG.warn(String.format("Could not delete %s", part));
+            }
+        }
+    }
+
+    /**
+     * Delete the partition files, for an aggregation which is abandoned.
+     */
+    void close() {
+
+        if (files == null) {
+            return;
+        }
+        for (int i = 0; i < files.length; i++) {
+            try {
+                outputs[i].close();
+            } catch (IOException e) {
+                LOG.debug(e);
+            }
+            if (!files[i].delete()) {
+                LOG.warn(String.format("Could not delete %s", files[i]));
+            }
+        }
+        files = null;
+        outputs = null;
+        groups.clear();
+        size = 0;
+    }
+
+    /**
+     * Append the groups in memory to their partition files as a new run & release them.
+     *
+     * @throws SQLException if the groups could not be written.
+     */
+    private void spill() throws SQLException {
+
+        try {
+            if (files == null) {
+                LOG.info(String.format("Groups of %s exceed the aggregation memory, spilling them to disk", name));
+                files = new File[PARTITIONS];
+                outputs = new DataOutputStream[PARTITIONS];
+                for (int i = 0; i < PARTITIONS; i++) {
+                    files[i] = File.createTempFile("mig-" + name.replaceAll("\\W", "_") + "-" + i + "-", ".spill",
+                            directory);
+                    files[i].deleteOnExit();
+                    outputs[i] = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(files[i])));
+                }
+            }
+            for (Map.Entry<K, Object[]> group : groups.entrySet()) {
+                DataOutputStream output = outputs[partition(group.getKey(), 0)];
+                writeValues(output, codec.encode(group.getKey()));
+                writeValues(output, group.getValue());
+            }
+            LOG.debug(String.format("Spilled %d groups of %s", groups.size(), name));
+            groups.clear();
+            size = 0;
+        } catch (IOException e) {
+            close();
+            throw new SQLException(String.format("Error occurred while spilling the groups of %s", name), e);
+        }
+    }
+
+    /**
+     * Estimated heap size of values.
+     *
+     * @param values values of a key or a state.
+     * @return the estimated bytes.
+     */
+    private static long estimate(Object[] values) {
+
+        long bytes = 16 + 8L * values.length;
+        for (Object value : values) {
+            if (value instanceof String) {
+                bytes += 40 + 2L * ((String) value).length();
+            } else if (value != null) {
+                bytes += 24;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Write values with a type tag each.
+     *
+     * @param output stream of a partition file.
+     * @param values values to write.
+     * @throws IOException if the values could not be written.
+     */
+    private static void writeValues(DataOutputStream output, Object[] values) throws IOException {
+
+        output.writeShort(values.length);
+        for (Object value : values) {
+            if (value == null) {
+                output.writeByte('N');
+            } else if (value == AggregationMigration.UNSET) {
+                output.writeByte('U');
+            } else if (value instanceof String) {
+                byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+                output.writeByte('S');
+                output.writeInt(bytes.length);
+                output.write(bytes);
+            } else if (value instanceof Integer) {
+                output.writeByte('I');
+                output.writeInt((Integer) value);
+            } else if (value instanceof Long) {
+                output.writeByte('L');
+                output.writeLong((Long) value);
+            } else if (value instanceof Double) {
+                output.writeByte('D');
+                output.writeDouble((Double) value);
+            } else if (value instanceof Boolean) {
+                output.writeByte('B');
+                output.writeBoolean((Boolean) value);
+            } else if (value instanceof Serializable) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (ObjectOutputStream object = new ObjectOutputStream(bytes)) {
+                    object.writeObject(value);
+                }
+                output.writeByte('O');
+                output.writeInt(bytes.size());
+                bytes.writeTo(output);
+            } else {
+                throw new IOException(String.format("%s can not be written to disk", value.getClass().getName()));
+            }
+        }
+    }
+
+    /**
+     * Read values written by writeValues.
+     *
+     * @param input stream of a partition file.
+     * @return the values.
+     * @throws EOFException if the end of the file is reached before the values.
+     * @throws IOException  if the values could not be read.
+     */
+    private static Object[] readValues(DataInputStream input) throws IOException {
+
+        Object[] values = new Object[input.readShort()];
+        for (int i = 0; i < values.length; i++) {
+            byte tag = input.readByte();
+            switch (tag) {
+                case 'N':
+                    values[i] = null;
+                    break;
+                case 'U':
+                    values[i] = AggregationMigration.UNSET;
+                    break;
+                case 'S':
+                    byte[] bytes = new byte[input.readInt()];
+                    input.readFully(bytes);
+                    values[i] = new String(bytes, StandardCharsets.UTF_8);
+                    break;
+                case 'I':
+                    values[i] = input.readInt();
+                    break;
+                case 'L':
+                    values[i] = input.readLong();
+                    break;
+                case 'D':
+                    values[i] = input.readDouble();
+                    break;
+                case 'B':
+                    values[i] = input.readBoolean();
+                    break;
+                case 'O':
+                    byte[] object = new byte[input.readInt()];
+                    input.readFully(object);
+                    try (ObjectInputStream stream = new ObjectInputStream(new ByteArrayInputStream(object))) {
+                        values[i] = stream.readObject();
+                    } catch (ClassNotFoundException e) {
+                        throw new IOException(e);
+                    }
+                    break;
+                default:
+                    throw new IOException(String.format("Unknown value tag %d", tag));
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Copies the DAS analytics source tables of the selected migrations into export files, so the slow read of
+ * the DAS database is done once & the IS_ANALYTICS tables are loaded from the files as often as needed. Each
+ * source table is read in the order of its _timestamp column, which the migrations resume from.
+ */
+class TableExporter {
+
+    /**
+     * Initialize Logger object to log messages
+     */
+    private static final Logger LOG = Logger.getLogger(TableExporter.class);
+
+    /**
+     * Column the exported rows are ordered by, the watermark of every migration which has one.
+     */
+    private static final String WATERMARK_COLUMN = "_timestamp";
+
+    /**
+     * Variable which stores the factory of source database connections.
+     */
+    private final ConnectionFactory source;
+    /**
+     * Variable which stores the migration settings.
+     */
+    private final MigrationConfig config;
+    /**
+     * Variable which stores the directory the files are written to.
+     */
+    private final File directory;
+
+    /**
+     * Constructor which initiate the variables source,config,directory.
+     *
+     * @param source factory of source database connections.
+     * @param config migration settings.
+     */
+    TableExporter(ConnectionFactory source, MigrationConfig config) {
+
+        this.source = source;
+        this.config = config;
+        this.directory = new File(config.getExportDirectory());
+    }
+
+    /**
+     * Export the source tables of the selected migrations, on up to parallelism tables at a time. A table
+     * whose file exists is skipped unless resume is false.
+     *
+     * @param migrations table migrations whose source tables are exported.
+     * @return true if every source table was exported.
+     */
+    boolean run(List<TableMigration> migrations) {
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            LOG.error(String.format("Could not create the export directory %s", directory));
+            return false;
+        }
+        Set<String> tables = new LinkedHashSet<>();
+        for (TableMigration migration : migrations) {
+            if (migration instanceof RollupMigration) {
+                for (AggregationMigration level : ((RollupMigration) migration).getLevels()) {
+                    if (config.isSelected(level.getTargetTable())) {
+                        tables.add(migration.getSourceTable().toUpperCase(Locale.ENGLISH));
+                    }
+                }
+            } else if (config.isSelected(migration.getTargetTable())) {
+                tables.add(migration.getSourceTable().toUpperCase(Locale.ENGLISH));
+            }
+        }
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(config.getParallelism(),
+                tables.size())), runnable -> new Thread(runnable, "export-" + threads.incrementAndGet()));
+        boolean success = true;
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (String table : tables) {
+                results.add(pool.submit(() -> export(table)));
+            }
+            for (Future<Boolean> result : results) {
+                try {
+                    success &= result.get();
+                } catch (ExecutionException e) {
+                    success = false;
+                    LOG.error(String.format("Error occurred while exporting the source tables, %s", e.getCause()));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            success = false;
+        } finally {
+            pool.shutdownNow();
+        }
+        return success;
+    }
+
+    /**
+     * Export one source table into a temporary file, which replaces its export file once it is complete.
+     *
+     * @param table name of the source table.
+     * @return true if the table was exported or skipped.
+     */
+    private boolean export(String table) {
+
+        File file = ExportFile.of(directory, table);
+        if (config.isResume() && file.isFile()) {
+            LOG.info(String.format("Skipping %s, exported by a previous run", table));
+            return true;
+        }
+        File temporary = new File(directory, file.getName() + ".tmp");
+        long start = System.currentTimeMillis();
+        try (Connection connection = source.getConnection()) {
+            // Drivers such as Postgresql only stream the result set outside auto commit mode.
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY)) {
+                statement.setFetchSize(config.getFetchSize());
+                String watermark = watermarkColumn(statement, table);
+                try (ResultSet resultSet = statement.executeQuery("SELECT * FROM " + table
+                        + (watermark != null ? " ORDER BY " + watermark : ""))) {
+                    ExportFile.Writer writer = new ExportFile.Writer(temporary, resultSet.getMetaData(), watermark,
+                            config.getExportChunkRows());
+                    try {
+                        while (resultSet.next()) {
+                            writer.write(resultSet);
+                        }
+                    } finally {
+                        writer.close();
+                    }
+                    Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+                    LOG.info(String.format("Exported %d rows of %s into %s in %d chunks, %d ms", writer.getRows(),
+                            table, file, writer.getChunks(), System.currentTimeMillis() - start));
+                    return true;
+                }
+            } finally {
+                connection.rollback();
+            }
+        } catch (SQLException | IOException e) {
+            LOG.error(String.format("Error occurred while exporting %s into %s, %s", table, file, e));
+            if (temporary.exists() && !temporary.delete()) {
+                LOG.warn(String.format("Could not delete %s", temporary));
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Find the watermark column of a source table.
+     *
+     * @param statement statement of the source connection.
+     * @param table     name of the source table.
+     * @return the column name as the database reports it, null if the table has no such column.
+     * @throws SQLException if the columns of the table could not be read.
+     */
+    private static String watermarkColumn(Statement statement, String table) throws SQLException {
+
+        try (ResultSet resultSet = statement.executeQuery("SELECT * FROM " + table + " WHERE 1 = 0")) {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                if (metaData.getColumnLabel(i).equalsIgnoreCase(WATERMARK_COLUMN)) {
+                    return metaData.getColumnLabel(i);
+                }
+            }
+            return null;
+        }
+    }
+}
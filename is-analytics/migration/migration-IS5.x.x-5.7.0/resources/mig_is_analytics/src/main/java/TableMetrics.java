@@ -0,0 +1,396 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throughput & latency of a target table or a migration worker. The counters are updated by the reader,
+ * transform & writer threads of any number of pipelines at once, so they are adders rather than locked
+ * fields. The queue sizes are summed over the pipelines running at the time, eg:- the ranges of a table read
+ * in parallel.
+ */
+class TableMetrics implements TableMetricsMBean {
+
+    /**
+     * Variable which stores the name of the table or the worker.
+     */
+    private final String name;
+    /**
+     * Variable which stores the number of source rows read.
+     */
+    private final LongAdder rowsRead = new LongAdder();
+    /**
+     * Variable which stores the estimated size of the source rows read.
+     */
+    private final LongAdder bytesRead = new LongAdder();
+    /**
+     * Variable which stores the number of rows written.
+     */
+    private final LongAdder rowsWritten = new LongAdder();
+    /**
+     * Variable which stores the estimated size of the rows written.
+     */
+    private final LongAdder bytesWritten = new LongAdder();
+    /**
+     * Variable which stores the nanoseconds the reader stage spent fetching source rows.
+     */
+    private final LongAdder sourceNanos = new LongAdder();
+    /**
+     * Variable which stores the nanoseconds the transform stage spent transforming rows.
+     */
+    private final LongAdder transformNanos = new LongAdder();
+    /**
+     * Variable which stores the nanoseconds the writer stage spent writing rows.
+     */
+    private final LongAdder targetNanos = new LongAdder();
+    /**
+     * Variable which stores the time to send & commit each batch.
+     */
+    private final LatencyHistogram batches = new LatencyHistogram();
+    /**
+     * Variable which stores the pipelines currently running for the table or the worker.
+     */
+    private final Set<Pipeline> pipelines = ConcurrentHashMap.newKeySet();
+    /**
+     * Variable which stores the System.nanoTime of the first row read or written, 0 before it.
+     */
+    private volatile long started;
+    /**
+     * Variable which stores the rows read when the last summary was logged.
+     */
+    private long summaryRowsRead;
+    /**
+     * Variable which stores the rows written when the last summary was logged.
+     */
+    private long summaryRowsWritten;
+    /**
+     * Variable which stores the System.nanoTime of the last summary.
+     */
+    private long summaryTime;
+
+    /**
+     * Constructor which initiate the variables name.
+     *
+     * @param name name of the table or the worker.
+     */
+    TableMetrics(String name) {
+
+        this.name = name;
+    }
+
+    /**
+     * Estimated size of the values of a row, counting each character of a string as a byte & each other value
+     * as 8 bytes.
+     *
+     * @param row values of the row.
+     * @return the estimated bytes.
+     */
+    static long estimate(Object[] row) {
+
+        long bytes = 0;
+        for (Object value : row) {
+            if (value instanceof String) {
+                bytes += ((String) value).length();
+            } else if (value != null) {
+                bytes += 8;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Record a source row read.
+     *
+     * @param bytes estimated size of the row.
+     */
+    void rowRead(long bytes) {
+
+        start();
+        rowsRead.increment();
+        bytesRead.add(bytes);
+    }
+
+    /**
+     * Record a batch sent to the target database & committed.
+     *
+     * @param rows  number of rows of the batch.
+     * @param bytes estimated size of the rows.
+     * @param nanos time taken to send & commit the batch.
+     */
+    void batchWritten(int rows, long bytes, long nanos) {
+
+        start();
+        rowsWritten.add(rows);
+        bytesWritten.add(bytes);
+        batches.record(nanos);
+    }
+
+    /**
+     * Record time spent by the reader stage fetching source rows.
+     *
+     * @param nanos time in nanoseconds.
+     */
+    void addSourceTime(long nanos) {
+
+        sourceNanos.add(nanos);
+    }
+
+    /**
+     * Record time spent by the transform stage transforming rows.
+     *
+     * @param nanos time in nanoseconds.
+     */
+    void addTransformTime(long nanos) {
+
+        transformNanos.add(nanos);
+    }
+
+    /**
+     * Record time spent by the writer stage writing rows.
+     *
+     * @param nanos time in nanoseconds.
+     */
+    void addTargetTime(long nanos) {
+
+        targetNanos.add(nanos);
+    }
+
+    /**
+     * Report the queue sizes of a pipeline until it finishes.
+     *
+     * @param pipeline pipeline whose stages started.
+     */
+    void pipelineStarted(Pipeline pipeline) {
+
+        pipelines.add(pipeline);
+    }
+
+    /**
+     * Stop reporting the queue sizes of a pipeline.
+     *
+     * @param pipeline pipeline whose stages finished.
+     */
+    void pipelineFinished(Pipeline pipeline) {
+
+        pipelines.remove(pipeline);
+    }
+
+    /**
+     * One line summary of the metrics, with the rates since the previous summary. Called from one thread.
+     *
+     * @return the summary, null if no row was read or written since the previous summary.
+     */
+    String summary() {
+
+        long now = System.nanoTime();
+        long read = rowsRead.sum();
+        long written = rowsWritten.sum();
+        if (started == 0 || (read == summaryRowsRead && written == summaryRowsWritten)) {
+            return null;
+        }
+        double seconds = (now - (summaryTime == 0 ? started : summaryTime)) / 1e9;
+        long source = sourceNanos.sum();
+        long transform = transformNanos.sum();
+        long target = targetNanos.sum();
+        long busy = Math.max(1, source + transform + target);
+        String summary = String.format("%s: read %d rows (%d MB) at %.0f rows/s, wrote %d rows (%d MB) at %.0f "
+                        + "rows/s, batch latency median %.1f ms 99th percentile %.1f ms max %.1f ms, read queue "
+                        + "%d/%d chunks, write queue %d/%d chunks, time in source %d%% transform %d%% target %d%%",
+                name, read, bytesRead.sum() >> 20, (read - summaryRowsRead) / Math.max(seconds, 1e-3), written,
+                bytesWritten.sum() >> 20, (written - summaryRowsWritten) / Math.max(seconds, 1e-3),
+                batches.getPercentileMillis(50), batches.getPercentileMillis(99), batches.getMaxMillis(),
+                getReadQueueSize(), getReadQueueCapacity(), getWriteQueueSize(), getWriteQueueCapacity(),
+                source * 100 / busy, transform * 100 / busy, target * 100 / busy);
+        summaryRowsRead = read;
+        summaryRowsWritten = written;
+        summaryTime = now;
+        return summary;
+    }
+
+    @Override
+    public long getRowsRead() {
+
+        return rowsRead.sum();
+    }
+
+    @Override
+    public long getBytesRead() {
+
+        return bytesRead.sum();
+    }
+
+    @Override
+    public long getRowsWritten() {
+
+        return rowsWritten.sum();
+    }
+
+    @Override
+    public long getBytesWritten() {
+
+        return bytesWritten.sum();
+    }
+
+    @Override
+    public double getRowsReadPerSecond() {
+
+        return rate(rowsRead.sum());
+    }
+
+    @Override
+    public double getRowsWrittenPerSecond() {
+
+        return rate(rowsWritten.sum());
+    }
+
+    @Override
+    public long getBatches() {
+
+        return batches.getCount();
+    }
+
+    @Override
+    public double getBatchLatencyMeanMillis() {
+
+        return batches.getMeanMillis();
+    }
+
+    @Override
+    public double getBatchLatencyMedianMillis() {
+
+        return batches.getPercentileMillis(50);
+    }
+
+    @Override
+    public double getBatchLatency95thPercentileMillis() {
+
+        return batches.getPercentileMillis(95);
+    }
+
+    @Override
+    public double getBatchLatency99thPercentileMillis() {
+
+        return batches.getPercentileMillis(99);
+    }
+
+    @Override
+    public double getBatchLatencyMaxMillis() {
+
+        return batches.getMaxMillis();
+    }
+
+    @Override
+    public long getSourceMillis() {
+
+        return TimeUnit.NANOSECONDS.toMillis(sourceNanos.sum());
+    }
+
+    @Override
+    public long getTransformMillis() {
+
+        return TimeUnit.NANOSECONDS.toMillis(transformNanos.sum());
+    }
+
+    @Override
+    public long getTargetMillis() {
+
+        return TimeUnit.NANOSECONDS.toMillis(targetNanos.sum());
+    }
+
+    @Override
+    public int getReadQueueSize() {
+
+        int size = 0;
+        for (Pipeline pipeline : pipelines) {
+            size += pipeline.getReadQueueSize();
+        }
+        return size;
+    }
+
+    @Override
+    public int getReadQueueCapacity() {
+
+        return getQueueCapacity();
+    }
+
+    @Override
+    public int getWriteQueueSize() {
+
+        int size = 0;
+        for (Pipeline pipeline : pipelines) {
+            size += pipeline.getWriteQueueSize();
+        }
+        return size;
+    }
+
+    @Override
+    public int getWriteQueueCapacity() {
+
+        return getQueueCapacity();
+    }
+
+    /**
+     * Getter of name
+     *
+     * @return the name
+     */
+    String getName() {
+
+        return name;
+    }
+
+    /**
+     * Remember when the first row was read or written.
+     */
+    private void start() {
+
+        if (started == 0) {
+            started = System.nanoTime();
+        }
+    }
+
+    /**
+     * Number of chunks the read queues or the write queues of the running pipelines can hold.
+     *
+     * @return the summed capacity.
+     */
+    private int getQueueCapacity() {
+
+        int capacity = 0;
+        for (Pipeline pipeline : pipelines) {
+            capacity += pipeline.getQueueCapacity();
+        }
+        return capacity;
+    }
+
+    /**
+     * Rate of a counter since the first row.
+     *
+     * @param count value of the counter.
+     * @return the count per second.
+     */
+    private double rate(long count) {
+
+        long start = started;
+        if (start == 0) {
+            return 0;
+        }
+        return count / Math.max((System.nanoTime() - start) / 1e9, 1e-3);
+    }
+}
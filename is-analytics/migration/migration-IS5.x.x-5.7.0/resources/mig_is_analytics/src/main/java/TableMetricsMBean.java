@@ -0,0 +1,155 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+/**
+ * Management interface of the metrics of a target table or a migration worker, registered under
+ * org.wso2.migisanalytics:type=Table,name=table & org.wso2.migisanalytics:type=Worker,name=worker.
+ */
+public interface TableMetricsMBean {
+
+    /**
+     * Number of source rows read.
+     *
+     * @return the number of rows.
+     */
+    long getRowsRead();
+
+    /**
+     * Estimated size of the source rows read.
+     *
+     * @return the number of bytes.
+     */
+    long getBytesRead();
+
+    /**
+     * Number of rows written to the target table.
+     *
+     * @return the number of rows.
+     */
+    long getRowsWritten();
+
+    /**
+     * Estimated size of the rows written to the target table.
+     *
+     * @return the number of bytes.
+     */
+    long getBytesWritten();
+
+    /**
+     * Source rows read per second since the first row.
+     *
+     * @return the rate.
+     */
+    double getRowsReadPerSecond();
+
+    /**
+     * Rows written per second since the first row was read.
+     *
+     * @return the rate.
+     */
+    double getRowsWrittenPerSecond();
+
+    /**
+     * Number of batches sent & committed.
+     *
+     * @return the number of batches.
+     */
+    long getBatches();
+
+    /**
+     * Mean time to send & commit a batch.
+     *
+     * @return the latency in milliseconds.
+     */
+    double getBatchLatencyMeanMillis();
+
+    /**
+     * Time within which half of the batches were sent & committed.
+     *
+     * @return the latency in milliseconds.
+     */
+    double getBatchLatencyMedianMillis();
+
+    /**
+     * Time within which 95% of the batches were sent & committed.
+     *
+     * @return the latency in milliseconds.
+     */
+    double getBatchLatency95thPercentileMillis();
+
+    /**
+     * Time within which 99% of the batches were sent & committed.
+     *
+     * @return the latency in milliseconds.
+     */
+    double getBatchLatency99thPercentileMillis();
+
+    /**
+     * Longest time to send & commit a batch.
+     *
+     * @return the latency in milliseconds.
+     */
+    double getBatchLatencyMaxMillis();
+
+    /**
+     * Time spent fetching source rows by the reader stage of the pipeline.
+     *
+     * @return the time in milliseconds.
+     */
+    long getSourceMillis();
+
+    /**
+     * Time spent transforming rows by the transform stage of the pipeline.
+     *
+     * @return the time in milliseconds.
+     */
+    long getTransformMillis();
+
+    /**
+     * Time spent writing rows by the writer stage of the pipeline.
+     *
+     * @return the time in milliseconds.
+     */
+    long getTargetMillis();
+
+    /**
+     * Number of chunks of source rows waiting for the transform stage of the running pipelines.
+     *
+     * @return the number of chunks.
+     */
+    int getReadQueueSize();
+
+    /**
+     * Number of chunks of source rows the read queues of the running pipelines can hold.
+     *
+     * @return the number of chunks.
+     */
+    int getReadQueueCapacity();
+
+    /**
+     * Number of chunks of target rows waiting for the writer stage of the running pipelines.
+     *
+     * @return the number of chunks.
+     */
+    int getWriteQueueSize();
+
+    /**
+     * Number of chunks of target rows the write queues of the running pipelines can hold.
+     *
+     * @return the number of chunks.
+     */
+    int getWriteQueueCapacity();
+}
@@ -0,0 +1,181 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import java.io.File;
+import java.sql.SQLException;
+
+/**
+ * Migration of one DAS analytics table into one IS_ANALYTICS target table, equivalent to one
+ * INSERT INTO TABLE ... SELECT statement of the migISAnalyticsSpark script.
+ */
+abstract class TableMigration {
+
+    /**
+     * Variable which stores the name of the DAS analytics source table.
+     */
+    private final String sourceTable;
+    /**
+     * Variable which stores the name of the IS_ANALYTICS target table.
+     */
+    private final String targetTable;
+    /**
+     * Variable which stores the source columns read for each source row.
+     */
+    private final String[] sourceColumns;
+    /**
+     * Variable which stores the target columns of each produced row.
+     */
+    private final String[] targetColumns;
+    /**
+     * Variable which stores the number of leading target columns which form the primary key.
+     */
+    private final int primaryKeyLength;
+
+    /**
+     * Constructor which initiate the variables sourceTable,targetTable,sourceColumns,targetColumns,primaryKeyLength.
+     *
+     * @param sourceTable      name of the DAS analytics source table.
+     * @param targetTable      name of the IS_ANALYTICS target table.
+     * @param sourceColumns    source columns read for each source row.
+     * @param targetColumns    target columns of each produced row, primary key columns first.
+     * @param primaryKeyLength number of leading target columns which form the primary key.
+     */
+    TableMigration(String sourceTable, String targetTable, String[] sourceColumns, String[] targetColumns,
+                   int primaryKeyLength) {
+
+        this.sourceTable = sourceTable;
+        this.targetTable = targetTable;
+        this.sourceColumns = sourceColumns;
+        this.targetColumns = targetColumns;
+        this.primaryKeyLength = primaryKeyLength;
+    }
+
+    /**
+     * Process one source row. The array is reused for the next row, so implementations must copy the
+     * values they keep.
+     *
+     * @param row  values of the source columns.
+     * @param sink receiver of the produced target rows.
+     * @throws SQLException if a produced row could not be written.
+     */
+    abstract void process(Object[] row, RowSink sink) throws SQLException;
+
+    /**
+     * Called after the last source row, to emit rows which depend on the whole source table.
+     *
+     * @param sink receiver of the produced target rows.
+     * @throws SQLException if a produced row could not be written.
+     */
+    void finish(RowSink sink) throws SQLException {
+
+    }
+
+    /**
+     * Source column whose value only grows in the order rows are read, so a stopped migration can resume
+     * from the last committed value. Migrations which write their rows only after the whole source table is
+     * read have none and restart from the beginning.
+     *
+     * @return name of the source column, null if the migration can not resume part way.
+     */
+    String getWatermarkColumn() {
+
+        return null;
+    }
+
+    /**
+     * Whether the source table can be read in watermark ranges on parallel workers. The migration must be
+     * safe to call from several threads, each with its own sink, & produce the same rows whichever range a
+     * source row is read in.
+     *
+     * @return true if the source table may be read in parallel.
+     */
+    boolean isPartitionable() {
+
+        return false;
+    }
+
+    /**
+     * Whether source rows in different watermark ranges may produce target rows with the same primary key, of
+     * which the target keeps the last written, eg:- the rows of one session as it is renewed & terminated.
+     *
+     * @return true if the rows of a key may be spread over the whole source table.
+     */
+    boolean hasCrossRangeKeys() {
+
+        return true;
+    }
+
+    /**
+     * Limit the memory of the state kept between rows, for migrations which write their rows only after the
+     * whole source table is read. State beyond the limit is written to files in the spill directory.
+     *
+     * @param bytes          estimated bytes of state kept in memory.
+     * @param spillDirectory directory of the spilled state, null for the temporary directory.
+     */
+    void setMemoryBudget(long bytes, File spillDirectory) {
+
+    }
+
+    /**
+     * Getter of sourceTable
+     *
+     * @return the sourceTable
+     */
+    String getSourceTable() {
+
+        return sourceTable;
+    }
+
+    /**
+     * Getter of targetTable
+     *
+     * @return the targetTable
+     */
+    String getTargetTable() {
+
+        return targetTable;
+    }
+
+    /**
+     * Getter of sourceColumns
+     *
+     * @return the sourceColumns
+     */
+    String[] getSourceColumns() {
+
+        return sourceColumns;
+    }
+
+    /**
+     * Getter of targetColumns
+     *
+     * @return the targetColumns
+     */
+    String[] getTargetColumns() {
+
+        return targetColumns;
+    }
+
+    /**
+     * Getter of primaryKeyLength
+     *
+     * @return the primaryKeyLength
+     */
+    int getPrimaryKeyLength() {
+
+        return primaryKeyLength;
+    }
+}
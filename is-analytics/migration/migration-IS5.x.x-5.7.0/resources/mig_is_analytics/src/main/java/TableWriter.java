@@ -0,0 +1,533 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.apache.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes rows to an IS_ANALYTICS table with the native bulk loader of the database, or batched
+ * PreparedStatement inserts when there is none or the bulk load fails. A batch which fails, usually
+ * because a row already exists, is rolled back and replayed with the batched upsert statement of the
+ * database, or row by row where an existing row is updated instead, like the CarbonJDBC provider of the
+ * Spark script. A failure of the commit or of the commit listener is thrown, not replayed. In upsert mode
+ * every batch is written with the upsert statement.
+ */
+class TableWriter implements RowSink, AutoCloseable {
+
+    /**
+     * Initialize Logger object to log messages
+     */
+    private static final Logger LOG = Logger.getLogger(TableWriter.class);
+
+    /**
+     * SQLState class of integrity constraint violations.
+     */
+    private static final String INTEGRITY_CONSTRAINT_VIOLATION = "23";
+
+    /**
+     * SQLState class of syntax errors, raised by databases too old for the upsert statement.
+     */
+    private static final String SYNTAX_ERROR = "42";
+
+    /**
+     * Called before each commit of written rows, so progress can be recorded in the same transaction.
+     */
+    interface CommitListener {
+
+        /**
+         * Called before the rows written so far are committed.
+         *
+         * @param rowsWritten number of rows written including the rows being committed.
+         * @throws SQLException if the progress could not be recorded.
+         */
+        void beforeCommit(long rowsWritten) throws SQLException;
+    }
+
+    /**
+     * Variable which stores the connection to the target database.
+     */
+    private final Connection connection;
+    /**
+     * Variable which stores the migration whose rows are written.
+     */
+    private final TableMigration migration;
+    /**
+     * Variable which stores the number of rows sent to the database per batch.
+     */
+    private final int batchSize;
+    /**
+     * Variable which stores the target columns as described by the database.
+     */
+    private final TargetColumns columns;
+    /**
+     * Variable which stores the insert statement.
+     */
+    private final PreparedStatement insert;
+    /**
+     * Variable which stores the rows of the current batch.
+     */
+    private final List<Object[]> batch = new ArrayList<>();
+    /**
+     * Variable which stores the native bulk loader of the database, null to use batch inserts only.
+     */
+    private final BulkLoader loader;
+    /**
+     * Variable which stores the update statement, prepared on the first existing row.
+     */
+    private PreparedStatement update;
+    /**
+     * Variable which stores the upsert statement of the database, null to replay failed batches row by row.
+     */
+    private UpsertDialect dialect;
+    /**
+     * Variable which stores whether every batch is written with the upsert statement.
+     */
+    private boolean upsertMode;
+    /**
+     * Variable which stores the upsert statement, prepared on the first upsert batch.
+     */
+    private PreparedStatement upsert;
+    /**
+     * Variable which stores the listener called before each commit, may be null.
+     */
+    private CommitListener listener;
+    /**
+     * Variable which stores the metrics which receive each written batch.
+     */
+    private TableMetrics[] metrics = new TableMetrics[0];
+    /**
+     * Variable which stores the number of rows written so far.
+     */
+    private long rowsWritten;
+    /**
+     * Variable which stores whether a flush failed, after which the remaining rows are not written.
+     */
+    private boolean failed;
+
+    /**
+     * Constructor which initiate the variables connection,migration,batchSize,loader and prepares the insert.
+     *
+     * @param connection connection to the target database, used by this writer only.
+     * @param migration  migration whose rows are written.
+     * @param batchSize  number of rows sent to the database per batch.
+     * @param loader     native bulk loader of the database, null to use batch inserts only.
+     * @throws SQLException if the target table could not be described.
+     */
+    TableWriter(Connection connection, TableMigration migration, int batchSize, BulkLoader loader)
+            throws SQLException {
+
+        this.connection = connection;
+        this.migration = migration;
+        this.batchSize = Math.max(1, batchSize);
+        this.loader = loader;
+        this.columns = TargetColumns.describe(connection, migration);
+        connection.setAutoCommit(false);
+        this.insert = connection.prepareStatement(insertSql(migration));
+    }
+
+    /**
+     * Build the insert statement of a migration.
+     *
+     * @param migration migration whose rows are written.
+     * @return INSERT INTO table (columns) VALUES (?,...).
+     */
+    static String insertSql(TableMigration migration) {
+
+        String[] columns = migration.getTargetColumns();
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(migration.getTargetTable()).append(" (");
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < columns.length; i++) {
+            sql.append(i == 0 ? "" : ",").append(columns[i]);
+            values.append(i == 0 ? "?" : ",?");
+        }
+        return sql.append(") VALUES (").append(values).append(')').toString();
+    }
+
+    /**
+     * Build the statement which updates an existing row by primary key.
+     *
+     * @param migration migration whose rows are written.
+     * @return UPDATE table SET non key columns WHERE key columns, parameters in target column order after the
+     * key columns.
+     */
+    static String updateSql(TableMigration migration) {
+
+        String[] columns = migration.getTargetColumns();
+        int keyLength = migration.getPrimaryKeyLength();
+        StringBuilder sql = new StringBuilder("UPDATE ").append(migration.getTargetTable()).append(" SET ");
+        for (int i = keyLength; i < columns.length; i++) {
+            sql.append(i == keyLength ? "" : ",").append(columns[i]).append("=?");
+        }
+        sql.append(" WHERE ");
+        for (int i = 0; i < keyLength; i++) {
+            sql.append(i == 0 ? "" : " AND ").append(columns[i]).append("=?");
+        }
+        return sql.toString();
+    }
+
+    @Override
+    public void accept(Object[] row) throws SQLException {
+
+        batch.add(row);
+        if (batch.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Send the buffered rows to the database and commit them. After a failure the rows are dropped, so closing
+     * the writer does not write them & call the listener or commit again.
+     *
+     * @throws SQLException if the rows could not be written.
+     */
+    void flush() throws SQLException {
+
+        try {
+            writeBatch();
+        } catch (SQLException | RuntimeException e) {
+            failed = true;
+            batch.clear();
+            throw e;
+        }
+    }
+
+    /**
+     * Send the buffered rows to the database and commit them.
+     *
+     * @throws SQLException if the rows could not be written.
+     */
+    private void writeBatch() throws SQLException {
+
+        if (batch.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        if (upsertMode && dialect != null) {
+            if (!upsertBatch()) {
+                mergeRows();
+            }
+            record(start);
+            rowsWritten += batch.size();
+            batch.clear();
+            return;
+        }
+        if (loader != null && loader.isSupported() && bulkLoad()) {
+            record(start);
+            rowsWritten += batch.size();
+            batch.clear();
+            return;
+        }
+        boolean inserted = false;
+        try {
+            for (Object[] row : batch) {
+                for (int i = 0; i < row.length; i++) {
+                    bind(insert, i + 1, row[i], columns.getType(i));
+                }
+                insert.addBatch();
+            }
+            insert.executeBatch();
+            inserted = true;
+        } catch (SQLException e) {
+            clearBatch(insert);
+            connection.rollback();
+            LOG.debug(String.format("Batch insert into %s failed, %s", migration.getTargetTable(), e));
+        }
+        // Only a failed insert is replayed, a failure of the listener or the commit is not a duplicate row.
+        if (inserted) {
+            commit();
+        } else if (dialect == null || !upsertBatch()) {
+            mergeRows();
+        }
+        record(start);
+        rowsWritten += batch.size();
+        batch.clear();
+    }
+
+    /**
+     * Record the committed batch in the metrics.
+     *
+     * @param start System.nanoTime when the batch was started.
+     */
+    private void record(long start) {
+
+        if (metrics.length == 0) {
+            return;
+        }
+        long nanos = System.nanoTime() - start;
+        long bytes = 0;
+        for (Object[] row : batch) {
+            bytes += TableMetrics.estimate(row);
+        }
+        for (TableMetrics m : metrics) {
+            m.batchWritten(batch.size(), bytes, nanos);
+        }
+    }
+
+    /**
+     * Load the buffered rows with the native bulk loader & commit them.
+     *
+     * @return true if the rows were loaded, false if they have to be written with batch inserts.
+     * @throws SQLException if the failed load could not be rolled back, or the listener or the commit failed.
+     */
+    private boolean bulkLoad() throws SQLException {
+
+        try {
+            loader.load(connection, migration, columns, batch);
+        } catch (SQLFeatureNotSupportedException e) {
+            connection.rollback();
+            LOG.warn(String.format("Bulk load is not supported by the driver, using batch inserts, %s", e));
+            loader.unsupported();
+            return false;
+        } catch (SQLException e) {
+            connection.rollback();
+            if (e.getSQLState() != null && e.getSQLState().startsWith(INTEGRITY_CONSTRAINT_VIOLATION)) {
+                LOG.debug(String.format("Bulk load into %s failed, using batch inserts, %s",
+                        migration.getTargetTable(), e));
+            } else {
+                // A load which fails for any other reason, eg:- missing privileges or a bad driver setting,
+                // would fail on every batch, so the loader is not tried again.
+                LOG.warn(String.format("Bulk load into %s failed, using batch inserts for the remaining rows, %s",
+                        migration.getTargetTable(), e));
+                loader.unsupported();
+            }
+            return false;
+        }
+        commit();
+        return true;
+    }
+
+    /**
+     * Commit the rows of the current batch after notifying the listener.
+     *
+     * @throws SQLException if the listener failed or the transaction could not be committed.
+     */
+    private void commit() throws SQLException {
+
+        if (listener != null) {
+            listener.beforeCommit(rowsWritten + batch.size());
+        }
+        connection.commit();
+    }
+
+    /**
+     * Write the buffered rows with the batched upsert statement & commit them.
+     *
+     * @return true if the rows were written, false if they have to be written row by row.
+     * @throws SQLException if the failed batch could not be rolled back, or the listener or the commit failed.
+     */
+    private boolean upsertBatch() throws SQLException {
+
+        try {
+            if (upsert == null) {
+                upsert = connection.prepareStatement(dialect.upsertSql(migration));
+            }
+            for (Object[] row : batch) {
+                for (int i = 0; i < row.length; i++) {
+                    bind(upsert, i + 1, row[i], columns.getType(i));
+                }
+                upsert.addBatch();
+            }
+            upsert.executeBatch();
+        } catch (SQLException e) {
+            if (upsert != null) {
+                clearBatch(upsert);
+            }
+            connection.rollback();
+            if (e.getSQLState() != null && e.getSQLState().startsWith(SYNTAX_ERROR)) {
+                LOG.warn(String.format("Upsert is not supported by the database, writing rows of %s one by one, %s",
+                        migration.getTargetTable(), e));
+                dialect = null;
+            } else {
+                LOG.debug(String.format("Batch upsert into %s failed, writing rows one by one, %s",
+                        migration.getTargetTable(), e));
+            }
+            return false;
+        }
+        commit();
+        return true;
+    }
+
+    /**
+     * Write the buffered rows one by one in auto commit mode & commit the progress.
+     *
+     * @throws SQLException if a row could not be written.
+     */
+    private void mergeRows() throws SQLException {
+
+        connection.setAutoCommit(true);
+        try {
+            for (Object[] row : batch) {
+                merge(row);
+            }
+        } finally {
+            connection.setAutoCommit(false);
+        }
+        commit();
+    }
+
+    /**
+     * Insert a row, or update the existing row with the same primary key. Runs in auto commit mode.
+     *
+     * @param row column values in the order of the target columns.
+     * @throws SQLException if the row could not be written.
+     */
+    private void merge(Object[] row) throws SQLException {
+
+        try {
+            for (int i = 0; i < row.length; i++) {
+                bind(insert, i + 1, row[i], columns.getType(i));
+            }
+            insert.executeUpdate();
+            return;
+        } catch (SQLException e) {
+            if (e.getSQLState() == null || !e.getSQLState().startsWith(INTEGRITY_CONSTRAINT_VIOLATION)) {
+                throw e;
+            }
+        }
+        if (update == null) {
+            update = connection.prepareStatement(updateSql(migration));
+        }
+        int keyLength = migration.getPrimaryKeyLength();
+        int index = 1;
+        for (int i = keyLength; i < row.length; i++) {
+            bind(update, index++, row[i], columns.getType(i));
+        }
+        for (int i = 0; i < keyLength; i++) {
+            bind(update, index++, row[i], columns.getType(i));
+        }
+        update.executeUpdate();
+    }
+
+    /**
+     * Bind a value to a statement parameter. Booleans are bound as numbers for numeric columns, which is how
+     * Oracle stores them.
+     *
+     * @param statement statement to bind.
+     * @param index     index of the parameter.
+     * @param value     value to bind, may be null.
+     * @param type      JDBC type of the target column.
+     * @throws SQLException if the value could not be bound.
+     */
+    static void bind(PreparedStatement statement, int index, Object value, int type) throws SQLException {
+
+        if (value == null) {
+            statement.setNull(index, type);
+        } else if (value instanceof Boolean) {
+            if (type == Types.NUMERIC || type == Types.DECIMAL || type == Types.INTEGER || type == Types.SMALLINT
+                    || type == Types.TINYINT || type == Types.BIGINT) {
+                statement.setInt(index, (Boolean) value ? 1 : 0);
+            } else {
+                statement.setBoolean(index, (Boolean) value);
+            }
+        } else if (value instanceof Long) {
+            statement.setLong(index, (Long) value);
+        } else if (value instanceof Integer) {
+            statement.setInt(index, (Integer) value);
+        } else if (value instanceof Double) {
+            statement.setDouble(index, (Double) value);
+        } else if (value instanceof String) {
+            statement.setString(index, (String) value);
+        } else {
+            statement.setObject(index, value, type);
+        }
+    }
+
+    /**
+     * Clear the batch of a statement, some drivers keep it after a failed executeBatch.
+     *
+     * @param statement statement whose batch is cleared.
+     */
+    private static void clearBatch(PreparedStatement statement) {
+
+        try {
+            statement.clearBatch();
+        } catch (SQLException e) {
+            LOG.debug(e);
+        }
+    }
+
+    /**
+     * Getter of rowsWritten
+     *
+     * @return the rowsWritten
+     */
+    long getRowsWritten() {
+
+        return rowsWritten;
+    }
+
+    /**
+     * Setter of listener
+     *
+     * @param listener the listener to set
+     */
+    void setCommitListener(CommitListener listener) {
+
+        this.listener = listener;
+    }
+
+    /**
+     * Set the upsert statement used for failed batches, or for every batch in upsert mode.
+     *
+     * @param dialect    upsert statement of the database, null to replay failed batches row by row.
+     * @param upsertMode whether every batch is written with the upsert statement.
+     */
+    void setUpsert(UpsertDialect dialect, boolean upsertMode) {
+
+        this.dialect = dialect;
+        this.upsertMode = upsertMode;
+    }
+
+    /**
+     * Setter of metrics
+     *
+     * @param metrics the metrics to set
+     */
+    void setMetrics(TableMetrics... metrics) {
+
+        this.metrics = metrics;
+    }
+
+    /**
+     * Write the remaining rows unless a flush failed, and close the statements. The connection is left open.
+     *
+     * @throws SQLException if the remaining rows could not be written.
+     */
+    @Override
+    public void close() throws SQLException {
+
+        try {
+            if (!failed) {
+                flush();
+            }
+        } finally {
+            insert.close();
+            if (update != null) {
+                update.close();
+            }
+            if (upsert != null) {
+                upsert.close();
+            }
+        }
+    }
+}
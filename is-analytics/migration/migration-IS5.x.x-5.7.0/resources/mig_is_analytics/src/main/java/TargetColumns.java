@@ -0,0 +1,145 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * JDBC types of the target columns of a table migration, as reported by the target database.
+ */
+class TargetColumns {
+
+    /**
+     * Variable which stores the names of the target columns.
+     */
+    private final String[] names;
+    /**
+     * Variable which stores the JDBC type of each target column.
+     */
+    private final int[] types;
+    /**
+     * Variable which stores the precision of each target column.
+     */
+    private final int[] precisions;
+    /**
+     * Variable which stores the scale of each target column.
+     */
+    private final int[] scales;
+
+    /**
+     * Constructor which initiate the variables names,types,precisions,scales.
+     *
+     * @param names      names of the target columns.
+     * @param types      JDBC type of each target column.
+     * @param precisions precision of each target column.
+     * @param scales     scale of each target column.
+     */
+    TargetColumns(String[] names, int[] types, int[] precisions, int[] scales) {
+
+        this.names = names;
+        this.types = types;
+        this.precisions = precisions;
+        this.scales = scales;
+    }
+
+    /**
+     * Read the target columns of a migration from the metadata of an empty query.
+     *
+     * @param connection connection to the target database.
+     * @param migration  migration whose rows are written.
+     * @return the target columns.
+     * @throws SQLException if the target table could not be described.
+     */
+    static TargetColumns describe(Connection connection, TableMigration migration) throws SQLException {
+
+        String[] names = migration.getTargetColumns();
+        StringBuilder sql = new StringBuilder("SELECT ");
+        for (int i = 0; i < names.length; i++) {
+            sql.append(i == 0 ? "" : ",").append(names[i]);
+        }
+        sql.append(" FROM ").append(migration.getTargetTable()).append(" WHERE 1=0");
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql.toString())) {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            int[] types = new int[names.length];
+            int[] precisions = new int[names.length];
+            int[] scales = new int[names.length];
+            for (int i = 0; i < names.length; i++) {
+                types[i] = metaData.getColumnType(i + 1);
+                precisions[i] = metaData.getPrecision(i + 1);
+                scales[i] = metaData.getScale(i + 1);
+            }
+            return new TargetColumns(names, types, precisions, scales);
+        }
+    }
+
+    /**
+     * Number of target columns.
+     *
+     * @return the number of target columns.
+     */
+    int size() {
+
+        return names.length;
+    }
+
+    /**
+     * Name of a target column.
+     *
+     * @param index 0-based index of the column.
+     * @return the column name.
+     */
+    String getName(int index) {
+
+        return names[index];
+    }
+
+    /**
+     * JDBC type of a target column.
+     *
+     * @param index 0-based index of the column.
+     * @return the JDBC type, one of java.sql.Types.
+     */
+    int getType(int index) {
+
+        return types[index];
+    }
+
+    /**
+     * Precision of a target column.
+     *
+     * @param index 0-based index of the column.
+     * @return the precision.
+     */
+    int getPrecision(int index) {
+
+        return precisions[index];
+    }
+
+    /**
+     * Scale of a target column.
+     *
+     * @param index 0-based index of the column.
+     * @return the scale.
+     */
+    int getScale(int index) {
+
+        return scales[index];
+    }
+}
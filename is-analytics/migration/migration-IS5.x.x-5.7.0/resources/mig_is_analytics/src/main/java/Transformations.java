@@ -0,0 +1,353 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Column expressions of the migISAnalyticsSpark script, with the same results as the Spark SQL functions.
+ */
+final class Transformations {
+
+    /**
+     * Region written instead of an empty region.
+     */
+    static final String NOT_AVAILABLE = "NOT_AVAILABLE";
+
+    /**
+     * Identity provider type written when the source has none.
+     */
+    static final String DEFAULT_IDENTITY_PROVIDER_TYPE = "SSO";
+
+    /**
+     * Format of Spark from_unixtime, in the default time zone of the JVM like Spark.
+     */
+    private static final DateTimeFormatter UNIX_TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    /**
+     * Hexadecimal digits of md5 output.
+     */
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * Reusable md5 state of each thread.
+     */
+    private static final ThreadLocal<Md5> MD5 = ThreadLocal.withInitial(Md5::new);
+
+    private Transformations() {
+
+    }
+
+    /**
+     * Convert a source value to Long.
+     *
+     * @param value source value.
+     * @return the value as Long, null for null.
+     */
+    static Long asLong(Object value) {
+
+        if (value == null || value instanceof Long) {
+            return (Long) value;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value ? 1L : 0L;
+        }
+        return Long.valueOf(value.toString().trim());
+    }
+
+    /**
+     * Convert a source value to Integer.
+     *
+     * @param value source value.
+     * @return the value as Integer, null for null.
+     */
+    static Integer asInt(Object value) {
+
+        if (value == null || value instanceof Integer) {
+            return (Integer) value;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        return Integer.valueOf(value.toString().trim());
+    }
+
+    /**
+     * Convert a source value to Double.
+     *
+     * @param value source value.
+     * @return the value as Double, null for null.
+     */
+    static Double asDouble(Object value) {
+
+        if (value == null || value instanceof Double) {
+            return (Double) value;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        return Double.valueOf(value.toString().trim());
+    }
+
+    /**
+     * Convert a source value to Boolean, numbers are true when not zero.
+     *
+     * @param value source value.
+     * @return the value as Boolean, null for null.
+     */
+    static Boolean asBoolean(Object value) {
+
+        if (value == null || value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue() != 0;
+        }
+        String s = value.toString().trim();
+        return "true".equalsIgnoreCase(s) || "1".equals(s);
+    }
+
+    /**
+     * Convert a source value to String.
+     *
+     * @param value source value.
+     * @return the value as String, null for null.
+     */
+    static String asString(Object value) {
+
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * Spark cast(sum(...) as BOOLEAN) used in the isFirstLogin expressions, where a null sum counts as false.
+     *
+     * @param sum result of a sum aggregate.
+     * @return true if the sum is not null and not zero.
+     */
+    static boolean isSet(Object sum) {
+
+        return sum != null && asLong(sum) != 0;
+    }
+
+    /**
+     * CASE WHEN region = "" THEN "NOT_AVAILABLE" ELSE region END.
+     *
+     * @param region source region.
+     * @return the target region.
+     */
+    static String region(Object region) {
+
+        String s = asString(region);
+        return s != null && s.isEmpty() ? NOT_AVAILABLE : s;
+    }
+
+    /**
+     * CASE WHEN first(identityProviderType) is null THEN "SSO" ELSE first(identityProviderType) END.
+     *
+     * @param identityProviderType source identity provider type.
+     * @return the target identity provider type.
+     */
+    static String identityProviderType(Object identityProviderType) {
+
+        return identityProviderType == null ? DEFAULT_IDENTITY_PROVIDER_TYPE : identityProviderType.toString();
+    }
+
+    /**
+     * CASE WHEN first(rolesCommaSeparated) = "NOT_AVAILABLE" THEN concat(concat(',',last(rolesCommaSeparated)),',')
+     * ELSE concat(concat(',',first(rolesCommaSeparated)),',') END.
+     *
+     * @param first first rolesCommaSeparated of the group.
+     * @param last  last rolesCommaSeparated of the group.
+     * @return the target rolesCommaSeparated, null if the chosen value is null.
+     */
+    static String rolesCommaSeparated(Object first, Object last) {
+
+        Object roles = NOT_AVAILABLE.equals(first) ? last : first;
+        return roles == null ? null : "," + roles + ",";
+    }
+
+    /**
+     * from_unixtime(timestamp / 1000), formatted as yyyy-MM-dd HH:mm:ss.
+     *
+     * @param timestamp epoch millis.
+     * @return the formatted time, null for null.
+     */
+    static String fromUnixTime(Object timestamp) {
+
+        if (timestamp == null) {
+            return null;
+        }
+        return UNIX_TIME_FORMAT.format(Instant.ofEpochSecond(Math.floorDiv(asLong(timestamp), 1000L)));
+    }
+
+    /**
+     * md5(concat_ws(' ', values...)). concat_ws skips null values, while empty strings are still separated.
+     *
+     * @param values values to join.
+     * @return lower case hexadecimal md5 of the joined values.
+     */
+    static String md5ConcatWs(Object... values) {
+
+        return MD5.get().concatWs(values);
+    }
+
+    /**
+     * Per thread md5 of joined values. The values are encoded as UTF-8 into a buffer which is fed to the digest
+     * whenever it fills, so no joined string or byte array is built per row.
+     */
+    private static final class Md5 {
+
+        /**
+         * Variable which stores the md5 digest, reset by each digest.
+         */
+        private final MessageDigest digest;
+
+        /**
+         * Variable which stores the bytes not yet fed to the digest.
+         */
+        private final byte[] buffer = new byte[1024];
+
+        /**
+         * Variable which stores the number of bytes in the buffer.
+         */
+        private int length;
+
+        /**
+         * Variable which stores the hexadecimal digits of the last digest.
+         */
+        private final char[] hex = new char[32];
+
+        /**
+         * Constructor which initiate the variable digest.
+         */
+        private Md5() {
+
+            try {
+                digest = MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("MD5 is not available", e);
+            }
+        }
+
+        /**
+         * md5(concat_ws(' ', values...)).
+         *
+         * @param values values to join.
+         * @return lower case hexadecimal md5 of the joined values.
+         */
+        private String concatWs(Object[] values) {
+
+            boolean first = true;
+            for (Object value : values) {
+                if (value == null) {
+                    continue;
+                }
+                if (!first) {
+                    put((byte) ' ');
+                }
+                first = false;
+                if (value instanceof Integer || value instanceof Long) {
+                    putDecimal(((Number) value).longValue());
+                } else {
+                    putUtf8(value instanceof String ? (String) value : String.valueOf(value));
+                }
+            }
+            digest.update(buffer, 0, length);
+            length = 0;
+            byte[] md5 = digest.digest();
+            for (int i = 0; i < md5.length; i++) {
+                hex[i * 2] = HEX[(md5[i] >> 4) & 0xf];
+                hex[i * 2 + 1] = HEX[md5[i] & 0xf];
+            }
+            return new String(hex);
+        }
+
+        /**
+         * Append a byte, feeding the buffer to the digest when it is full.
+         *
+         * @param b byte to append.
+         */
+        private void put(byte b) {
+
+            if (length == buffer.length) {
+                digest.update(buffer, 0, length);
+                length = 0;
+            }
+            buffer[length++] = b;
+        }
+
+        /**
+         * Append the decimal digits of a value, as Long.toString.
+         *
+         * @param value value to append.
+         */
+        private void putDecimal(long value) {
+
+            if (value < 0) {
+                put((byte) '-');
+            } else {
+                // Negated, so Long.MIN_VALUE needs no special case.
+                value = -value;
+            }
+            long divisor = 1;
+            while (value / divisor <= -10) {
+                divisor *= 10;
+            }
+            for (; divisor != 0; divisor /= 10) {
+                put((byte) ('0' - value / divisor));
+                value %= divisor;
+            }
+        }
+
+        /**
+         * Append the UTF-8 bytes of a string, as String.getBytes which writes '?' for an unpaired surrogate.
+         *
+         * @param value string to append.
+         */
+        private void putUtf8(String value) {
+
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    put((byte) c);
+                } else if (c < 0x800) {
+                    put((byte) (0xc0 | c >> 6));
+                    put((byte) (0x80 | c & 0x3f));
+                } else if (!Character.isSurrogate(c)) {
+                    put((byte) (0xe0 | c >> 12));
+                    put((byte) (0x80 | c >> 6 & 0x3f));
+                    put((byte) (0x80 | c & 0x3f));
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    put((byte) (0xf0 | codePoint >> 18));
+                    put((byte) (0x80 | codePoint >> 12 & 0x3f));
+                    put((byte) (0x80 | codePoint >> 6 & 0x3f));
+                    put((byte) (0x80 | codePoint & 0x3f));
+                } else {
+                    put((byte) '?');
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+/**
+ * Statement of each database type which inserts a row, or updates the row with the same primary key, in one
+ * statement which can be sent in a JDBC batch. Each takes the values of the target columns in target column
+ * order, like the insert statement of TableWriter.
+ */
+enum UpsertDialect {
+
+    /**
+     * INSERT ... ON DUPLICATE KEY UPDATE.
+     */
+    MYSQL {
+        @Override
+        String upsertSql(TableMigration migration) {
+
+            String[] columns = migration.getTargetColumns();
+            int keyLength = migration.getPrimaryKeyLength();
+            StringBuilder sql = new StringBuilder(TableWriter.insertSql(migration)).append(" ON DUPLICATE KEY UPDATE ");
+            if (keyLength == columns.length) {
+                // Nothing to update, an assignment is still required.
+                return sql.append(columns[0]).append('=').append(columns[0]).toString();
+            }
+            for (int i = keyLength; i < columns.length; i++) {
+                sql.append(i == keyLength ? "" : ",").append(columns[i]).append("=VALUES(").append(columns[i])
+                        .append(')');
+            }
+            return sql.toString();
+        }
+    },
+
+    /**
+     * INSERT ... ON CONFLICT (primary key) DO UPDATE.
+     */
+    POSTGRESQL {
+        @Override
+        String upsertSql(TableMigration migration) {
+
+            String[] columns = migration.getTargetColumns();
+            int keyLength = migration.getPrimaryKeyLength();
+            StringBuilder sql = new StringBuilder(TableWriter.insertSql(migration)).append(" ON CONFLICT (");
+            for (int i = 0; i < keyLength; i++) {
+                sql.append(i == 0 ? "" : ",").append(columns[i]);
+            }
+            if (keyLength == columns.length) {
+                return sql.append(") DO NOTHING").toString();
+            }
+            sql.append(") DO UPDATE SET ");
+            for (int i = keyLength; i < columns.length; i++) {
+                sql.append(i == keyLength ? "" : ",").append(columns[i]).append("=EXCLUDED.").append(columns[i]);
+            }
+            return sql.toString();
+        }
+    },
+
+    /**
+     * MERGE INTO ... USING (SELECT ... FROM dual).
+     */
+    ORACLE {
+        @Override
+        String upsertSql(TableMigration migration) {
+
+            String[] columns = migration.getTargetColumns();
+            StringBuilder source = new StringBuilder("SELECT ");
+            for (int i = 0; i < columns.length; i++) {
+                source.append(i == 0 ? "? " : ",? ").append(columns[i]);
+            }
+            return merge(migration, "", source.append(" FROM dual) s").toString());
+        }
+    },
+
+    /**
+     * MERGE INTO ... USING (VALUES (...)), holding the key range lock so concurrent writers can not insert the
+     * same key in between.
+     */
+    MSSQL {
+        @Override
+        String upsertSql(TableMigration migration) {
+
+            String[] columns = migration.getTargetColumns();
+            StringBuilder source = new StringBuilder("VALUES (");
+            for (int i = 0; i < columns.length; i++) {
+                source.append(i == 0 ? "?" : ",?");
+            }
+            source.append(")) s (");
+            for (int i = 0; i < columns.length; i++) {
+                source.append(i == 0 ? "" : ",").append(columns[i]);
+            }
+            // SQL Server requires MERGE to be terminated by a semicolon.
+            return merge(migration, " WITH (HOLDLOCK)", source.append(')').toString()) + ";";
+        }
+    };
+
+    /**
+     * Build the upsert statement of a migration.
+     *
+     * @param migration migration whose rows are written.
+     * @return the statement, parameters in target column order.
+     */
+    abstract String upsertSql(TableMigration migration);
+
+    /**
+     * Build a MERGE statement from the source row of the database.
+     *
+     * @param migration migration whose rows are written.
+     * @param hints     table hints of the target table, may be empty.
+     * @param source    query of the single source row s, after the opening parenthesis.
+     * @return MERGE INTO table t USING (source) ON key WHEN MATCHED THEN UPDATE WHEN NOT MATCHED THEN INSERT.
+     */
+    private static String merge(TableMigration migration, String hints, String source) {
+
+        String[] columns = migration.getTargetColumns();
+        int keyLength = migration.getPrimaryKeyLength();
+        StringBuilder sql = new StringBuilder("MERGE INTO ").append(migration.getTargetTable()).append(hints)
+                .append(" t USING (").append(source).append(" ON (");
+        for (int i = 0; i < keyLength; i++) {
+            sql.append(i == 0 ? "" : " AND ").append("t.").append(columns[i]).append("=s.").append(columns[i]);
+        }
+        sql.append(')');
+        if (keyLength < columns.length) {
+            sql.append(" WHEN MATCHED THEN UPDATE SET ");
+            for (int i = keyLength; i < columns.length; i++) {
+                sql.append(i == keyLength ? "" : ",").append("t.").append(columns[i]).append("=s.").append(columns[i]);
+            }
+        }
+        sql.append(" WHEN NOT MATCHED THEN INSERT (");
+        for (int i = 0; i < columns.length; i++) {
+            sql.append(i == 0 ? "" : ",").append(columns[i]);
+        }
+        sql.append(") VALUES (");
+        for (int i = 0; i < columns.length; i++) {
+            sql.append(i == 0 ? "" : ",").append("s.").append(columns[i]);
+        }
+        return sql.append(')').toString();
+    }
+}
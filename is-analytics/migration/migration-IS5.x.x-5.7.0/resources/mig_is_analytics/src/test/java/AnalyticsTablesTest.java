@@ -0,0 +1,469 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Migrates DAS tables into the IS_ANALYTICS tables DatabaseConnection creates for MySQL, with embedded H2
+ * databases standing in for both, & compares the rows with those the statements of the migISAnalyticsSpark
+ * script produce.
+ */
+public class AnalyticsTablesTest {
+
+    /**
+     * Number of the databases of the next test, so the tests do not share in-memory databases.
+     */
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    /**
+     * Columns of the per hour AuthStat source table.
+     */
+    private static final String AUTH_STAT_PER_HOUR = "meta_tenantId INT, year INT, month INT, day INT, hour INT, "
+            + "username VARCHAR(50), serviceProvider VARCHAR(50), identityProvider VARCHAR(50), region VARCHAR(50), "
+            + "remoteIp VARCHAR(50), userStoreDomain VARCHAR(50), identityProviderType VARCHAR(50), "
+            + "authSuccessCount BIGINT, authFailureCount BIGINT, authStepSuccessCount BIGINT, "
+            + "authFirstSuccessCount BIGINT, localUsername VARCHAR(50), rolesCommaSeparated VARCHAR(50)";
+
+    /**
+     * Columns of the per hour RoleAuthStat source table.
+     */
+    private static final String ROLE_AUTH_STAT_PER_HOUR = "meta_tenantId INT, year INT, month INT, day INT, "
+            + "hour INT, username VARCHAR(50), role VARCHAR(50), serviceProvider VARCHAR(50), "
+            + "identityProvider VARCHAR(50), remoteIp VARCHAR(50), region VARCHAR(50), userStoreDomain VARCHAR(50), "
+            + "identityProviderType VARCHAR(50), authSuccessCount BIGINT, authFailureCount BIGINT, "
+            + "authStepSuccessCount BIGINT";
+
+    /**
+     * Start of the hour of the source rows, 2019-06-12 10:00 UTC.
+     */
+    private static final long HOUR = LocalDateTime.of(2019, 6, 12, 10, 0).toInstant(ZoneOffset.UTC).toEpochMilli();
+
+    /**
+     * Start of the day of the source rows.
+     */
+    private static final long DAY = LocalDateTime.of(2019, 6, 12, 0, 0).toInstant(ZoneOffset.UTC).toEpochMilli();
+
+    /**
+     * Variable which stores the URL of the source database.
+     */
+    private String sourceUrl;
+    /**
+     * Variable which stores the URL of the target database.
+     */
+    private String targetUrl;
+
+    @Before
+    public void setUp() throws SQLException {
+
+        int database = DATABASES.incrementAndGet();
+        // The DAS tables have year, month, day & hour columns, which are keywords of H2.
+        sourceUrl = "jdbc:h2:mem:analyticsSource" + database + ";NON_KEYWORDS=YEAR,MONTH,DAY,HOUR;DB_CLOSE_DELAY=-1";
+        targetUrl = "jdbc:h2:mem:analyticsTarget" + database + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+        List<String> ddl = new DatabaseConnection("MYSQL", null, null, null, null, null, null).tablesDDL();
+        try (Connection connection = target();
+             Statement statement = connection.createStatement()) {
+            assertEquals(Collections.emptyList(), new DdlExecutor(false, false).execute(statement, ddl));
+        }
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+
+        for (String url : new String[]{sourceUrl, targetUrl}) {
+            try (Connection connection = DriverManager.getConnection(url);
+                 Statement statement = connection.createStatement()) {
+                statement.execute("SHUTDOWN");
+            }
+        }
+    }
+
+    @Test
+    public void aggregatesAuthStatAsScript() throws SQLException {
+
+        source("org_wso2_is_analytics_stream_AuthStatPerHour", AUTH_STAT_PER_HOUR,
+                new Object[]{1, 2019, 6, 12, 10, "alice", "sp", "idp", "", "10.0.0.1", "PRIMARY", null, 1, 0, 1, 1,
+                        "alice-1", "NOT_AVAILABLE"},
+                new Object[]{1, 2019, 6, 12, 10, "alice", "sp", "idp", "", "10.0.0.1", "PRIMARY", null, 2, 1, 0, 0,
+                        "alice-2", "admin,user"},
+                // A first login without a successful one is not counted as a first login.
+                new Object[]{1, 2019, 6, 12, 10, "bob", "sp", "idp", "LK", "10.0.0.2", "PRIMARY", "FEDERATED", 0, 2,
+                        0, 1, "bob", "admin"},
+                new Object[]{1, 2019, 6, 12, 10, "carol", "sp", "idp", "LK", "10.0.0.3", "PRIMARY", "LOCAL", 0, 1,
+                        null, null, "carol", null});
+        source("org_wso2_is_analytics_stream_AuthStatPerDay", AUTH_STAT_PER_HOUR.replace("hour INT, ", "")
+                .replace("remoteIp VARCHAR(50), ", ""),
+                new Object[]{1, 2019, 6, 12, "alice", "sp", "idp", "", "PRIMARY", null, 1, 0, 0, 1, "alice",
+                        "NOT_AVAILABLE"},
+                new Object[]{1, 2019, 6, 12, "alice", "sp", "idp", "", "PRIMARY", null, 1, 0, 0, 0, "alice",
+                        "NOT_AVAILABLE"});
+        assertTrue(run(AnalyticsTables.authStatAgg(Granularity.HOURS), AnalyticsTables.authStatAgg(Granularity.DAYS)));
+
+        String columns = "AGG_TIMESTAMP, AGG_EVENT_TIMESTAMP, username, region, isFirstLogin, identityProviderType, "
+                + "AGG_LAST_EVENT_TIMESTAMP, meta_tenantId, localUsername, rolesCommaSeparated, remoteIp, timestamp, "
+                + "AGG_SUM_successValue, AGG_SUM_failureValue, AGG_SUM_stepSuccessValue, AGG_SUM_firstLoginValue";
+        assertEquals(Arrays.asList(
+                "946684800000|" + HOUR + "|alice|NOT_AVAILABLE|1|SSO|" + HOUR + "|1|alice-1|,admin,user,|10.0.0.1|"
+                        + HOUR + "|3|1|1|1",
+                "946684800000|" + HOUR + "|bob|LK|0|FEDERATED|" + HOUR + "|1|bob|,admin,|10.0.0.2|" + HOUR
+                        + "|0|2|0|1",
+                "946684800000|" + HOUR + "|carol|LK|0|LOCAL|" + HOUR + "|1|carol|null|10.0.0.3|" + HOUR
+                        + "|0|1|null|null"),
+                rows("SELECT " + columns + " FROM AuthStatAgg_HOURS ORDER BY username"));
+        // The per day table has no remoteIp, & a roles column which is never available keeps it.
+        assertEquals(Collections.singletonList("978307200000|" + DAY + "|alice|NOT_AVAILABLE|1|SSO|" + DAY
+                        + "|1|alice|,NOT_AVAILABLE,||" + DAY + "|2|0|0|1"),
+                rows("SELECT " + columns + " FROM AuthStatAgg_DAYS ORDER BY username"));
+    }
+
+    @Test
+    public void aggregatesRoleAuthStatAsScript() throws SQLException {
+
+        source("org_wso2_is_analytics_stream_RoleAuthStatPerHour", ROLE_AUTH_STAT_PER_HOUR,
+                // A successful step, or a success through more than one identity provider type, is a first login.
+                new Object[]{1, 2019, 6, 12, 10, "alice", "admin", "sp", "idp", "10.0.0.1", "", "PRIMARY", "LOCAL",
+                        1, 0, 1},
+                new Object[]{1, 2019, 6, 12, 10, "bob", "admin", "sp", "idp", "10.0.0.2", "LK", "PRIMARY",
+                        "LOCAL,FEDERATED", 1, 0, 0},
+                new Object[]{1, 2019, 6, 12, 10, "carol", "admin", "sp", "idp", "10.0.0.3", "LK", "PRIMARY",
+                        "LOCAL,FEDERATED", 0, 1, 1},
+                new Object[]{1, 2019, 6, 12, 10, "dave", "admin", "sp", "idp", "10.0.0.4", "LK", "PRIMARY", null,
+                        1, 0, 0},
+                new Object[]{1, 2019, 6, 12, 10, "dave", "admin", "sp", "idp", "10.0.0.4", "LK", "PRIMARY", null,
+                        1, 1, 0});
+        assertTrue(run(AnalyticsTables.roleAggregation(Granularity.HOURS)));
+
+        assertEquals(Arrays.asList(
+                "alice|NOT_AVAILABLE|admin|1|LOCAL|10.0.0.1|1|0|1|0",
+                "bob|LK|admin|1|LOCAL,FEDERATED|10.0.0.2|1|0|0|0",
+                "carol|LK|admin|0|LOCAL,FEDERATED|10.0.0.3|0|1|1|0",
+                "dave|LK|admin|0|SSO|10.0.0.4|2|1|0|0"),
+                rows("SELECT username, region, token, isFirstLogin, identityProviderType, remoteIp, "
+                        + "AGG_SUM_successValue, AGG_SUM_failureValue, AGG_SUM_stepSuccessValue, "
+                        + "AGG_SUM_firstLoginValue FROM RoleAggregation_HOURS ORDER BY username"));
+    }
+
+    @Test
+    public void rollsUpAuthStatAsSeparateMigrations() throws SQLException {
+
+        source("org_wso2_is_analytics_stream_AuthStatPerHour", AUTH_STAT_PER_HOUR,
+                new Object[]{1, 2019, 6, 12, 10, "alice", "sp", "idp", "", "10.0.0.1", "PRIMARY", null, 1, 0, 1, 1,
+                        "alice-1", "NOT_AVAILABLE"},
+                new Object[]{1, 2019, 6, 12, 11, "alice", "sp", "idp", "", "", "PRIMARY", null, 2, 1, 0, 0,
+                        "alice-2", "admin"},
+                new Object[]{1, 2019, 6, 13, 10, "alice", "sp", "idp", "", "10.0.0.1", "PRIMARY", null, 0, 1, 0, 0,
+                        "alice-3", "user"},
+                new Object[]{1, 2019, 7, 1, 9, "alice", "sp", "idp", "", "10.0.0.1", "PRIMARY", null, 1, 0, 0, 1,
+                        "alice-4", "NOT_AVAILABLE"},
+                new Object[]{1, 2020, 1, 1, 0, "alice", "sp", "idp", "", "10.0.0.1", "PRIMARY", null, 1, 0, 0, 0,
+                        "alice-5", "admin,user"},
+                new Object[]{1, 2019, 6, 12, 10, "bob", "sp", "idp", "LK", "10.0.0.2", "PRIMARY", "FEDERATED", 0, 2,
+                        0, 1, "bob", "admin"},
+                new Object[]{1, 2019, 12, 31, 23, "bob", "sp", "idp", "LK", "10.0.0.2", "PRIMARY", "FEDERATED", 3,
+                        0, 1, 1, "bob", "NOT_AVAILABLE"},
+                new Object[]{2, 2019, 6, 12, 10, "carol", "sp", "idp", "LK", "10.0.0.3", "PRIMARY", "LOCAL", 0, 1,
+                        null, null, "carol", null});
+        assertRollup(AnalyticsTables.authStatRollup(), "AuthStat", "AuthStatAgg_",
+                AnalyticsTables::authStatAgg);
+    }
+
+    @Test
+    public void rollsUpRoleAuthStatAsSeparateMigrations() throws SQLException {
+
+        source("org_wso2_is_analytics_stream_RoleAuthStatPerHour", ROLE_AUTH_STAT_PER_HOUR,
+                new Object[]{1, 2019, 6, 12, 10, "alice", "admin", "sp", "idp", "10.0.0.1", "", "PRIMARY", "LOCAL",
+                        1, 0, 1},
+                new Object[]{1, 2019, 6, 12, 11, "alice", "admin", "sp", "idp", "", "", "PRIMARY", "LOCAL", 0, 1,
+                        0},
+                new Object[]{1, 2019, 6, 13, 10, "alice", "user", "sp", "idp", "10.0.0.1", "", "PRIMARY", null, 1,
+                        0, 0},
+                new Object[]{1, 2019, 12, 31, 23, "bob", "admin", "sp", "idp", "10.0.0.2", "LK", "PRIMARY",
+                        "LOCAL,FEDERATED", 1, 0, 0},
+                new Object[]{1, 2020, 1, 1, 0, "bob", "admin", "sp", "idp", "10.0.0.2", "LK", "PRIMARY",
+                        "LOCAL,FEDERATED", 0, 1, 1});
+        assertRollup(AnalyticsTables.roleRollup(), "RoleAuthStat", "RoleAggregation_",
+                AnalyticsTables::roleAggregation);
+    }
+
+    @Test
+    public void formatsSessionTimesAsFromUnixTime() throws SQLException {
+
+        long start = 1560333600999L;
+        long end = 1560337200000L;
+        long timestamp = 1560340799500L;
+        String columns = "meta_tenantId INT, sessionId VARCHAR(50), startTimestamp BIGINT, renewTimestamp BIGINT, "
+                + "terminationTimestamp BIGINT, endTimestamp BIGINT, duration BIGINT, isActive BOOLEAN, "
+                + "username VARCHAR(50), userstoreDomain VARCHAR(50), remoteIp VARCHAR(50), region VARCHAR(50), "
+                + "tenantDomain VARCHAR(50), serviceProvider VARCHAR(50), identityProviders VARCHAR(50), "
+                + "rememberMeFlag BOOLEAN, userAgent VARCHAR(50), "
+                + "usernameWithTenantDomainAndUserstoreDomain VARCHAR(50), _timestamp BIGINT";
+        source("ORG_WSO2_IS_ANALYTICS_STREAM_SESSIONINFO", columns,
+                new Object[]{1, "active", start, start, null, end, end - start, true, "alice", "PRIMARY",
+                        "10.0.0.1", "LK", "carbon.super", "sp", "idp", false, "agent", "alice@carbon.super",
+                        timestamp},
+                new Object[]{1, "terminated", start, start, end, end, end - start, false, "bob", "PRIMARY",
+                        "10.0.0.2", "LK", "carbon.super", "sp", "idp", true, "agent", "bob@carbon.super",
+                        timestamp});
+        assertTrue(run(AnalyticsTables.sessionInformation()));
+
+        assertEquals(Arrays.asList(
+                "active|" + fromUnixTime(start) + "|null|" + fromUnixTime(end) + "|" + fromUnixTime(timestamp)
+                        + "|" + start + "|null|1|0",
+                "terminated|" + fromUnixTime(start) + "|" + fromUnixTime(end) + "|" + fromUnixTime(end) + "|"
+                        + fromUnixTime(timestamp) + "|" + start + "|" + end + "|0|1"),
+                rows("SELECT sessionId, startTime, terminateTime, endTime, currentTime, startTimestamp, "
+                        + "terminationTimestamp, isActive, rememberMeFlag FROM SessionInformationTable "
+                        + "ORDER BY sessionId"));
+    }
+
+    @Test
+    public void countsActiveSessionsWithSessionId() throws SQLException {
+
+        source("ORG_WSO2_IS_ANALYTICS_STREAM_ACTIVESESSIONS", "meta_tenantId INT, sessionId VARCHAR(50)",
+                new Object[]{1, "a"}, new Object[]{1, "b"}, new Object[]{1, null}, new Object[]{1, "a"},
+                new Object[]{2, null}, new Object[]{3, "c"});
+        assertTrue(run(AnalyticsTables.activeSessionCount()));
+
+        // count(sessionId) counts every row with a sessionId, repeated ones too.
+        assertEquals(Arrays.asList("1|3", "2|0", "3|1"),
+                rows("SELECT meta_tenantId, activeCount FROM ActiveSessionCountTable ORDER BY meta_tenantId"));
+    }
+
+    @Test
+    public void keepsOneRowOfDuplicateLongSessions() throws SQLException {
+
+        String columns = "meta_tenantId INT, sessionId VARCHAR(50), tenantDomain VARCHAR(50), username VARCHAR(50), "
+                + "duration BIGINT, avgDuration DOUBLE, _timestamp BIGINT";
+        Object[] first = {1, "s1", "carbon.super", "alice", 9000L, 3000.5, 1560333600000L};
+        Object[] second = {1, "s2", "carbon.super", "bob", 8000L, 3000.5, 1560333601000L};
+        Object[] third = {2, "s1", "tenant.com", "carol", 7000L, null, 1560333602000L};
+        source("ORG_WSO2_IS_ANALYTICS_STREAM_LONGSESSIONS", columns, first, second, first, third, second, first);
+        assertTrue(run(AnalyticsTables.alertLongSessions()));
+
+        assertEquals(Arrays.asList(
+                "1|s1|carbon.super|alice|9000|3000.5|1560333600000|" + fromUnixTime(1560333600000L),
+                "1|s2|carbon.super|bob|8000|3000.5|1560333601000|" + fromUnixTime(1560333601000L),
+                "2|s1|tenant.com|carol|7000|null|1560333602000|" + fromUnixTime(1560333602000L)),
+                rows("SELECT meta_tenantId, sessionId, tenantDomain, username, duration, avgDuration, timestamp, "
+                        + "currentTime FROM AlertLongSessionsTable ORDER BY meta_tenantId, sessionId"));
+    }
+
+    /**
+     * Check that a rollup of the per hour source table writes the same rows as the separate migration of each
+     * granularity, once with its groups in memory & once spilled to disk after every group. The per day, month &
+     * year source tables hold the per hour rows, so the separate migrations group the same rows.
+     *
+     * @param rollup    rollup migration of the per hour source table.
+     * @param stream    name of the stream of the source tables, eg:- AuthStat.
+     * @param prefix    name of the target tables without the granularity.
+     * @param migration separate migration of a granularity.
+     * @throws SQLException if the tables could not be created or read.
+     */
+    private void assertRollup(TableMigration rollup, String stream, String prefix,
+                              Function<Granularity, TableMigration> migration) throws SQLException {
+
+        String hours = "org_wso2_is_analytics_stream_" + stream + "PerHour";
+        List<TableMigration> separate = new ArrayList<>();
+        try (Connection connection = source();
+             Statement statement = connection.createStatement()) {
+            for (Granularity granularity : Granularity.values()) {
+                separate.add(migration.apply(granularity));
+                if (!separate.get(separate.size() - 1).getSourceTable().equals(hours)) {
+                    statement.execute("CREATE TABLE " + separate.get(separate.size() - 1).getSourceTable()
+                            + " AS SELECT * FROM " + hours);
+                }
+            }
+        }
+        assertTrue(run(1, separate.toArray(new TableMigration[0])));
+        List<List<String>> expected = new ArrayList<>();
+        for (Granularity granularity : Granularity.values()) {
+            expected.add(sorted("SELECT * FROM " + prefix + granularity.name()));
+            assertTrue(expected.get(expected.size() - 1).size() > 1);
+        }
+        for (int aggregationMemory : new int[]{1, 0}) {
+            try (Connection connection = target();
+                 Statement statement = connection.createStatement()) {
+                statement.execute("DELETE FROM " + CheckpointStore.TABLE);
+                for (Granularity granularity : Granularity.values()) {
+                    statement.execute("DELETE FROM " + prefix + granularity.name());
+                }
+            }
+            assertTrue(run(aggregationMemory, rollup));
+            for (int i = 0; i < Granularity.values().length; i++) {
+                assertEquals(expected.get(i), sorted("SELECT * FROM " + prefix + Granularity.values()[i].name()));
+            }
+        }
+    }
+
+    /**
+     * Create a source table with the given rows.
+     *
+     * @param table   name of the table.
+     * @param columns column definitions of the table.
+     * @param rows    values of the rows.
+     * @throws SQLException if the table could not be created.
+     */
+    private void source(String table, String columns, Object[]... rows) throws SQLException {
+
+        try (Connection connection = source();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE " + table + " (" + columns + ")");
+            String marks = String.join(", ", Collections.nCopies(rows[0].length, "?"));
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + table + " VALUES ("
+                    + marks + ")")) {
+                for (Object[] row : rows) {
+                    for (int i = 0; i < row.length; i++) {
+                        insert.setObject(i + 1, row[i]);
+                    }
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * Run the given table migrations.
+     *
+     * @param migrations migrations to run.
+     * @return true if every table was migrated.
+     * @throws SQLException if the checkpoint table could not be created.
+     */
+    private boolean run(TableMigration... migrations) throws SQLException {
+
+        return run(new MigrationConfig().getAggregationMemory(), migrations);
+    }
+
+    /**
+     * Run the given table migrations with a memory budget for their groups.
+     *
+     * @param aggregationMemory megabytes of groups kept in memory, 0 to spill them after every group.
+     * @param migrations        migrations to run.
+     * @return true if every table was migrated.
+     * @throws SQLException if the checkpoint table could not be created.
+     */
+    private boolean run(int aggregationMemory, TableMigration... migrations) throws SQLException {
+
+        MigrationConfig config = new MigrationConfig();
+        config.setAggregationMemory(aggregationMemory);
+        config.setBatchSize(2);
+        config.setMetricsInterval(0);
+        config.setProgressInterval(0);
+        config.setStatusFile(null);
+        CheckpointStore checkpoints = new CheckpointStore(this::target, MigrationEngineFixture.CHECKPOINT_DDL);
+        checkpoints.init();
+        try (MigrationMetrics metrics = new MigrationMetrics(0);
+             ProgressTracker tracker = new ProgressTracker(metrics, new RowCountEstimator(this::source, sourceUrl), 0,
+                     null)) {
+            return new MigrationEngine(this::source, this::target, config, null, UpsertDialect.MYSQL, checkpoints,
+                    metrics, tracker).run(Arrays.asList(migrations));
+        }
+    }
+
+    /**
+     * Rows of a query on the target database.
+     *
+     * @param sql query to run.
+     * @return the rows, each with its values separated by |.
+     * @throws SQLException if the query failed.
+     */
+    private List<String> rows(String sql) throws SQLException {
+
+        List<String> rows = new ArrayList<>();
+        try (Connection connection = target();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            int columns = resultSet.getMetaData().getColumnCount();
+            while (resultSet.next()) {
+                StringBuilder row = new StringBuilder();
+                for (int i = 1; i <= columns; i++) {
+                    row.append(i > 1 ? "|" : "").append(resultSet.getString(i));
+                }
+                rows.add(row.toString());
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Rows of a query on the target database in sorted order, for queries whose order does not matter.
+     *
+     * @param sql query to run.
+     * @return the sorted rows, each with its values separated by |.
+     * @throws SQLException if the query failed.
+     */
+    private List<String> sorted(String sql) throws SQLException {
+
+        List<String> rows = rows(sql);
+        Collections.sort(rows);
+        return rows;
+    }
+
+    /**
+     * Spark from_unixtime((timestamp/1000)), which drops the milliseconds & formats the time in the default time
+     * zone.
+     *
+     * @param timestamp time in milliseconds.
+     * @return the formatted time.
+     */
+    private static String fromUnixTime(long timestamp) {
+
+        return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(timestamp / 1000 * 1000));
+    }
+
+    /**
+     * Open a connection to the source database.
+     *
+     * @return the connection.
+     * @throws SQLException if the connection could not be established.
+     */
+    private Connection source() throws SQLException {
+
+        return DriverManager.getConnection(sourceUrl);
+    }
+
+    /**
+     * Open a connection to the target database.
+     *
+     * @return the connection.
+     * @throws SQLException if the connection could not be established.
+     */
+    private Connection target() throws SQLException {
+
+        return DriverManager.getConnection(targetUrl);
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Encodes rows for the text based bulk loaders, PostgresqlCopyLoader & MysqlLoadDataLoader, & checks the
+ * warnings of LOAD DATA.
+ */
+public class BulkLoaderTest {
+
+    /**
+     * Rows with the values the encodings have to keep apart, eg:- null & the empty string.
+     */
+    private static final List<Object[]> ROWS = Arrays.asList(
+            new Object[]{1, null, "", true},
+            new Object[]{2, "say \"hi\"", "a\tb", false},
+            new Object[]{3L, "line\nbreak\r", "c:\\dir", "nul\0"});
+
+    @Test
+    public void encodesCsvForCopy() {
+
+        assertEquals("1,,\"\",true\n"
+                + "2,\"say \"\"hi\"\"\",\"a\tb\",false\n"
+                + "3,\"line\nbreak\r\",\"c:\\dir\",\"nul\0\"\n", PostgresqlCopyLoader.csv(ROWS));
+    }
+
+    @Test
+    public void encodesTsvForLoadData() {
+
+        assertEquals("1\t\\N\t\t1\n"
+                + "2\tsay \"hi\"\ta\\tb\t0\n"
+                + "3\tline\\nbreak\\r\tc:\\\\dir\tnul\\0\n", MysqlLoadDataLoader.tsv(ROWS));
+    }
+
+    @Test
+    public void failsLoadDataWithWarnings() throws SQLException {
+
+        SQLWarning truncated = new SQLWarning("Data truncated for column 'NAME' at row 1", "01000", 1265);
+        truncated.setNextWarning(new SQLWarning("Data truncated for column 'NAME' at row 2", "01000", 1265));
+        try {
+            load(truncated);
+            fail("The warnings of LOAD DATA were not reported");
+        } catch (SQLException e) {
+            // Not an integrity constraint violation, so TableWriter falls back to batch inserts for good.
+            assertEquals("22000", e.getSQLState());
+            assertTrue(e.getMessage(), e.getMessage().startsWith("LOAD DATA into TGT raised 2 warnings"));
+        }
+        load(null);
+    }
+
+    /**
+     * Statement of Connector/J, which reads the rows of LOAD DATA LOCAL INFILE from a stream.
+     */
+    public interface LocalInfileStatement extends Statement {
+
+        /**
+         * Set the stream read by the next LOAD DATA LOCAL INFILE.
+         *
+         * @param stream stream of the rows.
+         */
+        void setLocalInfileInputStream(InputStream stream);
+    }
+
+    /**
+     * Load a row with MysqlLoadDataLoader over a statement which raises warnings.
+     *
+     * @param warnings warnings of the statement, null if there are none.
+     * @throws SQLException if the load failed.
+     */
+    private void load(SQLWarning warnings) throws SQLException {
+
+        Statement statement = (Statement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{LocalInfileStatement.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "execute":
+                            return true;
+                        case "getWarnings":
+                            return warnings;
+                        default:
+                            return null;
+                    }
+                });
+        Connection connection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> statement);
+        TableMigration migration = new ProjectionMigration("SRC", "TGT", new String[]{"ID", "NAME"},
+                new String[]{"ID", "NAME"}, 1, row -> row);
+        TargetColumns columns = new TargetColumns(new String[]{"ID", "NAME"}, new int[]{Types.INTEGER, Types.VARCHAR},
+                new int[]{10, 5}, new int[]{0, 0});
+        new MysqlLoadDataLoader().load(connection, migration, columns,
+                Arrays.asList(new Object[][]{{1, "too long"}, {2, "also too long"}}));
+    }
+}
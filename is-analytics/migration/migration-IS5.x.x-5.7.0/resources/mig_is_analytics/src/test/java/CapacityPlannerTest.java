@@ -0,0 +1,132 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Reads the layouts of the IS_ANALYTICS tables from the DDL statements DatabaseConnection creates them with.
+ */
+public class CapacityPlannerTest {
+
+    /**
+     * Upper case column types of the DDL statements of every database type.
+     */
+    private static final List<String> TYPES = Arrays.asList("VARCHAR", "VARCHAR2", "BIGINT", "INT", "TINYINT",
+            "BIT", "BOOLEAN", "DOUBLE", "FLOAT", "NUMBER");
+
+    @Test
+    public void readsMysqlLayouts() {
+
+        assertLayouts("MYSQL");
+    }
+
+    @Test
+    public void readsPostgresqlLayouts() {
+
+        assertLayouts("POSTGRESQL");
+    }
+
+    @Test
+    public void readsOracleLayouts() {
+
+        assertLayouts("ORACLE");
+    }
+
+    @Test
+    public void readsMssqlLayouts() {
+
+        assertLayouts("MSSQL");
+    }
+
+    @Test
+    public void readsColumnLengths() {
+
+        Map<String, CapacityPlanner.Layout> layouts = CapacityPlanner.layouts(Arrays.asList(
+                "CREATE TABLE T ( ID NUMBER(19), NAME VARCHAR2(254) NOT NULL, AMOUNT NUMBER(19,4), FLAG BIT,"
+                        + "PRIMARY KEY (ID, NAME));",
+                "CREATE INDEX T_INDEX ON T (NAME,FLAG);"));
+        CapacityPlanner.Layout layout = layouts.get("T");
+        assertEquals(Arrays.asList("ID", "NAME", "AMOUNT", "FLAG"), new ArrayList<>(layout.getColumns().keySet()));
+        assertEquals(19, layout.getColumns().get("ID").getLength());
+        assertEquals(254, layout.getColumns().get("NAME").getLength());
+        assertEquals(19, layout.getColumns().get("AMOUNT").getLength());
+        assertEquals(0, layout.getColumns().get("FLAG").getLength());
+        assertEquals(Arrays.asList("ID", "NAME"), layout.getPrimaryKey());
+        assertEquals(Arrays.asList("NAME", "FLAG"), layout.getIndexes().get("T_INDEX"));
+    }
+
+    /**
+     * Check that every table, column, primary key & index of the DDL statements of a database type is read,
+     * & that the layouts hold the target columns & primary key of every table migration.
+     *
+     * @param dbType database type.
+     */
+    private static void assertLayouts(String dbType) {
+
+        List<String> ddl = new DatabaseConnection(dbType, null, null, null, null, null, null).tablesDDL();
+        Map<String, CapacityPlanner.Layout> layouts = CapacityPlanner.layouts(ddl);
+        int tables = 0;
+        int indexes = 0;
+        for (String s : ddl) {
+            if (!DdlExecutor.isIndex(s)) {
+                tables++;
+                continue;
+            }
+            indexes++;
+            CapacityPlanner.Layout layout = layouts.get(DdlExecutor.tableName(s));
+            assertNotNull(s, layout);
+            List<String> columns = layout.getIndexes().get(DdlExecutor.indexName(s));
+            assertNotNull(s, columns);
+            assertFalse(s, columns.isEmpty());
+            assertTrue(s, layout.getColumns().keySet().containsAll(columns));
+        }
+        assertEquals(tables, layouts.size());
+        assertTrue(indexes > 0);
+        for (Map.Entry<String, CapacityPlanner.Layout> table : layouts.entrySet()) {
+            CapacityPlanner.Layout layout = table.getValue();
+            assertFalse(table.getKey(), layout.getPrimaryKey().isEmpty());
+            assertTrue(table.getKey(), layout.getColumns().keySet().containsAll(layout.getPrimaryKey()));
+            for (Map.Entry<String, CapacityPlanner.Column> column : layout.getColumns().entrySet()) {
+                String name = table.getKey() + "." + column.getKey();
+                assertTrue(name, TYPES.contains(column.getValue().getType()));
+                assertTrue(name, !column.getValue().isVariable() || column.getValue().getLength() > 0);
+            }
+            indexes -= layout.getIndexes().size();
+        }
+        assertEquals(0, indexes);
+        for (TableMigration migration : AnalyticsTables.create(false)) {
+            CapacityPlanner.Layout layout = layouts.get(migration.getTargetTable().toUpperCase(Locale.ENGLISH));
+            assertNotNull(migration.getTargetTable(), layout);
+            List<String> columns = new ArrayList<>();
+            for (String column : migration.getTargetColumns()) {
+                columns.add(column.toUpperCase(Locale.ENGLISH));
+            }
+            assertTrue(migration.getTargetTable(), layout.getColumns().keySet().containsAll(columns));
+            assertEquals(migration.getTargetTable(), columns.subList(0, migration.getPrimaryKeyLength()),
+                    layout.getPrimaryKey());
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Keeps checkpoints in an embedded H2 database through CheckpointStore.
+ */
+public class CheckpointStoreTest {
+
+    /**
+     * Number of the database of the next test, so the tests do not share in-memory databases.
+     */
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    /**
+     * Variable which stores the URL of the target database.
+     */
+    private String url;
+    /**
+     * Variable which stores the checkpoint store under test.
+     */
+    private CheckpointStore checkpoints;
+
+    @Before
+    public void setUp() throws SQLException {
+
+        url = "jdbc:h2:mem:checkpoints" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1";
+        checkpoints = new CheckpointStore(() -> DriverManager.getConnection(url),
+                MigrationEngineFixture.CHECKPOINT_DDL);
+        checkpoints.init();
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+    }
+
+    @Test
+    public void startsCheckpointOnce() throws SQLException {
+
+        assertNull(checkpoints.load("TGT"));
+        checkpoints.start("TGT");
+        CheckpointStore.Checkpoint started = checkpoints.load("TGT");
+        assertFalse(started.isDone());
+        assertNull(started.getWatermark());
+        assertEquals(0, started.getRowsWritten());
+
+        save(CheckpointStore.RUNNING, 42L, 7);
+        checkpoints.start("TGT");
+        assertEquals(Long.valueOf(42), checkpoints.load("TGT").getWatermark());
+        assertEquals(7, checkpoints.load("TGT").getRowsWritten());
+    }
+
+    @Test
+    public void savesCheckpointInCallerTransaction() throws SQLException {
+
+        checkpoints.start("TGT");
+        try (Connection connection = DriverManager.getConnection(url)) {
+            connection.setAutoCommit(false);
+            checkpoints.save(connection, "TGT", CheckpointStore.DONE, 100L, 10);
+            connection.rollback();
+        }
+        assertFalse(checkpoints.load("TGT").isDone());
+        save(CheckpointStore.DONE, null, 10);
+        assertTrue(checkpoints.load("TGT").isDone());
+        assertNull(checkpoints.load("TGT").getWatermark());
+    }
+
+    @Test
+    public void failsToSaveCheckpointWhichWasNotStarted() throws SQLException {
+
+        try {
+            save(CheckpointStore.RUNNING, 1L, 1);
+            fail("A checkpoint which was not started was saved");
+        } catch (SQLException e) {
+            assertNull(checkpoints.load("TGT"));
+        }
+    }
+
+    @Test
+    public void clearsCheckpoint() throws SQLException {
+
+        checkpoints.start("TGT");
+        checkpoints.clear("TGT");
+        assertNull(checkpoints.load("TGT"));
+    }
+
+    /**
+     * Save & commit the checkpoint of the test table.
+     *
+     * @param status      status, RUNNING or DONE.
+     * @param watermark   source watermark, may be null.
+     * @param rowsWritten number of rows written.
+     * @throws SQLException if the checkpoint could not be saved.
+     */
+    private void save(String status, Long watermark, long rowsWritten) throws SQLException {
+
+        try (Connection connection = DriverManager.getConnection(url)) {
+            connection.setAutoCommit(false);
+            checkpoints.save(connection, "TGT", status, watermark, rowsWritten);
+            connection.commit();
+        }
+    }
+}
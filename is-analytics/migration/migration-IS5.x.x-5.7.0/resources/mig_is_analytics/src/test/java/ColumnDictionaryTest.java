@@ -0,0 +1,139 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Encodes the values of low cardinality source columns with ColumnDictionary, as the copy of each row from a
+ * driver which returns a new String per value.
+ */
+public class ColumnDictionaryTest {
+
+    @Test
+    public void sharesOneInstanceOfEqualValues() {
+
+        ColumnDictionary dictionary = new ColumnDictionary(16);
+        String first = copy("carbon.super");
+        String second = copy("carbon.super");
+        assertNotSame(first, second);
+        assertSame(first, dictionary.encode(first));
+        assertSame(first, dictionary.encode(second));
+        assertEquals(1, dictionary.size());
+    }
+
+    @Test
+    public void stopsGrowingAtCapacity() {
+
+        ColumnDictionary dictionary = new ColumnDictionary(2);
+        String a = copy("a");
+        String b = copy("b");
+        dictionary.encode(a);
+        dictionary.encode(b);
+        String c = copy("c");
+        // A value beyond the capacity is returned as it is, & the values already kept are still shared.
+        assertSame(c, dictionary.encode(c));
+        assertNotSame(c, dictionary.encode(copy("c")));
+        assertEquals("c", dictionary.encode(copy("c")));
+        assertSame(a, dictionary.encode(copy("a")));
+        assertSame(b, dictionary.encode(copy("b")));
+        assertEquals(2, dictionary.size());
+    }
+
+    @Test
+    public void passesValuesThroughWithoutCapacity() {
+
+        ColumnDictionary dictionary = new ColumnDictionary(0);
+        String value = copy("PRIMARY");
+        assertSame(value, dictionary.encode(value));
+        assertNotSame(value, dictionary.encode(copy("PRIMARY")));
+        assertEquals(0, dictionary.size());
+    }
+
+    @Test
+    public void keepsNullsAndOtherTypes() {
+
+        ColumnDictionary dictionary = new ColumnDictionary(16);
+        assertNull(dictionary.encode(null));
+        Long number = 1546300800000L;
+        assertSame(number, dictionary.encode(number));
+        assertEquals(0, dictionary.size());
+    }
+
+    @Test
+    public void sharesValuesBetweenWorkers() throws InterruptedException, ExecutionException {
+
+        ColumnDictionary dictionary = new ColumnDictionary(1000);
+        CountDownLatch start = new CountDownLatch(1);
+        Callable<Object[]> worker = () -> {
+            start.await();
+            Object[] encoded = new Object[10000];
+            for (int i = 0; i < encoded.length; i++) {
+                encoded[i] = dictionary.encode(copy("sp-" + i % 100));
+            }
+            return encoded;
+        };
+        ExecutorService workers = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object[]> first = workers.submit(worker);
+            Future<Object[]> second = workers.submit(worker);
+            start.countDown();
+            Object[] a = first.get();
+            Object[] b = second.get();
+            for (int i = 0; i < a.length; i++) {
+                assertEquals("sp-" + i % 100, a[i]);
+                assertSame(a[i], b[i]);
+                assertSame(a[i], a[i % 100]);
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+        assertEquals(100, dictionary.size());
+    }
+
+    @Test
+    public void encodesLowCardinalityColumns() {
+
+        assertTrue(ColumnDictionary.isLowCardinality("serviceProvider"));
+        assertTrue(ColumnDictionary.isLowCardinality("TENANTDOMAIN"));
+        assertFalse(ColumnDictionary.isLowCardinality("username"));
+        assertFalse(ColumnDictionary.isLowCardinality("_timestamp"));
+    }
+
+    /**
+     * Copy a string into a new instance, as a driver returns each value read.
+     *
+     * @param value string to copy.
+     * @return an equal string which is not the same instance.
+     */
+    private static String copy(String value) {
+
+        return new String(value.toCharArray());
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Borrows connections of an embedded H2 database from ConnectionPool.
+ */
+public class ConnectionPoolTest {
+
+    /**
+     * Number of the database of the next test, so the tests do not share in-memory databases.
+     */
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    /**
+     * Session initialization statement which records each new connection.
+     */
+    private static final List<String> SESSION_INIT = Collections.singletonList(
+            "INSERT INTO SESSIONS VALUES (SESSION_ID())");
+
+    /**
+     * Variable which stores the URL of the database.
+     */
+    private String url;
+
+    @Before
+    public void setUp() throws SQLException {
+
+        url = "jdbc:h2:mem:pool" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1";
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE SESSIONS (ID INT)");
+            statement.execute("CREATE TABLE ROWS_WRITTEN (ID INT)");
+        }
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+    }
+
+    @Test
+    public void initializesEachNewConnection() throws SQLException {
+
+        try (ConnectionPool pool = pool(2, 0, 30000, 60000)) {
+            try (Connection first = pool.getConnection();
+                 Connection second = pool.getConnection()) {
+                assertNotEquals(session(first), session(second));
+            }
+            // Both connections are reused, so the statements are not run again.
+            try (Connection first = pool.getConnection();
+                 Connection second = pool.getConnection()) {
+                assertEquals(2, count("SELECT COUNT(*) FROM SESSIONS"));
+                assertEquals(1, count("SELECT COUNT(*) FROM SESSIONS WHERE ID = " + session(first)));
+                assertEquals(1, count("SELECT COUNT(*) FROM SESSIONS WHERE ID = " + session(second)));
+            }
+        }
+    }
+
+    @Test
+    public void validatesIdleConnection() throws SQLException {
+
+        // A connection returned less than the validation interval ago is handed out as it is.
+        try (ConnectionPool pool = pool(1, 0, 30000, 60000)) {
+            abort(pool);
+            try (Connection connection = pool.getConnection()) {
+                session(connection);
+                fail("An aborted connection was handed out before the validation interval");
+            } catch (SQLException e) {
+                assertEquals(1, count("SELECT COUNT(*) FROM SESSIONS"));
+            }
+        }
+        // An idle connection which is validated & found closed is replaced by a new, initialized one.
+        try (ConnectionPool pool = pool(1, 0, 0, 60000)) {
+            int aborted = abort(pool);
+            try (Connection connection = pool.getConnection()) {
+                assertNotEquals(aborted, session(connection));
+                assertEquals(1, count("SELECT COUNT(*) FROM SESSIONS WHERE ID = " + session(connection)));
+            }
+        }
+    }
+
+    @Test
+    public void waitsForReturnedConnection() throws Exception {
+
+        try (ConnectionPool pool = pool(1, 0, 30000, 60000)) {
+            CompletableFuture<Integer> waiting;
+            int session;
+            try (Connection connection = pool.getConnection()) {
+                session = session(connection);
+                waiting = CompletableFuture.supplyAsync(() -> {
+                    try (Connection borrowed = pool.getConnection()) {
+                        return session(borrowed);
+                    } catch (SQLException e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+                try {
+                    waiting.get(100, TimeUnit.MILLISECONDS);
+                    fail("A connection was borrowed while every connection was in use");
+                } catch (TimeoutException e) {
+                    assertFalse(waiting.isDone());
+                }
+            }
+            assertEquals(Integer.valueOf(session), waiting.get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void failsAfterBorrowTimeout() throws SQLException {
+
+        try (ConnectionPool pool = pool(1, 0, 30000, 100)) {
+            try (Connection connection = pool.getConnection()) {
+                long start = System.currentTimeMillis();
+                try {
+                    pool.getConnection();
+                    fail("A connection was borrowed while every connection was in use");
+                } catch (SQLException e) {
+                    assertTrue(e.getMessage().contains("raise poolSize"));
+                    assertTrue(System.currentTimeMillis() - start >= 100);
+                }
+                assertFalse(connection.isClosed());
+            }
+            try (Connection connection = pool.getConnection()) {
+                assertFalse(connection.isClosed());
+            }
+        }
+    }
+
+    @Test
+    public void resetsReturnedConnection() throws SQLException {
+
+        try (ConnectionPool pool = pool(1, 0, 30000, 60000)) {
+            try (Connection connection = pool.getConnection();
+                 Statement statement = connection.createStatement()) {
+                connection.setAutoCommit(false);
+                statement.execute("INSERT INTO ROWS_WRITTEN VALUES (1)");
+            }
+            try (Connection connection = pool.getConnection()) {
+                assertTrue(connection.getAutoCommit());
+                assertEquals(0, count("SELECT COUNT(*) FROM ROWS_WRITTEN"));
+            }
+            assertEquals(1, count("SELECT COUNT(*) FROM SESSIONS"));
+        }
+    }
+
+    @Test
+    public void closesLeastRecentlyUsedStatement() throws SQLException {
+
+        PreparedStatement third;
+        try (ConnectionPool pool = pool(1, 2, 30000, 60000)) {
+            try (Connection connection = pool.getConnection()) {
+                PreparedStatement first = physical(connection, "SELECT 1");
+                PreparedStatement second = physical(connection, "SELECT 2");
+                // Using the first statement again makes the second the least recently used.
+                assertSame(first, physical(connection, "SELECT 1"));
+                assertFalse(first.isClosed());
+                third = physical(connection, "SELECT 3");
+                assertTrue(second.isClosed());
+                assertFalse(first.isClosed());
+                assertNotSame(second, physical(connection, "SELECT 2"));
+                assertTrue(first.isClosed());
+            }
+            assertFalse(third.isClosed());
+        }
+        // Closing the pool closes the statements of its idle connections.
+        assertTrue(third.isClosed());
+    }
+
+    /**
+     * Pool of the test database.
+     *
+     * @param size               maximum number of connections.
+     * @param statementCacheSize number of prepared statements kept per connection.
+     * @param validationInterval milliseconds a connection may be idle before it is validated.
+     * @param borrowTimeout      milliseconds to wait for a connection.
+     * @return the pool.
+     */
+    private ConnectionPool pool(int size, int statementCacheSize, long validationInterval, long borrowTimeout) {
+
+        return new ConnectionPool(url, "sa", "", size, statementCacheSize, SESSION_INIT, validationInterval,
+                borrowTimeout);
+    }
+
+    /**
+     * Borrow a connection & abort its session in the database after it is returned.
+     *
+     * @param pool the pool.
+     * @return the session id of the aborted connection.
+     * @throws SQLException if the session could not be aborted.
+     */
+    private int abort(ConnectionPool pool) throws SQLException {
+
+        int session;
+        try (Connection connection = pool.getConnection()) {
+            session = session(connection);
+        }
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("CALL ABORT_SESSION(" + session + ")");
+        }
+        return session;
+    }
+
+    /**
+     * Prepare a statement on a pooled connection, run & close it.
+     *
+     * @param connection pooled connection.
+     * @param sql        query to prepare.
+     * @return the statement of the driver behind the one handed out by the pool.
+     * @throws SQLException if the statement could not be prepared or run.
+     */
+    private static PreparedStatement physical(Connection connection, String sql) throws SQLException {
+
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.executeQuery().close();
+            return statement.unwrap(PreparedStatement.class);
+        }
+    }
+
+    /**
+     * Session id of a connection in the database.
+     *
+     * @param connection the connection.
+     * @return the session id.
+     * @throws SQLException if the query failed.
+     */
+    private static int session(Connection connection) throws SQLException {
+
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT SESSION_ID()")) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+
+    /**
+     * Run a count query on a connection of its own.
+     *
+     * @param sql query of one number.
+     * @return the number.
+     * @throws SQLException if the query failed.
+     */
+    private long count(String sql) throws SQLException {
+
+        return MigrationEngineFixture.count(sql, DriverManager.getConnection(url, "sa", ""));
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Creates the IS_ANALYTICS tables & their indexes in an embedded H2 database through DatabaseConnection.
+ */
+public class DatabaseConnectionTest {
+
+    /**
+     * Number of the database of the next test, so the tests do not share in-memory databases.
+     */
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    /**
+     * Variable which stores the URL of the target database.
+     */
+    private String url;
+    /**
+     * Variable which stores the connection under test, with MySQL tables.
+     */
+    private DatabaseConnection database;
+
+    @Before
+    public void setUp() {
+
+        url = "jdbc:h2:mem:tables" + DATABASES.incrementAndGet() + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+        database = new DatabaseConnection("MYSQL", null, null, null, null, null, null);
+        database.setDbUrl(url);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+    }
+
+    @Test
+    public void createsMysqlTablesWithInlineIndexes() throws SQLException {
+
+        List<String> ddl = database.tablesDDL();
+        List<String> inlined = DatabaseConnection.inlineIndexes(ddl);
+        assertEquals(ddl.size() - indexes(ddl).size(), inlined.size());
+        assertEquals(Collections.emptyList(), indexes(inlined));
+        assertTrue(inlined.contains("CREATE TABLE SuspiciousAlertTable ( "
+                + "meta_tenantId int(11) NOT NULL, username varchar(254) NOT NULL,"
+                + "severity int(11) DEFAULT NULL, msg varchar(254) NOT NULL,"
+                + "tenantDomain varchar(254) DEFAULT NULL, timestamp bigint(20) DEFAULT NULL,"
+                + "currentTime varchar(254) DEFAULT NULL,"
+                + "PRIMARY KEY (meta_tenantId,username,msg),KEY SuspiciousAlertTable_INDEX (username));"));
+        execute(inlined);
+        assertEquals(Collections.emptyList(), database.missingIndexes(indexes(ddl)));
+    }
+
+    @Test
+    public void skipsIndexesWhichExist() throws SQLException {
+
+        List<String> ddl = database.tablesDDL();
+        List<String> indexes = indexes(ddl);
+        assertFalse(indexes.isEmpty());
+        List<String> created = new ArrayList<>(ddl);
+        created.remove(indexes.get(0));
+        execute(created);
+        assertEquals(Collections.singletonList(indexes.get(0)), database.missingIndexes(indexes));
+    }
+
+    @Test
+    public void choosesSessionSettingsOfEachDatabase() {
+
+        assertEquals(Collections.emptyList(), DatabaseConnection.sessionDefaults("MYSQL", true));
+        assertEquals(Collections.emptyList(), DatabaseConnection.sessionDefaults("POSTGRESQL", false));
+        assertEquals(Collections.singletonList("SET synchronous_commit = off"),
+                DatabaseConnection.sessionDefaults("POSTGRESQL", true));
+        assertEquals(2, DatabaseConnection.sessionDefaults("ORACLE", false).size());
+        assertTrue(DatabaseConnection.sessionDefaults("ORACLE", true)
+                .contains("ALTER SESSION SET COMMIT_WAIT = 'NOWAIT'"));
+        assertEquals(Collections.singletonList("SET ARITHABORT ON"),
+                DatabaseConnection.sessionDefaults("MSSQL", false));
+    }
+
+    @Test
+    public void resetsIndexBuildSettingsOfPooledConnections() {
+
+        List<String> build = new DatabaseConnection("POSTGRESQL", null, null, null, null, null, null)
+                .indexBuild("CREATE INDEX T_INDEX ON T (A);");
+        assertEquals("CREATE INDEX T_INDEX ON T (A);", build.get(2));
+        assertEquals(Arrays.asList("RESET maintenance_work_mem;", "RESET max_parallel_maintenance_workers;"),
+                build.subList(3, build.size()));
+    }
+
+    /**
+     * CREATE INDEX statements of a list of DDL statements.
+     *
+     * @param ddl list of DDL statements.
+     * @return the index statements in their original order.
+     */
+    private static List<String> indexes(List<String> ddl) {
+
+        List<String> indexes = new ArrayList<>();
+        for (String s : ddl) {
+            if (DdlExecutor.isIndex(s)) {
+                indexes.add(s);
+            }
+        }
+        return indexes;
+    }
+
+    /**
+     * Execute DDL statements in the test database.
+     *
+     * @param ddl list of DDL statements.
+     * @throws SQLException if the connection could not be established.
+     */
+    private void execute(List<String> ddl) throws SQLException {
+
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement()) {
+            assertEquals(Collections.emptyList(), new DdlExecutor(false, false).execute(statement, ddl));
+        }
+    }
+}
@@ -0,0 +1,396 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Creates tables in an embedded H2 database through DdlExecutor, with statements which stand in for the
+ * batch behaviour of other drivers where H2 behaves differently.
+ */
+public class DdlExecutorTest {
+
+    /**
+     * Number of the database of the next test, so the tests do not share in-memory databases.
+     */
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    /**
+     * Statement which no database accepts.
+     */
+    private static final String INVALID = "CREATE TABLE BROKEN (";
+
+    /**
+     * Statements of a batch with an invalid statement between valid ones.
+     */
+    private static final List<String> STATEMENTS = Arrays.asList("CREATE TABLE A (ID INT)", INVALID,
+            "CREATE TABLE B (ID INT)", "CREATE INDEX IDX_B ON B (ID)");
+
+    /**
+     * Variable which stores the URL of the database.
+     */
+    private String url;
+    /**
+     * Variable which stores the statements the database was sent one by one.
+     */
+    private List<String> executed;
+    /**
+     * Variable which stores the worker connection each statement was executed on.
+     */
+    private Map<String, Integer> workers;
+
+    @Before
+    public void setUp() {
+
+        url = "jdbc:h2:mem:ddl" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1";
+        executed = Collections.synchronizedList(new ArrayList<>());
+        workers = new ConcurrentHashMap<>();
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+    }
+
+    @Test
+    public void createsTablesInOneBatch() throws SQLException {
+
+        List<String> statements = Arrays.asList("CREATE TABLE A (ID INT)", "CREATE TABLE B (ID INT)",
+                "CREATE INDEX IDX_B ON B (ID)");
+        assertEquals(Collections.emptyList(), execute(new DdlExecutor(true, false), Batch.H2, statements));
+        assertEquals(Collections.emptyList(), executed);
+        assertEquals(Arrays.asList("A", "B"), tables());
+    }
+
+    @Test
+    public void retriesFailedStatementsOfBatch() throws SQLException {
+
+        // H2 runs every statement of the batch & marks the invalid one as failed.
+        assertEquals(Collections.singletonList(INVALID), execute(new DdlExecutor(true, false), Batch.H2,
+                STATEMENTS));
+        assertEquals(Collections.singletonList(INVALID), executed);
+        assertEquals(Arrays.asList("A", "B"), tables());
+    }
+
+    @Test
+    public void retriesStatementsAfterFirstFailure() throws SQLException {
+
+        // Drivers which stop at the first failure report only the counts of the statements before it.
+        assertEquals(Collections.singletonList(INVALID), execute(new DdlExecutor(true, false), Batch.STOPS,
+                STATEMENTS));
+        assertEquals(STATEMENTS.subList(1, STATEMENTS.size()), executed);
+        assertEquals(Arrays.asList("A", "B"), tables());
+    }
+
+    @Test
+    public void retriesEveryStatementOfAtomicBatch() throws SQLException {
+
+        // The statements before the failure are reported as executed, but rolled back with the batch.
+        assertEquals(Collections.singletonList(INVALID), execute(new DdlExecutor(true, true), Batch.ATOMIC,
+                STATEMENTS));
+        assertEquals(STATEMENTS, executed);
+        assertEquals(Arrays.asList("A", "B"), tables());
+    }
+
+    @Test
+    public void executesEachStatementWithoutBatchSupport() throws SQLException {
+
+        assertEquals(Collections.singletonList(INVALID), execute(new DdlExecutor(true, false), Batch.UNSUPPORTED,
+                STATEMENTS));
+        assertEquals(STATEMENTS, executed);
+        assertEquals(Arrays.asList("A", "B"), tables());
+    }
+
+    @Test
+    public void executesEachStatementWhenNotBatched() throws SQLException {
+
+        List<String> statements = Arrays.asList("CREATE TABLE A (ID INT)", INVALID, "CREATE TABLE A (ID INT)",
+                "CREATE TABLE B (ID INT)");
+        assertEquals(Arrays.asList(INVALID, "CREATE TABLE A (ID INT)"), execute(new DdlExecutor(false, false),
+                Batch.UNSUPPORTED, statements));
+        assertEquals(statements, executed);
+        assertEquals(Arrays.asList("A", "B"), tables());
+    }
+
+    @Test
+    public void createsEachTableWithItsIndexesOnOneConnection() throws SQLException {
+
+        List<String> statements = Arrays.asList("CREATE TABLE A (ID INT)", "CREATE TABLE B (ID INT)",
+                "CREATE TABLE P (ID INT)", "CREATE INDEX IDX_A ON A (ID)",
+                "CREATE TABLE P_2019 PARTITION OF P FOR VALUES FROM (0) TO (10)", "CREATE INDEX IDX_B ON B (ID)",
+                "CREATE TABLE P_2020 PARTITION OF P FOR VALUES FROM (10) TO (20)", "CREATE INDEX IDX_P ON P (ID)");
+        AtomicInteger opened = new AtomicInteger();
+        assertEquals(Collections.emptyList(), new DdlExecutor(false, false).executeParallel(
+                () -> connection(opened.incrementAndGet()), statements, 4));
+        // One connection per table, as there are fewer tables than threads.
+        assertEquals(3, opened.get());
+        assertEquals(new HashSet<>(statements), new HashSet<>(executed));
+        for (String[] group : new String[][]{{"CREATE TABLE A", "CREATE INDEX IDX_A"},
+                {"CREATE TABLE B", "CREATE INDEX IDX_B"},
+                {"CREATE TABLE P ", "CREATE TABLE P_2019", "CREATE TABLE P_2020", "CREATE INDEX IDX_P"}}) {
+            int previous = -1;
+            for (String prefix : group) {
+                int position = position(prefix);
+                assertTrue(prefix + " runs after the statements of its table before it", position > previous);
+                assertEquals(prefix + " runs on the connection of its table", workers.get(executed.get(
+                        position(group[0]))), workers.get(executed.get(position)));
+                previous = position;
+            }
+        }
+        assertEquals(Arrays.asList("A", "B", "P"), tables());
+    }
+
+    @Test
+    public void continuesWithTheConnectionsWhichOpened() throws SQLException {
+
+        List<String> statements = Arrays.asList("CREATE TABLE A (ID INT)", "CREATE TABLE B (ID INT)",
+                INVALID, "CREATE INDEX IDX_B ON B (ID)");
+        AtomicInteger opened = new AtomicInteger();
+        assertEquals(Collections.singletonList(INVALID), new DdlExecutor(false, false).executeParallel(() -> {
+            if (opened.incrementAndGet() > 1) {
+                throw new SQLException("Too many connections");
+            }
+            return connection(1);
+        }, statements, 3));
+        assertEquals(Collections.singleton(1), new HashSet<>(workers.values()));
+        assertEquals(new HashSet<>(statements), new HashSet<>(executed));
+        assertTrue(position("CREATE INDEX IDX_B") > position("CREATE TABLE B"));
+        assertEquals(Arrays.asList("A", "B"), tables());
+    }
+
+    @Test
+    public void failsWhenNoConnectionOpens() {
+
+        DdlExecutor executor = new DdlExecutor(true, false);
+        ConnectionFactory unavailable = () -> {
+            throw new SQLException("Connection refused");
+        };
+        assertNull(executor.executeGroups(unavailable, DdlExecutor.groupByTable(STATEMENTS), 2));
+        assertEquals(STATEMENTS, executor.executeParallel(unavailable, STATEMENTS, 2));
+    }
+
+    /**
+     * Execute DDL statements on a statement of the test database.
+     *
+     * @param executor   executor under test.
+     * @param batch      batch behaviour of the statement.
+     * @param statements list of DDL statements.
+     * @return list of statements which failed.
+     * @throws SQLException if the connection could not be established.
+     */
+    private List<String> execute(DdlExecutor executor, Batch batch, List<String> statements) throws SQLException {
+
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement()) {
+            return executor.execute(statement(statement, batch), statements);
+        }
+    }
+
+    /**
+     * Statement which records the statements executed one by one & batches as the given driver would.
+     *
+     * @param statement H2 statement to delegate to.
+     * @param batch     batch behaviour of the statement.
+     * @return the statement.
+     */
+    private Statement statement(Statement statement, Batch batch) {
+
+        List<String> pending = new ArrayList<>();
+        return (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Statement.class},
+                (proxy, method, args) -> {
+                    if ("executeUpdate".equals(method.getName())) {
+                        executed.add((String) args[0]);
+                    } else if (batch == Batch.UNSUPPORTED && "addBatch".equals(method.getName())) {
+                        throw new SQLFeatureNotSupportedException("Batched DDL is not supported");
+                    } else if (batch != Batch.H2 && "addBatch".equals(method.getName())) {
+                        pending.add((String) args[0]);
+                        return null;
+                    } else if (batch != Batch.H2 && "executeBatch".equals(method.getName())) {
+                        return executeBatch(statement, pending, batch);
+                    }
+                    return invoke(method, statement, args);
+                });
+    }
+
+    /**
+     * Worker connection to the test database, whose statements record the statements they execute. H2 has
+     * no PARTITION OF, so those statements are only recorded.
+     *
+     * @param worker number of the worker connection.
+     * @return the connection.
+     * @throws SQLException if the connection could not be established.
+     */
+    private Connection connection(int worker) throws SQLException {
+
+        Connection connection = DriverManager.getConnection(url);
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("createStatement".equals(method.getName())) {
+                        Statement statement = connection.createStatement();
+                        return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Statement.class},
+                                (statementProxy, statementMethod, statementArgs) -> {
+                                    if ("executeUpdate".equals(statementMethod.getName())) {
+                                        String sql = (String) statementArgs[0];
+                                        workers.put(sql, worker);
+                                        executed.add(sql);
+                                        if (sql.contains(" PARTITION OF ")) {
+                                            return 0;
+                                        }
+                                    }
+                                    return invoke(statementMethod, statement, statementArgs);
+                                });
+                    }
+                    return invoke(method, connection, args);
+                });
+    }
+
+    /**
+     * Position of the statement starting with the given prefix in the order the statements were executed.
+     *
+     * @param prefix prefix of the statement.
+     * @return the position.
+     */
+    private int position(String prefix) {
+
+        for (int i = 0; i < executed.size(); i++) {
+            if (executed.get(i).startsWith(prefix)) {
+                return i;
+            }
+        }
+        throw new AssertionError(prefix + " was not executed");
+    }
+
+    /**
+     * Invoke a method on the object a proxy stands in for.
+     *
+     * @param method method to invoke.
+     * @param target object to invoke the method on.
+     * @param args   arguments of the method.
+     * @return the result of the method.
+     * @throws Throwable the exception thrown by the method.
+     */
+    private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Execute a batch until its first failure, as MySQL & PostgreSQL do.
+     *
+     * @param statement  H2 statement to execute the batch with.
+     * @param statements statements of the batch.
+     * @param batch      STOPS to keep the statements before the failure, ATOMIC to roll them back.
+     * @return update counts of the batch.
+     * @throws BatchUpdateException with the counts of the statements before the failure.
+     */
+    private static int[] executeBatch(Statement statement, List<String> statements, Batch batch)
+            throws SQLException {
+
+        List<String> run = new ArrayList<>();
+        for (String s : statements) {
+            try {
+                statement.executeUpdate(s);
+                run.add(s);
+            } catch (SQLException e) {
+                if (batch == Batch.ATOMIC) {
+                    for (String created : run) {
+                        statement.executeUpdate("DROP " + created.split("\\s+")[1] + " "
+                                + DdlExecutor.summary(created).split("\\s+")[2]);
+                    }
+                }
+                statements.clear();
+                throw new BatchUpdateException(e.getMessage(), new int[run.size()], e);
+            }
+        }
+        statements.clear();
+        return new int[run.size()];
+    }
+
+    /**
+     * Names of the tables of the test database.
+     *
+     * @return the table names in alphabetical order.
+     * @throws SQLException if the tables could not be read.
+     */
+    private List<String> tables() throws SQLException {
+
+        List<String> tables = new ArrayList<>();
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT TABLE_NAME FROM INFORMATION_SCHEMA.TABLES "
+                     + "WHERE TABLE_SCHEMA = 'PUBLIC' ORDER BY TABLE_NAME")) {
+            while (resultSet.next()) {
+                tables.add(resultSet.getString(1));
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * Batch behaviour of the statements of a test.
+     */
+    private enum Batch {
+
+        /**
+         * Batches of H2, which runs every statement & marks the failed ones.
+         */
+        H2,
+        /**
+         * Batches which stop at the first failure & keep the statements before it.
+         */
+        STOPS,
+        /**
+         * Batches which stop at the first failure & roll back the statements before it.
+         */
+        ATOMIC,
+        /**
+         * Statements which do not support batches.
+         */
+        UNSUPPORTED
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Adds rows to DistinctRows, whose answers have to match a set of the rows.
+ */
+public class DistinctRowsTest {
+
+    /**
+     * Bytes of a page of encoded rows in DistinctRows, so the tests cross it.
+     */
+    private static final int PAGE_SIZE = 1 << 20;
+
+    @Test
+    public void comparesRowsWithEqualHashes() {
+
+        DistinctRows rows = new DistinctRows();
+        assertTrue(rows.addWithHash(new Object[]{"a"}, 1, 42));
+        assertTrue(rows.addWithHash(new Object[]{"b"}, 1, 42));
+        assertFalse(rows.addWithHash(new Object[]{"a"}, 1, 42));
+        assertFalse(rows.addWithHash(new Object[]{"b"}, 1, 42));
+        // 0 marks an empty slot, so a hash of 0 is stored as 1.
+        assertTrue(rows.addWithHash(new Object[]{"c"}, 1, 0));
+        assertTrue(rows.addWithHash(new Object[]{"d"}, 1, 1));
+        assertFalse(rows.addWithHash(new Object[]{"c"}, 1, 0));
+        assertFalse(rows.addWithHash(new Object[]{"d"}, 1, 1));
+        // A row whose encoding starts with the encoding of another.
+        assertTrue(rows.addWithHash(new Object[]{"ab"}, 1, 7));
+        assertTrue(rows.addWithHash(new Object[]{"ab", null}, 2, 7));
+        assertFalse(rows.addWithHash(new Object[]{"ab", null}, 2, 7));
+    }
+
+    @Test
+    public void growsWithRowsOfEqualHash() {
+
+        DistinctRows rows = new DistinctRows();
+        // One run of slots longer than the first table, probed through every resize.
+        for (int i = 0; i < 5000; i++) {
+            assertTrue(rows.addWithHash(new Object[]{i}, 1, 0x7000000000000123L));
+        }
+        for (int i = 0; i < 5000; i++) {
+            assertFalse(rows.addWithHash(new Object[]{i}, 1, 0x7000000000000123L));
+        }
+        assertTrue(rows.addWithHash(new Object[]{5000}, 1, 0x7000000000000123L));
+    }
+
+    @Test
+    public void growsBeyondTheFirstTable() {
+
+        DistinctRows rows = new DistinctRows();
+        long before = rows.memory();
+        for (int i = 0; i < 200000; i++) {
+            assertTrue(rows.add(new Object[]{i, "row-" + i}, 2));
+        }
+        assertTrue(rows.memory() > before);
+        for (int i = 0; i < 200000; i++) {
+            assertFalse(rows.add(new Object[]{i, "row-" + i}, 2));
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(rows.add(new Object[]{i, "other-" + i}, 2));
+        }
+    }
+
+    @Test
+    public void keepsRowsLargerThanAPage() {
+
+        DistinctRows rows = new DistinctRows();
+        String large = repeat('x', PAGE_SIZE + 10);
+        String other = repeat('x', PAGE_SIZE + 9) + "y";
+        assertTrue(rows.add(new Object[]{"small"}, 1));
+        assertTrue(rows.add(new Object[]{large}, 1));
+        assertTrue(rows.add(new Object[]{other}, 1));
+        assertTrue(rows.add(new Object[]{"after"}, 1));
+        // Rows which fill the rest of a page, so the next one starts a new page.
+        String filler = repeat('z', PAGE_SIZE / 3);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(rows.add(new Object[]{i, filler}, 2));
+        }
+        assertFalse(rows.add(new Object[]{large}, 1));
+        assertFalse(rows.add(new Object[]{other}, 1));
+        assertFalse(rows.add(new Object[]{"small"}, 1));
+        assertFalse(rows.add(new Object[]{"after"}, 1));
+        for (int i = 0; i < 10; i++) {
+            assertFalse(rows.add(new Object[]{i, filler}, 2));
+        }
+        assertTrue(rows.add(new Object[]{large + "!"}, 1));
+    }
+
+    @Test
+    public void comparesIntegralTypesAsLong() {
+
+        DistinctRows rows = new DistinctRows();
+        assertTrue(rows.add(new Object[]{1}, 1));
+        assertFalse(rows.add(new Object[]{1L}, 1));
+        assertFalse(rows.add(new Object[]{(short) 1}, 1));
+        assertFalse(rows.add(new Object[]{(byte) 1}, 1));
+        assertTrue(rows.add(new Object[]{1.0}, 1));
+        assertTrue(rows.add(new Object[]{"1"}, 1));
+        assertTrue(rows.add(new Object[]{true}, 1));
+        assertTrue(rows.add(new Object[]{(Object) null}, 1));
+        assertTrue(rows.add(new Object[]{Long.valueOf(Integer.MAX_VALUE) + 1}, 1));
+        assertTrue(rows.add(new Object[]{-1L}, 1));
+        assertFalse(rows.add(new Object[]{-1}, 1));
+        // Only the leading values form the key.
+        assertTrue(rows.add(new Object[]{7, "a", 1}, 2));
+        assertFalse(rows.add(new Object[]{7L, "a", 2L}, 2));
+        assertTrue(rows.add(new Object[]{7L, "b"}, 2));
+    }
+
+    @Test
+    public void addsFromSeveralThreads() throws InterruptedException, ExecutionException {
+
+        int threads = 8;
+        int keys = 50000;
+        DistinctRows rows = new DistinctRows();
+        CyclicBarrier start = new CyclicBarrier(threads);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<boolean[]>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int thread = t;
+                results.add(pool.submit(() -> {
+                    start.await();
+                    boolean[] added = new boolean[keys];
+                    // Every thread adds every key, half of them as Integer & half as Long, in its own order.
+                    for (int i = 0; i < keys; i++) {
+                        int key = (int) ((i + (long) thread * 7919) % keys);
+                        Object id = (key + thread) % 2 == 0 ? (Object) key : (Object) (long) key;
+                        added[key] = rows.add(new Object[]{id, "key-" + key}, 2);
+                    }
+                    return added;
+                }));
+            }
+            int[] winners = new int[keys];
+            for (Future<boolean[]> result : results) {
+                boolean[] added = result.get();
+                for (int i = 0; i < keys; i++) {
+                    winners[i] += added[i] ? 1 : 0;
+                }
+            }
+            int[] once = new int[keys];
+            Arrays.fill(once, 1);
+            assertTrue("Every key is added by exactly one thread", Arrays.equals(once, winners));
+            assertFalse(rows.add(new Object[]{0, "key-0"}, 2));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * String of a repeated character.
+     *
+     * @param c     character to repeat.
+     * @param count number of characters.
+     * @return the string.
+     */
+    private static String repeat(char c, int count) {
+
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
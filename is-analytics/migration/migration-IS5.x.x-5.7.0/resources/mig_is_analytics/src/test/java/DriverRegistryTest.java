@@ -0,0 +1,124 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+import org.junit.Test;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Properties;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Loads the H2 driver from its jar through DriverRegistry.
+ */
+public class DriverRegistryTest {
+
+    @Test
+    public void loadsDriverOnce() throws Exception {
+
+        File jar = jar();
+        DriverWrapper driver = DriverRegistry.load("org.h2.Driver", jar.getPath());
+        // The same jar by another path.
+        String location = jar.getParent() + File.separator + "." + File.separator + jar.getName();
+        assertSame(driver, DriverRegistry.load("org.h2.Driver", location));
+        assertSame(DriverRegistry.loader(jar), DriverRegistry.loader(jar));
+        assertArrayEquals(new URL[]{jar.toURI().toURL()}, DriverRegistry.loader(jar).getURLs());
+        int registered = 0;
+        for (Driver d : Collections.list(DriverManager.getDrivers())) {
+            registered += d == driver ? 1 : 0;
+        }
+        assertEquals(1, registered);
+    }
+
+    @Test
+    public void reportsVersionOfDriver() throws Exception {
+
+        DriverWrapper driver = DriverRegistry.load("org.h2.Driver", jar().getPath());
+        org.h2.Driver h2 = new org.h2.Driver();
+        assertEquals(h2.getMajorVersion(), driver.getMajorVersion());
+        assertEquals(h2.getMinorVersion(), driver.getMinorVersion());
+        assertEquals("org.h2.Driver " + h2.getMajorVersion() + "." + h2.getMinorVersion(), driver.toString());
+    }
+
+    @Test
+    public void connectsWithDriver() throws Exception {
+
+        DriverWrapper driver = DriverRegistry.load("org.h2.Driver", jar().getPath());
+        try (Connection connection = DriverRegistry.connect(driver, "jdbc:h2:mem:registry", "sa", "")) {
+            assertFalse(connection.isClosed());
+        }
+        try {
+            DriverRegistry.connect(driver, "jdbc:unknown:registry", null, null);
+            fail("A URL the driver does not accept was connected to");
+        } catch (SQLException e) {
+            assertEquals("08001", e.getSQLState());
+        }
+    }
+
+    @Test(expected = ClassNotFoundException.class)
+    public void failsToLoadMissingDriver() throws Exception {
+
+        DriverRegistry.load("org.h2.MissingDriver", jar().getPath());
+    }
+
+    @Test
+    public void findsPropertyOfDriver() {
+
+        DriverWrapper driver = new DriverWrapper(new ListingDriver());
+        assertTrue(driver.supportsProperty("jdbc:h2:mem:", "rewriteBatchedStatements"));
+        assertTrue(driver.supportsProperty("jdbc:h2:mem:", "REWRITEBATCHEDSTATEMENTS"));
+        assertFalse(driver.supportsProperty("jdbc:h2:mem:", "useCursorFetch"));
+        assertFalse(driver.supportsProperty("jdbc:invalid:", "rewriteBatchedStatements"));
+    }
+
+    /**
+     * Path of the H2 driver jar of the test classpath.
+     *
+     * @return the absolute path.
+     * @throws URISyntaxException if the location of the jar is not a valid URI.
+     */
+    private static File jar() throws URISyntaxException {
+
+        return new File(org.h2.Driver.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+    }
+
+    /**
+     * H2 driver which lists one property, & fails to list its properties for an invalid URL.
+     */
+    private static class ListingDriver extends org.h2.Driver {
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+
+            if (url.startsWith("jdbc:invalid:")) {
+                throw new IllegalArgumentException("Invalid URL " + url);
+            }
+            return new DriverPropertyInfo[]{new DriverPropertyInfo("rewriteBatchedStatements", "false")};
+        }
+    }
+}
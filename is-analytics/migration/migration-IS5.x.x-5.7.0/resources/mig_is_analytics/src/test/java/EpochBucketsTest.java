@@ -0,0 +1,237 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the epoch arithmetic of EpochBuckets & Granularity with the to_unix_timestamp(concat_ws(...))
+ * expressions it replaced in the migISAnalyticsSpark script. The old expressions are evaluated the way Spark
+ * does, with a SimpleDateFormat of 'yyyy-MM-dd hh:mm:ss Z', & the new Spark SQL expressions are evaluated in an
+ * embedded H2 database.
+ */
+public class EpochBucketsTest {
+
+    /**
+     * Milliseconds in an hour.
+     */
+    private static final long HOUR_MILLIS = 3600000L;
+
+    /**
+     * Year, month, day & hour of the tested time buckets: every hour of the days around the month & year
+     * boundaries & the leap days of common, leap, century & 400th years.
+     */
+    private static final List<int[]> BUCKETS = new ArrayList<>();
+
+    /**
+     * Variable which stores the connection to the database which evaluates the Spark SQL expressions.
+     */
+    private static Connection connection;
+
+    @BeforeClass
+    public static void setUp() throws SQLException {
+
+        int[] years = {1970, 1999, 2000, 2001, 2003, 2016, 2019, 2020, 2024, 2037, 2038, 2099, 2100, 2101};
+        for (int year : years) {
+            for (int month = 1; month <= 12; month++) {
+                LocalDate first = LocalDate.of(year, month, 1);
+                addDay(first);
+                addDay(first.plusDays(14));
+                addDay(first.plusMonths(1).minusDays(1));
+                if (month == 2) {
+                    addDay(LocalDate.of(year, 2, 28));
+                }
+            }
+        }
+        connection = DriverManager.getConnection("jdbc:h2:mem:epochBuckets");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE BUCKETS (ID INT PRIMARY KEY, \"year\" INT, \"month\" INT, \"day\" INT, "
+                    + "\"hour\" INT)");
+        }
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO BUCKETS VALUES (?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < BUCKETS.size(); i++) {
+                insert.setInt(1, i);
+                for (int j = 0; j < 4; j++) {
+                    insert.setInt(j + 2, BUCKETS.get(i)[j]);
+                }
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+    @AfterClass
+    public static void tearDown() throws SQLException {
+
+        connection.close();
+    }
+
+    @Test
+    public void epochMillisMatchesJavaTime() {
+
+        for (LocalDate date = LocalDate.of(1600, 1, 1); date.getYear() <= 2400; date = date.plusDays(1)) {
+            assertEquals(date.toString(), date.toEpochDay(), EpochBuckets.epochDay(date.getYear(),
+                    date.getMonthValue(), date.getDayOfMonth()));
+        }
+        assertEquals(LocalDate.of(2019, 3, 4).toEpochDay() * 24 * HOUR_MILLIS + 17 * HOUR_MILLIS,
+                EpochBuckets.epochMillis(2019, 3, 4, 17));
+    }
+
+    @Test
+    public void eventTimestampMatchesOldExpression() throws ParseException {
+
+        for (Granularity granularity : Granularity.values()) {
+            for (int[] bucket : BUCKETS) {
+                Object[] row = {bucket[0], bucket[1], bucket[2], bucket[3]};
+                assertEquals(granularity + " " + format(bucket), expected(granularity, bucket),
+                        granularity.eventTimestamp(row, 0));
+            }
+        }
+    }
+
+    @Test
+    public void sparkEventTimestampMatchesOldExpression() throws SQLException, ParseException {
+
+        for (Granularity granularity : Granularity.values()) {
+            String[] columns = granularity.getTimeColumns();
+            String expression = EpochBuckets.sparkSql(quote(columns[0]), columns.length > 1 ? quote(columns[1])
+                    : null, columns.length > 2 ? quote(columns[2]) : null, columns.length > 3 ? quote(columns[3])
+                    : null);
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT ID, " + expression
+                         + " FROM BUCKETS ORDER BY ID")) {
+                int rows = 0;
+                while (resultSet.next()) {
+                    int[] bucket = BUCKETS.get(resultSet.getInt(1));
+                    assertEquals(granularity + " " + format(bucket), expected(granularity, bucket),
+                            resultSet.getLong(2));
+                    rows++;
+                }
+                assertEquals(BUCKETS.size(), rows);
+            }
+        }
+    }
+
+    @Test
+    public void aggTimestampMatchesOldExpression() throws SQLException, ParseException {
+
+        int year = 2000;
+        for (Granularity granularity : Granularity.values()) {
+            long old = oldExpression(String.valueOf(year), "01", "01", "00");
+            assertEquals(granularity.toString(), old, granularity.getAggTimestamp());
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT " + granularity.sparkAggTimestamp())) {
+                resultSet.next();
+                assertEquals(granularity.toString(), old, resultSet.getLong(1));
+            }
+            year++;
+        }
+    }
+
+    @Test
+    public void oldExpressionReadHourTwelveAsMidnight() throws ParseException {
+
+        assertEquals(EpochBuckets.epochMillis(2019, 6, 30, 0), oldExpression("2019", "6", "30", "12"));
+        assertEquals(EpochBuckets.epochMillis(2019, 6, 30, 12), Granularity.HOURS.eventTimestamp(
+                new Object[]{2019, 6, 30, 12}, 0));
+    }
+
+    /**
+     * Add every hour of a day to the tested buckets.
+     *
+     * @param date day to add.
+     */
+    private static void addDay(LocalDate date) {
+
+        for (int hour = 0; hour < 24; hour++) {
+            BUCKETS.add(new int[]{date.getYear(), date.getMonthValue(), date.getDayOfMonth(), hour});
+        }
+    }
+
+    /**
+     * Value of the old expression of a granularity for a bucket, which the new arithmetic has to produce. The
+     * old expression read hour 12 as midnight, which the new arithmetic corrects.
+     *
+     * @param granularity granularity of the aggregation table.
+     * @param bucket      year, month, day & hour of the source row.
+     * @return the expected epoch millis.
+     * @throws ParseException if the old expression could not be evaluated.
+     */
+    private static long expected(Granularity granularity, int[] bucket) throws ParseException {
+
+        int length = granularity.getTimeColumns().length;
+        String month = length > 1 ? String.valueOf(bucket[1]) : "01";
+        String day = length > 2 ? String.valueOf(bucket[2]) : "01";
+        String hour = length > 3 ? String.valueOf(bucket[3]) : "00";
+        long old = oldExpression(String.valueOf(bucket[0]), month, day, hour);
+        return length > 3 && bucket[3] == 12 ? old + 12 * HOUR_MILLIS : old;
+    }
+
+    /**
+     * Evaluate (cast(to_unix_timestamp(concat_ws(' ',concat_ws('-',year,month,day),concat_ws(':',hour,'00','00'),
+     * '+0000'),'yyyy-MM-dd hh:mm:ss Z') as LONG) * 1000) the way Spark does.
+     *
+     * @param year  year value or literal.
+     * @param month month value or literal.
+     * @param day   day value or literal.
+     * @param hour  hour value or literal.
+     * @return the epoch millis.
+     * @throws ParseException if the date string could not be parsed.
+     */
+    private static long oldExpression(String year, String month, String day, String hour) throws ParseException {
+
+        String text = String.join(" ", String.join("-", year, month, day), String.join(":", hour, "00", "00"),
+                "+0000");
+        return new SimpleDateFormat("yyyy-MM-dd hh:mm:ss Z").parse(text).getTime() / 1000 * 1000;
+    }
+
+    /**
+     * Quote a column name for H2, which would otherwise upper case it.
+     *
+     * @param column column name.
+     * @return the quoted name.
+     */
+    private static String quote(String column) {
+
+        return "\"" + column + "\"";
+    }
+
+    /**
+     * Describe a bucket in assertion messages.
+     *
+     * @param bucket year, month, day & hour.
+     * @return the description.
+     */
+    private static String format(int[] bucket) {
+
+        return bucket[0] + "-" + bucket[1] + "-" + bucket[2] + " " + bucket[3] + ":00";
+    }
+}
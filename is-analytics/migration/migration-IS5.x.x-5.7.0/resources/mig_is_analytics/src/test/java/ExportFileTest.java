@@ -0,0 +1,424 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Writes a table of an embedded H2 database with ExportFile.Writer & reads it back with ExportFile.
+ */
+public class ExportFileTest {
+
+    /**
+     * Number of the database of the next test, so the tests do not share in-memory databases.
+     */
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    /**
+     * Columns of the exported table, one of each exported type.
+     */
+    private static final String[] COLUMNS = {"ID", "FLAG", "SMALL", "BIG", "R", "D", "AMOUNT", "WHOLE", "NAME",
+            "_TIMESTAMP"};
+
+    /**
+     * Number of rows of the exported table.
+     */
+    private static final int ROWS = 500;
+
+    /**
+     * Rows per chunk, so the chunks end inside a byte of the null bitmaps.
+     */
+    private static final int CHUNK_ROWS = 13;
+
+    /**
+     * Bytes of the trailer: directory offset, chunk count & magic.
+     */
+    private static final int TRAILER = 16;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Variable which stores the URL of the source database.
+     */
+    private String url;
+    /**
+     * Variable which stores the values ExportFile has to read back, in watermark order.
+     */
+    private List<Object[]> expected;
+    /**
+     * Variable which stores the export file of the table.
+     */
+    private File file;
+
+    @Before
+    public void setUp() throws SQLException, IOException {
+
+        url = "jdbc:h2:mem:export" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1";
+        expected = new ArrayList<>();
+        try (Connection connection = DriverManager.getConnection(url)) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE SRC (ID INT, FLAG BOOLEAN, SMALL SMALLINT, BIG BIGINT, R REAL, "
+                        + "D DOUBLE PRECISION, AMOUNT DECIMAL(20, 4), WHOLE DECIMAL(12, 0), NAME VARCHAR(2000), "
+                        + "_timestamp BIGINT)");
+            }
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO SRC VALUES (?, ?, ?, ?, ?, ?, "
+                    + "?, ?, ?, ?)")) {
+                for (int id = 0; id < ROWS; id++) {
+                    Object[] row = row(id);
+                    for (int i = 0; i < row.length; i++) {
+                        insert.setObject(i + 1, row[i]);
+                    }
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        }
+        // The rows without a watermark come first in H2, then the others in watermark order.
+        for (int pass = 0; pass < 2; pass++) {
+            for (int id = 0; id < ROWS; id++) {
+                Object[] row = row(id);
+                boolean withoutWatermark = row[9] == null;
+                if (withoutWatermark == (pass == 0)) {
+                    // SMALLINT is read as Integer & a whole DECIMAL as Long.
+                    row[2] = row[2] == null ? null : ((Short) row[2]).intValue();
+                    row[7] = row[7] == null ? null : ((BigDecimal) row[7]).longValueExact();
+                    expected.add(row);
+                }
+            }
+        }
+        file = export(CHUNK_ROWS);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+    }
+
+    @Test
+    public void readsBackEveryRow() throws SQLException {
+
+        try (ExportFile export = new ExportFile(file)) {
+            assertEquals("_TIMESTAMP", export.getWatermarkColumn());
+            assertEquals(ROWS, export.getRows(null));
+            assertRows(expected, read(export, COLUMNS, null, null, false));
+        }
+    }
+
+    @Test
+    public void readsColumnsByName() throws SQLException {
+
+        try (ExportFile export = new ExportFile(file)) {
+            List<Object[]> rows = read(export, new String[]{"name", "MISSING", "id"}, null, null, false);
+            assertEquals(ROWS, rows.size());
+            for (int i = 0; i < ROWS; i++) {
+                assertArrayEquals(new Object[]{expected.get(i)[8], null, expected.get(i)[0]}, rows.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void readsTextAndDecimalsAtTheirOffsets() throws SQLException, IOException {
+
+        // One chunk per row & one chunk for every row give the same values.
+        for (int chunkRows : new int[]{1, 8, ROWS}) {
+            try (ExportFile export = new ExportFile(export(chunkRows))) {
+                assertRows(expected, read(export, COLUMNS, null, null, false));
+            }
+        }
+    }
+
+    @Test
+    public void readsWatermarkRanges() throws SQLException {
+
+        try (ExportFile export = new ExportFile(file)) {
+            long[] range = export.getRange(null);
+            assertArrayEquals(new long[]{1000, 1000 + (ROWS - 1) / 2}, range);
+            assertArrayEquals(new long[]{1100, range[1]}, export.getRange(1100L));
+            assertNull(export.getRange(range[1] + 1));
+            assertRows(select(1050L, 1120L, false), read(export, COLUMNS, 1050L, 1120L, false));
+            assertRows(select(1050L, 1120L, true), read(export, COLUMNS, 1050L, 1120L, true));
+            assertRows(select(1200L, null, true), read(export, COLUMNS, 1200L, null, true));
+            assertRows(select(null, 1003L, false), read(export, COLUMNS, null, 1003L, false));
+            assertTrue(read(export, COLUMNS, range[1] + 1, null, false).isEmpty());
+        }
+    }
+
+    @Test
+    public void skipsChunksOutsideTheRange() throws SQLException, IOException {
+
+        // Overwrite the chunks which hold no row of the range, so reading one of them would fail.
+        long[][] directory = directory(file);
+        try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+            for (long[] entry : directory) {
+                boolean ranged = entry[2] > entry[5] && entry[4] >= 1100 && entry[3] < 1150;
+                if (!ranged) {
+                    byte[] garbage = new byte[(int) entry[1]];
+                    Arrays.fill(garbage, (byte) 0x7f);
+                    output.seek(entry[0]);
+                    output.write(garbage);
+                }
+            }
+        }
+        try (ExportFile export = new ExportFile(file)) {
+            assertRows(select(1100L, 1150L, false), read(export, COLUMNS, 1100L, 1150L, false));
+            try {
+                read(export, COLUMNS, null, null, false);
+                fail("The overwritten chunks were not read");
+            } catch (RuntimeException e) {
+                // The overwritten chunks hold no valid column offsets.
+            }
+        }
+    }
+
+    @Test
+    public void rejectsTruncatedFile() throws IOException {
+
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        for (int length : new int[]{0, 10, 27, 100, bytes.length - TRAILER, bytes.length - 1}) {
+            File truncated = folder.newFile("truncated-" + length + ExportFile.EXTENSION);
+            Files.write(truncated.toPath(), Arrays.copyOf(bytes, length));
+            try (ExportFile export = new ExportFile(truncated)) {
+                fail("A file truncated to " + length + " bytes was opened with " + export.getRows(null) + " rows");
+            } catch (SQLException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("not a complete export file"));
+            }
+        }
+        // A trailer whose directory offset points into the header.
+        File damaged = folder.newFile("damaged" + ExportFile.EXTENSION);
+        ByteBuffer.wrap(bytes).putLong(bytes.length - TRAILER, 8);
+        Files.write(damaged.toPath(), bytes);
+        try (ExportFile export = new ExportFile(damaged)) {
+            fail("A damaged file was opened with " + export.getRows(null) + " rows");
+        } catch (SQLException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("not a complete export file"));
+        }
+    }
+
+    @Test
+    public void opensFileLargerThanTwoGigabytes() throws SQLException, IOException {
+
+        // The chunks are moved 3 GiB into a sparse copy of the file, so only their directory & trailer move.
+        long gap = 3L << 30;
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        long[][] directory = directory(file);
+        int header = (int) directory[0][0];
+        int chunksEnd = (int) ByteBuffer.wrap(bytes).getLong(bytes.length - TRAILER);
+        File large = folder.newFile("large" + ExportFile.EXTENSION);
+        try (RandomAccessFile output = new RandomAccessFile(large, "rw")) {
+            output.write(bytes, 0, header);
+            output.seek(gap + header);
+            output.write(bytes, header, chunksEnd - header);
+            for (long[] entry : directory) {
+                output.writeLong(entry[0] + gap);
+                output.writeInt((int) entry[1]);
+                output.writeInt((int) entry[2]);
+                output.writeLong(entry[3]);
+                output.writeLong(entry[4]);
+                output.writeInt((int) entry[5]);
+            }
+            output.writeLong(chunksEnd + gap);
+            output.writeInt(directory.length);
+            output.write(bytes, bytes.length - 4, 4);
+        }
+        assertTrue(large.length() > Integer.MAX_VALUE);
+        try (ExportFile export = new ExportFile(large)) {
+            assertEquals(ROWS, export.getRows(null));
+            assertRows(expected, read(export, COLUMNS, null, null, false));
+            assertRows(select(1100L, 1150L, true), read(export, COLUMNS, 1100L, 1150L, true));
+        } finally {
+            assertTrue(large.delete());
+        }
+    }
+
+    /**
+     * Values of a source row. Every column but the id is null in some rows, at positions which differ per
+     * column, & the text holds empty, multi byte & long strings.
+     *
+     * @param id id of the row.
+     * @return the values, as inserted.
+     */
+    private static Object[] row(int id) {
+
+        StringBuilder name = new StringBuilder("name-").append(id);
+        if (id % 5 == 1) {
+            name.append(" caf\u00E9 \u65E5\u672C \uD83D\uDE00");
+        }
+        if (id % 50 == 7) {
+            for (int i = 0; i < 300; i++) {
+                name.append((char) ('a' + i % 26));
+            }
+        }
+        return new Object[]{
+                id,
+                id % 7 == 2 ? null : id % 2 == 0,
+                id % 13 == 4 ? null : (short) (id - 250),
+                id % 17 == 5 ? null : (long) id * 1000000007L - 123456789012L,
+                id % 19 == 6 ? null : id / 8f,
+                id % 23 == 7 ? null : id / 3d,
+                id % 29 == 8 ? null : new BigDecimal(id).subtract(new BigDecimal("249.5")).movePointLeft(id % 4)
+                        .setScale(4, RoundingMode.UNNECESSARY),
+                id % 31 == 9 ? null : new BigDecimal((long) id * 12345 - 3000000),
+                id % 37 == 10 ? null : id % 9 == 0 ? "" : name.toString(),
+                id % 41 == 0 ? null : 1000L + id / 2};
+    }
+
+    /**
+     * Export the source table.
+     *
+     * @param chunkRows rows per chunk.
+     * @return the export file.
+     * @throws SQLException if the table could not be read.
+     * @throws IOException  if the file could not be written.
+     */
+    private File export(int chunkRows) throws SQLException, IOException {
+
+        File export = new File(folder.getRoot(), "SRC-" + chunkRows + ExportFile.EXTENSION);
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT * FROM SRC ORDER BY _timestamp, ID")) {
+            ExportFile.Writer writer = new ExportFile.Writer(export, resultSet.getMetaData(), "_timestamp",
+                    chunkRows);
+            try (ExportFile.Writer closed = writer) {
+                while (resultSet.next()) {
+                    closed.write(resultSet);
+                }
+            }
+            assertEquals(ROWS, writer.getRows());
+            // The last chunk is written on close.
+            assertEquals((ROWS + chunkRows - 1) / chunkRows, writer.getChunks());
+        }
+        return export;
+    }
+
+    /**
+     * Read rows of an export file.
+     *
+     * @param export    export file.
+     * @param columns   columns to read.
+     * @param from      lowest watermark, null for no lower bound.
+     * @param to        watermark above the range, null for no upper bound.
+     * @param withNulls whether rows without a watermark are read.
+     * @return the rows.
+     * @throws SQLException if the rows could not be read.
+     */
+    private static List<Object[]> read(ExportFile export, String[] columns, Long from, Long to, boolean withNulls)
+            throws SQLException {
+
+        List<Object[]> rows = new ArrayList<>();
+        Pipeline.RowReader reader = export.rows(columns, from, to, withNulls);
+        Object[] values = new Object[columns.length];
+        while (reader.next(values)) {
+            rows.add(values.clone());
+        }
+        return rows;
+    }
+
+    /**
+     * Expected rows of a watermark range.
+     *
+     * @param from      lowest watermark, null for no lower bound.
+     * @param to        watermark above the range, null for no upper bound.
+     * @param withNulls whether rows without a watermark are included.
+     * @return the rows, in file order.
+     */
+    private List<Object[]> select(Long from, Long to, boolean withNulls) {
+
+        List<Object[]> rows = new ArrayList<>();
+        for (Object[] row : expected) {
+            Long watermark = (Long) row[9];
+            if (watermark == null ? withNulls : (from == null || watermark >= from) && (to == null
+                    || watermark < to)) {
+                rows.add(row);
+            }
+        }
+        assertFalse(rows.isEmpty());
+        return rows;
+    }
+
+    /**
+     * Compare rows value by value, including the type of each value.
+     *
+     * @param expected expected rows.
+     * @param actual   rows read.
+     */
+    private static void assertRows(List<Object[]> expected, List<Object[]> actual) {
+
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals("row " + i, expected.get(i), actual.get(i));
+            for (int j = 0; j < expected.get(i).length; j++) {
+                Object value = expected.get(i)[j];
+                if (value != null) {
+                    assertEquals("row " + i + " column " + j, value.getClass(), actual.get(i)[j].getClass());
+                }
+            }
+        }
+    }
+
+    /**
+     * Read the chunk directory of an export file.
+     *
+     * @param export export file.
+     * @return per chunk its offset, length, rows, lowest & highest watermark & rows without a watermark.
+     * @throws IOException if the file could not be read.
+     */
+    private static long[][] directory(File export) throws IOException {
+
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(export.toPath()));
+        int offset = (int) bytes.getLong(bytes.capacity() - TRAILER);
+        long[][] entries = new long[bytes.getInt(bytes.capacity() - TRAILER + 8)][];
+        bytes.position(offset);
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = new long[]{bytes.getLong(), bytes.getInt(), bytes.getInt(), bytes.getLong(),
+                    bytes.getLong(), bytes.getInt()};
+        }
+        assertEquals(bytes.capacity() - TRAILER, bytes.position());
+        return entries;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Records latencies in a LatencyHistogram & reads its percentiles.
+ */
+public class LatencyHistogramTest {
+
+    /**
+     * Tolerance of the compared milliseconds.
+     */
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void reportsZeroWithoutLatencies() {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMeanMillis(), DELTA);
+        assertEquals(0, histogram.getMaxMillis(), DELTA);
+        assertEquals(0, histogram.getPercentileMillis(50), DELTA);
+    }
+
+    @Test
+    public void reportsPercentilesAsBucketUpperBounds() {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        record(histogram, 90, 1);
+        record(histogram, 9, 10);
+        record(histogram, 1, 500);
+
+        assertEquals(100, histogram.getCount());
+        assertEquals((90 + 90 + 500) / 100.0, histogram.getMeanMillis(), DELTA);
+        assertEquals(500, histogram.getMaxMillis(), DELTA);
+        // 1 ms falls in the bucket from 512 to 1024 microseconds & 10 ms in the one from 8192 to 16384.
+        assertEquals(1.024, histogram.getPercentileMillis(50), DELTA);
+        assertEquals(1.024, histogram.getPercentileMillis(90), DELTA);
+        assertEquals(16.384, histogram.getPercentileMillis(95), DELTA);
+        assertEquals(16.384, histogram.getPercentileMillis(99), DELTA);
+        // The bound of the last bucket is above the longest latency, which is reported instead.
+        assertEquals(500, histogram.getPercentileMillis(100), DELTA);
+    }
+
+    @Test
+    public void bucketsPowersOfTwoMicroseconds() {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(1024));
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(3000));
+        // A power of two starts the next bucket.
+        assertEquals(2.048, histogram.getPercentileMillis(50), DELTA);
+        assertEquals(3, histogram.getPercentileMillis(100), DELTA);
+
+        LatencyHistogram fast = new LatencyHistogram();
+        fast.record(500);
+        fast.record(-1);
+        assertEquals(2, fast.getCount());
+        assertEquals(0.0005, fast.getPercentileMillis(99), DELTA);
+    }
+
+    /**
+     * Record the same latency a number of times.
+     *
+     * @param histogram histogram to record in.
+     * @param times     number of latencies.
+     * @param millis    latency in milliseconds.
+     */
+    private static void record(LatencyHistogram histogram, int times, long millis) {
+
+        for (int i = 0; i < times; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+    }
+}
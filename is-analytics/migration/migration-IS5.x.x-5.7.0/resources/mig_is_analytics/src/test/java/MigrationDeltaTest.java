@@ -0,0 +1,66 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Copies the rows added to a source table since the last migration through MigrationEngine in delta mode.
+ */
+public class MigrationDeltaTest extends MigrationEngineFixture {
+
+    @Test
+    public void copiesRowsAddedSinceLastRunInDelta() throws SQLException {
+
+        copiesRowsAddedSinceLastRun(1);
+    }
+
+    @Test
+    public void copiesRowsAddedSinceLastRunInParallelDelta() throws SQLException {
+
+        copiesRowsAddedSinceLastRun(4);
+    }
+
+    /**
+     * Run a delta after rows with & without a watermark were added to the source.
+     *
+     * @param parallelism number of workers of both runs.
+     * @throws SQLException if the tables could not be read.
+     */
+    private void copiesRowsAddedSinceLastRun(int parallelism) throws SQLException {
+
+        MigrationConfig config = config();
+        config.setParallelism(parallelism);
+        assertTrue(run(config, UpsertDialect.MYSQL));
+        try (Connection connection = source();
+             Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO SRC SELECT X, 'added-' || X, 2000 + X FROM SYSTEM_RANGE(" + (ROWS + 1)
+                    + ", " + (ROWS + 20) + ")");
+            statement.execute("INSERT INTO SRC VALUES (" + (ROWS + 21) + ", 'no watermark', NULL)");
+        }
+        config.setDelta(true);
+        assertTrue(run(config, UpsertDialect.MYSQL));
+        assertEquals(rows("SELECT ID, NAME, _timestamp FROM SRC", source()),
+                rows("SELECT ID, NAME, TS FROM TGT", target()));
+        assertEquals(Long.valueOf(2000L + ROWS + 20), checkpoints().load("TGT").getWatermark());
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.junit.After;
+import org.junit.Before;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Source & target tables of a MigrationEngine test, in two embedded H2 databases standing in for the DAS
+ * analytics & IS_ANALYTICS databases. The target runs in MySQL mode, so the MySQL upsert statement can be used.
+ */
+public abstract class MigrationEngineFixture {
+
+    /**
+     * CREATE TABLE statement of the checkpoint table, as DatabaseConnection creates it in MySQL.
+     */
+    static final String CHECKPOINT_DDL = "CREATE TABLE " + CheckpointStore.TABLE + " (TABLE_NAME VARCHAR(100) "
+            + "NOT NULL, STATUS VARCHAR(10) NOT NULL, WATERMARK BIGINT, ROWS_WRITTEN BIGINT, "
+            + "PRIMARY KEY (TABLE_NAME))";
+
+    /**
+     * Number of the databases of the next test, so the tests do not share in-memory databases.
+     */
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    /**
+     * Number of rows of the source table.
+     */
+    static final int ROWS = 1000;
+
+    /**
+     * Variable which stores the URL of the source database.
+     */
+    String sourceUrl;
+    /**
+     * Variable which stores the URL of the target database.
+     */
+    String targetUrl;
+    /**
+     * Variable which stores the id of the source row the migration fails on, 0 to fail on none.
+     */
+    volatile int failAt;
+
+    @Before
+    public void setUp() throws SQLException {
+
+        int database = DATABASES.incrementAndGet();
+        sourceUrl = "jdbc:h2:mem:source" + database + ";DB_CLOSE_DELAY=-1";
+        targetUrl = "jdbc:h2:mem:target" + database + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+        try (Connection connection = source();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE SRC (ID INT, NAME VARCHAR(50), _timestamp BIGINT)");
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO SRC VALUES (?, ?, ?)")) {
+                for (int id = 1; id <= ROWS; id++) {
+                    insert.setInt(1, id);
+                    insert.setString(2, "name-" + id);
+                    // Three rows per watermark, & a few rows without one.
+                    if (id % 97 == 0) {
+                        insert.setNull(3, Types.BIGINT);
+                    } else {
+                        insert.setLong(3, 1000L + id / 3);
+                    }
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        }
+        try (Connection connection = target();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE TGT (ID INT NOT NULL, NAME VARCHAR(50), TS BIGINT, PRIMARY KEY (ID))");
+        }
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+
+        for (String url : new String[]{sourceUrl, targetUrl}) {
+            try (Connection connection = DriverManager.getConnection(url);
+                 Statement statement = connection.createStatement()) {
+                statement.execute("SHUTDOWN");
+            }
+        }
+    }
+
+    /**
+     * Settings of a test run, without reports or a status file.
+     *
+     * @return the settings.
+     */
+    static MigrationConfig config() {
+
+        MigrationConfig config = new MigrationConfig();
+        config.setBatchSize(50);
+        config.setFetchSize(64);
+        config.setMetricsInterval(0);
+        config.setProgressInterval(0);
+        config.setStatusFile(null);
+        return config;
+    }
+
+    /**
+     * Migration of the test source table, which fails on the row failAt.
+     *
+     * @return the migration.
+     */
+    TableMigration migration() {
+
+        ProjectionMigration migration = new ProjectionMigration("SRC", "TGT", new String[]{"ID", "NAME",
+                "_timestamp"}, new String[]{"ID", "NAME", "TS"}, 1, row -> {
+            Integer id = Transformations.asInt(row[0]);
+            if (id == failAt) {
+                throw new IllegalStateException("Failing at row " + id);
+            }
+            return new Object[]{id, Transformations.asString(row[1]), Transformations.asLong(row[2])};
+        });
+        // Every source row has an id of its own.
+        migration.setCrossRangeKeys(false);
+        return migration;
+    }
+
+    /**
+     * Run the migration of the test source table.
+     *
+     * @param config  migration settings.
+     * @param dialect upsert statement, null to replay failed batches row by row.
+     * @return true if the table was migrated.
+     * @throws SQLException if the checkpoint table could not be created.
+     */
+    boolean run(MigrationConfig config, UpsertDialect dialect) throws SQLException {
+
+        try (MigrationMetrics metrics = new MigrationMetrics(0);
+             ProgressTracker tracker = tracker(metrics)) {
+            return new MigrationEngine(this::source, this::target, config, null, dialect, checkpoints(), metrics,
+                    tracker).run(Collections.singletonList(migration()));
+        }
+    }
+
+    /**
+     * Progress tracker of a test run.
+     *
+     * @param metrics metrics of the run.
+     * @return the tracker, without reports or a status file.
+     */
+    ProgressTracker tracker(MigrationMetrics metrics) {
+
+        return new ProgressTracker(metrics, new RowCountEstimator(this::source, sourceUrl), 0, null);
+    }
+
+    /**
+     * Checkpoint store of the target database, created unless it exists.
+     *
+     * @return the store.
+     * @throws SQLException if the checkpoint table could not be created.
+     */
+    CheckpointStore checkpoints() throws SQLException {
+
+        CheckpointStore checkpoints = new CheckpointStore(this::target, CHECKPOINT_DDL);
+        checkpoints.init();
+        return checkpoints;
+    }
+
+    /**
+     * Insert every tenth target row with values which differ from the source, as a previous run might have.
+     *
+     * @throws SQLException if the rows could not be inserted.
+     */
+    void insertStaleRows() throws SQLException {
+
+        try (Connection connection = target();
+             Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO TGT SELECT X, 'stale', -1 FROM SYSTEM_RANGE(1, " + ROWS + ") "
+                    + "WHERE MOD(X, 10) = 0");
+        }
+    }
+
+    /**
+     * Check the checkpoint of the target table.
+     *
+     * @param status      expected status.
+     * @param watermark   expected watermark.
+     * @param rowsWritten expected number of rows written.
+     * @throws SQLException if the checkpoint could not be read.
+     */
+    void assertCheckpoint(String status, Long watermark, long rowsWritten) throws SQLException {
+
+        CheckpointStore.Checkpoint checkpoint = checkpoints().load("TGT");
+        assertNotNull(checkpoint);
+        assertEquals(status, status());
+        assertEquals(watermark, checkpoint.getWatermark());
+        assertEquals(rowsWritten, checkpoint.getRowsWritten());
+    }
+
+    /**
+     * Status of the checkpoint of the target table.
+     *
+     * @return the status, null if there is no checkpoint.
+     * @throws SQLException if the checkpoint could not be read.
+     */
+    String status() throws SQLException {
+
+        try (Connection connection = target();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT STATUS FROM " + CheckpointStore.TABLE
+                     + " WHERE TABLE_NAME = 'TGT'")) {
+            return resultSet.next() ? resultSet.getString(1) : null;
+        }
+    }
+
+    /**
+     * Read the rows of a query by their first column.
+     *
+     * @param sql        query of an id, a name & a timestamp.
+     * @param connection connection to query, closed by this method.
+     * @return the name & timestamp of each id.
+     * @throws SQLException if the query failed.
+     */
+    static Map<Integer, String> rows(String sql, Connection connection) throws SQLException {
+
+        Map<Integer, String> rows = new TreeMap<>();
+        try (Connection closed = connection;
+             Statement statement = closed.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            while (resultSet.next()) {
+                rows.put(resultSet.getInt(1), resultSet.getString(2) + "|" + resultSet.getObject(3));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Run a count query.
+     *
+     * @param sql        query of one number.
+     * @param connection connection to query, closed by this method.
+     * @return the number.
+     * @throws SQLException if the query failed.
+     */
+    static long count(String sql, Connection connection) throws SQLException {
+
+        try (Connection closed = connection;
+             Statement statement = closed.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    /**
+     * Open a connection to the source database.
+     *
+     * @return the connection.
+     * @throws SQLException if the connection could not be established.
+     */
+    Connection source() throws SQLException {
+
+        return DriverManager.getConnection(sourceUrl);
+    }
+
+    /**
+     * Open a connection to the target database.
+     *
+     * @return the connection.
+     * @throws SQLException if the connection could not be established.
+     */
+    Connection target() throws SQLException {
+
+        return DriverManager.getConnection(targetUrl);
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.junit.Test;
+
+import java.sql.SQLException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Copies a source table into a target table through MigrationEngine.
+ */
+public class MigrationEngineTest extends MigrationEngineFixture {
+
+    @Test
+    public void copiesTableInOneScan() throws SQLException {
+
+        assertTrue(run(config(), UpsertDialect.MYSQL));
+        assertEquals(rows("SELECT ID, NAME, _timestamp FROM SRC", source()),
+                rows("SELECT ID, NAME, TS FROM TGT", target()));
+        assertCheckpoint(CheckpointStore.DONE, 1000L + ROWS / 3, ROWS);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Copies a source table in parallel _timestamp ranges through MigrationEngine.
+ */
+public class MigrationParallelTest extends MigrationEngineFixture {
+
+    @Test
+    public void copiesTableInParallelRanges() throws SQLException {
+
+        MigrationConfig config = config();
+        config.setParallelism(4);
+        assertTrue(run(config, UpsertDialect.MYSQL));
+        assertEquals(rows("SELECT ID, NAME, _timestamp FROM SRC", source()),
+                rows("SELECT ID, NAME, TS FROM TGT", target()));
+        assertCheckpoint(CheckpointStore.DONE, 1000L + ROWS / 3, ROWS);
+    }
+
+    @Test
+    public void keepsNewestRowOfKeyInSeveralRanges() throws SQLException {
+
+        try (Connection connection = source();
+             Statement statement = connection.createStatement()) {
+            statement.execute("DELETE FROM SRC WHERE _timestamp IS NULL");
+            statement.execute("UPDATE SRC SET _timestamp = 1000 + ID");
+        }
+        // Ten keys, each with rows spread over the whole _timestamp range.
+        ProjectionMigration migration = new ProjectionMigration("SRC", "TGT", new String[]{"ID", "NAME",
+                "_timestamp"}, new String[]{"ID", "NAME", "TS"}, 1, row -> new Object[]{
+                Transformations.asInt(row[0]) % 10, Transformations.asString(row[1]),
+                Transformations.asLong(row[2])});
+        MigrationConfig config = config();
+        config.setParallelism(4);
+        try (MigrationMetrics metrics = new MigrationMetrics(0);
+             ProgressTracker tracker = tracker(metrics)) {
+            assertTrue(new MigrationEngine(this::source, this::target, config, null, UpsertDialect.MYSQL,
+                    checkpoints(), metrics, tracker).run(Collections.singletonList(migration)));
+        }
+        Map<Integer, String> expected = new TreeMap<>();
+        for (int id = ROWS - 9; id <= ROWS; id++) {
+            expected.put(id % 10, "name-" + id + "|" + (1000 + id));
+        }
+        assertEquals(expected, rows("SELECT ID, NAME, TS FROM TGT", target()));
+    }
+
+    @Test
+    public void readsOnlyTablesWithoutCrossRangeKeysInRanges() {
+
+        MigrationConfig config = config();
+        config.setParallelism(4);
+        assertTrue(MigrationEngine.readsInRanges(config, AnalyticsTables.overallAuth()));
+        assertFalse(MigrationEngine.readsInRanges(config, AnalyticsTables.sessionInformation()));
+        assertFalse(MigrationEngine.readsInRanges(config, AnalyticsTables.activeSessions()));
+        config.setParallelism(1);
+        assertFalse(MigrationEngine.readsInRanges(config, AnalyticsTables.overallAuth()));
+    }
+
+    @Test
+    public void splitsRangeIntoPartitionsPerWorker() {
+
+        assertBounds(1000, 1333, 4, 16);
+        assertBounds(0, 999, 3, 12);
+        assertBounds(1546300800000L, 1577836799999L, 8, 32);
+        // Fewer values than partitions give one partition per value.
+        assertBounds(10, 14, 4, 5);
+        // A width which does not divide the range leaves fewer partitions.
+        assertBounds(0, 16, 4, 9);
+    }
+
+    @Test
+    public void leavesNarrowRangeWhole() {
+
+        assertNull(MigrationEngine.partitionBounds(1000, 1000, 4));
+        assertNull(MigrationEngine.partitionBounds(0, 1000, 0));
+        assertArrayEquals(new long[]{7, 8, 9}, MigrationEngine.partitionBounds(7, 8, 1));
+    }
+
+    /**
+     * Check the partitions of a watermark range cover it without gaps, each a non empty range of equal width but
+     * the last.
+     *
+     * @param min         lowest watermark.
+     * @param max         highest watermark.
+     * @param parallelism number of workers.
+     * @param partitions  expected number of partitions.
+     */
+    private static void assertBounds(long min, long max, int parallelism, int partitions) {
+
+        long[] bounds = MigrationEngine.partitionBounds(min, max, parallelism);
+        assertEquals(partitions + 1, bounds.length);
+        assertEquals(min, bounds[0]);
+        assertEquals(max + 1, bounds[partitions]);
+        long width = bounds[1] - bounds[0];
+        for (int i = 0; i < partitions; i++) {
+            assertTrue(bounds[i + 1] > bounds[i]);
+            assertTrue(bounds[i + 1] - bounds[i] == width || i == partitions - 1 && bounds[i + 1] - bounds[i] < width);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Stops & resumes the migration of a table through the checkpoint MigrationEngine keeps of it.
+ */
+public class MigrationResumeTest extends MigrationEngineFixture {
+
+    @Test
+    public void resumesFromCheckpoint() throws SQLException {
+
+        failAt = 600;
+        assertFalse(run(config(), UpsertDialect.MYSQL));
+        CheckpointStore.Checkpoint stopped = checkpoints().load("TGT");
+        assertNotNull(stopped);
+        assertFalse(stopped.isDone());
+        assertNotNull(stopped.getWatermark());
+        assertTrue(stopped.getRowsWritten() > 0 && stopped.getRowsWritten() < ROWS);
+        assertEquals(stopped.getRowsWritten(), count("SELECT COUNT(*) FROM TGT", target()));
+
+        failAt = 0;
+        CheckpointStore checkpoints = checkpoints();
+        try (MigrationMetrics metrics = new MigrationMetrics(0);
+             ProgressTracker tracker = tracker(metrics)) {
+            MigrationEngine engine = new MigrationEngine(this::source, this::target, config(), null,
+                    UpsertDialect.MYSQL, checkpoints, metrics, tracker);
+            tracker.add("TGT", "SRC", "TGT");
+            long rows = engine.migrate(migration(), checkpoints.load("TGT"));
+            // Only the rows from the watermark of the checkpoint & the rows without one are read again.
+            assertEquals(count("SELECT COUNT(*) FROM SRC WHERE _timestamp >= " + stopped.getWatermark()
+                    + " OR _timestamp IS NULL", source()), rows);
+        }
+        assertEquals(rows("SELECT ID, NAME, _timestamp FROM SRC", source()),
+                rows("SELECT ID, NAME, TS FROM TGT", target()));
+        assertEquals(CheckpointStore.DONE, status());
+    }
+
+    @Test
+    public void skipsTableMigratedByPreviousRun() throws SQLException {
+
+        assertTrue(run(config(), UpsertDialect.MYSQL));
+        try (Connection connection = target();
+             Statement statement = connection.createStatement()) {
+            statement.execute("DELETE FROM TGT");
+        }
+        assertTrue(run(config(), UpsertDialect.MYSQL));
+        assertEquals(0, count("SELECT COUNT(*) FROM TGT", target()));
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+import org.junit.Test;
+
+import java.sql.SQLException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Writes over target rows a previous run left through MigrationEngine, with upserts or row by row.
+ */
+public class MigrationUpsertTest extends MigrationEngineFixture {
+
+    @Test
+    public void replaysDuplicateRowsWithUpsert() throws SQLException {
+
+        insertStaleRows();
+        MigrationConfig config = config();
+        config.setResume(false);
+        assertTrue(run(config, UpsertDialect.MYSQL));
+        assertEquals(rows("SELECT ID, NAME, _timestamp FROM SRC", source()),
+                rows("SELECT ID, NAME, TS FROM TGT", target()));
+    }
+
+    @Test
+    public void replaysDuplicateRowsOneByOne() throws SQLException {
+
+        insertStaleRows();
+        MigrationConfig config = config();
+        config.setResume(false);
+        assertTrue(run(config, null));
+        assertEquals(rows("SELECT ID, NAME, _timestamp FROM SRC", source()),
+                rows("SELECT ID, NAME, TS FROM TGT", target()));
+        assertCheckpoint(CheckpointStore.DONE, 1000L + ROWS / 3, ROWS);
+    }
+
+    @Test
+    public void writesEveryBatchWithUpsertInUpsertMode() throws SQLException {
+
+        insertStaleRows();
+        MigrationConfig config = config();
+        config.setUpsert(true);
+        config.setParallelism(3);
+        assertTrue(run(config, UpsertDialect.MYSQL));
+        assertEquals(rows("SELECT ID, NAME, _timestamp FROM SRC", source()),
+                rows("SELECT ID, NAME, TS FROM TGT", target()));
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies a target table against its source table through MigrationVerifier, with embedded H2 databases
+ * standing in for the DAS analytics & IS_ANALYTICS databases.
+ */
+public class MigrationVerifierTest {
+
+    /**
+     * Number of the databases of the next test, so the tests do not share in-memory databases.
+     */
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    /**
+     * Number of rows of the source table.
+     */
+    private static final int ROWS = 1000;
+
+    /**
+     * Variable which stores the URL of the source database.
+     */
+    private String sourceUrl;
+    /**
+     * Variable which stores the URL of the target database.
+     */
+    private String targetUrl;
+
+    @Before
+    public void setUp() throws SQLException {
+
+        int database = DATABASES.incrementAndGet();
+        sourceUrl = "jdbc:h2:mem:verifySource" + database + ";DB_CLOSE_DELAY=-1";
+        targetUrl = "jdbc:h2:mem:verifyTarget" + database + ";DB_CLOSE_DELAY=-1";
+        try (Connection connection = source();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE SRC (ID INT, NAME VARCHAR(50), _timestamp BIGINT)");
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO SRC VALUES (?, ?, ?)")) {
+                for (int id = 1; id <= ROWS; id++) {
+                    insert.setInt(1, id);
+                    insert.setString(2, "name-" + id);
+                    // Three rows per watermark, & a few rows without one.
+                    if (id % 97 == 0) {
+                        insert.setNull(3, Types.BIGINT);
+                    } else {
+                        insert.setLong(3, 1000L + id / 3);
+                    }
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        }
+        try (Connection connection = target();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE TGT (ID INT NOT NULL, NAME VARCHAR(50), EVENT_TIMESTAMP BIGINT, "
+                    + "PRIMARY KEY (ID))");
+        }
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+
+        for (String url : new String[]{sourceUrl, targetUrl}) {
+            try (Connection connection = DriverManager.getConnection(url);
+                 Statement statement = connection.createStatement()) {
+                statement.execute("SHUTDOWN");
+            }
+        }
+    }
+
+    @Test
+    public void matchesTableReadInParallelRanges() throws SQLException {
+
+        copy(1);
+        assertTrue(verify(1, false, 1));
+        assertTrue(verify(1, false, 4));
+    }
+
+    @Test
+    public void findsDifferingRowsReadInParallelRanges() throws SQLException {
+
+        copy(1);
+        update("UPDATE TGT SET NAME = 'changed' WHERE ID = 500");
+        assertFalse(verify(1, false, 4));
+        copy(1);
+        update("DELETE FROM TGT WHERE ID = 97");
+        assertFalse(verify(1, false, 4));
+    }
+
+    @Test
+    public void readsKeysAcrossRangesInOnePass() throws SQLException {
+
+        // Every key is written by ten rows spread over the whole source, & the target keeps the last of them.
+        copy(100);
+        assertTrue(verify(100, true, 1));
+        assertTrue(verify(100, true, 4));
+        // Read in ranges, the earlier rows of a key would be counted too.
+        assertFalse(verify(100, false, 4));
+    }
+
+    /**
+     * Write the rows the migration produces into the target table, keeping the last row of each key in the
+     * order the source is read in, the rows without a watermark first.
+     *
+     * @param keys number of keys the source rows are spread over, the source row id modulo keys.
+     * @throws SQLException if the target could not be written.
+     */
+    private void copy(int keys) throws SQLException {
+
+        Map<Integer, Object[]> rows = new TreeMap<>();
+        for (int pass = 0; pass < 2; pass++) {
+            for (int id = 1; id <= ROWS; id++) {
+                boolean withoutWatermark = id % 97 == 0;
+                if (withoutWatermark == (pass == 0)) {
+                    rows.put(key(id, keys), new Object[]{key(id, keys), "name-" + id,
+                            withoutWatermark ? null : 1000L + id / 3});
+                }
+            }
+        }
+        update("DELETE FROM TGT");
+        try (Connection connection = target();
+             PreparedStatement insert = connection.prepareStatement("INSERT INTO TGT VALUES (?, ?, ?)")) {
+            for (Object[] row : rows.values()) {
+                for (int i = 0; i < row.length; i++) {
+                    insert.setObject(i + 1, row[i]);
+                }
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+    /**
+     * Verify the target table against the source table.
+     *
+     * @param keys           number of keys the source rows are spread over, the source row id modulo keys.
+     * @param crossRangeKeys whether the migration declares keys which span watermark ranges.
+     * @param parallelism    number of threads which read each side.
+     * @return true if the target table matches its source.
+     */
+    private boolean verify(int keys, boolean crossRangeKeys, int parallelism) {
+
+        MigrationConfig config = new MigrationConfig();
+        config.setFetchSize(64);
+        config.setParallelism(parallelism);
+        config.setVerifyMaxDiffs(0);
+        ProjectionMigration migration = new ProjectionMigration("SRC", "TGT", new String[]{"ID", "NAME",
+                "_timestamp"}, new String[]{"ID", "NAME", "EVENT_TIMESTAMP"}, 1, row -> new Object[]{key(
+                Transformations.asInt(row[0]), keys), Transformations.asString(row[1]),
+                Transformations.asLong(row[2])});
+        migration.setCrossRangeKeys(crossRangeKeys);
+        return new MigrationVerifier(this::source, this::target, config).run(
+                Collections.singletonList(migration));
+    }
+
+    /**
+     * Key of a source row.
+     *
+     * @param id   source row id.
+     * @param keys number of keys, 1 for a key per row.
+     * @return the key.
+     */
+    private static int key(int id, int keys) {
+
+        return keys == 1 ? id : id % keys;
+    }
+
+    /**
+     * Run an update statement on the target database.
+     *
+     * @param sql statement to run.
+     * @throws SQLException if the statement failed.
+     */
+    private void update(String sql) throws SQLException {
+
+        try (Connection connection = target();
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate(sql);
+        }
+    }
+
+    /**
+     * Open a connection to the source database.
+     *
+     * @return the connection.
+     * @throws SQLException if the connection could not be established.
+     */
+    private Connection source() throws SQLException {
+
+        return DriverManager.getConnection(sourceUrl);
+    }
+
+    /**
+     * Open a connection to the target database.
+     *
+     * @return the connection.
+     * @throws SQLException if the connection could not be established.
+     */
+    private Connection target() throws SQLException {
+
+        return DriverManager.getConnection(targetUrl);
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Builds the range partitioned DDL of the aggregation tables through PartitionedDdl.
+ */
+public class PartitionedDdlTest {
+
+    /**
+     * Number of the database of the next test, so the tests do not share in-memory databases.
+     */
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    /**
+     * First month of the ranges, at the end of a year.
+     */
+    private static final YearMonth START = YearMonth.of(2019, 11);
+
+    /**
+     * Last month of the ranges, at the start of a year.
+     */
+    private static final YearMonth END = YearMonth.of(2020, 1);
+
+    @Test
+    public void boundsMonthsAcrossYearEnd() {
+
+        List<Long> bounds = PartitionedDdl.Unit.MONTHLY.bounds(START, END);
+        assertEquals(Arrays.asList(millis(2019, 11), millis(2019, 12), millis(2020, 1), millis(2020, 2)), bounds);
+        assertEquals("P201911", PartitionedDdl.Unit.MONTHLY.name(bounds.get(0)));
+        assertEquals("P201912", PartitionedDdl.Unit.MONTHLY.name(bounds.get(1)));
+        assertEquals("P202001", PartitionedDdl.Unit.MONTHLY.name(bounds.get(2)));
+        // The last millisecond of a range is named after its range.
+        assertEquals("P201912", PartitionedDdl.Unit.MONTHLY.name(bounds.get(2) - 1));
+        assertEquals(Arrays.asList(millis(2019, 12), millis(2020, 1)),
+                PartitionedDdl.Unit.MONTHLY.bounds(YearMonth.of(2019, 12), YearMonth.of(2019, 12)));
+    }
+
+    @Test
+    public void boundsYearsFromTheirFirstMonth() {
+
+        List<Long> bounds = PartitionedDdl.Unit.YEARLY.bounds(START, END);
+        assertEquals(Arrays.asList(millis(2019, 1), millis(2020, 1), millis(2021, 1)), bounds);
+        assertEquals("P2019", PartitionedDdl.Unit.YEARLY.name(bounds.get(0)));
+        assertEquals("P2020", PartitionedDdl.Unit.YEARLY.name(bounds.get(1)));
+        assertEquals("P2019", PartitionedDdl.Unit.YEARLY.name(bounds.get(1) - 1));
+        assertEquals(Arrays.asList(millis(2019, 1), millis(2020, 1)),
+                PartitionedDdl.Unit.YEARLY.bounds(YearMonth.of(2019, 12), YearMonth.of(2019, 12)));
+    }
+
+    @Test
+    public void partitionsAggregationTablesOnly() {
+
+        assertEquals(PartitionedDdl.Unit.MONTHLY, PartitionedDdl.unit("AUTHSTATAGG_HOURS"));
+        assertEquals(PartitionedDdl.Unit.MONTHLY, PartitionedDdl.unit("ROLEAGGREGATION_DAYS"));
+        assertEquals(PartitionedDdl.Unit.YEARLY, PartitionedDdl.unit("SESSIONAGGREGATION_MONTHS"));
+        assertEquals(PartitionedDdl.Unit.YEARLY, PartitionedDdl.unit("AUTHSTATAGG_YEARS"));
+        assertNull(PartitionedDdl.unit("AUTHSTATAGG_SECONDS"));
+        assertNull(PartitionedDdl.unit("SESSIONINFORMATION"));
+        assertNull(PartitionedDdl.unit(null));
+    }
+
+    @Test
+    public void rewritesMysqlAggregationTables() {
+
+        assertRewrites(PartitionedDdl.MYSQL, " PARTITION BY RANGE (AGG_EVENT_TIMESTAMP) (PARTITION P_BEFORE ");
+    }
+
+    @Test
+    public void rewritesPostgresqlAggregationTables() {
+
+        assertRewrites(PartitionedDdl.POSTGRESQL, " PARTITION BY RANGE (AGG_EVENT_TIMESTAMP);");
+    }
+
+    @Test
+    public void rewritesOracleAggregationTables() {
+
+        assertRewrites(PartitionedDdl.ORACLE, " PARTITION BY RANGE (AGG_EVENT_TIMESTAMP) INTERVAL (");
+    }
+
+    @Test
+    public void rewritesMssqlAggregationTables() {
+
+        assertRewrites(PartitionedDdl.MSSQL, " ON AGG_");
+    }
+
+    @Test
+    public void createsMssqlPartitionSchemesInPrelude() {
+
+        List<String> prelude = PartitionedDdl.MSSQL.prelude(START, END);
+        assertEquals(Arrays.asList(
+                "CREATE PARTITION FUNCTION AGG_MONTHLY_PF (bigint) AS RANGE RIGHT FOR VALUES (" + millis(2019, 11)
+                        + "," + millis(2019, 12) + "," + millis(2020, 1) + "," + millis(2020, 2) + ");",
+                "CREATE PARTITION SCHEME AGG_MONTHLY_PS AS PARTITION AGG_MONTHLY_PF ALL TO ([PRIMARY]);",
+                "CREATE PARTITION FUNCTION AGG_YEARLY_PF (bigint) AS RANGE RIGHT FOR VALUES (" + millis(2019, 1)
+                        + "," + millis(2020, 1) + "," + millis(2021, 1) + ");",
+                "CREATE PARTITION SCHEME AGG_YEARLY_PS AS PARTITION AGG_YEARLY_PF ALL TO ([PRIMARY]);"), prelude);
+        for (String s : PartitionedDdl.MSSQL.apply(tablesDDL(PartitionedDdl.MSSQL), START, END)) {
+            int on = s.indexOf(" ON AGG_");
+            if (on > 0) {
+                String scheme = s.substring(on + 4, s.indexOf(' ', on + 4));
+                assertTrue(s, prelude.contains("CREATE PARTITION SCHEME " + scheme + " AS PARTITION "
+                        + scheme.replace("_PS", "_PF") + " ALL TO ([PRIMARY]);"));
+                assertEquals(s, PartitionedDdl.unit(DdlExecutor.tableName(s)) == PartitionedDdl.Unit.MONTHLY,
+                        "AGG_MONTHLY_PS".equals(scheme));
+            }
+        }
+        for (PartitionedDdl partitioned : new PartitionedDdl[]{PartitionedDdl.MYSQL, PartitionedDdl.POSTGRESQL,
+                PartitionedDdl.ORACLE}) {
+            assertEquals(Collections.emptyList(), partitioned.prelude(START, END));
+        }
+    }
+
+    @Test
+    public void runsMysqlTablesOnH2() throws SQLException {
+
+        // H2 has no partitioning, so the tables are created without their PARTITION BY clause.
+        List<String> ddl = new ArrayList<>();
+        for (String s : PartitionedDdl.MYSQL.apply(tablesDDL(PartitionedDdl.MYSQL), START, END)) {
+            ddl.add(s.replaceAll(" PARTITION BY RANGE .*", ";"));
+        }
+        assertTables("MySQL", ddl);
+    }
+
+    @Test
+    public void runsPostgresqlTablesOnH2() throws SQLException {
+
+        // H2 has no partitioning, so the tables are created without their PARTITION BY clause or partitions.
+        List<String> ddl = new ArrayList<>();
+        for (String s : PartitionedDdl.POSTGRESQL.apply(tablesDDL(PartitionedDdl.POSTGRESQL), START, END)) {
+            if (!s.contains(" PARTITION OF ")) {
+                ddl.add(s.replace(" PARTITION BY RANGE (AGG_EVENT_TIMESTAMP)", ""));
+            }
+        }
+        assertTables("PostgreSQL", ddl);
+    }
+
+    /**
+     * Check that the partitioned DDL of a database type rewrites the CREATE TABLE statement of every aggregation
+     * table, & keeps every other statement as it is & in its order.
+     *
+     * @param partitioned partitioned DDL of the database type.
+     * @param clause      text which follows the CREATE TABLE statement of an aggregation table when partitioned.
+     */
+    private static void assertRewrites(PartitionedDdl partitioned, String clause) {
+
+        List<String> ddl = tablesDDL(partitioned);
+        List<String> applied = partitioned.apply(ddl, START, END);
+        List<String> kept = new ArrayList<>();
+        List<String> rewritten = new ArrayList<>();
+        int partitions = 0;
+        for (String s : ddl) {
+            PartitionedDdl.Unit unit = DdlExecutor.isIndex(s) ? null : PartitionedDdl.unit(DdlExecutor.tableName(s));
+            if (unit == null) {
+                kept.add(s);
+                continue;
+            }
+            String table = s.trim();
+            rewritten.add((table.endsWith(";") ? table.substring(0, table.length() - 1) : table) + clause);
+            partitions += unit.bounds(START, END).size() + 1;
+        }
+        // AuthStatAgg, RoleAggregation & SessionAggregation, each per hour, day, month & year.
+        assertEquals(12, rewritten.size());
+        List<String> keptApplied = new ArrayList<>();
+        int found = 0;
+        for (String s : applied) {
+            if (ddl.contains(s)) {
+                keptApplied.add(s);
+            }
+            for (String prefix : rewritten) {
+                if (s.startsWith(prefix)) {
+                    found++;
+                }
+            }
+        }
+        assertEquals(kept, keptApplied);
+        assertEquals(rewritten.size(), found);
+        int extra = partitioned == PartitionedDdl.POSTGRESQL ? partitions : 0;
+        assertEquals(ddl.size() + extra, applied.size());
+    }
+
+    /**
+     * Run DDL statements on an embedded H2 database & check that every table was created.
+     *
+     * @param mode H2 compatibility mode of the database type.
+     * @param ddl  DDL statements of the tables & their indexes.
+     * @throws SQLException if a statement failed.
+     */
+    private static void assertTables(String mode, List<String> ddl) throws SQLException {
+
+        String url = "jdbc:h2:mem:partitioned" + DATABASES.incrementAndGet() + ";MODE=" + mode;
+        int tables = 0;
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement()) {
+            for (String s : ddl) {
+                statement.execute(s);
+                tables += DdlExecutor.isIndex(s) ? 0 : 1;
+            }
+            assertEquals(tables, MigrationEngineFixture.count("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES "
+                    + "WHERE TABLE_SCHEMA = 'PUBLIC'", DriverManager.getConnection(url)));
+        }
+    }
+
+    /**
+     * DDL statements of the IS_ANALYTICS tables of a database type.
+     *
+     * @param partitioned partitioned DDL of the database type.
+     * @return the DDL statements.
+     */
+    private static List<String> tablesDDL(PartitionedDdl partitioned) {
+
+        return new DatabaseConnection(partitioned.name(), null, null, null, null, null, null).tablesDDL();
+    }
+
+    /**
+     * Epoch millis of the start of a month, in UTC.
+     *
+     * @param year  year of the month.
+     * @param month month of the year, 1 to 12.
+     * @return the epoch millis.
+     */
+    private static long millis(int year, int month) {
+
+        return LocalDate.of(year, month, 1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs rows through the read, transform & write stages of Pipeline, on its own & as MigrationEngine runs a table.
+ */
+public class PipelineTest extends MigrationEngineFixture {
+
+    @Test
+    public void copiesTableWithoutPipeline() throws SQLException {
+
+        MigrationConfig config = config();
+        config.setPipelineDepth(0);
+        assertTrue(run(config, null));
+        assertEquals(rows("SELECT ID, NAME, _timestamp FROM SRC", source()),
+                rows("SELECT ID, NAME, TS FROM TGT", target()));
+    }
+
+    @Test
+    public void copiesTableThroughDeepPipeline() throws SQLException {
+
+        MigrationConfig config = config();
+        config.setPipelineDepth(8);
+        config.setParallelism(2);
+        assertTrue(run(config, UpsertDialect.MYSQL));
+        assertEquals(rows("SELECT ID, NAME, _timestamp FROM SRC", source()),
+                rows("SELECT ID, NAME, TS FROM TGT", target()));
+    }
+
+    @Test
+    public void keepsRowOrderAndWatermarks() throws SQLException {
+
+        List<String> expected = expected(1000, false);
+        for (int depth : new int[]{0, 1, 4}) {
+            for (int chunkSize : new int[]{1, 3, 64, 5000}) {
+                List<String> written = new ArrayList<>();
+                new Pipeline("TGT", depth, chunkSize).run(reader(1000, -1), 2, 1, copy(false), true,
+                        (row, watermark) -> written.add(row[0] + "@" + watermark));
+                assertEquals("depth " + depth + ", chunk size " + chunkSize, expected, written);
+            }
+        }
+    }
+
+    @Test
+    public void writesRowsOfFinishLast() throws SQLException {
+
+        for (int depth : new int[]{0, 2}) {
+            List<String> written = new ArrayList<>();
+            new Pipeline("TGT", depth, 7).run(reader(100, -1), 2, 1, copy(true), true,
+                    (row, watermark) -> written.add(row[0] + "@" + watermark));
+            assertEquals(expected(100, true), written);
+            // A migration which is not finished by this run emits nothing after its last row.
+            written.clear();
+            new Pipeline("TGT", depth, 7).run(reader(100, -1), 2, 1, copy(true), false,
+                    (row, watermark) -> written.add(row[0] + "@" + watermark));
+            assertEquals(expected(100, false), written);
+        }
+    }
+
+    @Test
+    public void writesRowsBeforeFailedRead() {
+
+        for (int depth : new int[]{0, 1, 4}) {
+            List<String> written = new ArrayList<>();
+            try {
+                new Pipeline("TGT", depth, 16).run(reader(1000, 500), 2, 1, copy(true), true,
+                        (row, watermark) -> written.add(row[0] + "@" + watermark));
+                fail("The failed read was not reported");
+            } catch (SQLException e) {
+                assertEquals("Failed to read row 500", e.getMessage());
+            }
+            // The rows read before the failure are written, the rows of finish are not.
+            assertEquals(expected(1000, false).subList(0, 500), written);
+        }
+    }
+
+    @Test
+    public void stopsStagesWhenWriteFails() throws InterruptedException {
+
+        AtomicInteger read = new AtomicInteger();
+        Pipeline.RowReader reader = reader(Integer.MAX_VALUE, -1);
+        try {
+            new Pipeline("TGT", 2, 16).run(row -> {
+                read.incrementAndGet();
+                return reader.next(row);
+            }, 2, 1, copy(false), true, (row, watermark) -> {
+                if ((Integer) row[0] == 100) {
+                    throw new SQLException("Failed to write row 100");
+                }
+            });
+            fail("The failed write was not reported");
+        } catch (SQLException e) {
+            assertEquals("Failed to write row 100", e.getMessage());
+        }
+        // The reader stops once the queues behind the writer are full.
+        int stopped = read.get();
+        Thread.sleep(100);
+        assertEquals(stopped, read.get());
+        assertTrue(stopped < 1000);
+    }
+
+    @Test
+    public void reportsQueueSizesWhileRunning() throws SQLException {
+
+        TableMetrics metrics = new TableMetrics("TGT");
+        metrics.rowRead(8);
+        List<String> gauges = new ArrayList<>();
+        new Pipeline("TGT", 4, 16, metrics).run(reader(1000, -1), 2, 1, copy(false), true, (row, watermark) -> {
+            if ((Integer) row[0] == 500) {
+                gauges.add(metrics.getReadQueueCapacity() + "/" + metrics.getWriteQueueCapacity());
+                assertTrue(metrics.getReadQueueSize() <= 5);
+                assertTrue(metrics.getWriteQueueSize() <= 5);
+                String summary = metrics.summary();
+                assertTrue(summary, summary.contains("/5 chunks, write queue "));
+            }
+        });
+        assertEquals(Collections.singletonList("5/5"), gauges);
+        // A finished pipeline no longer counts towards the queues.
+        assertEquals(0, metrics.getReadQueueCapacity());
+        assertEquals(0, metrics.getWriteQueueCapacity());
+    }
+
+    /**
+     * Reader of source rows of an id & a watermark, which is missing from every fifth row. The rows are written
+     * into the array it is given, as a source result set would be read.
+     *
+     * @param rows   number of rows.
+     * @param failAt id of the row the reader fails on, -1 to fail on none.
+     * @return the reader.
+     */
+    private static Pipeline.RowReader reader(int rows, int failAt) {
+
+        int[] next = {0};
+        return row -> {
+            if (next[0] == rows) {
+                return false;
+            }
+            if (next[0] == failAt) {
+                throw new SQLException("Failed to read row " + failAt);
+            }
+            row[0] = next[0];
+            row[1] = next[0] % 5 == 0 ? null : (Object) (long) (next[0] / 3);
+            next[0]++;
+            return true;
+        };
+    }
+
+    /**
+     * Migration which produces a copy of each source row, & a row of -1 when it is finished.
+     *
+     * @param finishRow whether the migration produces a row when it is finished.
+     * @return the migration.
+     */
+    private static TableMigration copy(boolean finishRow) {
+
+        return new TableMigration("SRC", "TGT", new String[]{"ID", "_timestamp"}, new String[]{"ID", "TS"}, 1) {
+            @Override
+            void process(Object[] row, RowSink sink) throws SQLException {
+
+                sink.accept(row.clone());
+            }
+
+            @Override
+            void finish(RowSink sink) throws SQLException {
+
+                if (finishRow) {
+                    sink.accept(new Object[]{-1, null});
+                }
+            }
+        };
+    }
+
+    /**
+     * Rows written for the source rows of reader, each with the last watermark read up to its source row.
+     *
+     * @param rows      number of source rows.
+     * @param finishRow whether the row of finish follows them.
+     * @return the id & watermark of each written row.
+     */
+    private static List<String> expected(int rows, boolean finishRow) {
+
+        List<String> expected = new ArrayList<>();
+        Long watermark = null;
+        for (int i = 0; i < rows; i++) {
+            watermark = i % 5 == 0 ? watermark : Long.valueOf(i / 3);
+            expected.add(i + "@" + watermark);
+        }
+        if (finishRow) {
+            expected.add("-1@" + watermark);
+        }
+        return expected;
+    }
+}
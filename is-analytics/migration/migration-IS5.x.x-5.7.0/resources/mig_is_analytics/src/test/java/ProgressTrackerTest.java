@@ -0,0 +1,124 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Reports the progress of a migration run through ProgressTracker.
+ */
+public class ProgressTrackerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void projectsFinishTimeFromRate() throws ParseException {
+
+        long before = System.currentTimeMillis();
+        String line = ProgressTracker.line("TGT", 0, 1000, 100);
+        long after = System.currentTimeMillis();
+
+        String prefix = String.format("TGT: %.1f%% of ~1000 rows read at 100 rows/s, finishes at ", 0.0);
+        assertTrue(line, line.startsWith(prefix));
+        // 1000 rows at 100 rows/s take 10 seconds, the time is printed to the second.
+        long finish = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.ENGLISH).parse(
+                line.substring(prefix.length())).getTime();
+        assertTrue(line, finish >= before + 10000 - 1000 && finish <= after + 10000);
+    }
+
+    @Test
+    public void reportsNoFinishTimeWithoutRate() {
+
+        assertEquals(String.format("TGT: %.1f%% of ~100 rows read at 0 rows/s, no finish time yet", 10.0),
+                ProgressTracker.line("TGT", 10, 100, 0));
+        assertEquals(String.format("TGT: %.1f%% of ~100 rows read at 50 rows/s, finished reading", 100.0),
+                ProgressTracker.line("TGT", 100, 100, 50));
+        assertEquals("TGT: read 5 rows at 3 rows/s, estimating the rows to read",
+                ProgressTracker.line("TGT", 5, -1, 2.6));
+    }
+
+    @Test
+    public void capsProgressOfEstimateWhichIsExceeded() {
+
+        assertEquals("\"rowsRead\": 150, \"rowsExpected\": 100, \"percent\": 100.0, \"rowsPerSecond\": 10, "
+                + "\"finishesAt\": null", progress(150, 100, 10));
+        assertEquals("\"rowsRead\": 10, \"rowsExpected\": 100, \"percent\": 10.0, \"rowsPerSecond\": 0, "
+                + "\"finishesAt\": null", progress(10, 100, 0));
+        assertEquals("\"rowsRead\": 10, \"rowsExpected\": null, \"percent\": null, \"rowsPerSecond\": 5, "
+                + "\"finishesAt\": null", progress(10, -1, 5));
+        assertEquals("\"rowsRead\": 0, \"rowsExpected\": 0, \"percent\": 100.0, \"rowsPerSecond\": 0, "
+                + "\"finishesAt\": null", progress(0, 0, 0));
+        assertTrue(progress(50, 100, 10).matches(".*\"finishesAt\": \"[0-9T:.\\-]+Z\""));
+    }
+
+    @Test
+    public void writesStatusOfFinishedTables() throws IOException {
+
+        File status = new File(folder.newFolder(), "status.json");
+        try (MigrationMetrics metrics = new MigrationMetrics(0);
+             ProgressTracker tracker = new ProgressTracker(metrics, new RowCountEstimator(folder.newFolder()), 0,
+                     status.getPath())) {
+            tracker.add("TGT", "SRC", "SRC");
+            tracker.add("OLD", "SRC_OLD", "SRC_OLD");
+            tracker.skip("OLD");
+            tracker.start("TGT", null, null);
+            for (int i = 0; i < 150; i++) {
+                metrics.table("SRC").rowRead(8);
+            }
+            tracker.finish("TGT", true);
+        }
+
+        String json = new String(Files.readAllBytes(status.toPath()), StandardCharsets.UTF_8);
+        // A finished table is expected to read the rows it read, whatever was estimated, & skipped tables are
+        // left out of the totals.
+        assertTrue(json, json.contains("\"state\": \"DONE\",\n  \"rowsRead\": 150, \"rowsExpected\": 150, "
+                + "\"percent\": 100.0"));
+        assertTrue(json, json.contains("{\"table\": \"TGT\", \"sourceTable\": \"SRC\", \"state\": \"DONE\", "
+                + "\"rowsRead\": 150, \"rowsExpected\": 150"));
+        assertTrue(json, json.contains("{\"table\": \"OLD\", \"sourceTable\": \"SRC_OLD\", \"state\": \"SKIPPED\""));
+        // The status is written to a temporary file which replaces the status file.
+        assertEquals(Collections.singletonList(status.getName()), Arrays.asList(status.getParentFile().list()));
+    }
+
+    /**
+     * JSON progress fields of a table or the run.
+     *
+     * @param read     rows read.
+     * @param expected rows expected, -1 while they are not estimated.
+     * @param rate     rows read per second.
+     * @return the fields.
+     */
+    private static String progress(long read, long expected, double rate) {
+
+        StringBuilder json = new StringBuilder();
+        ProgressTracker.progress(json, read, expected, rate);
+        return json.toString();
+    }
+}
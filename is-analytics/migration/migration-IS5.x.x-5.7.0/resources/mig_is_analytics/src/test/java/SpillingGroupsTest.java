@@ -0,0 +1,119 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Aggregates groups through SpillingGroups, with budgets small enough to spill them to disk.
+ */
+public class SpillingGroupsTest {
+
+    /**
+     * Aggregate functions of the test groups, fed with the same value each.
+     */
+    private static final AggregationMigration.Function[] FUNCTIONS = {AggregationMigration.Function.SUM,
+            AggregationMigration.Function.COUNT, AggregationMigration.Function.FIRST,
+            AggregationMigration.Function.LAST};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void aggregatesInMemory() throws SQLException {
+
+        assertGroups(Long.MAX_VALUE, 1, 10, 1000);
+    }
+
+    @Test
+    public void mergesFirstAndLastAcrossRuns() throws SQLException {
+
+        // Every group is spilled before the next one is added, so each group has a run per value.
+        assertGroups(0, 1, 10, 1000);
+    }
+
+    @Test
+    public void splitsPartitionLargerThanBudget() throws SQLException {
+
+        // Keys which are multiples of the partition count all fall in the first partition.
+        assertGroups(10000, 64, 500, 20000);
+    }
+
+    @Test
+    public void mergesGroupsWithTheSameHashInMemory() throws SQLException {
+
+        // Keys 2^30 apart share every bit of the hash the partitions are split by.
+        assertGroups(0, 1 << 30, 4, 100);
+    }
+
+    /**
+     * Aggregate the values 0 to rows - 1, value i into the group of key (i % count) * step, & check the groups
+     * & that no partition file is left behind.
+     *
+     * @param budget estimated bytes of the groups kept in memory.
+     * @param step   distance between the keys of the groups.
+     * @param count  number of groups.
+     * @param rows   number of values, a multiple of count.
+     * @throws SQLException if the groups could not be spilled or read back.
+     */
+    private void assertGroups(long budget, int step, int count, int rows) throws SQLException {
+
+        SpillingGroups<Integer> groups = new SpillingGroups<>("test", FUNCTIONS,
+                new SpillingGroups.KeyCodec<Integer>() {
+                    @Override
+                    public Object[] encode(Integer key) {
+
+                        return new Object[]{key};
+                    }
+
+                    @Override
+                    public Integer decode(Object[] values) {
+
+                        return (Integer) values[0];
+                    }
+                });
+        groups.setBudget(budget, folder.getRoot());
+        for (int i = 0; i < rows; i++) {
+            Integer key = (i % count) * step;
+            Object[] state = groups.get(key);
+            if (state == null) {
+                state = AggregationMigration.newState(FUNCTIONS.length);
+                groups.add(key, state);
+            }
+            AggregationMigration.accumulate(state, new Object[]{i, i, i, i}, 0, FUNCTIONS);
+        }
+        Map<Integer, Object[]> drained = new TreeMap<>();
+        groups.drain((key, state) -> assertNull(drained.put(key, AggregationMigration.result(state, FUNCTIONS))));
+
+        assertEquals(count, drained.size());
+        long values = rows / count;
+        for (int group = 0; group < count; group++) {
+            long sum = values * group + count * values * (values - 1) / 2;
+            assertArrayEquals(new Object[]{sum, values, group, rows - count + group}, drained.get(group * step));
+        }
+        assertEquals(Arrays.asList(), Arrays.asList(folder.getRoot().list()));
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Counts the rows, bytes & time of a table in TableMetrics.
+ */
+public class TableMetricsTest {
+
+    @Test
+    public void estimatesRowSize() {
+
+        assertEquals(3 + 8 + 8, TableMetrics.estimate(new Object[]{"abc", null, 1, 2L}));
+        assertEquals(0, TableMetrics.estimate(new Object[0]));
+    }
+
+    @Test
+    public void countsRowsAndBatches() {
+
+        TableMetrics metrics = new TableMetrics("TGT");
+        assertEquals(0, metrics.getRowsReadPerSecond(), 0);
+        for (int i = 0; i < 3; i++) {
+            metrics.rowRead(10);
+        }
+        metrics.batchWritten(2, 20, TimeUnit.MILLISECONDS.toNanos(1));
+        metrics.batchWritten(1, 10, TimeUnit.MILLISECONDS.toNanos(3));
+
+        assertEquals(3, metrics.getRowsRead());
+        assertEquals(30, metrics.getBytesRead());
+        assertEquals(3, metrics.getRowsWritten());
+        assertEquals(30, metrics.getBytesWritten());
+        assertEquals(2, metrics.getBatches());
+        assertEquals(2, metrics.getBatchLatencyMeanMillis(), 1e-9);
+        assertEquals(1.024, metrics.getBatchLatencyMedianMillis(), 1e-9);
+        assertEquals(3, metrics.getBatchLatencyMaxMillis(), 1e-9);
+        assertTrue(metrics.getRowsReadPerSecond() > 0);
+    }
+
+    @Test
+    public void summarizesOnlyNewRows() {
+
+        TableMetrics metrics = new TableMetrics("TGT");
+        assertNull(metrics.summary());
+        metrics.rowRead(1 << 20);
+        metrics.addSourceTime(TimeUnit.SECONDS.toNanos(1));
+        metrics.addTransformTime(TimeUnit.SECONDS.toNanos(1));
+        metrics.addTargetTime(TimeUnit.SECONDS.toNanos(2));
+
+        String summary = metrics.summary();
+        assertTrue(summary, summary.startsWith("TGT: read 1 rows (1 MB) at "));
+        assertTrue(summary, summary.endsWith("time in source 25% transform 25% target 50%"));
+        assertEquals(1000, metrics.getSourceMillis());
+        assertEquals(2000, metrics.getTargetMillis());
+        // Nothing was read or written since the previous summary.
+        assertNull(metrics.summary());
+        metrics.batchWritten(1, 8, 0);
+        assertTrue(metrics.summary().contains("wrote 1 rows (0 MB)"));
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Writes rows into an embedded H2 database through TableWriter.
+ */
+public class TableWriterTest {
+
+    /**
+     * Number of the database of the next test, so the tests do not share in-memory databases.
+     */
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    /**
+     * Variable which stores the URL of the target database.
+     */
+    private String url;
+
+    @Before
+    public void setUp() throws SQLException {
+
+        url = "jdbc:h2:mem:writer" + DATABASES.incrementAndGet() + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE TGT (ID INT NOT NULL, NAME VARCHAR(50), TS BIGINT, PRIMARY KEY (ID))");
+        }
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+    }
+
+    @Test
+    public void replaysDuplicateBatchRowByRow() throws SQLException {
+
+        replaysDuplicateBatch(null);
+    }
+
+    @Test
+    public void replaysDuplicateBatchWithUpsert() throws SQLException {
+
+        replaysDuplicateBatch(UpsertDialect.MYSQL);
+    }
+
+    @Test
+    public void throwsListenerFailureWithoutReplay() throws SQLException {
+
+        SQLException failure = new SQLException("checkpoint failed");
+        List<Long> commits = new ArrayList<>();
+        try (Connection connection = DriverManager.getConnection(url)) {
+            TableWriter writer = new TableWriter(connection, migration(), 10, null);
+            writer.setUpsert(UpsertDialect.MYSQL, false);
+            writer.setCommitListener(rowsWritten -> {
+                commits.add(rowsWritten);
+                throw failure;
+            });
+            writer.accept(new Object[]{1, "a", 1L});
+            writer.accept(new Object[]{2, "b", 2L});
+            try {
+                writer.flush();
+                fail("The listener failure was not thrown");
+            } catch (SQLException e) {
+                assertSame(failure, e);
+            }
+            // Closing the writer, as try-with-resources does, neither writes the batch nor commits it again.
+            writer.close();
+            connection.rollback();
+        }
+        assertEquals(Arrays.asList(2L), commits);
+        assertEquals(0, MigrationEngineFixture.count("SELECT COUNT(*) FROM TGT", DriverManager.getConnection(url)));
+    }
+
+    @Test
+    public void stopsBulkLoadAfterFailure() throws SQLException {
+
+        FailingLoader loader = new FailingLoader("42000");
+        writeWithLoader(loader);
+        assertFalse(loader.isSupported());
+        assertEquals(1, loader.loads);
+    }
+
+    @Test
+    public void keepsBulkLoadAfterDuplicateKey() throws SQLException {
+
+        FailingLoader loader = new FailingLoader("23505");
+        writeWithLoader(loader);
+        assertTrue(loader.isSupported());
+        assertEquals(2, loader.loads);
+    }
+
+    /**
+     * Write two batches with a bulk loader which fails on every load.
+     *
+     * @param loader the bulk loader.
+     * @throws SQLException if the rows could not be written.
+     */
+    private void writeWithLoader(BulkLoader loader) throws SQLException {
+
+        try (Connection connection = DriverManager.getConnection(url);
+             TableWriter writer = new TableWriter(connection, migration(), 2, loader)) {
+            for (int id = 1; id <= 4; id++) {
+                writer.accept(new Object[]{id, "name-" + id, (long) id});
+            }
+            writer.flush();
+            assertEquals(4, writer.getRowsWritten());
+        }
+        assertEquals(4, MigrationEngineFixture.count("SELECT COUNT(*) FROM TGT", DriverManager.getConnection(url)));
+    }
+
+    /**
+     * Write a batch which holds a row the table already has.
+     *
+     * @param dialect upsert statement, null to replay the batch row by row.
+     * @throws SQLException if the rows could not be written.
+     */
+    private void replaysDuplicateBatch(UpsertDialect dialect) throws SQLException {
+
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO TGT VALUES (2, 'stale', -1)");
+        }
+        List<Long> commits = new ArrayList<>();
+        try (Connection connection = DriverManager.getConnection(url);
+             TableWriter writer = new TableWriter(connection, migration(), 10, null)) {
+            writer.setUpsert(dialect, false);
+            writer.setCommitListener(commits::add);
+            for (int id = 1; id <= 3; id++) {
+                writer.accept(new Object[]{id, "name-" + id, (long) id});
+            }
+            writer.flush();
+            assertEquals(3, writer.getRowsWritten());
+        }
+        assertEquals(Arrays.asList(3L), commits);
+        assertEquals("{1=name-1|1, 2=name-2|2, 3=name-3|3}", MigrationEngineFixture.rows("SELECT ID, NAME, TS FROM TGT",
+                DriverManager.getConnection(url)).toString());
+    }
+
+    /**
+     * Migration which writes its rows into the test table as they are.
+     *
+     * @return the migration.
+     */
+    private static TableMigration migration() {
+
+        return new ProjectionMigration("SRC", "TGT", new String[]{"ID", "NAME", "TS"},
+                new String[]{"ID", "NAME", "TS"}, 1, row -> row);
+    }
+
+    /**
+     * Bulk loader which fails on every load with an SQL state.
+     */
+    private static class FailingLoader extends BulkLoader {
+
+        /**
+         * Variable which stores the SQL state of the failure.
+         */
+        private final String sqlState;
+        /**
+         * Variable which stores the number of loads tried.
+         */
+        private int loads;
+
+        /**
+         * Constructor which initiate the variable sqlState.
+         *
+         * @param sqlState SQL state of the failure.
+         */
+        FailingLoader(String sqlState) {
+
+            this.sqlState = sqlState;
+        }
+
+        @Override
+        void load(Connection connection, TableMigration migration, TargetColumns columns, List<Object[]> rows)
+                throws SQLException {
+
+            loads++;
+            throw new SQLException("Bulk load failed", sqlState);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares Transformations.md5ConcatWs, which encodes the values into a reused buffer, with the md5 of the
+ * joined UTF-8 string that Spark md5(concat_ws(' ', ...)) produces.
+ */
+public class TransformationsTest {
+
+    /**
+     * Size of the buffer of Transformations.Md5, so the tests cross it.
+     */
+    private static final int BUFFER_SIZE = 1024;
+
+    @Test
+    public void skipsNullValues() {
+
+        assertMd5();
+        assertMd5((Object) null);
+        assertMd5(null, null);
+        assertMd5(null, "a");
+        assertMd5("a", null);
+        assertMd5(1, null, "b", null, 2L);
+        assertMd5("", null, "");
+        assertMd5("", "x");
+        assertMd5(" ", "", " ");
+    }
+
+    @Test
+    public void encodesNonAsciiText() {
+
+        assertMd5("\u00E9", "\u00DF", "\u20AC");
+        assertMd5("\u65E5\u672C\u8A9E", "\u0395\u03BB\u03BB\u03B7\u03BD\u03B9\u03BA\u03AC",
+                "\u0420\u0443\u0441\u0441\u043A\u0438\u0439");
+        assertMd5("\u007F\u0080\u07FF\u0800\uFFFF");
+        assertMd5(-1234, "caf\u00E9", 5678L, "na\u00EFve");
+    }
+
+    @Test
+    public void encodesSurrogatePairs() {
+
+        assertMd5("\uD83D\uDE00");
+        assertMd5("a\uD83D\uDE00b", "\uD800\uDC00", "\uDBFF\uDFFF");
+        // Unpaired surrogates are written as '?', as String.getBytes writes them.
+        assertMd5("\uD83D");
+        assertMd5("\uDE00x");
+        assertMd5("x\uD83D", "y");
+        assertMd5("\uDE00\uD83D");
+        assertMd5("\uD83D\uD83D\uDE00");
+    }
+
+    @Test
+    public void formatsNumbersAsToString() {
+
+        assertMd5(0, 0L, -0, 1, -1, 9, 10, -10, 99, 100, 101);
+        assertMd5(Integer.MIN_VALUE, Integer.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE);
+        assertMd5(999999999999999999L, 1000000000000000000L, -1000000000000000000L);
+        for (long value = 1; value > 0 && value < Long.MAX_VALUE / 10; value *= 10) {
+            assertMd5(value - 1, value, value + 1, -value + 1, -value, -value - 1);
+        }
+        // Other values go through String.valueOf.
+        assertMd5(1.5, 2.0d, -0.0, 1e21, true, false, (short) 7, (byte) -8, 'c');
+    }
+
+    @Test
+    public void feedsInputsLongerThanTheBuffer() {
+
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 3 * BUFFER_SIZE; i++) {
+            text.append(i % 3 == 0 ? 'a' : i % 3 == 1 ? '\u00E9' : '\u20AC');
+        }
+        assertMd5(text.toString());
+        assertMd5(text.toString(), null, text.toString(), Long.MIN_VALUE);
+        // Multi byte characters & numbers which straddle the end of the buffer.
+        for (int prefix = BUFFER_SIZE - 24; prefix <= BUFFER_SIZE + 4; prefix++) {
+            String filler = repeat('x', prefix);
+            assertMd5(filler + "\u00E9\u20AC\uD83D\uDE00");
+            assertMd5(filler, Long.MIN_VALUE, "\uD83D\uDE00");
+            assertMd5(filler, Integer.MAX_VALUE, "\u65E5\u672C");
+            assertMd5(filler + "\uD83D");
+            assertMd5(filler.substring(1), "");
+        }
+        // A short input after a long one starts from an empty buffer.
+        assertMd5("after");
+    }
+
+    @Test
+    public void matchesRandomValues() {
+
+        Random random = new Random(20190612L);
+        char[] alphabet = {'a', 'Z', '0', ' ', '-', '\u00E9', '\u00DF', '\u20AC', '\u65E5', '\uD83D', '\uDE00',
+                '\uDBFF', '\uDFFF'};
+        for (int test = 0; test < 2000; test++) {
+            List<Object> values = new ArrayList<>();
+            int count = random.nextInt(8);
+            for (int i = 0; i < count; i++) {
+                switch (random.nextInt(5)) {
+                    case 0:
+                        values.add(null);
+                        break;
+                    case 1:
+                        values.add(random.nextInt());
+                        break;
+                    case 2:
+                        values.add(random.nextLong());
+                        break;
+                    default:
+                        char[] chars = new char[random.nextInt(random.nextInt(10) == 0 ? 3 * BUFFER_SIZE : 20)];
+                        for (int j = 0; j < chars.length; j++) {
+                            chars[j] = alphabet[random.nextInt(alphabet.length)];
+                        }
+                        values.add(new String(chars));
+                }
+            }
+            assertMd5(values.toArray());
+        }
+    }
+
+    /**
+     * Check md5ConcatWs against MessageDigest over the values joined with spaces, nulls skipped.
+     *
+     * @param values values to join.
+     */
+    private static void assertMd5(Object... values) {
+
+        List<String> strings = new ArrayList<>();
+        for (Object value : values) {
+            if (value != null) {
+                strings.add(String.valueOf(value));
+            }
+        }
+        String joined = String.join(" ", strings);
+        assertEquals(Arrays.toString(values), md5(joined), Transformations.md5ConcatWs(values));
+    }
+
+    /**
+     * Lower case hexadecimal md5 of the UTF-8 bytes of a string.
+     *
+     * @param value string to digest.
+     * @return the md5.
+     */
+    private static String md5(String value) {
+
+        try {
+            StringBuilder hex = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8))) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * String of a repeated character.
+     *
+     * @param c     character to repeat.
+     * @param count number of characters.
+     * @return the string.
+     */
+    private static String repeat(char c, int count) {
+
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Builds the upsert statement of each database type through UpsertDialect, & runs those H2 understands.
+ */
+public class UpsertDialectTest {
+
+    /**
+     * Number of the database of the next test, so the tests do not share in-memory databases.
+     */
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    /**
+     * Migration of a table with a one column primary key.
+     */
+    private static final TableMigration MIGRATION = new ProjectionMigration("SRC", "TGT",
+            new String[]{"ID", "NAME", "TS"}, new String[]{"ID", "NAME", "TS"}, 1, row -> row);
+
+    /**
+     * Migration of a table whose columns are all primary key columns.
+     */
+    private static final TableMigration KEY_MIGRATION = new ProjectionMigration("SRC", "TGT",
+            new String[]{"ID", "NAME"}, new String[]{"ID", "NAME"}, 2, row -> row);
+
+    @Test
+    public void buildsMysqlUpsert() {
+
+        assertEquals("INSERT INTO TGT (ID,NAME,TS) VALUES (?,?,?) ON DUPLICATE KEY UPDATE NAME=VALUES(NAME),"
+                + "TS=VALUES(TS)", UpsertDialect.MYSQL.upsertSql(MIGRATION));
+        assertEquals("INSERT INTO TGT (ID,NAME) VALUES (?,?) ON DUPLICATE KEY UPDATE ID=ID",
+                UpsertDialect.MYSQL.upsertSql(KEY_MIGRATION));
+    }
+
+    @Test
+    public void buildsPostgresqlUpsert() {
+
+        assertEquals("INSERT INTO TGT (ID,NAME,TS) VALUES (?,?,?) ON CONFLICT (ID) DO UPDATE SET "
+                + "NAME=EXCLUDED.NAME,TS=EXCLUDED.TS", UpsertDialect.POSTGRESQL.upsertSql(MIGRATION));
+        assertEquals("INSERT INTO TGT (ID,NAME) VALUES (?,?) ON CONFLICT (ID,NAME) DO NOTHING",
+                UpsertDialect.POSTGRESQL.upsertSql(KEY_MIGRATION));
+    }
+
+    @Test
+    public void buildsOracleMerge() {
+
+        assertEquals("MERGE INTO TGT t USING (SELECT ? ID,? NAME,? TS FROM dual) s ON (t.ID=s.ID) "
+                + "WHEN MATCHED THEN UPDATE SET t.NAME=s.NAME,t.TS=s.TS "
+                + "WHEN NOT MATCHED THEN INSERT (ID,NAME,TS) VALUES (s.ID,s.NAME,s.TS)",
+                UpsertDialect.ORACLE.upsertSql(MIGRATION));
+        assertEquals("MERGE INTO TGT t USING (SELECT ? ID,? NAME FROM dual) s ON (t.ID=s.ID AND t.NAME=s.NAME) "
+                + "WHEN NOT MATCHED THEN INSERT (ID,NAME) VALUES (s.ID,s.NAME)",
+                UpsertDialect.ORACLE.upsertSql(KEY_MIGRATION));
+    }
+
+    @Test
+    public void buildsMssqlMerge() {
+
+        assertEquals("MERGE INTO TGT WITH (HOLDLOCK) t USING (VALUES (?,?,?)) s (ID,NAME,TS) ON (t.ID=s.ID) "
+                + "WHEN MATCHED THEN UPDATE SET t.NAME=s.NAME,t.TS=s.TS "
+                + "WHEN NOT MATCHED THEN INSERT (ID,NAME,TS) VALUES (s.ID,s.NAME,s.TS);",
+                UpsertDialect.MSSQL.upsertSql(MIGRATION));
+        assertEquals("MERGE INTO TGT WITH (HOLDLOCK) t USING (VALUES (?,?)) s (ID,NAME) "
+                + "ON (t.ID=s.ID AND t.NAME=s.NAME) WHEN NOT MATCHED THEN INSERT (ID,NAME) VALUES (s.ID,s.NAME);",
+                UpsertDialect.MSSQL.upsertSql(KEY_MIGRATION));
+    }
+
+    @Test
+    public void runsMysqlUpsert() throws SQLException {
+
+        assertUpserts("MySQL", UpsertDialect.MYSQL.upsertSql(MIGRATION), UpsertDialect.MYSQL.upsertSql(KEY_MIGRATION));
+    }
+
+    @Test
+    public void runsOracleMerge() throws SQLException {
+
+        assertUpserts("Oracle", typed(UpsertDialect.ORACLE.upsertSql(MIGRATION)),
+                typed(UpsertDialect.ORACLE.upsertSql(KEY_MIGRATION)));
+    }
+
+    @Test
+    public void runsMssqlMerge() throws SQLException {
+
+        // H2 has no table hints.
+        assertUpserts("MSSQLServer", UpsertDialect.MSSQL.upsertSql(MIGRATION).replace(" WITH (HOLDLOCK)", ""),
+                UpsertDialect.MSSQL.upsertSql(KEY_MIGRATION).replace(" WITH (HOLDLOCK)", ""));
+    }
+
+    /**
+     * Give the parameters of the Oracle source row their column types, which H2 can not infer in a derived table.
+     *
+     * @param sql Oracle MERGE statement.
+     * @return the statement, eg:- SELECT CAST(? AS INT) ID,... FROM dual.
+     */
+    private static String typed(String sql) {
+
+        return sql.replace("? ID", "CAST(? AS INT) ID").replace("? NAME", "CAST(? AS VARCHAR(50)) NAME")
+                .replace("? TS", "CAST(? AS BIGINT) TS");
+    }
+
+    /**
+     * Run both upsert statements of a database type as a batch over a table which holds a stale row.
+     *
+     * @param mode      H2 compatibility mode of the database type.
+     * @param upsert    upsert statement of MIGRATION.
+     * @param keyUpsert upsert statement of KEY_MIGRATION.
+     * @throws SQLException if the statements failed.
+     */
+    private static void assertUpserts(String mode, String upsert, String keyUpsert) throws SQLException {
+
+        String url = "jdbc:h2:mem:upsert" + DATABASES.incrementAndGet() + ";MODE=" + mode + ";DB_CLOSE_DELAY=-1";
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE TGT (ID INT NOT NULL, NAME VARCHAR(50), TS BIGINT, PRIMARY KEY (ID))");
+            statement.execute("INSERT INTO TGT VALUES (2, 'stale', -1)");
+            try (PreparedStatement insert = connection.prepareStatement(upsert)) {
+                for (int id = 1; id <= 3; id++) {
+                    insert.setInt(1, id);
+                    insert.setString(2, "name-" + id);
+                    insert.setLong(3, id);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            assertEquals("{1=name-1|1, 2=name-2|2, 3=name-3|3}",
+                    MigrationEngineFixture.rows("SELECT ID, NAME, TS FROM TGT", DriverManager.getConnection(url))
+                            .toString());
+
+            statement.execute("DROP TABLE TGT");
+            statement.execute("CREATE TABLE TGT (ID INT NOT NULL, NAME VARCHAR(50) NOT NULL, TS BIGINT, "
+                    + "PRIMARY KEY (ID, NAME))");
+            statement.execute("INSERT INTO TGT VALUES (2, 'name-2', -1)");
+            try (PreparedStatement insert = connection.prepareStatement(keyUpsert)) {
+                for (int id = 1; id <= 3; id++) {
+                    insert.setInt(1, id);
+                    insert.setString(2, "name-" + id);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            assertEquals("{1=name-1|null, 2=name-2|-1, 3=name-3|null}",
+                    MigrationEngineFixture.rows("SELECT ID, NAME, TS FROM TGT", DriverManager.getConnection(url))
+                            .toString());
+            statement.execute("SHUTDOWN");
+        }
+    }
+}
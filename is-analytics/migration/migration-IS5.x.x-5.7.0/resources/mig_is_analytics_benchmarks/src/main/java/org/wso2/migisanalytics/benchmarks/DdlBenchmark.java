@@ -0,0 +1,110 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.migisanalytics.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to create the IS_ANALYTICS tables & indexes of each database type, with the statements sent as one
+ * batch & one by one, the batchDDL option. Every invocation starts from an empty database.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class DdlBenchmark {
+
+    /**
+     * Variable which stores the database type.
+     */
+    @Param
+    public Dialect dialect;
+    /**
+     * Variable which stores whether the statements are sent as one batch.
+     */
+    @Param({"true", "false"})
+    public boolean batched;
+
+    /**
+     * Variable which stores the DDL statements of the database type.
+     */
+    private List<String> ddl;
+    /**
+     * Variable which stores the connection to the empty database.
+     */
+    private Connection connection;
+    /**
+     * Variable which stores the statement the DDL is executed with.
+     */
+    private Statement statement;
+    /**
+     * Variable which stores the statements which failed in the last invocation.
+     */
+    private List<String> failed;
+
+    @Setup(Level.Trial)
+    public void loadDdl() {
+
+        ddl = MigrationTool.tablesDdl(dialect);
+    }
+
+    @Setup(Level.Invocation)
+    public void openDatabase() throws SQLException {
+
+        connection = dialect.open();
+        statement = connection.createStatement();
+    }
+
+    @Benchmark
+    public List<String> createTables() {
+
+        // Postgresql runs a batch in one implicit transaction, as in DatabaseConnection.executeDDL.
+        failed = MigrationTool.executeDdl(statement, ddl, batched, dialect == Dialect.POSTGRESQL);
+        return failed;
+    }
+
+    @TearDown(Level.Invocation)
+    public void dropDatabase() throws SQLException {
+
+        statement.close();
+        connection.close();
+        if (!failed.isEmpty()) {
+            throw new IllegalStateException(String.format("%d DDL statements failed on %s, first %s", failed.size(),
+                    dialect, failed.get(0)));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.migisanalytics.benchmarks;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The DBTYPE values of the migration tool, each stood in for by an embedded H2 database in the compatibility
+ * mode of the database. The numbers show how the tool's statements & batching compare with each other, not
+ * the absolute speed of the real database, so a setting is confirmed on the production database before the
+ * cutover.
+ */
+public enum Dialect {
+
+    MYSQL("MySQL"), POSTGRESQL("PostgreSQL"), ORACLE("Oracle"), MSSQL("MSSQLServer");
+
+    /**
+     * Number of databases opened, so every database gets a name of its own.
+     */
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    /**
+     * Variable which stores the H2 compatibility mode of the database.
+     */
+    private final String mode;
+
+    /**
+     * Constructor which initiate the variables mode.
+     *
+     * @param mode H2 compatibility mode of the database.
+     */
+    Dialect(String mode) {
+
+        this.mode = mode;
+    }
+
+    /**
+     * Open a connection to a new empty in-memory database, which is dropped when the connection is closed.
+     *
+     * @return the connection.
+     * @throws SQLException if the database could not be created.
+     */
+    Connection open() throws SQLException {
+
+        return DriverManager.getConnection(String.format("jdbc:h2:mem:%s_%d;MODE=%s", name(),
+                DATABASES.incrementAndGet(), mode), "sa", "");
+    }
+}
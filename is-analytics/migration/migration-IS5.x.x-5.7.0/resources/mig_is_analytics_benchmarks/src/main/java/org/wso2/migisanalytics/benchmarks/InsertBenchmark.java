@@ -0,0 +1,188 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.migisanalytics.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows per second written into ActiveSessionsTable by batch size, with the prepared INSERT the tool uses &
+ * with plain statements which carry the values as literals. Rows are committed after every batch, as
+ * TableWriter does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(InsertBenchmark.ROWS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class InsertBenchmark {
+
+    /**
+     * Number of rows written by an invocation.
+     */
+    static final int ROWS = 10000;
+
+    /**
+     * Variable which stores the database type.
+     */
+    @Param
+    public Dialect dialect;
+    /**
+     * Variable which stores the number of rows sent to the database at once, the batchSize option.
+     */
+    @Param({"1", "100", "1000", "10000"})
+    public int batchSize;
+    /**
+     * Variable which stores whether the rows are written with a prepared statement.
+     */
+    @Param({"true", "false"})
+    public boolean prepared;
+
+    /**
+     * Variable which stores the rows to write, in the order of the target columns.
+     */
+    private Object[][] rows;
+    /**
+     * Variable which stores the INSERT statement of the tool.
+     */
+    private String insert;
+    /**
+     * Variable which stores the connection to the database.
+     */
+    private Connection connection;
+
+    @Setup(Level.Trial)
+    public void createTable() throws SQLException {
+
+        insert = MigrationTool.insertSql("activeSessions");
+        connection = dialect.open();
+        List<String> ddl = MigrationTool.tablesDdl(dialect);
+        try (Statement statement = connection.createStatement()) {
+            for (String s : ddl) {
+                // The Oracle DDL names the table in upper case.
+                if (s.toUpperCase(Locale.ENGLISH).startsWith("CREATE TABLE ACTIVESESSIONSTABLE ")) {
+                    statement.execute(s);
+                }
+            }
+        }
+        connection.setAutoCommit(false);
+        rows = new Object[ROWS][];
+        long timestamp = 1546300800000L;
+        for (int i = 0; i < ROWS; i++) {
+            rows[i] = new Object[]{-1234, "session-" + i, timestamp + i, timestamp + i + 60000L, null, 1,
+                    "user" + (i % 500), "PRIMARY", "192.168.1." + (i % 250), "NOT_AVAILABLE", "carbon.super",
+                    "sp" + (i % 20), "LOCAL", i % 2 == 0, "Mozilla/5.0 (X11; Linux x86_64)", "PRIMARY",
+                    timestamp + i};
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyTable() throws SQLException {
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DELETE FROM ActiveSessionsTable");
+        }
+        connection.commit();
+    }
+
+    @Benchmark
+    public void insertRows() throws SQLException {
+
+        if (prepared) {
+            try (PreparedStatement statement = connection.prepareStatement(insert)) {
+                for (int i = 0; i < ROWS; i++) {
+                    Object[] row = rows[i];
+                    for (int j = 0; j < row.length; j++) {
+                        statement.setObject(j + 1, row[j]);
+                    }
+                    statement.addBatch();
+                    if ((i + 1) % batchSize == 0 || i == ROWS - 1) {
+                        statement.executeBatch();
+                        connection.commit();
+                    }
+                }
+            }
+        } else {
+            String prefix = insert.substring(0, insert.indexOf(" VALUES (") + " VALUES (".length());
+            try (Statement statement = connection.createStatement()) {
+                for (int i = 0; i < ROWS; i++) {
+                    statement.addBatch(literalInsert(prefix, rows[i]));
+                    if ((i + 1) % batchSize == 0 || i == ROWS - 1) {
+                        statement.executeBatch();
+                        connection.commit();
+                    }
+                }
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws SQLException {
+
+        connection.close();
+    }
+
+    /**
+     * INSERT statement with the values of a row as literals.
+     *
+     * @param prefix INSERT INTO table (columns) VALUES (
+     * @param row    column values.
+     * @return the statement.
+     */
+    private static String literalInsert(String prefix, Object[] row) {
+
+        StringBuilder sql = new StringBuilder(prefix);
+        for (int i = 0; i < row.length; i++) {
+            if (i > 0) {
+                sql.append(',');
+            }
+            Object value = row[i];
+            if (value == null) {
+                sql.append("NULL");
+            } else if (value instanceof String) {
+                sql.append('\'').append(((String) value).replace("'", "''")).append('\'');
+            } else if (value instanceof Boolean) {
+                sql.append((Boolean) value ? '1' : '0');
+            } else {
+                sql.append(value);
+            }
+        }
+        return sql.append(')').toString();
+    }
+}
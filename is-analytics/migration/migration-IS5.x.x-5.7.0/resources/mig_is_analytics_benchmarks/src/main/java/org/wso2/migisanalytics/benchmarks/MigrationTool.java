@@ -0,0 +1,185 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.migisanalytics.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Access to the classes of the migration tool. The tool lives in the default package, which a named package
+ * can not import, & JMH does not accept benchmarks in the default package, so the tool is reached through
+ * method handles. The handles are constants, so the JIT compiles the calls like direct calls.
+ */
+final class MigrationTool {
+
+    /**
+     * DatabaseConnection.tablesDDL(), as (DatabaseConnection)List.
+     */
+    private static final MethodHandle TABLES_DDL;
+    /**
+     * new DdlExecutor(batched, atomicBatch), as (boolean,boolean)Object.
+     */
+    private static final MethodHandle NEW_DDL_EXECUTOR;
+    /**
+     * DdlExecutor.execute(statement, statements), as (Object,Statement,List)List.
+     */
+    private static final MethodHandle EXECUTE_DDL;
+    /**
+     * Transformations.fromUnixTime(timestamp), as (Object)String.
+     */
+    private static final MethodHandle FROM_UNIX_TIME;
+    /**
+     * Transformations.md5ConcatWs(values), as (Object[])String.
+     */
+    private static final MethodHandle MD5_CONCAT_WS;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            TABLES_DDL = lookup.unreflect(method("DatabaseConnection", "tablesDDL"))
+                    .asType(MethodType.methodType(List.class, Object.class));
+            Constructor<?> constructor = Class.forName("DdlExecutor").getDeclaredConstructor(boolean.class,
+                    boolean.class);
+            constructor.setAccessible(true);
+            NEW_DDL_EXECUTOR = lookup.unreflectConstructor(constructor)
+                    .asType(MethodType.methodType(Object.class, boolean.class, boolean.class));
+            EXECUTE_DDL = lookup.unreflect(method("DdlExecutor", "execute", Statement.class, List.class))
+                    .asType(MethodType.methodType(List.class, Object.class, Statement.class, List.class));
+            FROM_UNIX_TIME = lookup.unreflect(method("Transformations", "fromUnixTime", Object.class));
+            MD5_CONCAT_WS = lookup.unreflect(method("Transformations", "md5ConcatWs", Object[].class))
+                    .asFixedArity();
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private MigrationTool() {
+
+    }
+
+    /**
+     * DDL statements the tool creates the IS_ANALYTICS tables & their indexes with.
+     *
+     * @param dialect database type.
+     * @return list of DDL statements, each index after its table.
+     */
+    @SuppressWarnings("unchecked")
+    static List<String> tablesDdl(Dialect dialect) {
+
+        try {
+            Constructor<?> constructor = Class.forName("DatabaseConnection").getConstructor(String.class,
+                    String.class, String.class, String.class, String.class, String.class, String.class);
+            constructor.setAccessible(true);
+            Object connection = constructor.newInstance(dialect.name(), "localhost", "0", "IS_ANALYTICS", "", "",
+                    "");
+            return (List<String>) TABLES_DDL.invokeExact(connection);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Error occurred while reading the DDL statements of the tool", e);
+        }
+    }
+
+    /**
+     * Execute DDL statements the way the tool does.
+     *
+     * @param statement   statement to execute the DDL with.
+     * @param statements  list of DDL statements.
+     * @param batched     send the statements as a single batch, the batchDDL option.
+     * @param atomicBatch a failed batch is rolled back as a whole.
+     * @return list of statements which failed.
+     */
+    @SuppressWarnings("unchecked")
+    static List<String> executeDdl(Statement statement, List<String> statements, boolean batched,
+                                   boolean atomicBatch) {
+
+        try {
+            Object executor = NEW_DDL_EXECUTOR.invokeExact(batched, atomicBatch);
+            return (List<String>) EXECUTE_DDL.invokeExact(executor, statement, statements);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Error occurred while executing the DDL statements", e);
+        }
+    }
+
+    /**
+     * INSERT statement the tool writes the rows of a table with.
+     *
+     * @param table name of the AnalyticsTables method which builds the migration of the table.
+     * @return INSERT INTO table (columns) VALUES (?,...).
+     */
+    static String insertSql(String table) {
+
+        try {
+            Object migration = method("AnalyticsTables", table).invoke(null);
+            return (String) method("TableWriter", "insertSql", Class.forName("TableMigration")).invoke(null,
+                    migration);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(String.format("Error occurred while building the insert of %s", table),
+                    e);
+        }
+    }
+
+    /**
+     * Transformations.fromUnixTime of the tool.
+     *
+     * @param timestamp epoch millis.
+     * @return the formatted time.
+     */
+    static String fromUnixTime(Object timestamp) {
+
+        try {
+            return (String) FROM_UNIX_TIME.invokeExact(timestamp);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Transformations.md5ConcatWs of the tool.
+     *
+     * @param values values to join.
+     * @return lower case hexadecimal md5 of the joined values.
+     */
+    static String md5ConcatWs(Object[] values) {
+
+        try {
+            return (String) MD5_CONCAT_WS.invokeExact(values);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Find a method of a class of the tool & make it accessible.
+     *
+     * @param className  name of the class.
+     * @param name       name of the method.
+     * @param parameters parameter types of the method.
+     * @return the method.
+     * @throws ReflectiveOperationException if the method does not exist.
+     */
+    private static Method method(String className, String name, Class<?>... parameters)
+            throws ReflectiveOperationException {
+
+        Method method = Class.forName(className).getDeclaredMethod(name, parameters);
+        method.setAccessible(true);
+        return method;
+    }
+}
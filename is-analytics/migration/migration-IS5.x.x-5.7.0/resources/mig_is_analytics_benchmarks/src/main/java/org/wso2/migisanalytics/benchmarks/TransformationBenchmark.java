@@ -0,0 +1,89 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.migisanalytics.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost per row of the timestamp formatting & the alertId hash the tool computes in Java. Both run before
+ * the rows reach the database, so they are the same for every database type.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class TransformationBenchmark {
+
+    /**
+     * Number of distinct inputs cycled through, so the results are not constant folded.
+     */
+    private static final int INPUTS = 1024;
+
+    /**
+     * Variable which stores the epoch millis of the _timestamp column.
+     */
+    private Long[] timestamps;
+    /**
+     * Variable which stores the values of security alerts, in the order they are hashed into the alertId.
+     */
+    private Object[][] alerts;
+    /**
+     * Variable which stores the index of the next input.
+     */
+    private int next;
+
+    @Setup
+    public void createInputs() {
+
+        timestamps = new Long[INPUTS];
+        alerts = new Object[INPUTS][];
+        long timestamp = 1546300800000L;
+        for (int i = 0; i < INPUTS; i++) {
+            timestamps[i] = timestamp + i * 3607L;
+            alerts[i] = new Object[]{-1234, i % 2 == 0 ? "SuspiciousLogin" : "LongSession", "carbon.super",
+                    "Suspicious login attempts by user" + i + " from 192.168.1." + (i % 250), i % 3,
+                    timestamps[i], "2019-01-01 00:00:00"};
+        }
+    }
+
+    @Benchmark
+    public String fromUnixTime() {
+
+        next = (next + 1) & (INPUTS - 1);
+        return MigrationTool.fromUnixTime(timestamps[next]);
+    }
+
+    @Benchmark
+    public String alertId() {
+
+        next = (next + 1) & (INPUTS - 1);
+        return MigrationTool.md5ConcatWs(alerts[next]);
+    }
+}